@@ -0,0 +1,18 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AdherenceResponseBean {
+    private Long userId;
+    private Long medicationId;  // null when summed over all medications
+    private List<AdherenceWeekBean> weeks;
+}
@@ -0,0 +1,19 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AdherenceWeekBean {
+    private LocalDate weekStart;
+    private int taken;
+    private int missed;
+    private Double percentTaken;  // null when no doses were logged
+}
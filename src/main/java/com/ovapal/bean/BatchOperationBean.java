@@ -0,0 +1,18 @@
+package com.ovapal.bean;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOperationBean {
+    private String op;      // CREATE, UPDATE or DELETE
+    private String type;    // HEALTH, PERIOD, REMINDER or MEDICATION
+    private Long id;        // record id for UPDATE and DELETE
+    private JsonNode data;  // the request bean of the matching single-record endpoint
+}
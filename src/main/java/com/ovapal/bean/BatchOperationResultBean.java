@@ -0,0 +1,20 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOperationResultBean {
+    private int index;
+    private String op;
+    private String type;
+    private String status;  // OK, FAILED or NOT_RUN
+    private Long id;
+    private String error;
+    private Object result;  // response bean of the single-record endpoint
+}
@@ -0,0 +1,17 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRequestBean {
+    private Long userId;
+    private List<BatchOperationBean> operations;
+}
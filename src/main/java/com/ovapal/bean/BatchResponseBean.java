@@ -0,0 +1,19 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchResponseBean {
+    private Long userId;
+    private boolean committed;  // false: nothing was written, see the FAILED result or error
+    private String error;
+    private List<BatchOperationResultBean> results;
+}
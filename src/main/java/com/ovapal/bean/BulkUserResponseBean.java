@@ -0,0 +1,18 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUserResponseBean {
+    private int requested;
+    private int created;
+    private Map<String, String> rejected;  // email -> reason
+}
@@ -0,0 +1,25 @@
+package com.ovapal.bean;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Empty fields are left out of the JSON to keep a month of days compact
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class CalendarDayBean {
+    private LocalDate date;
+    private boolean period;
+    private boolean ovulation;
+    private int vitals;  // number of health records logged that day
+    private List<Long> reminderIds;
+    private List<Long> medicationIds;
+}
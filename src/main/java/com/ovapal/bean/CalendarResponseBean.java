@@ -0,0 +1,22 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CalendarResponseBean {
+    private Long userId;
+    private YearMonth month;
+    private Map<Long, String> reminders;    // reminder ID -> title
+    private Map<Long, String> medications;  // medication ID -> medicine and dosage
+    private List<CalendarDayBean> days;
+}
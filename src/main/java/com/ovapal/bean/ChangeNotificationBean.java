@@ -0,0 +1,16 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeNotificationBean {
+    private String recordType;  // HEALTH, PERIOD, REMINDER or MEDICATION
+    private Long recordId;      // null for batched writes; refetch the list
+    private String changeType;  // CREATED, UPDATED or DELETED
+}
@@ -0,0 +1,19 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoseBean {
+    private Long medicationId;
+    private String medicine;
+    private String dosage;
+    private LocalDateTime dueAt;
+}
@@ -0,0 +1,16 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoseEventBatchResponseBean {
+    private int requested;
+    private int recorded;
+    private int duplicates;  // doses already logged for the same medication and scheduled time
+}
@@ -0,0 +1,20 @@
+package com.ovapal.bean;
+
+import com.ovapal.entity.DoseStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoseEventRequestBean {
+    private Long medicationId;
+    private LocalDateTime scheduledAt;
+    private DoseStatus status;
+    private LocalDateTime takenAt;  // optional, defaults to now for TAKEN
+}
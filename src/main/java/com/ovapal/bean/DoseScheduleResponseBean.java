@@ -0,0 +1,23 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoseScheduleResponseBean {
+    private Long userId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<DoseBean> doses;
+    private boolean truncated;  // more doses are due in the window than were returned
+    private Map<Long, String> schedules;  // medication ID -> compiled schedule, "as needed" or "unrecognized: ..."
+}
@@ -0,0 +1,21 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DueReminderBean {
+    private Long reminderId;
+    private String title;
+    private String description;
+    private LocalTime reminderTime;
+    // Set on late deliveries after a restart: how many missed occurrences this entry stands for
+    private Integer missedOccurrences;
+}
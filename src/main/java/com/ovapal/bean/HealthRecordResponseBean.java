@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -23,4 +24,5 @@ public class HealthRecordResponseBean {
     private Integer bloodPressureSystolic;
     private Integer bloodPressureDiastolic;
     private String notes;
+    private List<String> anomalyFlags;
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxStatsResponseBean {
+    private Boolean enabled;
+    private String sink;
+    private Long pending;
+    private Long published;
+    private Long failedBatches;
+    // Most recent relay pass that published anything
+    private Long lastPassEvents;
+    private Double lastPassEventsPerSecond;
+}
@@ -19,4 +19,5 @@ public class PeriodRecordResponseBean {
     private String symptoms;
     private String mood;
     private String notes;
+    private LocalDate estimatedOvulationDate;
 } 
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PopulationBucketBean {
+    private String dimension;
+    private String bucket;
+    private Integer users;
+    private Long cycles;
+    private Double cycleLengthP10;
+    private Double cycleLengthP25;
+    private Double cycleLengthMedian;
+    private Double cycleLengthP75;
+    private Double cycleLengthP90;
+    private Double meanCycleLength;
+    private Long periods;
+    private Double meanPeriodDays;
+}
@@ -0,0 +1,20 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PopulationStatsResponseBean {
+    private LocalDateTime computedAt;
+    private Boolean running;
+    private Integer minUsersPerBucket;
+    private List<PopulationBucketBean> buckets;
+}
@@ -0,0 +1,25 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Pushed over the reminders WebSocket; the client answers {"type":"ack","deliveryId":"..."}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReminderDeliveryBean {
+    private String type;        // always "reminders"
+    private String deliveryId;
+    private Long userId;
+    private LocalDateTime dueAt;
+    private int attempt;
+    // True for reminders that fell due while the service was down
+    private boolean late;
+    private List<DueReminderBean> reminders;
+}
@@ -1,5 +1,6 @@
 package com.ovapal.bean;
 
+import com.ovapal.entity.MissedReminderPolicy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,4 +22,5 @@ public class ReminderRequestBean {
     private Boolean isRepeating;
     private String repeatFrequency;
     private Boolean isActive;
+    private MissedReminderPolicy missedPolicy;
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReminderShardsResponseBean {
+    private String nodeId;
+    private Integer shardCount;
+    private Integer liveNodes;
+    private List<Integer> ownedShards;
+    private List<Integer> recoveringShards;
+}
@@ -0,0 +1,16 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SampleIngestResponseBean {
+    private int samples;
+    private int chunks;
+    private long encodedBytes;
+}
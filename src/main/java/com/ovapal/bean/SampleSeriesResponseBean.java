@@ -0,0 +1,19 @@
+package com.ovapal.bean;
+
+import com.ovapal.entity.SampleMetric;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SampleSeriesResponseBean {
+    private Long userId;
+    private SampleMetric metric;
+    private List<SamplePointBean> samples;
+}
@@ -0,0 +1,21 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchHitBean {
+    private String recordType;
+    private Long recordId;
+    private LocalDate date;
+    private String title;
+    private String snippet;
+    private Double score;
+}
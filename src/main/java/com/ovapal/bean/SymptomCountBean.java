@@ -0,0 +1,17 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SymptomCountBean {
+    private String category;
+    private String term;
+    private Integer count;
+    private Double percent;  // of the matching records
+}
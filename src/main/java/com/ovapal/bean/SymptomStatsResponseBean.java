@@ -0,0 +1,23 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SymptomStatsResponseBean {
+    private Long userId;
+    private LocalDate from;
+    private LocalDate to;
+    private Integer records;
+    private List<String> with;  // terms every matching record has, as category:term
+    private Integer matchingRecords;
+    private List<SymptomCountBean> terms;
+}
@@ -0,0 +1,18 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncDeletionBean {
+    private String recordType;
+    private Long recordId;
+    private LocalDateTime deletedAt;
+}
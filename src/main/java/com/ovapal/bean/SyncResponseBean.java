@@ -0,0 +1,25 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncResponseBean {
+    private Long userId;
+    private String since;
+    private String nextToken;  // pass as since on the next call
+    private boolean hasMore;
+    private boolean reset;     // the token was not recognised; this is a full sync and local data should be replaced
+    private List<HealthRecordResponseBean> healthRecords;
+    private List<PeriodRecordResponseBean> periodRecords;
+    private List<ReminderResponseBean> reminders;
+    private List<MedicationResponseBean> medications;
+    private List<SyncDeletionBean> deleted;
+}
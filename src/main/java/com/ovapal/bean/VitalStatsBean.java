@@ -0,0 +1,22 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VitalStatsBean {
+    private String vital;
+    private int count;
+    private double average;
+    private double min;
+    private double max;
+    private double standardDeviation;
+    private double slopePerDay;
+    private double latest;
+    private double latestZScore;
+}
@@ -0,0 +1,20 @@
+package com.ovapal.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VitalsTrendResponseBean {
+    private Long userId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private List<VitalStatsBean> vitals;
+}
@@ -0,0 +1,52 @@
+package com.ovapal.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Bounded pool for streaming responses (NDJSON lists, reports). A streaming body blocks its
+ * thread while the client reads, so these get their own threads and a time limit instead of
+ * sharing the application task executor; once threads and queue are full, requests get 503.
+ * Not used in virtual-thread mode, where every stream has a virtual thread of its own.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ovapal.threads.virtual.enabled", havingValue = "false", matchIfMissing = true)
+public class StreamingConfig implements WebMvcConfigurer, DisposableBean {
+
+    @Value("${ovapal.stream.threads:16}")
+    private int threads;
+
+    @Value("${ovapal.stream.queue:64}")
+    private int queueCapacity;
+
+    @Value("${ovapal.stream.timeout:5m}")
+    private Duration timeout;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stream-");
+        executor.initialize();
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ovapal.config;
+
+import com.ovapal.controller.ReminderSocketEndpoint;
+import com.ovapal.util.JwtTokenUtil;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.ServletContextAware;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Registers the WebSocket endpoints with the servlet container's jakarta.websocket container.
+ * The endpoint instance is the Spring bean. The bearer token (Authorization header, or the
+ * access_token query parameter for browsers, which cannot set headers on a WebSocket) is checked by
+ * a servlet filter ahead of the container's upgrade, so an unauthenticated handshake gets a 401
+ * instead of an open socket that is closed straight away.
+ */
+@Configuration
+public class WebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    public static final String REMINDERS_PATH = "/ovapal/ws/reminders";
+
+    @Autowired
+    private ReminderSocketEndpoint reminderSocketEndpoint;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private ServletContext servletContext;
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext != null
+                ? (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName())
+                : null;
+        if (container == null) {
+            logger.warn("No WebSocket container available, {} is not registered", REMINDERS_PATH);
+            return;
+        }
+        try {
+            container.addEndpoint(ServerEndpointConfig.Builder.create(ReminderSocketEndpoint.class, REMINDERS_PATH)
+                    .configurator(new AuthenticatingConfigurator())
+                    .build());
+            logger.info("Registered WebSocket endpoint {}", REMINDERS_PATH);
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Unable to register WebSocket endpoint " + REMINDERS_PATH, e);
+        }
+    }
+
+    // Unordered registrations are matched before the container's WsFilter, which is added "match after"
+    @Bean
+    public FilterRegistrationBean<Filter> reminderSocketAuthenticationFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(new HandshakeAuthenticationFilter());
+        registration.addUrlPatterns(REMINDERS_PATH);
+        return registration;
+    }
+
+    private final class HandshakeAuthenticationFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            Long userId = authenticate(request);
+            if (userId == null) {
+                WebSocketConfig.logger.warn("Rejecting unauthenticated reminder socket handshake");
+                response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
+                return;
+            }
+            // The container builds the HandshakeRequest's user principal from this request
+            UserPrincipal principal = new UserPrincipal(userId);
+            chain.doFilter(new HttpServletRequestWrapper(request) {
+                @Override
+                public Principal getUserPrincipal() {
+                    return principal;
+                }
+            }, response);
+        }
+
+        private Long authenticate(HttpServletRequest request) {
+            String token = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (token == null) {
+                token = request.getParameter("access_token");
+            }
+            if (token == null) {
+                return null;
+            }
+            token = token.trim();
+            if (token.startsWith("Bearer ")) {
+                token = token.substring(7).trim();
+            }
+            return jwtTokenUtil.validateToken(token) ? jwtTokenUtil.getUserIdFromToken(token) : null;
+        }
+    }
+
+    private record UserPrincipal(Long userId) implements Principal {
+
+        @Override
+        public String getName() {
+            return String.valueOf(userId);
+        }
+    }
+
+    private final class AuthenticatingConfigurator extends ServerEndpointConfig.Configurator {
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> endpointClass) {
+            return endpointClass.cast(reminderSocketEndpoint);
+        }
+
+        // The config passed here is per session, so its user properties become the session's
+        @Override
+        public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+            if (!(request.getUserPrincipal() instanceof UserPrincipal principal)) {
+                // Only reachable if the filter is not mapped; fail the upgrade rather than open the socket
+                throw new IllegalStateException("Reminder socket handshake was not authenticated");
+            }
+            config.getUserProperties().put(ReminderSocketEndpoint.USER_ID, principal.userId());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ovapal.config;
+
+import com.ovapal.util.WriteAheadLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "ovapal.wal.enabled", havingValue = "true")
+public class WriteAheadLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public WriteAheadLog writeAheadLog(
+            @Value("${ovapal.wal.directory:./data/wal}") Path directory,
+            @Value("${ovapal.wal.segment-size:16MB}") DataSize segmentSize,
+            @Value("${ovapal.wal.fsync:INTERVAL}") WriteAheadLog.FsyncPolicy fsyncPolicy,
+            @Value("${ovapal.wal.fsync-interval:100ms}") Duration fsyncInterval) throws IOException {
+        return new WriteAheadLog(directory, Math.toIntExact(segmentSize.toBytes()), fsyncPolicy, fsyncInterval);
+    }
+}
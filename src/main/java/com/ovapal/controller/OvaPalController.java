@@ -1,24 +1,68 @@
 package com.ovapal.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ovapal.bean.*;
+import com.ovapal.entity.SampleMetric;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.service.BatchWriteService;
+import com.ovapal.service.CalendarService;
+import com.ovapal.service.ChangeEventBroadcaster;
+import com.ovapal.service.DoseLogService;
+import com.ovapal.service.DoseScheduleService;
+import com.ovapal.service.IdempotencyStore;
+import com.ovapal.service.MedicineNameIndex;
 import com.ovapal.service.OvaPalService;
+import com.ovapal.service.NotificationOutbox;
+import com.ovapal.service.PopulationAnalyticsJob;
+import com.ovapal.service.ReminderShardManager;
+import com.ovapal.service.ReportService;
+import com.ovapal.service.SampleStreamService;
+import com.ovapal.service.SearchIndexService;
+import com.ovapal.service.SymptomAnalyticsService;
+import com.ovapal.service.SyncService;
+import com.ovapal.service.UserProvisioningService;
 import com.ovapal.util.JwtTokenUtil;
 import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/ovapal")
 @CrossOrigin(origins = "http://localhost:3000")
 public class OvaPalController {
     private static final Logger logger = LoggerFactory.getLogger(OvaPalController.class);
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAY_HEADER = "Idempotent-Replayed";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_FLUSH_INTERVAL = 100;
 
     @Autowired
     private OvaPalService ovaPalService;
@@ -26,6 +70,57 @@ public class OvaPalController {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private UserProvisioningService userProvisioningService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SampleStreamService sampleStreamService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private DoseScheduleService doseScheduleService;
+
+    @Autowired
+    private DoseLogService doseLogService;
+
+    @Autowired
+    private MedicineNameIndex medicineNameIndex;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private SymptomAnalyticsService symptomAnalyticsService;
+
+    @Autowired
+    private PopulationAnalyticsJob populationAnalyticsJob;
+
+    @Autowired
+    private NotificationOutbox notificationOutbox;
+
+    @Autowired
+    private ReminderShardManager reminderShardManager;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private BatchWriteService batchWriteService;
+
+    @Autowired
+    private ChangeEventBroadcaster changeEventBroadcaster;
+
 
     // Public endpoints (no token required)
     @PostMapping("/users")
@@ -51,15 +146,91 @@ public class OvaPalController {
         return ResponseEntity.ok(response);
     }
 
+    // Admin Endpoints
+    @PostMapping("/admin/users/bulk")
+    public ResponseEntity<?> provisionUsers(
+            @RequestBody List<UserRequestBean> userRequestBeans,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(userProvisioningService.provisionUsers(userRequestBeans));
+    }
+
+    // Starts a background run of the anonymized population cycle statistics
+    @PostMapping("/admin/analytics/population")
+    public ResponseEntity<?> runPopulationAnalytics(@RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!populationAnalyticsJob.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Population analytics is already running");
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/admin/analytics/population")
+    public ResponseEntity<?> getPopulationAnalytics(@RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(populationAnalyticsJob.getLatest());
+    }
+
+    // Outbox backlog and relay throughput
+    @GetMapping("/admin/outbox")
+    public ResponseEntity<?> getOutboxStats(@RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(notificationOutbox.getStats());
+    }
+
+    // Reminder shards held by the node that serves the request
+    @GetMapping("/admin/reminders/shards")
+    public ResponseEntity<?> getReminderShards(@RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(reminderShardManager.getStatus());
+    }
+
     // Health Record Endpoints
     @PostMapping("/health")
     public ResponseEntity<?> createHealthRecord(
+            @RequestBody HealthRecordRequestBean healthRecordRequestBean,
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return idempotent(authHeader, "POST /health", idempotencyKey, () -> ovaPalService.saveHealthRecord(healthRecordRequestBean));
+    }
+
+    @PostMapping("/health/async")
+    public ResponseEntity<?> ingestHealthRecord(
             @RequestBody HealthRecordRequestBean healthRecordRequestBean,
             @RequestHeader("Authorization") String authHeader) {
         if (!validateToken(authHeader)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(ovaPalService.saveHealthRecord(healthRecordRequestBean));
+        ovaPalService.enqueueHealthRecord(healthRecordRequestBean);
+        return ResponseEntity.accepted().build();
     }
 
     @GetMapping("/health/{userId}")
@@ -72,6 +243,38 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.getHealthRecords(userId));
     }
 
+    @GetMapping("/health/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamHealthRecords(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.verifyUserExists(userId);
+        return ndjson(consumer -> ovaPalService.streamHealthRecords(userId, consumer));
+    }
+
+    @GetMapping("/health/{userId}/anomalies")
+    public ResponseEntity<?> getHealthAnomalies(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(ovaPalService.getHealthAnomalies(userId));
+    }
+
+    @GetMapping("/health/{userId}/trends")
+    public ResponseEntity<?> getVitalsTrend(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(ovaPalService.getVitalsTrend(userId, days));
+    }
+
     @PutMapping("/health/{healthId}")
     public ResponseEntity<?> updateHealthRecord(
             @PathVariable Long healthId,
@@ -83,6 +286,191 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.updateHealthRecord(healthId, healthRecordRequestBean));
     }
 
+    // Ordered create/update/delete operations across record types, applied in one transaction. Responds 422 with
+    // per-operation results when any operation fails, in which case nothing was written.
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(
+            @RequestBody BatchRequestBean batchRequestBean,
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return idempotentResponse(authHeader, "POST /batch", idempotencyKey, () -> {
+            BatchResponseBean response = batchWriteService.execute(batchRequestBean);
+            return ResponseEntity.status(response.isCommitted() ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(response);
+        });
+    }
+
+    // Server-Sent Events stream of the user's record changes ("change" events); refetch or sync on each one
+    @GetMapping(value = "/events/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToChanges(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.verifyUserExists(userId);
+        return ResponseEntity.ok(changeEventBroadcaster.subscribe(userId));
+    }
+
+    // Rows of the signed-in user changed since the given token (omit it for a full sync). Pass nextToken back as since.
+    @GetMapping("/sync")
+    public ResponseEntity<?> sync(
+            @RequestParam(required = false) String since,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(syncService.getChanges(userIdFromToken(authHeader), since));
+    }
+
+    // Doctor-visit report as format=pdf (default) or csv, streamed as it is generated. Defaults to the last 6 months.
+    @GetMapping("/reports/{userId}")
+    public ResponseEntity<StreamingResponseBody> getReport(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "pdf") String format,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest request) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ReportService.Format reportFormat;
+        try {
+            reportFormat = ReportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported report format: " + format);
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusMonths(6);
+        ReportService.Report report = reportService.prepare(userId, start, end);
+        // The body releases the slot when it runs; this covers a body that never runs (executor
+        // rejection, async timeout, client gone) and is a no-op otherwise
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(report, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                report.release();
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(reportFormat == ReportService.Format.PDF
+                        ? MediaType.APPLICATION_PDF
+                        : MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + report.getFileName(reportFormat) + "\"")
+                .body(outputStream -> report.writeTo(outputStream, reportFormat));
+    }
+
+    // Full-text search across notes, symptoms, mood, medications and reminders
+    @GetMapping("/search/{userId}")
+    public ResponseEntity<?> search(
+            @PathVariable Long userId,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(searchIndexService.search(userId, q, limit));
+    }
+
+    // Calendar Endpoints
+    @GetMapping("/calendar/{userId}")
+    public ResponseEntity<?> getCalendar(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String month,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        YearMonth yearMonth;
+        try {
+            yearMonth = month != null ? YearMonth.parse(month) : YearMonth.now();
+        } catch (DateTimeParseException e) {
+            throw new InvalidOperationException("Month must be formatted as yyyy-MM");
+        }
+        return ResponseEntity.ok(calendarService.getCalendar(userId, yearMonth));
+    }
+
+    // Due doses generated from medication frequencies; defaults to the next 7 days
+    @GetMapping("/doses/{userId}")
+    public ResponseEntity<?> getDoses(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        LocalDateTime start = from != null ? from : LocalDateTime.now();
+        LocalDateTime end = to != null ? to : start.plusDays(7);
+        return ResponseEntity.ok(doseScheduleService.getDoses(userId, start, end, limit));
+    }
+
+    @PostMapping("/doses/events")
+    public ResponseEntity<?> recordDoseEvents(
+            @RequestBody DoseEventBatchRequestBean doseEventBatchRequestBean,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(doseLogService.recordDoseEvents(doseEventBatchRequestBean));
+    }
+
+    // Weekly adherence; defaults to the last 8 weeks
+    @GetMapping("/doses/{userId}/adherence")
+    public ResponseEntity<?> getAdherence(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long medicationId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusWeeks(7);
+        return ResponseEntity.ok(doseLogService.getAdherence(userId, start, end, medicationId));
+    }
+
+    // Wearable Sample Endpoints
+    @PostMapping("/samples")
+    public ResponseEntity<?> ingestSamples(
+            @RequestBody SampleBatchRequestBean sampleBatchRequestBean,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(sampleStreamService.ingestSamples(sampleBatchRequestBean));
+    }
+
+    @GetMapping("/samples/{userId}")
+    public ResponseEntity<?> getSamples(
+            @PathVariable Long userId,
+            @RequestParam SampleMetric metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(sampleStreamService.getSamples(userId, metric, from, to));
+    }
+
+    @PostMapping("/samples/{userId}/summary")
+    public ResponseEntity<?> summarizeSamples(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(sampleStreamService.summarizeDay(userId, date));
+    }
+
     // Period Record Endpoints
     @GetMapping("/period/{userId}")
     public ResponseEntity<?> getPeriodRecords(
@@ -94,14 +482,54 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.getPeriodRecords(userId));
     }
 
+    // Symptom, mood and flow frequencies; with=headache&with=flow:heavy restricts to records having all of them.
+    // Defaults to the last 12 months.
+    @GetMapping("/period/{userId}/symptoms")
+    public ResponseEntity<?> getSymptomStats(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> with,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusMonths(12);
+        return ResponseEntity.ok(symptomAnalyticsService.getSymptomStats(userId, start, end, with));
+    }
+
+    @GetMapping("/period/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamPeriodRecords(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.verifyUserExists(userId);
+        return ndjson(consumer -> ovaPalService.streamPeriodRecords(userId, consumer));
+    }
+
+    @PostMapping("/period/async")
+    public ResponseEntity<?> ingestPeriodRecord(
+            @RequestBody PeriodRecordRequestBean periodRecordRequestBean,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.enqueuePeriodRecord(periodRecordRequestBean);
+        return ResponseEntity.accepted().build();
+    }
+
     @PostMapping("/period")
     public ResponseEntity<?> savePeriodRecord(
             @RequestBody PeriodRecordRequestBean periodRecordRequestBean,
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         if (!validateToken(authHeader)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(ovaPalService.savePeriodRecord(periodRecordRequestBean));
+        return idempotent(authHeader, "POST /period", idempotencyKey, () -> ovaPalService.savePeriodRecord(periodRecordRequestBean));
     }
 
     @PutMapping("/period/{periodRecId}")
@@ -126,14 +554,26 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.getReminders(userId));
     }
 
+    @GetMapping("/reminders/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamReminders(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.verifyUserExists(userId);
+        return ndjson(consumer -> ovaPalService.streamReminders(userId, consumer));
+    }
+
     @PostMapping("/reminders")
     public ResponseEntity<?> setReminder(
             @RequestBody ReminderRequestBean reminderRequestBean,
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         if (!validateToken(authHeader)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(ovaPalService.setReminder(reminderRequestBean));
+        return idempotent(authHeader, "POST /reminders", idempotencyKey, () -> ovaPalService.setReminder(reminderRequestBean));
     }
 
     @PutMapping("/reminders/{reminderId}")
@@ -159,14 +599,26 @@ public class OvaPalController {
     }
 
     // Medication Endpoints
+    @PostMapping("/medications/async")
+    public ResponseEntity<?> ingestMedication(
+            @RequestBody MedicationRequestBean medicationRequestBean,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.enqueueMedication(medicationRequestBean);
+        return ResponseEntity.accepted().build();
+    }
+
     @PostMapping("/medications")
     public ResponseEntity<?> addMedication(
             @RequestBody MedicationRequestBean medicationRequestBean,
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         if (!validateToken(authHeader)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(ovaPalService.addMedication(medicationRequestBean));
+        return idempotent(authHeader, "POST /medications", idempotencyKey, () -> ovaPalService.addMedication(medicationRequestBean));
     }
 
     @PutMapping("/medications/{medicationId}")
@@ -180,6 +632,17 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.updateMedication(medicationId, medicationRequestBean));
     }
 
+    @GetMapping("/medications/autocomplete")
+    public ResponseEntity<?> autocompleteMedicine(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(medicineNameIndex.complete(prefix, limit));
+    }
+
     @GetMapping("/medications/{userId}")
     public ResponseEntity<?> getMedications(
             @PathVariable Long userId,
@@ -190,6 +653,17 @@ public class OvaPalController {
         return ResponseEntity.ok(ovaPalService.getMedications(userId));
     }
 
+    @GetMapping("/medications/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamMedications(
+            @PathVariable Long userId,
+            @RequestHeader("Authorization") String authHeader) {
+        if (!validateToken(authHeader)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ovaPalService.verifyUserExists(userId);
+        return ndjson(consumer -> ovaPalService.streamMedications(userId, consumer));
+    }
+
     @DeleteMapping("/medications/{medicationId}")
     public ResponseEntity<?> deleteMedication(
             @PathVariable Long medicationId,
@@ -201,6 +675,90 @@ public class OvaPalController {
         return ResponseEntity.ok("Medication deleted successfully");
     }
 
+    // Replays the stored response for a repeated Idempotency-Key instead of running the create again
+    private ResponseEntity<?> idempotent(String authHeader, String endpoint, String idempotencyKey, Supplier<Object> action) {
+        return idempotentResponse(authHeader, endpoint, idempotencyKey, () -> ResponseEntity.ok(action.get()));
+    }
+
+    // Keys are scoped to the signed-in user and the endpoint. Only 2xx responses are stored, so a
+    // failed request can be retried with the same key
+    private ResponseEntity<?> idempotentResponse(String authHeader, String endpoint, String idempotencyKey,
+                                                 Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        Long userId = userIdFromToken(authHeader);
+
+        IdempotencyStore.Entry existing = idempotencyStore.begin(userId, endpoint, idempotencyKey);
+        if (existing != null) {
+            if (!existing.isCompleted()) {
+                logger.warn("Request with Idempotency-Key {} is still in progress", idempotencyKey);
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            logger.info("Replaying stored response for Idempotency-Key {}", idempotencyKey);
+            return ResponseEntity.ok()
+                    .header(IDEMPOTENT_REPLAY_HEADER, "true")
+                    .body(existing.getResponse());
+        }
+
+        try {
+            ResponseEntity<?> response = action.get();
+            if (response.getStatusCode().is2xxSuccessful()) {
+                idempotencyStore.complete(userId, endpoint, idempotencyKey, response.getBody());
+            } else {
+                idempotencyStore.release(userId, endpoint, idempotencyKey);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyStore.release(userId, endpoint, idempotencyKey);
+            throw e;
+        }
+    }
+
+    // Writes one JSON object per line; the blocking servlet output stream is the backpressure.
+    // Rows are read in short keyset pages, so a slow client holds a stream thread but no connection
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<Object>> producer) {
+        StreamingResponseBody body = outputStream -> {
+            int[] written = {0};
+            producer.accept(bean -> {
+                try {
+                    writeLine(outputStream, bean);
+                    if (++written[0] % STREAM_FLUSH_INTERVAL == 0) {
+                        outputStream.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private void writeLine(OutputStream outputStream, Object bean) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(bean));
+        outputStream.write('\n');
+    }
+
+    // Only call after validateToken succeeded
+    private Long userIdFromToken(String authHeader) {
+        String token = authHeader.trim();
+        if (token.startsWith("Bearer ")) {
+            token = token.substring(7).trim();
+        }
+        return jwtTokenUtil.getUserIdFromToken(token);
+    }
+
+    // Only call after validateToken succeeded
+    private boolean isAdmin(String authHeader) {
+        Long userId = userIdFromToken(authHeader);
+        if (!ovaPalService.isAdmin(userId)) {
+            logger.warn("User ID: {} is not allowed to use admin endpoints", userId);
+            return false;
+        }
+        return true;
+    }
+
     private boolean validateToken(String authHeader) {
         try {
             if (authHeader == null || authHeader.isBlank()) {
@@ -0,0 +1,61 @@
+package com.ovapal.controller;
+
+import com.ovapal.service.ReminderPushDispatcher;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * WebSocket endpoint for due-reminder pushes, registered at /ovapal/ws/reminders by
+ * WebSocketConfig. The user is authenticated during the handshake; the only message clients send
+ * is the delivery acknowledgment.
+ */
+@Component
+public class ReminderSocketEndpoint extends Endpoint {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderSocketEndpoint.class);
+
+    public static final String USER_ID = "ovapal.userId";
+
+    @Autowired
+    private ReminderPushDispatcher reminderPushDispatcher;
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        // Set by the handshake, which rejects unauthenticated upgrades
+        Long userId = (Long) session.getUserProperties().get(USER_ID);
+        session.addMessageHandler(String.class,
+                (MessageHandler.Whole<String>) message -> reminderPushDispatcher.acknowledge(userId, message));
+        if (!reminderPushDispatcher.register(userId, session)) {
+            close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many connections");
+        }
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        Long userId = (Long) session.getUserProperties().get(USER_ID);
+        if (userId != null) {
+            reminderPushDispatcher.unregister(userId, session);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        logger.debug("Reminder socket error: {}", error.getMessage());
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            logger.debug("Error closing reminder socket: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "bbt_cycle_state")
+public class BbtCycleState {
+    @Id
+    private Long periodRecId;
+    private Long userId;
+    private LocalDate cycleStart;
+    // Last few daily basal temperatures as "yyyy-MM-dd=36.45" pairs, oldest first
+    @Column(length = 512)
+    private String recentReadings;
+}
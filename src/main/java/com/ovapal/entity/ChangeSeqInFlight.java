@@ -0,0 +1,19 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A transaction, on any node, that may still write rows with change sequences above seq
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "change_seq_in_flight")
+public class ChangeSeqInFlight {
+    @Id
+    private Long seq;
+    private LocalDateTime startedAt;
+}
@@ -0,0 +1,12 @@
+package com.ovapal.entity;
+
+/**
+ * Rows served by GET /ovapal/sync. changeSeq is assigned from ChangeSequence on every insert and
+ * update, so a client can ask for everything that changed after the highest value it has seen.
+ */
+public interface ChangeTracked {
+
+    Long getChangeSeq();
+
+    void setChangeSeq(Long changeSeq);
+}
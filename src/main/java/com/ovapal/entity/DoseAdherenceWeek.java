@@ -0,0 +1,26 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Running counts of dose events per medication and ISO week, incremented as events are appended
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "dose_adherence_weekly", uniqueConstraints =
+        @UniqueConstraint(name = "uk_dose_adherence_medication_week", columnNames = {"medicationId", "weekStart"}),
+        indexes = @Index(name = "idx_dose_adherence_user_week", columnList = "userId, weekStart"))
+public class DoseAdherenceWeek {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long userId;
+    private Long medicationId;
+    private LocalDate weekStart;  // Monday
+    private int taken;
+    private int missed;
+}
@@ -0,0 +1,27 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Append-only: rows are inserted in JDBC batches by DoseLogService and never updated
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "dose_events", uniqueConstraints =
+        @UniqueConstraint(name = "uk_dose_events_medication_scheduled", columnNames = {"medicationId", "scheduledAt"}))
+public class DoseEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long medicationId;  // Medication.medicineid
+    private Long userId;
+    private LocalDateTime scheduledAt;
+    @Enumerated(EnumType.STRING)
+    private DoseStatus status;
+    private LocalDateTime takenAt;
+    private LocalDateTime recordedAt;
+}
@@ -0,0 +1,6 @@
+package com.ovapal.entity;
+
+public enum DoseStatus {
+    TAKEN,
+    MISSED
+}
@@ -1,5 +1,6 @@
 package com.ovapal.entity;
 
+import com.ovapal.service.ChangeSequenceListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -11,8 +12,9 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "health_records")
-public class HealthRecord {
+@EntityListeners(ChangeSequenceListener.class)
+@Table(name = "health_records", indexes = @Index(name = "idx_health_records_user_seq", columnList = "userid, changeSeq"))
+public class HealthRecord implements ChangeTracked {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,4 +30,6 @@ public class HealthRecord {
     private Integer bloodPressureSystolic;
     private Integer bloodPressureDiastolic;
     private String notes;
+    private String anomalyFlags;
+    private Long changeSeq;
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.ovapal.entity;
 
+import com.ovapal.service.ChangeSequenceListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -9,8 +10,9 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "medications")
-public class Medication {
+@EntityListeners(ChangeSequenceListener.class)
+@Table(name = "medications", indexes = @Index(name = "idx_medications_user_seq", columnList = "userId, changeSeq"))
+public class Medication implements ChangeTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long medicineid;
@@ -22,4 +24,5 @@ public class Medication {
     private LocalDate endDate;
     private String notes;
     private Boolean isactive;
+    private Long changeSeq;
 } 
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.ovapal.entity;
+
+// What to do with occurrences of a reminder that fell due while no node was dispatching
+public enum MissedReminderPolicy {
+    FIRE_LATE,
+    SKIP,
+    COLLAPSE
+}
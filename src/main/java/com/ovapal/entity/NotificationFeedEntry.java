@@ -0,0 +1,29 @@
+package com.ovapal.entity;
+
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A relayed outbox message, kept for a short while so every node can push it to its own subscribers
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "notification_feed", indexes = {
+        @Index(name = "idx_notification_feed_published", columnList = "publishedAt")})
+public class NotificationFeedEntry {
+    // The outbox id, so a message the relay publishes twice is stored once
+    @Id
+    private Long id;
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    private RecordType recordType;
+    private Long recordId;
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
+    private LocalDateTime publishedAt;
+}
@@ -0,0 +1,32 @@
+package com.ovapal.entity;
+
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A change notification written with the change itself and deleted once the relay has published it
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    private RecordType recordType;
+    private Long recordId;
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
+    private LocalDateTime createdAt;
+    // Relay claim; a row is claimable when claimedUntil is null or has passed
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+    private Integer attempts;
+}
@@ -1,5 +1,6 @@
 package com.ovapal.entity;
 
+import com.ovapal.service.ChangeSequenceListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -9,8 +10,11 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "period_records")
-public class PeriodRecord {
+@EntityListeners(ChangeSequenceListener.class)
+@Table(name = "period_records", indexes = {
+        @Index(name = "idx_period_records_user_start", columnList = "userId, startDate"),
+        @Index(name = "idx_period_records_user_seq", columnList = "userId, changeSeq")})
+public class PeriodRecord implements ChangeTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long periodrecid;
@@ -21,4 +25,10 @@ public class PeriodRecord {
     private String symptoms;
     private String mood;
     private String notes;
+    private LocalDate estimatedOvulationDate;
+    @Column(length = 512)
+    private byte[] symptomBits;  // BitSet over SymptomTerm ids for symptoms, mood and flow
+    @Column(length = 4000)
+    private String uncodedTerms;  // Terms outside the curated vocabulary, one "category:term" per line
+    private Long changeSeq;
 } 
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One anonymized bucket of the latest population analytics run; replaced as a whole by each run
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "population_cycle_stats")
+public class PopulationCycleStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private LocalDateTime computedAt;
+    private String dimension;  // OVERALL, AGE or START_MONTH
+    private String bucket;     // "all", an age range such as "25-29", or a month "01".."12"
+    private Integer users;
+    private Long cycles;
+    private Double cycleLengthP10;
+    private Double cycleLengthP25;
+    private Double cycleLengthMedian;
+    private Double cycleLengthP75;
+    private Double cycleLengthP90;
+    private Double meanCycleLength;
+    private Long periods;
+    private Double meanPeriodDays;
+}
@@ -1,5 +1,6 @@
 package com.ovapal.entity;
 
+import com.ovapal.service.ChangeSequenceListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -10,8 +11,13 @@ import java.time.LocalTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "reminders")
-public class Reminder {
+@EntityListeners(ChangeSequenceListener.class)
+@Table(name = "reminders", indexes = {
+        @Index(name = "idx_reminders_user_seq", columnList = "userId, changeSeq"),
+        @Index(name = "idx_reminders_time", columnList = "reminderTime"),
+        @Index(name = "idx_reminders_date_time", columnList = "reminderDate, reminderTime"),
+        @Index(name = "idx_reminders_repeating_date", columnList = "isRepeating, reminderDate")})
+public class Reminder implements ChangeTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long reminderid;
@@ -23,4 +29,8 @@ public class Reminder {
     private Boolean isRepeating;
     private String repeatFrequency;
     private Boolean isActive;
+    // Null means FIRE_LATE for one-off reminders and COLLAPSE for repeating ones
+    @Enumerated(EnumType.STRING)
+    private MissedReminderPolicy missedPolicy;
+    private Long changeSeq;
 } 
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A reminder delivery kept until the user's client acknowledges it or it expires
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "reminder_deliveries", indexes = {
+        @Index(name = "idx_reminder_deliveries_user", columnList = "userId"),
+        @Index(name = "idx_reminder_deliveries_stored", columnList = "storedAt"),
+        @Index(name = "idx_reminder_deliveries_expires", columnList = "expiresAt")})
+public class ReminderDelivery {
+    @Id
+    @Column(length = 36)
+    private String id;
+    private Long userId;
+    private LocalDateTime dueAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    // Database time of the insert, which nodes poll on for new deliveries
+    private LocalDateTime storedAt;
+    private Boolean late;
+    // The delivered reminders as a JSON array of DueReminderBean
+    @Lob
+    private String reminders;
+}
@@ -0,0 +1,19 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A node taking part in reminder dispatch; live while its heartbeat is within the lease duration
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "reminder_nodes")
+public class ReminderNode {
+    @Id
+    private String nodeId;
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,22 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Ownership of one reminder shard; owner is null or leaseUntil has passed when the shard is free
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "reminder_shard_leases")
+public class ReminderShardLease {
+    @Id
+    private Integer shard;
+    private String owner;
+    private LocalDateTime leaseUntil;
+    // Last minute whose reminders were dispatched for this shard, kept across owners
+    private LocalDateTime dispatchedThrough;
+}
@@ -0,0 +1,25 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "sample_chunks", indexes = @Index(name = "idx_sample_chunks_user_metric_start",
+        columnList = "userId, metric, startTime"))
+public class SampleChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long chunkid;
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    private SampleMetric metric;
+    private Long startTime;   // epoch seconds of the first sample
+    private Long endTime;     // epoch seconds of the last sample
+    private Integer sampleCount;
+    @Lob
+    private byte[] data;      // Gorilla-encoded timestamps and values
+}
@@ -0,0 +1,6 @@
+package com.ovapal.entity;
+
+public enum SampleMetric {
+    HEART_RATE,
+    TEMPERATURE
+}
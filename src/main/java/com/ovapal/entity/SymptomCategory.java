@@ -0,0 +1,7 @@
+package com.ovapal.entity;
+
+public enum SymptomCategory {
+    SYMPTOM,
+    MOOD,
+    FLOW
+}
@@ -0,0 +1,21 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Global dictionary entry; id is the bit position in PeriodRecord.symptomBits and never reused
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "symptom_terms", uniqueConstraints =
+        @UniqueConstraint(name = "uk_symptom_terms_category_term", columnNames = {"category", "term"}))
+public class SymptomTerm {
+    @Id
+    private Integer id;
+    @Enumerated(EnumType.STRING)
+    private SymptomCategory category;
+    @Column(length = 64)
+    private String term;
+}
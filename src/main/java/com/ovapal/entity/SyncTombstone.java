@@ -0,0 +1,28 @@
+package com.ovapal.entity;
+
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.service.ChangeSequenceListener;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A hard-deleted record, so delta sync can tell clients to drop it
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EntityListeners(ChangeSequenceListener.class)
+@Table(name = "sync_tombstones", indexes = @Index(name = "idx_sync_tombstones_user_seq", columnList = "userId, changeSeq"))
+public class SyncTombstone implements ChangeTracked {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    private RecordType recordType;
+    private Long recordId;
+    private LocalDateTime deletedAt;
+    private Long changeSeq;
+}
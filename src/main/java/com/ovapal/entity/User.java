@@ -8,13 +8,17 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = "uk_users_email", columnNames = "email"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long userid;
     private String name;
+    @Column(nullable = false)
     private String email;
     private String password;
     private Integer age;
+    // Null means USER
+    @Enumerated(EnumType.STRING)
+    private UserRole role;
 } 
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.ovapal.entity;
+
+// Admin endpoints under /ovapal/admin require ADMIN; granted directly in the users table
+public enum UserRole {
+    USER,
+    ADMIN
+}
@@ -0,0 +1,28 @@
+package com.ovapal.entity;
+
+import com.ovapal.util.VitalsWindow;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "vital_baselines", uniqueConstraints =
+        @UniqueConstraint(name = "uk_vital_baselines_user_vital", columnNames = {"userId", "vital"}))
+public class VitalBaseline {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private VitalsWindow.Vital vital;
+    private double mean;
+    private double variance;
+    private long sampleCount;
+    @Version
+    private long version;
+}
@@ -0,0 +1,19 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "wal_checkpoint")
+public class WalCheckpoint {
+    @Id
+    private Integer id;
+    private Long appliedPosition;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.ovapal.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A write-ahead log entry the applier could not apply, set aside so the log can move past it
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "wal_dead_letters")
+public class WalDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long position;
+    // Null when the entry itself was corrupt and could not be read back
+    private Byte recordType;
+    @Lob
+    private String payload;
+    @Column(length = 1000)
+    private String error;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,9 @@
+package com.ovapal.event;
+
+/**
+ * Published by NotificationFeed for each change it reads from the feed, including changes made on
+ * this node. Node-local caches listen to it to drop data that another node's writes made stale;
+ * it is not written to the outbox again.
+ */
+public record FeedChangeEvent(RecordChangeEvent change) {
+}
@@ -0,0 +1,22 @@
+package com.ovapal.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Logs each message at debug level, for running without event streams
+@Component
+@ConditionalOnProperty(name = "ovapal.outbox.sink", havingValue = "log")
+public class LoggingOutboxSink implements OutboxSink {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        if (logger.isDebugEnabled()) {
+            messages.forEach(message -> logger.debug("Outbox message: {}", message));
+        }
+    }
+}
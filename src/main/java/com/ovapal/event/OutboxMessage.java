@@ -0,0 +1,15 @@
+package com.ovapal.event;
+
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed record change as handed to an OutboxSink. Delivery is at least once, so sinks and
+ * their consumers should drop ids they have already seen. Ids follow insert order, not commit
+ * order.
+ */
+public record OutboxMessage(long id, Long userId, RecordType recordType, Long recordId, ChangeType changeType,
+                            LocalDateTime createdAt, int attempts) {
+}
@@ -0,0 +1,14 @@
+package com.ovapal.event;
+
+import java.util.List;
+
+/**
+ * Destination of the notification outbox relay. Selected with ovapal.outbox.sink.
+ */
+public interface OutboxSink {
+
+    /**
+     * Publishes a batch in id order. Throwing leaves the whole batch in the outbox to be retried.
+     */
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,17 @@
+package com.ovapal.event;
+
+/**
+ * Published whenever a user's health, period, reminder or medication data changes.
+ * Listeners that cache or index per-user data should use AFTER_COMMIT phase listeners.
+ * recordId is null when a batch write does not know the generated ids.
+ */
+public record RecordChangeEvent(Long userId, RecordType recordType, Long recordId, ChangeType changeType) {
+
+    public enum RecordType {
+        HEALTH, PERIOD, REMINDER, MEDICATION
+    }
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+}
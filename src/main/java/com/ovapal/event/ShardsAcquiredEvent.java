@@ -0,0 +1,12 @@
+package com.ovapal.event;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Published when this node takes over reminder shards. checkpoints maps each shard to the last
+ * minute dispatched for it by any owner (null if never); minutes after that and up to through
+ * were missed and are for the new owner to recover.
+ */
+public record ShardsAcquiredEvent(Map<Integer, LocalDateTime> checkpoints, LocalDateTime through) {
+}
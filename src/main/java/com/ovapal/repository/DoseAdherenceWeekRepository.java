@@ -0,0 +1,12 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.DoseAdherenceWeek;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DoseAdherenceWeekRepository extends JpaRepository<DoseAdherenceWeek, Long> {
+    List<DoseAdherenceWeek> findByUserIdAndWeekStartBetweenOrderByWeekStart(Long userId, LocalDate from, LocalDate to);
+}
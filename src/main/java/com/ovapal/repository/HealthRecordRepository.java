@@ -1,11 +1,44 @@
 package com.ovapal.repository;
 
 import com.ovapal.entity.HealthRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface HealthRecordRepository extends JpaRepository<HealthRecord, Long> {
     List<HealthRecord> findByUserId(Long userId);
-} 
\ No newline at end of file
+
+    Optional<HealthRecord> findFirstByUserIdAndRecordDate(Long userId, LocalDate recordDate);
+
+    List<HealthRecord> findByUserIdAndRecordDateAfter(Long userId, LocalDate recordDate);
+
+    List<HealthRecord> findByUserIdAndAnomalyFlagsIsNotNullOrderByRecordDateDesc(Long userId);
+
+    @Query("select h.recordDate from HealthRecord h where h.userId = :userId "
+            + "and h.recordDate between :from and :to order by h.recordDate")
+    List<LocalDate> findRecordDatesBetween(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Keyset page of the user's records after :afterId, for streaming without a long-lived cursor
+    @Query("select h from HealthRecord h where h.userId = :userId and h.healthId > :afterId order by h.healthId")
+    List<HealthRecord> findPageAfter(@Param("userId") Long userId, @Param("afterId") long afterId, Pageable pageable);
+
+    // Cursor-backed stream for reports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select h from HealthRecord h where h.userId = :userId and h.recordDate between :from and :to order by h.recordDate")
+    Stream<HealthRecord> streamByUserIdBetween(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows changed after :since, up to the sync watermark, served by the (userId, changeSeq) index
+    @Query("select h from HealthRecord h where h.userId = :userId and h.changeSeq > :since and h.changeSeq <= :upTo order by h.changeSeq")
+    List<HealthRecord> findChangedSince(@Param("userId") Long userId, @Param("since") long since,
+            @Param("upTo") long upTo, Pageable pageable);
+}
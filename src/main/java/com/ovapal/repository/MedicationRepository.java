@@ -1,11 +1,37 @@
 package com.ovapal.repository;
 
 import com.ovapal.entity.Medication;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface MedicationRepository extends JpaRepository<Medication, Long> {
     List<Medication> findByUserId(Long userId);
-} 
\ No newline at end of file
+
+    // Keyset page of the user's current medications after :afterId, for streaming without a long-lived cursor
+    @Query("select m from Medication m where m.userId = :userId and (m.endDate is null or m.endDate >= :today) "
+            + "and m.medicineid > :afterId order by m.medicineid")
+    List<Medication> findCurrentPageAfter(@Param("userId") Long userId, @Param("today") LocalDate today,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select m from Medication m where m.userId = :userId and m.startDate <= :to and (m.endDate is null or m.endDate >= :from) order by m.startDate")
+    List<Medication> findOverlapping(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [medicine, count] over medications up to :upTo
+    @Query("select m.medicine, count(m) from Medication m where m.medicine is not null and m.medicineid <= :upTo "
+            + "group by m.medicine")
+    List<Object[]> countByMedicineUpTo(@Param("upTo") long upTo);
+
+    @Query("select coalesce(max(m.medicineid), 0) from Medication m")
+    long findMaxId();
+
+    // Rows changed after :since, up to the sync watermark, served by the (userId, changeSeq) index
+    @Query("select m from Medication m where m.userId = :userId and m.changeSeq > :since and m.changeSeq <= :upTo order by m.changeSeq")
+    List<Medication> findChangedSince(@Param("userId") Long userId, @Param("since") long since,
+            @Param("upTo") long upTo, Pageable pageable);
+}
@@ -1,11 +1,47 @@
 package com.ovapal.repository;
 
 import com.ovapal.entity.PeriodRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PeriodRecordRepository extends JpaRepository<PeriodRecord, Long> {
     List<PeriodRecord> findByUserId(Long userId);
-} 
\ No newline at end of file
+
+    Optional<PeriodRecord> findFirstByUserIdAndStartDateLessThanEqualOrderByStartDateDesc(Long userId, LocalDate date);
+
+    // Records overlapping [from, to]; a record without an end date covers its start date only
+    @Query("select p from PeriodRecord p where p.userId = :userId and p.startDate <= :to "
+            + "and coalesce(p.endDate, p.startDate) >= :from order by p.startDate")
+    List<PeriodRecord> findOverlapping(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Keyset page of the user's records after :afterId, for streaming without a long-lived cursor
+    @Query("select p from PeriodRecord p where p.userId = :userId and p.periodrecid > :afterId order by p.periodrecid")
+    List<PeriodRecord> findPageAfter(@Param("userId") Long userId, @Param("afterId") long afterId, Pageable pageable);
+
+    // Cursor-backed stream for reports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select p from PeriodRecord p where p.userId = :userId and p.startDate between :from and :to order by p.startDate")
+    Stream<PeriodRecord> streamByUserIdBetween(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<PeriodRecord> findByUserIdAndSymptomBitsIsNull(Long userId);
+
+    // Each row is {symptomBits, uncodedTerms}
+    @Query("select p.symptomBits, p.uncodedTerms from PeriodRecord p where p.userId = :userId and p.startDate between :from and :to")
+    List<Object[]> findSymptomTerms(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows changed after :since, up to the sync watermark, served by the (userId, changeSeq) index
+    @Query("select p from PeriodRecord p where p.userId = :userId and p.changeSeq > :since and p.changeSeq <= :upTo order by p.changeSeq")
+    List<PeriodRecord> findChangedSince(@Param("userId") Long userId, @Param("since") long since,
+            @Param("upTo") long upTo, Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.PopulationCycleStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PopulationCycleStatRepository extends JpaRepository<PopulationCycleStat, Long> {
+    List<PopulationCycleStat> findAllByOrderByDimensionAscBucketAsc();
+}
@@ -1,11 +1,56 @@
 package com.ovapal.repository;
 
 import com.ovapal.entity.Reminder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReminderRepository extends JpaRepository<Reminder, Long> {
     List<Reminder> findByUserId(Long userId);
-} 
\ No newline at end of file
+
+    // Keyset page of the user's active reminders after :afterId, for streaming without a long-lived cursor
+    @Query("select r from Reminder r where r.userId = :userId and (r.isActive is null or r.isActive = true) "
+            + "and r.reminderid > :afterId order by r.reminderid")
+    List<Reminder> findActivePageAfter(@Param("userId") Long userId, @Param("afterId") long afterId, Pageable pageable);
+
+    // Active reminders that can fall on or before :to: one-off reminders within [from, to] and repeating ones started by :to
+    @Query("select r from Reminder r where r.userId = :userId and (r.isActive is null or r.isActive = true) "
+            + "and r.reminderDate <= :to and (r.reminderDate >= :from or r.isRepeating = true) "
+            + "order by r.reminderDate, r.reminderTime")
+    List<Reminder> findActiveInRange(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows changed after :since, up to the sync watermark, served by the (userId, changeSeq) index
+    @Query("select r from Reminder r where r.userId = :userId and r.changeSeq > :since and r.changeSeq <= :upTo order by r.changeSeq")
+    List<Reminder> findChangedSince(@Param("userId") Long userId, @Param("since") long since,
+            @Param("upTo") long upTo, Pageable pageable);
+
+    // Active reminders set for a time in [from, to]: one-off reminders dated :date and repeating ones; repeat
+    // rules (including the start date) are applied by the caller
+    @Query("select r from Reminder r where (r.isActive is null or r.isActive = true) "
+            + "and r.reminderTime between :from and :to and (r.reminderDate = :date or r.isRepeating = true)")
+    List<Reminder> findActiveAtTime(@Param("date") LocalDate date, @Param("from") LocalTime from, @Param("to") LocalTime to);
+
+    // Active one-off reminders dated within [from, to], read as a range on the (reminderDate, reminderTime) index;
+    // the isActive and isRepeating conditions are checked on the rows found. Grouped by user.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select r from Reminder r where r.reminderDate between :from and :to "
+            + "and (r.isActive = true or r.isActive is null) and (r.isRepeating = false or r.isRepeating is null) "
+            + "order by r.userId, r.reminderid")
+    Stream<Reminder> streamActiveOneOffBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Active repeating reminders started by :to, read as a range on the (isRepeating, reminderDate) index. Grouped by user.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select r from Reminder r where r.isRepeating = true and r.reminderDate <= :to "
+            + "and (r.isActive = true or r.isActive is null) order by r.userId, r.reminderid")
+    Stream<Reminder> streamActiveRepeatingStartedBy(@Param("to") LocalDate to);
+}
@@ -0,0 +1,19 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.SampleChunk;
+import com.ovapal.entity.SampleMetric;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface SampleChunkRepository extends JpaRepository<SampleChunk, Long> {
+    @Query("select c from SampleChunk c where c.userId = :userId and c.metric = :metric "
+            + "and c.startTime <= :to and c.endTime >= :from order by c.startTime")
+    List<SampleChunk> findOverlapping(@Param("userId") Long userId,
+                                      @Param("metric") SampleMetric metric,
+                                      @Param("from") long from,
+                                      @Param("to") long to);
+}
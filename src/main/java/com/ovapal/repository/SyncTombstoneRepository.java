@@ -0,0 +1,18 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    @Query("select t from SyncTombstone t where t.userId = :userId and t.changeSeq > :since and t.changeSeq <= :upTo order by t.changeSeq")
+    List<SyncTombstone> findChangedSince(@Param("userId") Long userId, @Param("since") long since,
+            @Param("upTo") long upTo, Pageable pageable);
+}
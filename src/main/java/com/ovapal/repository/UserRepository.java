@@ -1,11 +1,20 @@
 package com.ovapal.repository;
 
 import com.ovapal.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Row lock held until commit, for per-user state that is read, changed and written back
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.userid = :userId")
+    Optional<User> lockById(@Param("userId") Long userId);
 } 
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.VitalBaseline;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface VitalBaselineRepository extends JpaRepository<VitalBaseline, Long> {
+    List<VitalBaseline> findByUserId(Long userId);
+}
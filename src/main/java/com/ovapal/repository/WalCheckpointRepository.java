@@ -0,0 +1,9 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.WalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WalCheckpointRepository extends JpaRepository<WalCheckpoint, Integer> {
+}
@@ -0,0 +1,9 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.WalDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WalDeadLetterRepository extends JpaRepository<WalDeadLetter, Long> {
+}
@@ -0,0 +1,229 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.bean.BatchOperationBean;
+import com.ovapal.bean.BatchOperationResultBean;
+import com.ovapal.bean.BatchRequestBean;
+import com.ovapal.bean.BatchResponseBean;
+import com.ovapal.bean.HealthRecordRequestBean;
+import com.ovapal.bean.HealthRecordResponseBean;
+import com.ovapal.bean.MedicationRequestBean;
+import com.ovapal.bean.MedicationResponseBean;
+import com.ovapal.bean.PeriodRecordRequestBean;
+import com.ovapal.bean.PeriodRecordResponseBean;
+import com.ovapal.bean.ReminderRequestBean;
+import com.ovapal.bean.ReminderResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.ReminderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Replays a queue of offline writes for one user through the same OvaPalService methods as the
+ * single-record endpoints, in order and in one transaction: either every operation is committed
+ * or none is, and the result of each operation is reported.
+ *
+ * The user is checked once for the whole batch. Updates and deletes are held by Hibernate until
+ * the flush at the end, where consecutive statements of the same type go out as one JDBC batch
+ * (hibernate.jdbc.batch_size). Inserts are still one statement each, as ids come from identity
+ * columns and are needed for the results.
+ */
+@Service
+public class BatchWriteService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchWriteService.class);
+
+    enum Op {
+        CREATE, UPDATE, DELETE
+    }
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ovapal.batch.max-operations:200}")
+    private int maxOperations;
+
+    public BatchResponseBean execute(BatchRequestBean request) {
+        Long userId = request.getUserId();
+        List<BatchOperationBean> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        if (userId == null) {
+            throw new InvalidOperationException("User ID is required");
+        }
+        if (operations.isEmpty() || operations.size() > maxOperations) {
+            throw new InvalidOperationException("A batch must have between 1 and " + maxOperations + " operations");
+        }
+        logger.info("Running batch of {} operations for user ID: {}", operations.size(), userId);
+
+        List<BatchOperationResultBean> results = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperationBean operation = operations.get(i);
+            results.add(BatchOperationResultBean.builder()
+                    .index(i)
+                    .op(operation.getOp())
+                    .type(operation.getType())
+                    .id(operation.getId())
+                    .status("NOT_RUN")
+                    .build());
+        }
+        BatchResponseBean response = BatchResponseBean.builder().userId(userId).results(results).build();
+
+        try {
+            boolean committed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                ovaPalService.verifyUserExists(userId);
+                for (int i = 0; i < operations.size(); i++) {
+                    BatchOperationResultBean result = results.get(i);
+                    try {
+                        apply(userId, operations.get(i), result);
+                        result.setStatus("OK");
+                    } catch (RuntimeException e) {
+                        logger.warn("Batch operation {} for user ID: {} failed, rolling back: {}", i, userId, e.getMessage());
+                        result.setStatus("FAILED");
+                        result.setError(e.getMessage());
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                }
+                // Surface constraint violations from the batched statements here rather than at commit
+                entityManager.flush();
+                return true;
+            }));
+            response.setCommitted(committed);
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Batch for user ID: {} could not be committed: {}", userId, e.getMessage());
+            response.setCommitted(false);
+            response.setError("Batch could not be written: " + e.getMessage());
+        }
+        return response;
+    }
+
+    private void apply(Long userId, BatchOperationBean operation, BatchOperationResultBean result) {
+        Op op = parse(Op.class, operation.getOp(), "operation");
+        RecordType type = parse(RecordType.class, operation.getType(), "record type");
+        Long id = operation.getId();
+        if (op != Op.CREATE && id == null) {
+            throw new InvalidOperationException(op + " needs the record id");
+        }
+
+        switch (type) {
+            case HEALTH -> {
+                if (op == Op.DELETE) {
+                    throw new InvalidOperationException("Health records cannot be deleted");
+                }
+                HealthRecordRequestBean bean = data(operation.getData(), HealthRecordRequestBean.class);
+                bean.setUserId(owner(userId, bean.getUserId()));
+                HealthRecordResponseBean saved;
+                if (op == Op.CREATE) {
+                    saved = ovaPalService.saveHealthRecord(bean);
+                } else {
+                    bean.setHealthId(bean.getHealthId() != null ? bean.getHealthId() : id);
+                    saved = ovaPalService.updateHealthRecord(id, bean);
+                }
+                result.setId(saved.getHealthId());
+                result.setResult(saved);
+            }
+            case PERIOD -> {
+                if (op == Op.DELETE) {
+                    throw new InvalidOperationException("Period records cannot be deleted");
+                }
+                PeriodRecordRequestBean bean = data(operation.getData(), PeriodRecordRequestBean.class);
+                bean.setUserId(owner(userId, bean.getUserId()));
+                PeriodRecordResponseBean saved = op == Op.CREATE
+                        ? ovaPalService.savePeriodRecord(bean)
+                        : ovaPalService.updatePeriodRecord(id, bean);
+                result.setId(saved.getPeriodRecId());
+                result.setResult(saved);
+            }
+            case REMINDER -> {
+                if (op == Op.DELETE) {
+                    Reminder reminder = reminderRepository.findById(id)
+                            .filter(existing -> userId.equals(existing.getUserId()))
+                            .orElseThrow(() -> new ResourceNotFoundException("Reminder not found with ID: " + id));
+                    ovaPalService.deleteReminder(reminder.getReminderid());
+                    return;
+                }
+                ReminderRequestBean bean = data(operation.getData(), ReminderRequestBean.class);
+                bean.setUserId(owner(userId, bean.getUserId()));
+                ReminderResponseBean saved = op == Op.CREATE
+                        ? ovaPalService.setReminder(bean)
+                        : ovaPalService.updateReminder(id, bean);
+                result.setId(saved.getReminderId());
+                result.setResult(saved);
+            }
+            case MEDICATION -> {
+                if (op == Op.DELETE) {
+                    Medication medication = medicationRepository.findById(id)
+                            .filter(existing -> userId.equals(existing.getUserId()))
+                            .orElseThrow(() -> new ResourceNotFoundException("Medication not found with ID: " + id));
+                    ovaPalService.deleteMedication(medication.getMedicineid());
+                    return;
+                }
+                MedicationRequestBean bean = data(operation.getData(), MedicationRequestBean.class);
+                bean.setUserId(owner(userId, bean.getUserId()));
+                MedicationResponseBean saved = op == Op.CREATE
+                        ? ovaPalService.addMedication(bean)
+                        : ovaPalService.updateMedication(id, bean);
+                result.setId(saved.getMedicationId());
+                result.setResult(saved);
+            }
+        }
+    }
+
+    private <T> T data(JsonNode data, Class<T> type) {
+        if (data == null || !data.isObject()) {
+            throw new InvalidOperationException("Operation data is required");
+        }
+        try {
+            return objectMapper.treeToValue(data, type);
+        } catch (Exception e) {
+            throw new InvalidOperationException("Invalid operation data: " + e.getMessage());
+        }
+    }
+
+    private static Long owner(Long batchUserId, Long dataUserId) {
+        if (dataUserId != null && !Objects.equals(batchUserId, dataUserId)) {
+            throw new InvalidOperationException("Operation belongs to a different user");
+        }
+        return batchUserId;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String what) {
+        try {
+            return Enum.valueOf(type, value.strip().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new InvalidOperationException("Unknown " + what + ": " + value);
+        }
+    }
+}
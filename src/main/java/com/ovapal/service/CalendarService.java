@@ -0,0 +1,297 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.CalendarDayBean;
+import com.ovapal.bean.CalendarResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.FeedChangeEvent;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Month view across all record types, one entry per day. Each record type is read with a
+ * range-limited query; period and medication date ranges are merged onto the days of the month
+ * with a sweep over ranges sorted by start date, and repeating reminders are expanded here.
+ *
+ * Built months are cached per user and dropped when any of the user's records change. Changes
+ * made on other nodes arrive through the notification feed (FeedChangeEvent), so until the feed
+ * is polled, a month here can lag a write on another node; with the feed disabled
+ * (ovapal.outbox.enabled=false or another ovapal.outbox.sink) the cache is only correct on a
+ * single node.
+ */
+@Service
+public class CalendarService {
+    private static final Logger logger = LoggerFactory.getLogger(CalendarService.class);
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    private final int maxUsers;
+    private final int maxMonthsPerUser;
+    private final AtomicLong versions = new AtomicLong();
+    private final LinkedHashMap<Long, UserMonths> cache;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public CalendarService(
+            @Value("${ovapal.calendar.cache.max-users:10000}") int maxUsers,
+            @Value("${ovapal.calendar.cache.max-months-per-user:6}") int maxMonthsPerUser) {
+        this.maxUsers = maxUsers;
+        this.maxMonthsPerUser = maxMonthsPerUser;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserMonths> eldest) {
+                return size() > CalendarService.this.maxUsers;
+            }
+        };
+    }
+
+    public CalendarResponseBean getCalendar(Long userId, YearMonth month) {
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        UserMonths userMonths;
+        long version;
+        lock.lock();
+        try {
+            userMonths = cache.computeIfAbsent(userId, id -> new UserMonths(versions.incrementAndGet()));
+            CalendarResponseBean cached = userMonths.months.get(month);
+            if (cached != null) {
+                return cached;
+            }
+            version = userMonths.version;
+        } finally {
+            lock.unlock();
+        }
+
+        CalendarResponseBean calendar = buildCalendar(userId, month);
+
+        lock.lock();
+        try {
+            // Only cache if no change for this user committed while the month was being built
+            if (cache.get(userId) == userMonths && userMonths.version == version) {
+                if (userMonths.months.size() >= maxMonthsPerUser) {
+                    userMonths.months.clear();
+                }
+                userMonths.months.put(month, calendar);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return calendar;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        lock.lock();
+        try {
+            UserMonths userMonths = cache.get(event.userId());
+            if (userMonths != null) {
+                userMonths.version = versions.incrementAndGet();
+                userMonths.months.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Also receives this node's own changes again, which only costs one more rebuild
+    @EventListener
+    public void onFeedChange(FeedChangeEvent event) {
+        onRecordChange(event.change());
+    }
+
+    CalendarResponseBean buildCalendar(Long userId, YearMonth month) {
+        logger.info("Building calendar for user ID: {} and month {}", userId, month);
+
+        LocalDate first = month.atDay(1);
+        LocalDate last = month.atEndOfMonth();
+        int length = month.lengthOfMonth();
+
+        List<CalendarDayBean> days = new ArrayList<>(length);
+        for (int day = 0; day < length; day++) {
+            days.add(CalendarDayBean.builder().date(first.plusDays(day)).build());
+        }
+
+        // Period days: merge overlapping ranges (already sorted by start), then mark each merged range once
+        List<PeriodRecord> periods = periodRecordRepository.findOverlapping(userId, first, last);
+        LocalDate mergedStart = null;
+        LocalDate mergedEnd = null;
+        for (PeriodRecord period : periods) {
+            LocalDate end = period.getEndDate() != null ? period.getEndDate() : period.getStartDate();
+            if (mergedEnd != null && !period.getStartDate().isAfter(mergedEnd.plusDays(1))) {
+                if (end.isAfter(mergedEnd)) {
+                    mergedEnd = end;
+                }
+                continue;
+            }
+            markPeriod(days, first, last, mergedStart, mergedEnd);
+            mergedStart = period.getStartDate();
+            mergedEnd = end;
+        }
+        markPeriod(days, first, last, mergedStart, mergedEnd);
+        for (PeriodRecord period : periods) {
+            LocalDate ovulation = period.getEstimatedOvulationDate();
+            if (ovulation != null && !ovulation.isBefore(first) && !ovulation.isAfter(last)) {
+                days.get(ovulation.getDayOfMonth() - 1).setOvulation(true);
+            }
+        }
+
+        for (LocalDate recordDate : healthRecordRepository.findRecordDatesBetween(userId, first, last)) {
+            CalendarDayBean day = days.get(recordDate.getDayOfMonth() - 1);
+            day.setVitals(day.getVitals() + 1);
+        }
+
+        Map<Long, String> reminders = new LinkedHashMap<>();
+        for (Reminder reminder : reminderRepository.findActiveInRange(userId, first, last)) {
+            for (LocalDate date : occurrences(reminder, first, last)) {
+                CalendarDayBean day = days.get(date.getDayOfMonth() - 1);
+                if (day.getReminderIds() == null) {
+                    day.setReminderIds(new ArrayList<>());
+                }
+                day.getReminderIds().add(reminder.getReminderid());
+                reminders.putIfAbsent(reminder.getReminderid(), reminder.getTitle());
+            }
+        }
+
+        // Medications: sweep the days, admitting ranges as they start and retiring them as they end
+        List<Medication> medications = medicationRepository.findOverlapping(userId, first, last);
+        Map<Long, String> medicationNames = new LinkedHashMap<>();
+        PriorityQueue<Medication> active = new PriorityQueue<>(Comparator.comparing(CalendarService::endOf));
+        List<Long> activeIds = new ArrayList<>();
+        int next = 0;
+        for (CalendarDayBean day : days) {
+            boolean changed = false;
+            while (next < medications.size() && !medications.get(next).getStartDate().isAfter(day.getDate())) {
+                active.add(medications.get(next++));
+                changed = true;
+            }
+            while (!active.isEmpty() && endOf(active.peek()).isBefore(day.getDate())) {
+                active.poll();
+                changed = true;
+            }
+            if (changed) {
+                activeIds = active.stream().map(Medication::getMedicineid).sorted().toList();
+            }
+            if (!activeIds.isEmpty()) {
+                day.setMedicationIds(activeIds);
+            }
+        }
+        for (Medication medication : medications) {
+            medicationNames.put(medication.getMedicineid(), medication.getMedicine() + " " + medication.getDosage());
+        }
+
+        return CalendarResponseBean.builder()
+                .userId(userId)
+                .month(month)
+                .reminders(reminders)
+                .medications(medicationNames)
+                .days(days)
+                .build();
+    }
+
+    // Dates in [from, to] on which the reminder is due; unknown repeat frequencies fall on the reminder date only
+    static List<LocalDate> occurrences(Reminder reminder, LocalDate from, LocalDate to) {
+        LocalDate start = reminder.getReminderDate();
+        List<LocalDate> dates = new ArrayList<>();
+        if (start == null || start.isAfter(to)) {
+            return dates;
+        }
+        String frequency = Boolean.TRUE.equals(reminder.getIsRepeating()) && reminder.getRepeatFrequency() != null
+                ? reminder.getRepeatFrequency().trim().toUpperCase(Locale.ROOT)
+                : "";
+
+        switch (frequency) {
+            case "DAILY" -> {
+                LocalDate date = start.isBefore(from) ? from : start;
+                for (; !date.isAfter(to); date = date.plusDays(1)) {
+                    dates.add(date);
+                }
+            }
+            case "WEEKLY" -> {
+                long weeks = start.isBefore(from) ? (ChronoUnit.DAYS.between(start, from) + 6) / 7 : 0;
+                for (LocalDate date = start.plusWeeks(weeks); !date.isAfter(to); date = date.plusWeeks(1)) {
+                    dates.add(date);
+                }
+            }
+            case "MONTHLY", "YEARLY" -> {
+                ChronoUnit unit = frequency.equals("MONTHLY") ? ChronoUnit.MONTHS : ChronoUnit.YEARS;
+                // Step from the original date so month-end dates clamp per month instead of drifting
+                long steps = Math.max(0, unit.between(start, from) - 1);
+                for (LocalDate date = start.plus(steps, unit); !date.isAfter(to); date = start.plus(++steps, unit)) {
+                    if (!date.isBefore(from)) {
+                        dates.add(date);
+                    }
+                }
+            }
+            default -> {
+                if (!start.isBefore(from)) {
+                    dates.add(start);
+                }
+            }
+        }
+        return dates;
+    }
+
+    private static void markPeriod(List<CalendarDayBean> days, LocalDate first, LocalDate last,
+                                   LocalDate start, LocalDate end) {
+        if (start == null) {
+            return;
+        }
+        LocalDate from = start.isBefore(first) ? first : start;
+        LocalDate to = end.isAfter(last) ? last : end;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            days.get(date.getDayOfMonth() - 1).setPeriod(true);
+        }
+    }
+
+    private static LocalDate endOf(Medication medication) {
+        return medication.getEndDate() != null ? medication.getEndDate() : LocalDate.MAX;
+    }
+
+    private static final class UserMonths {
+        private long version;
+        private final Map<YearMonth, CalendarResponseBean> months = new HashMap<>();
+
+        private UserMonths(long version) {
+            this.version = version;
+        }
+    }
+}
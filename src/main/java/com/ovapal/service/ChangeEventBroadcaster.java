@@ -0,0 +1,319 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.bean.ChangeNotificationBean;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.exception.BackpressureException;
+import com.ovapal.util.MpscRingBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes committed record changes to each user's open Server-Sent Events connections. Changes
+ * arrive from NotificationFeed, which every node polls, so a change committed on one node reaches
+ * streams open on any node; without the feed sink, only this node's own commits are pushed.
+ *
+ * A change is serialized once and offered to every subscriber's bounded buffer without blocking
+ * the writing thread. A small dispatcher pool drains a buffer only while it has messages, so an
+ * idle connection holds no thread, just its emitter and buffer. A subscriber whose buffer fills
+ * up (slow or dead client) is disconnected; the client reconnects and resyncs. Heartbeat
+ * comments keep proxies from closing idle connections and expose dead ones.
+ *
+ * A send blocks while the client's socket buffer is full, so a few stalled clients could hold
+ * every dispatcher thread. A send still running after send-timeout gets its subscriber
+ * disconnected, and the pool gets a replacement thread until that send returns (up to
+ * max-blocked-sends extra threads), so the other subscribers keep being served.
+ */
+@Service
+public class ChangeEventBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventBroadcaster.class);
+
+    // Queued to send a keepalive comment; change messages are never empty
+    private static final String HEARTBEAT = "";
+
+    // Subscriber send states; a send past the deadline is ABANDONED, or REPLACED when it got a stand-in thread
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int ABANDONED = 2;
+    private static final int REPLACED = 3;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ovapal.events.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${ovapal.events.buffer:32}")
+    private int bufferSize;
+
+    @Value("${ovapal.events.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${ovapal.events.max-per-user:10}")
+    private int maxPerUser;
+
+    @Value("${ovapal.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    @Value("${ovapal.outbox.sink:feed}")
+    private String outboxSink;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final int dispatchThreads;
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService heartbeats;
+    private final long sendTimeoutNanos;
+    private final int maxBlockedSends;
+    // Replacement threads standing in for sends past the deadline; guarded by dispatcher
+    private int replacements;
+
+    @Autowired
+    public ChangeEventBroadcaster(@Value("${ovapal.events.dispatch-threads:2}") int dispatchThreads,
+                                  @Value("${ovapal.events.heartbeat:25s}") Duration heartbeat,
+                                  @Value("${ovapal.events.send-timeout:5s}") Duration sendTimeout,
+                                  @Value("${ovapal.events.max-blocked-sends:64}") int maxBlockedSends) {
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatchThreads = Math.max(1, dispatchThreads);
+        this.dispatcher = new ThreadPoolExecutor(this.dispatchThreads, this.dispatchThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = heartbeat.toMillis();
+        heartbeats.scheduleAtFixedRate(this::sendHeartbeats, period, period, TimeUnit.MILLISECONDS);
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.maxBlockedSends = maxBlockedSends;
+        long check = Math.max(10, sendTimeout.toMillis() / 2);
+        heartbeats.scheduleAtFixedRate(this::checkSendDeadlines, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            logger.warn("Rejecting event subscription for user ID: {}, {} subscribers connected", userId, maxSubscribers);
+            throw new BackpressureException("Too many open event streams, retry later", 30);
+        }
+        Subscriber subscriber = new Subscriber(userId, newEmitter(), new MpscRingBuffer<>(bufferSize));
+        boolean[] added = {false};
+        subscribers.compute(userId, (id, existing) -> {
+            Set<Subscriber> set = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxPerUser) {
+                set.add(subscriber);
+                added[0] = true;
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!added[0]) {
+            subscriberCount.decrementAndGet();
+            throw new BackpressureException("Too many open event streams for this user", 30);
+        }
+
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // Commits the response so the client sees the stream open before the first change
+        publish(subscriber, HEARTBEAT);
+        logger.debug("User ID: {} subscribed to change events", userId);
+        return emitter;
+    }
+
+    // Only used when changes do not reach this node through the outbox and NotificationFeed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (!outboxEnabled || !"feed".equals(outboxSink)) {
+            broadcast(event);
+        }
+    }
+
+    public void broadcast(RecordChangeEvent event) {
+        Set<Subscriber> targets = subscribers.get(event.userId());
+        if (targets == null) {
+            return;
+        }
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(ChangeNotificationBean.builder()
+                    .recordType(event.recordType().name())
+                    .recordId(event.recordId())
+                    .changeType(event.changeType().name())
+                    .build());
+        } catch (JsonProcessingException e) {
+            logger.error("Unable to serialize change event for user ID: {}: {}", event.userId(), e.getMessage());
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            publish(subscriber, message);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        for (Set<Subscriber> set : List.copyOf(subscribers.values())) {
+            for (Subscriber subscriber : set) {
+                subscriber.emitter.complete();
+                remove(subscriber);
+            }
+        }
+        dispatcher.shutdown();
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    void sendHeartbeats() {
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                publish(subscriber, HEARTBEAT);
+            }
+        }
+    }
+
+    // Disconnects subscribers whose send has been blocked past the deadline
+    void checkSendDeadlines() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                if (subscriber.sendState.get() != SENDING || now - subscriber.sendStartedNanos <= sendTimeoutNanos) {
+                    continue;
+                }
+                boolean replaced = addReplacement();
+                if (!subscriber.sendState.compareAndSet(SENDING, replaced ? REPLACED : ABANDONED)) {
+                    // The send returned in the meantime
+                    if (replaced) {
+                        removeReplacement();
+                    }
+                    continue;
+                }
+                logger.info("Disconnecting event subscriber for user ID: {}, send blocked for over {} ms",
+                        subscriber.userId, TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                remove(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private boolean addReplacement() {
+        synchronized (dispatcher) {
+            if (replacements >= maxBlockedSends) {
+                logger.warn("{} event sends are blocked, not adding dispatcher threads", replacements);
+                return false;
+            }
+            replacements++;
+            dispatcher.setMaximumPoolSize(dispatchThreads + replacements);
+            dispatcher.setCorePoolSize(dispatchThreads + replacements);
+            return true;
+        }
+    }
+
+    private void removeReplacement() {
+        synchronized (dispatcher) {
+            replacements--;
+            dispatcher.setCorePoolSize(dispatchThreads + replacements);
+            dispatcher.setMaximumPoolSize(dispatchThreads + replacements);
+        }
+    }
+
+    private void publish(Subscriber subscriber, String message) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.pending.offer(message)) {
+            logger.info("Disconnecting slow event subscriber for user ID: {}", subscriber.userId);
+            remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    // At most one drain per subscriber runs at a time, so the buffer has a single consumer
+    private void drain(Subscriber subscriber) {
+        do {
+            String message;
+            while (!subscriber.closed.get() && (message = subscriber.pending.poll()) != null) {
+                subscriber.sendStartedNanos = System.nanoTime();
+                subscriber.sendState.set(SENDING);
+                try {
+                    subscriber.emitter.send(message.isEmpty()
+                            ? SseEmitter.event().comment("keepalive")
+                            : SseEmitter.event().name("change").data(message));
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Event stream for user ID: {} closed: {}", subscriber.userId, e.getMessage());
+                    remove(subscriber);
+                } finally {
+                    if (!subscriber.sendState.compareAndSet(SENDING, IDLE)
+                            && subscriber.sendState.getAndSet(IDLE) == REPLACED) {
+                        // Disconnected past the deadline; this thread is surplus now
+                        removeReplacement();
+                    }
+                }
+            }
+            subscriber.scheduled.set(false);
+            // A message offered after the loop ended but before the flag was cleared would be stranded
+        } while (!subscriber.closed.get() && !subscriber.pending.isEmpty() && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.userId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final MpscRingBuffer<String> pending;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicInteger sendState = new AtomicInteger(IDLE);
+        private volatile long sendStartedNanos;
+
+        private Subscriber(Long userId, SseEmitter emitter, MpscRingBuffer<String> pending) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.pending = pending;
+        }
+    }
+}
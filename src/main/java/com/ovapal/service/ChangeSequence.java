@@ -0,0 +1,208 @@
+package com.ovapal.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Change sequence for delta sync, drawn from the change_seq database sequence so every node
+ * hands out distinct, increasing numbers. The sequence is created at startup, starting after the
+ * highest value stored, and rows stored without a change sequence are numbered then. Doing this
+ * lazily would run the DDL inside the first writing transaction, while it holds the user's row.
+ *
+ * Numbers are handed out before the writing transaction commits, so a transaction holding 10
+ * can commit after one holding 11. Reading up to the highest number handed out could therefore
+ * skip 10 forever. Before taking its first number, a transaction records a marker drawn from the
+ * sequence in change_seq_in_flight and commits it separately, so every node sees it; the marker
+ * is removed when the transaction completes. The watermark is one below the oldest marker, or
+ * below the next number when there is none: everything at or below it is committed or rolled
+ * back. Markers older than in-flight-ttl are left by a node that died mid-transaction and are
+ * ignored.
+ *
+ * Markers are written on a connection of their own in auto-commit mode. Taking a second pooled
+ * connection from inside the writing transaction could wait forever once every pooled connection
+ * is held by a transaction queued on the same user row lock.
+ */
+@Component
+public class ChangeSequence implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeSequence.class);
+
+    static final List<String> TABLES = List.of("health_records", "period_records", "reminders", "medications",
+            "sync_tombstones");
+
+    static final String NEXT_SQL = "SELECT NEXT VALUE FOR change_seq";
+    static final String NEXT_RANGE_SQL = "SELECT NEXT VALUE FOR change_seq FROM SYSTEM_RANGE(1, ?)";
+    static final String OLDEST_IN_FLIGHT_SQL = "SELECT MIN(seq) FROM change_seq_in_flight WHERE started_at >= ?";
+    static final String BEGIN_SQL = "INSERT INTO change_seq_in_flight (seq, started_at) VALUES (?, ?)";
+    static final String END_SQL = "DELETE FROM change_seq_in_flight WHERE seq = ?";
+    private static final String EXPIRE_SQL = "DELETE FROM change_seq_in_flight WHERE started_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // Over one connection kept for markers and seeding; used with the lock held
+    private JdbcTemplate markerJdbcTemplate;
+
+    @Value("${ovapal.sync.in-flight-ttl:10m}")
+    private Duration inFlightTtl;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean seeded;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureSeeded();
+    }
+
+    public long next() {
+        ensureSeeded();
+        track();
+        return jdbcTemplate.queryForObject(NEXT_SQL, Long.class);
+    }
+
+    /**
+     * Takes count numbers, increasing but not necessarily consecutive.
+     */
+    public long[] next(int count) {
+        ensureSeeded();
+        track();
+        return jdbcTemplate.queryForList(NEXT_RANGE_SQL, Long.class, count).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    /**
+     * Highest number below which no transaction on any node is still open.
+     */
+    public long watermark() {
+        ensureSeeded();
+        // Drawn first: a number below it was taken after its transaction's marker was committed
+        long next = jdbcTemplate.queryForObject(NEXT_SQL, Long.class);
+        Long oldest = jdbcTemplate.queryForObject(OLDEST_IN_FLIGHT_SQL, Long.class,
+                Timestamp.valueOf(LocalDateTime.now().minus(inFlightTtl)));
+        return (oldest != null ? Math.min(next, oldest) : next) - 1;
+    }
+
+    // Records a marker for the current transaction the first time it takes a number
+    private void track() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        long marker = withMarkerConnection(ChangeSequence::begin);
+        TransactionSynchronizationManager.bindResource(this, marker);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+                try {
+                    withMarkerConnection(markers -> markers.update(END_SQL, marker));
+                } catch (RuntimeException e) {
+                    // Holds the watermark back until the marker expires
+                    logger.warn("Failed to clear change sequence marker {}: {}", marker, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static long begin(JdbcTemplate markers) {
+        long marker = markers.queryForObject(NEXT_SQL, Long.class);
+        markers.update(BEGIN_SQL, marker, Timestamp.valueOf(LocalDateTime.now()));
+        return marker;
+    }
+
+    private <T> T withMarkerConnection(Function<JdbcTemplate, T> work) {
+        lock.lock();
+        try {
+            if (markerJdbcTemplate == null) {
+                try {
+                    // Straight from the pool, not the connection bound to the caller's transaction
+                    markerJdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(dataSource.getConnection(), true));
+                } catch (SQLException e) {
+                    throw new CannotGetJdbcConnectionException("Failed to open change sequence connection", e);
+                }
+            }
+            return work.apply(markerJdbcTemplate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.lock();
+        try {
+            if (markerJdbcTemplate != null && markerJdbcTemplate.getDataSource() instanceof SingleConnectionDataSource single) {
+                single.destroy();
+            }
+            markerJdbcTemplate = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureSeeded() {
+        if (seeded) {
+            return;
+        }
+        withMarkerConnection(markers -> {
+            if (seeded) {
+                return null;
+            }
+            long max = 0;
+            for (String table : TABLES) {
+                Long tableMax = markers.queryForObject("SELECT MAX(change_seq) FROM " + table, Long.class);
+                if (tableMax != null) {
+                    max = Math.max(max, tableMax);
+                }
+            }
+            // A no-op when another node created it first
+            markers.execute("CREATE SEQUENCE IF NOT EXISTS change_seq START WITH " + (max + 1));
+            int expired = markers.update(EXPIRE_SQL, Timestamp.valueOf(LocalDateTime.now().minus(inFlightTtl)));
+            if (expired > 0) {
+                logger.warn("Dropped {} expired change sequence markers", expired);
+            }
+            logger.info("Change sequence starts after {}", max);
+            backfill(markers);
+            seeded = true;
+            return null;
+        });
+    }
+
+    // Rows written before change_seq existed, or by a path that missed it, would never be synced
+    private static void backfill(JdbcTemplate markers) {
+        long marker = begin(markers);
+        try {
+            for (String table : TABLES) {
+                int numbered = markers.update(
+                        "UPDATE " + table + " SET change_seq = NEXT VALUE FOR change_seq WHERE change_seq IS NULL");
+                if (numbered > 0) {
+                    logger.info("Assigned change sequences to {} rows of {}", numbered, table);
+                }
+            }
+        } finally {
+            markers.update(END_SQL, marker);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.ChangeTracked;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Stamps ChangeTracked entities with a new change sequence on insert and on every dirty update.
+ * Created by Hibernate through Spring's bean container, so the sequence is injected; it is looked
+ * up on first use because ChangeSequence needs the transaction manager, which is not ready while
+ * Hibernate builds its listeners.
+ */
+public class ChangeSequenceListener {
+
+    @Autowired
+    private ObjectProvider<ChangeSequence> changeSequence;
+
+    @PrePersist
+    @PreUpdate
+    void stamp(Object entity) {
+        ((ChangeTracked) entity).setChangeSeq(changeSequence.getObject().next());
+    }
+}
@@ -0,0 +1,271 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.AdherenceResponseBean;
+import com.ovapal.bean.AdherenceWeekBean;
+import com.ovapal.bean.DoseEventBatchRequestBean;
+import com.ovapal.bean.DoseEventBatchResponseBean;
+import com.ovapal.bean.DoseEventRequestBean;
+import com.ovapal.entity.DoseAdherenceWeek;
+import com.ovapal.entity.DoseStatus;
+import com.ovapal.entity.Medication;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.DoseAdherenceWeekRepository;
+import com.ovapal.repository.MedicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only log of doses taken or missed. Each request is written as one JDBC batch into
+ * dose_events, and in the same transaction the per-week counters in dose_adherence_weekly are
+ * incremented with one MERGE per (medication, week) touched. Adherence reads only the counters.
+ * Only a unique-key conflict on dose_events counts as a duplicate; losing a counter MERGE race or a
+ * lock is retried. Deleting a medication deletes its events and counters with it.
+ */
+@Service
+public class DoseLogService {
+    private static final Logger logger = LoggerFactory.getLogger(DoseLogService.class);
+
+    private static final String INSERT_EVENT_SQL = "INSERT INTO dose_events "
+            + "(medication_id, user_id, scheduled_at, status, taken_at, recorded_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_EVENTS_SQL = "DELETE FROM dose_events WHERE medication_id = ?";
+
+    private static final String DELETE_COUNTERS_SQL = "DELETE FROM dose_adherence_weekly WHERE medication_id = ?";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String MERGE_COUNTERS_SQL = "MERGE INTO dose_adherence_weekly t "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS INT), CAST(? AS INT))) "
+            + "s (user_id, medication_id, week_start, taken, missed) "
+            + "ON t.medication_id = s.medication_id AND t.week_start = s.week_start "
+            + "WHEN MATCHED THEN UPDATE SET taken = t.taken + s.taken, missed = t.missed + s.missed "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, medication_id, week_start, taken, missed) "
+            + "VALUES (s.user_id, s.medication_id, s.week_start, s.taken, s.missed)";
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private DoseAdherenceWeekRepository doseAdherenceWeekRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${ovapal.doses.events.max-batch:500}")
+    private int maxBatch;
+
+    public DoseEventBatchResponseBean recordDoseEvents(DoseEventBatchRequestBean request) {
+        List<DoseEventRequestBean> events = request.getEvents();
+        if (request.getUserId() == null) {
+            throw new InvalidOperationException("User ID is required");
+        }
+        if (events == null || events.isEmpty()) {
+            throw new InvalidOperationException("At least one dose event is required");
+        }
+        if (events.size() > maxBatch) {
+            throw new InvalidOperationException("At most " + maxBatch + " dose events can be sent per request");
+        }
+        logger.info("Recording {} dose events for user ID: {}", events.size(), request.getUserId());
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(request.getUserId());
+
+        Map<Long, Medication> medications = medicationRepository.findAllById(
+                        events.stream().map(DoseEventRequestBean::getMedicationId).filter(id -> id != null).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Medication::getMedicineid, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(events.size());
+        Set<List<Object>> seen = new HashSet<>();
+        int duplicates = 0;
+        for (DoseEventRequestBean event : events) {
+            validateDoseEvent(event, medications.get(event.getMedicationId()), request.getUserId(), now);
+            if (!seen.add(List.of(event.getMedicationId(), event.getScheduledAt()))) {
+                duplicates++;
+                continue;
+            }
+            LocalDateTime takenAt = event.getStatus() == DoseStatus.TAKEN
+                    ? (event.getTakenAt() != null ? event.getTakenAt() : now)
+                    : null;
+            rows.add(new Object[] {
+                    event.getMedicationId(),
+                    request.getUserId(),
+                    Timestamp.valueOf(event.getScheduledAt()),
+                    event.getStatus().name(),
+                    takenAt != null ? Timestamp.valueOf(takenAt) : null,
+                    Timestamp.valueOf(now)});
+        }
+
+        int recorded;
+        try {
+            appendWithRetry(request.getUserId(), rows);
+            recorded = rows.size();
+        } catch (DuplicateKeyException e) {
+            // Some doses were already logged; append the rest one by one so counters stay exact
+            logger.warn("Dose batch hit an already logged dose, retrying {} events individually", rows.size());
+            recorded = 0;
+            for (Object[] row : rows) {
+                try {
+                    appendWithRetry(request.getUserId(), List.<Object[]>of(row));
+                    recorded++;
+                } catch (DuplicateKeyException rowException) {
+                    duplicates++;
+                }
+            }
+        }
+
+        logger.info("Recorded {} dose events for user ID: {} ({} duplicates)", recorded, request.getUserId(), duplicates);
+        return DoseEventBatchResponseBean.builder()
+                .requested(events.size())
+                .recorded(recorded)
+                .duplicates(duplicates)
+                .build();
+    }
+
+    public AdherenceResponseBean getAdherence(Long userId, LocalDate from, LocalDate to, Long medicationId) {
+        logger.info("Fetching dose adherence for user ID: {} from {} to {}", userId, from, to);
+
+        if (to.isBefore(from)) {
+            throw new InvalidOperationException("From must not be after to");
+        }
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        LocalDate firstWeek = weekStart(from);
+        LocalDate lastWeek = weekStart(to);
+        Map<LocalDate, int[]> totals = new TreeMap<>();
+        for (LocalDate week = firstWeek; !week.isAfter(lastWeek); week = week.plusWeeks(1)) {
+            totals.put(week, new int[2]);
+        }
+        for (DoseAdherenceWeek counters : doseAdherenceWeekRepository
+                .findByUserIdAndWeekStartBetweenOrderByWeekStart(userId, firstWeek, lastWeek)) {
+            if (medicationId != null && !medicationId.equals(counters.getMedicationId())) {
+                continue;
+            }
+            int[] total = totals.get(counters.getWeekStart());
+            total[0] += counters.getTaken();
+            total[1] += counters.getMissed();
+        }
+
+        List<AdherenceWeekBean> weeks = totals.entrySet().stream()
+                .map(entry -> {
+                    int taken = entry.getValue()[0];
+                    int missed = entry.getValue()[1];
+                    return AdherenceWeekBean.builder()
+                            .weekStart(entry.getKey())
+                            .taken(taken)
+                            .missed(missed)
+                            .percentTaken(taken + missed == 0 ? null : Math.round(1000.0 * taken / (taken + missed)) / 10.0)
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        return AdherenceResponseBean.builder()
+                .userId(userId)
+                .medicationId(medicationId)
+                .weeks(weeks)
+                .build();
+    }
+
+    // Dose events and counters of a deleted medication go in the deleting transaction
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (event.recordType() != RecordType.MEDICATION || event.changeType() != ChangeType.DELETED
+                || event.recordId() == null) {
+            return;
+        }
+        int events = jdbcTemplate.update(DELETE_EVENTS_SQL, event.recordId());
+        jdbcTemplate.update(DELETE_COUNTERS_SQL, event.recordId());
+        logger.info("Deleted {} dose events of medication ID: {}", events, event.recordId());
+    }
+
+    // Each attempt is its own transaction; a lost race rolls back the events with the counters
+    private void appendWithRetry(Long userId, List<Object[]> rows) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> append(userId, rows));
+                return;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Dose append for user ID: {} lost a race, attempt {}: {}", userId, attempt, e.getMessage());
+            }
+        }
+    }
+
+    private void append(Long userId, List<Object[]> rows) {
+        // A unique-key conflict here is an already logged dose and is reported as a duplicate
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows);
+
+        // One counter increment per (medication, week) in the batch
+        Map<List<Object>, int[]> deltas = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            LocalDate week = weekStart(((Timestamp) row[2]).toLocalDateTime().toLocalDate());
+            int[] delta = deltas.computeIfAbsent(List.of(row[0], week), key -> new int[2]);
+            delta[DoseStatus.TAKEN.name().equals(row[3]) ? 0 : 1]++;
+        }
+        List<Object[]> merges = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> merges.add(new Object[] {
+                userId, key.get(0), Date.valueOf((LocalDate) key.get(1)), delta[0], delta[1]}));
+        try {
+            jdbcTemplate.batchUpdate(MERGE_COUNTERS_SQL, merges);
+        } catch (DataIntegrityViolationException e) {
+            // Two MERGEs inserted the same new (medication, week) row; not a duplicate dose
+            throw new ConcurrencyFailureException("Lost the race to create a weekly dose counter", e);
+        }
+    }
+
+    private void validateDoseEvent(DoseEventRequestBean event, Medication medication, Long userId, LocalDateTime now) {
+        if (event.getMedicationId() == null || event.getScheduledAt() == null || event.getStatus() == null) {
+            throw new InvalidOperationException("Each dose event needs a medication ID, scheduled time and status");
+        }
+        if (medication == null || !userId.equals(medication.getUserId())) {
+            throw new InvalidOperationException("Medication " + event.getMedicationId() + " does not belong to this user");
+        }
+        if (event.getScheduledAt().isAfter(now.plusDays(1))) {
+            throw new InvalidOperationException("Cannot log a dose scheduled more than a day ahead");
+        }
+    }
+
+    static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
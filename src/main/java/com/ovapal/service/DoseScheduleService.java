@@ -0,0 +1,170 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.DoseBean;
+import com.ovapal.bean.DoseScheduleResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.util.DoseSchedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates due doses from each medication's compiled frequency. Compiled schedules are cached
+ * per medication and recompiled only when the frequency text changes. Doses are produced lazily
+ * per medication and merged in time order, so only the returned doses are ever materialized.
+ */
+@Service
+public class DoseScheduleService {
+    private static final Logger logger = LoggerFactory.getLogger(DoseScheduleService.class);
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Value("${ovapal.doses.max-window:92d}")
+    private Duration maxWindow;
+
+    @Value("${ovapal.doses.max-results:1000}")
+    private int maxResults;
+
+    private final LinkedHashMap<Long, Compiled> schedules;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public DoseScheduleService(@Value("${ovapal.doses.cache.max-entries:50000}") int maxEntries) {
+        this.schedules = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Compiled> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public DoseScheduleResponseBean getDoses(Long userId, LocalDateTime from, LocalDateTime to, Integer limit) {
+        logger.info("Generating doses for user ID: {} between {} and {}", userId, from, to);
+
+        if (!from.isBefore(to)) {
+            throw new InvalidOperationException("From must be before to");
+        }
+        if (Duration.between(from, to).compareTo(maxWindow) > 0) {
+            throw new InvalidOperationException("Dose window cannot exceed " + maxWindow.toDays() + " days");
+        }
+        int max = limit == null ? maxResults : Math.min(limit, maxResults);
+        if (max < 1) {
+            throw new InvalidOperationException("Limit must be positive");
+        }
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        List<Medication> medications = medicationRepository.findOverlapping(userId, from.toLocalDate(), to.toLocalDate());
+        Map<Long, String> descriptions = new LinkedHashMap<>();
+        PriorityQueue<PendingDose> queue = new PriorityQueue<>(Comparator
+                .comparing(PendingDose::dueAt)
+                .thenComparing(pending -> pending.medication().getMedicineid()));
+
+        for (Medication medication : medications) {
+            Compiled compiled = compiled(medication);
+            descriptions.put(medication.getMedicineid(), compiled.description());
+            if (compiled.schedule() == null) {
+                continue;
+            }
+            Iterator<LocalDateTime> doses = compiled.schedule().doses(medication.getStartDate(), medication.getEndDate(), from, to);
+            if (doses.hasNext()) {
+                queue.add(new PendingDose(doses.next(), medication, doses));
+            }
+        }
+
+        List<DoseBean> result = new ArrayList<>();
+        while (!queue.isEmpty() && result.size() < max) {
+            PendingDose pending = queue.poll();
+            Medication medication = pending.medication();
+            result.add(DoseBean.builder()
+                    .medicationId(medication.getMedicineid())
+                    .medicine(medication.getMedicine())
+                    .dosage(medication.getDosage())
+                    .dueAt(pending.dueAt())
+                    .build());
+            if (pending.remaining().hasNext()) {
+                queue.add(new PendingDose(pending.remaining().next(), medication, pending.remaining()));
+            }
+        }
+
+        return DoseScheduleResponseBean.builder()
+                .userId(userId)
+                .from(from)
+                .to(to)
+                .doses(result)
+                .truncated(!queue.isEmpty())
+                .schedules(descriptions)
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (event.recordType() == RecordChangeEvent.RecordType.MEDICATION
+                && event.changeType() == RecordChangeEvent.ChangeType.DELETED) {
+            lock.lock();
+            try {
+                schedules.remove(event.recordId());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    Compiled compiled(Medication medication) {
+        lock.lock();
+        try {
+            Compiled cached = schedules.get(medication.getMedicineid());
+            if (cached != null && Objects.equals(cached.frequency(), medication.getFrequency())) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Compiled compiled;
+        try {
+            DoseSchedule schedule = DoseSchedule.compile(medication.getFrequency());
+            compiled = new Compiled(medication.getFrequency(), schedule, schedule.getDescription());
+        } catch (IllegalArgumentException e) {
+            logger.debug("Medication ID: {} has no dose schedule: {}", medication.getMedicineid(), e.getMessage());
+            compiled = new Compiled(medication.getFrequency(), null, "unrecognized: " + medication.getFrequency());
+        }
+
+        lock.lock();
+        try {
+            schedules.put(medication.getMedicineid(), compiled);
+        } finally {
+            lock.unlock();
+        }
+        return compiled;
+    }
+
+    record Compiled(String frequency, DoseSchedule schedule, String description) {
+    }
+
+    private record PendingDose(LocalDateTime dueAt, Medication medication, Iterator<LocalDateTime> remaining) {
+    }
+}
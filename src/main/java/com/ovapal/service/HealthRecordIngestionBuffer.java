@@ -0,0 +1,251 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.util.MpscRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for health readings (ovapal.ingest.async.enabled=true). Request threads
+ * hand validated records to a lock-free ring buffer and return immediately; one writer thread
+ * drains it and inserts grouped batches into health_records. When the buffer is full, offer()
+ * returns false and the caller rejects the request. Transient failures (lock timeouts, lost
+ * connections) keep the unwritten rows and retry them after ovapal.ingest.async.retry-delay,
+ * while new readings wait in the buffer; only rows the database rejects for good are dropped.
+ * On shutdown the writer drains whatever is still buffered before the data source is closed.
+ */
+@Component
+public class HealthRecordIngestionBuffer implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(HealthRecordIngestionBuffer.class);
+
+    private static final String INSERT_HEALTH_RECORD_SQL = "INSERT INTO health_records "
+            + "(userid, record_date, weight, height, temperature, heart_rate, "
+            + "blood_pressure_systolic, blood_pressure_diastolic, notes, anomaly_flags, change_seq) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Autowired
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Autowired
+    private OvulationDetector ovulationDetector;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChangeSequence changeSequence;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long retryDelayNanos;
+    private final MpscRingBuffer<HealthRecord> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public HealthRecordIngestionBuffer(
+            @Value("${ovapal.ingest.async.enabled:false}") boolean enabled,
+            @Value("${ovapal.ingest.async.capacity:8192}") int capacity,
+            @Value("${ovapal.ingest.async.batch-size:500}") int batchSize,
+            @Value("${ovapal.ingest.async.flush-interval:200ms}") Duration flushInterval,
+            @Value("${ovapal.ingest.async.retry-delay:1s}") Duration retryDelay) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.retryDelayNanos = retryDelay.toNanos();
+        this.buffer = new MpscRingBuffer<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean offer(HealthRecord healthRecord) {
+        if (!accepting) {
+            return false;
+        }
+        boolean accepted = buffer.offer(healthRecord);
+        if (accepted && buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return accepted;
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        writer = new Thread(this::runWriter, "health-ingest-writer");
+        writer.start();
+        logger.info("Asynchronous health record ingestion started with capacity {}", buffer.capacity());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Asynchronous health record ingestion stopped; {} records written, {} left in buffer",
+                written.get(), buffer.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWriter() {
+        List<HealthRecord> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty()) {
+                buffer.drain(batch::add, batchSize);
+                if (batch.isEmpty()) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                    continue;
+                }
+            }
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // Shutting down with the database unavailable; nothing is left to retry later
+                    batch.forEach(record -> reject(record, e));
+                    batch.clear();
+                    continue;
+                }
+                logger.warn("Failed to flush {} buffered health records, retrying in {} ms: {}",
+                        batch.size(), TimeUnit.NANOSECONDS.toMillis(retryDelayNanos), e.getMessage());
+                LockSupport.parkNanos(this, retryDelayNanos);
+            }
+        }
+    }
+
+    // A failed batch is rolled back as a whole and retried row by row, so one bad reading
+    // cannot take up to batch-size accepted readings down with it. Written and rejected rows
+    // are removed from the batch; a transient failure is thrown with the rest still in it.
+    void flush(List<HealthRecord> batch) {
+        try {
+            insert(batch);
+            written.addAndGet(batch.size());
+            logger.debug("Flushed {} buffered health records", batch.size());
+            batch.clear();
+            return;
+        } catch (RuntimeException e) {
+            if (WriteBehindLog.isTransient(e)) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                reject(batch.remove(0), e);
+                return;
+            }
+            logger.warn("Failed to flush {} buffered health records, retrying one by one: {}",
+                    batch.size(), e.getMessage());
+        }
+        for (Iterator<HealthRecord> rows = batch.iterator(); rows.hasNext(); ) {
+            HealthRecord record = rows.next();
+            try {
+                insert(List.of(record));
+                written.incrementAndGet();
+            } catch (RuntimeException e) {
+                if (WriteBehindLog.isTransient(e)) {
+                    throw e;
+                }
+                reject(record, e);
+            }
+            rows.remove();
+        }
+    }
+
+    private void insert(List<HealthRecord> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            batch.forEach(record -> {
+                vitalsAnomalyDetector.detect(record);
+                ovulationDetector.onTemperature(record.getUserId(), record.getRecordDate(), record.getTemperature());
+            });
+            // Bypasses the entity listener, so take the change sequence numbers here
+            long[] changeSeq = changeSequence.next(batch.size());
+            int[] row = {0};
+            jdbcTemplate.batchUpdate(INSERT_HEALTH_RECORD_SQL, batch, batch.size(), (ps, record) -> {
+                ps.setLong(1, record.getUserId());
+                ps.setDate(2, Date.valueOf(record.getRecordDate()));
+                ps.setObject(3, record.getWeight());
+                ps.setObject(4, record.getHeight());
+                ps.setObject(5, record.getTemperature());
+                ps.setObject(6, record.getHeartRate());
+                ps.setObject(7, record.getBloodPressureSystolic());
+                ps.setObject(8, record.getBloodPressureDiastolic());
+                ps.setString(9, record.getNotes());
+                ps.setString(10, record.getAnomalyFlags());
+                ps.setLong(11, changeSeq[row[0]++]);
+            });
+            Set<Long> userIds = batch.stream().map(HealthRecord::getUserId).collect(Collectors.toSet());
+            vitalsWindowCache.invalidate(userIds);
+            userIds.forEach(userId -> eventPublisher.publishEvent(
+                    new RecordChangeEvent(userId, RecordType.HEALTH, null, ChangeType.CREATED)));
+        });
+    }
+
+    // The request was already answered with 202, so the full reading goes to the log to be replayed by hand
+    private void reject(HealthRecord record, RuntimeException e) {
+        failed.incrementAndGet();
+        logger.error("Dropped buffered health record for user ID: {} on {}: {} ({})",
+                record.getUserId(), record.getRecordDate(), e.getMessage(), record);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ovapal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, TTL-evicted store of responses to create requests, keyed by (userId, endpoint,
+ * Idempotency-Key): the same key sent by another user or to another endpoint never replays.
+ * Entries are kept in insertion order, so the eldest entry is always the next one to expire.
+ * Guarded by a ReentrantLock rather than synchronized so virtual threads never pin their carrier here.
+ */
+@Component
+public class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public IdempotencyStore(
+            @Value("${ovapal.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${ovapal.idempotency.ttl:24h}") Duration ttl) {
+        this(maxEntries, ttl, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(int maxEntries, Duration ttl, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > IdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Reserves the key for the caller. Returns null when the caller now owns the key and must
+     * run the request, otherwise the existing entry (completed or still in flight).
+     */
+    public Entry begin(Long userId, String endpoint, String idempotencyKey) {
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            evictExpired(now);
+
+            Key key = new Key(userId, endpoint, idempotencyKey);
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                logger.debug("Idempotency key {} already seen for {} by user ID: {}", idempotencyKey, endpoint, userId);
+                return existing;
+            }
+            entries.put(key, new Entry(now + ttlMillis));
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void complete(Long userId, String endpoint, String idempotencyKey, Object response) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(new Key(userId, endpoint, idempotencyKey));
+            if (entry != null) {
+                entry.response = response;
+                entry.completed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drop the reservation so a failed request can be retried with the same key
+    public void release(Long userId, String endpoint, String idempotencyKey) {
+        lock.lock();
+        try {
+            entries.remove(new Key(userId, endpoint, idempotencyKey));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Key(Long userId, String endpoint, String idempotencyKey) {
+        private Key {
+            Objects.requireNonNull(endpoint);
+            Objects.requireNonNull(idempotencyKey);
+        }
+    }
+
+    public static final class Entry {
+        private final long expiresAt;
+        private volatile boolean completed;
+        private volatile Object response;
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public Object getResponse() {
+            return response;
+        }
+    }
+}
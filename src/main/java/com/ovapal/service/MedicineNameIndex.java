@@ -0,0 +1,203 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.MedicineSuggestionBean;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.util.RadixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory autocomplete over known medicine names. Names are matched case-insensitively with
+ * whitespace collapsed, so "folic  acid" and "Folic Acid" are one entry shown with the first
+ * spelling seen. Seeded from the bundled list and the medications table at startup; suggestions
+ * are ranked by how many medications use the name. A new medication adds one use in place. The
+ * event for a rename or delete does not carry the old name, so those rebuild the counts from the
+ * medications table instead; rebuilds requested while one runs are folded into a single rerun.
+ */
+@Service
+public class MedicineNameIndex {
+    private static final Logger logger = LoggerFactory.getLogger(MedicineNameIndex.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Value("${ovapal.medicines.seed:classpath:medicines.txt}")
+    private Resource seed;
+
+    @Value("${ovapal.medicines.autocomplete.max-limit:50}")
+    private int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final List<String> seedNames = new ArrayList<>();
+    // Guarded by lock
+    private RadixTrie trie = new RadixTrie();
+    private final Map<Long, String> createdDuringRebuild = new HashMap<>();
+    private boolean rebuilding;
+    private volatile boolean rebuildRequested;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        seedNames.clear();
+        if (seed != null && seed.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(seed.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        seedNames.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read medicine seed list {}: {}", seed, e.getMessage());
+            }
+        }
+        requestRebuild();
+        logger.info("Loaded {} medicine names for autocomplete ({} from seed list)", size(), seedNames.size());
+    }
+
+    void requestRebuild() {
+        rebuildRequested = true;
+        // Whoever holds the rebuild lock picks up requests made while it runs
+        while (rebuildRequested && rebuildLock.tryLock()) {
+            try {
+                rebuildRequested = false;
+                rebuild();
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    // Counts medications up to the current highest ID; creates seen meanwhile above it are replayed
+    private void rebuild() {
+        lock.lock();
+        try {
+            rebuilding = true;
+            createdDuringRebuild.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        RadixTrie rebuilt = new RadixTrie();
+        try {
+            long upTo = medicationRepository.findMaxId();
+            seedNames.forEach(name -> add(rebuilt, name, 0));
+            for (Object[] row : medicationRepository.countByMedicineUpTo(upTo)) {
+                add(rebuilt, (String) row[0], ((Number) row[1]).longValue());
+            }
+            lock.lock();
+            try {
+                createdDuringRebuild.forEach((id, name) -> {
+                    if (id > upTo) {
+                        add(rebuilt, name, 1);
+                    }
+                });
+                trie = rebuilt;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            lock.lock();
+            try {
+                rebuilding = false;
+                createdDuringRebuild.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public List<MedicineSuggestionBean> complete(String prefix, Integer limit) {
+        if (prefix == null) {
+            throw new InvalidOperationException("Prefix is required");
+        }
+        int max = limit != null ? limit : 10;
+        if (max < 1 || max > maxLimit) {
+            throw new InvalidOperationException("Limit must be between 1 and " + maxLimit);
+        }
+
+        List<RadixTrie.Completion> completions;
+        lock.lock();
+        try {
+            completions = trie.complete(normalize(prefix), max);
+        } finally {
+            lock.unlock();
+        }
+        return completions.stream()
+                .map(completion -> MedicineSuggestionBean.builder()
+                        .name(completion.value())
+                        .uses(completion.weight())
+                        .build())
+                .toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (event.recordType() != RecordType.MEDICATION || event.recordId() == null) {
+            return;
+        }
+        if (event.changeType() != ChangeType.CREATED) {
+            // The old name of a renamed or deleted medication is gone, so recount from the table
+            requestRebuild();
+            return;
+        }
+        medicationRepository.findById(event.recordId()).ifPresent(medication -> {
+            lock.lock();
+            try {
+                add(trie, medication.getMedicine(), 1);
+                if (rebuilding && medication.getMedicine() != null) {
+                    createdDuringRebuild.put(medication.getMedicineid(), medication.getMedicine());
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private static void add(RadixTrie target, String name, long uses) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        String display = WHITESPACE.matcher(name.strip()).replaceAll(" ");
+        target.add(display.toLowerCase(Locale.ROOT), display, uses);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return trie.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String normalize(String name) {
+        return WHITESPACE.matcher(name.stripLeading()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
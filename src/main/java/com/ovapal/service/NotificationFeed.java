@@ -0,0 +1,173 @@
+package com.ovapal.service;
+
+import com.ovapal.event.FeedChangeEvent;
+import com.ovapal.event.OutboxMessage;
+import com.ovapal.event.OutboxSink;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox sink that fans relayed change notifications out to every node. Only one relay publishes
+ * a given outbox row, but a user's event streams can be open on any node, so the relay writes the
+ * batch to notification_feed and each node polls the feed and pushes new rows to its own
+ * ChangeEventBroadcaster subscribers. Each new row is also published locally as a FeedChangeEvent,
+ * so node-local caches (calendar months, search indexes) see changes made on other nodes.
+ *
+ * A poll reads the rows published since the previous poll, less grace to cover inserts that
+ * committed after their timestamp was taken, and skips the ids it has already pushed. Rows older
+ * than retention are deleted by whichever node gets there first.
+ */
+@Service
+@ConditionalOnProperty(name = "ovapal.outbox.sink", havingValue = "feed", matchIfMissing = true)
+public class NotificationFeed implements OutboxSink, SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFeed.class);
+
+    // Keyed on the outbox id, so a batch the relay publishes again is not stored twice
+    private static final String PUBLISH_SQL = "MERGE INTO notification_feed "
+            + "(id, user_id, record_type, record_id, change_type, published_at) KEY (id) "
+            + "VALUES (?, ?, ?, ?, ?, LOCALTIMESTAMP)";
+    private static final String POLL_SQL = "SELECT id, user_id, record_type, record_id, change_type, published_at "
+            + "FROM notification_feed WHERE published_at >= ? ORDER BY id";
+    private static final String PRUNE_SQL = "DELETE FROM notification_feed WHERE published_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChangeEventBroadcaster broadcaster;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ovapal.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ovapal.outbox.feed.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${ovapal.outbox.feed.grace:5s}")
+    private Duration grace;
+
+    @Value("${ovapal.outbox.feed.retention:1m}")
+    private Duration retention;
+
+    // Poll state, only touched by the poller thread: feed ids pushed within the grace window
+    private final Map<Long, LocalDateTime> pushed = new HashMap<>();
+    private LocalDateTime cursor;
+    private LocalDateTime nextPrune;
+
+    private ScheduledExecutorService poller;
+    private volatile boolean running;
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(PUBLISH_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setLong(1, message.id());
+            ps.setObject(2, message.userId());
+            ps.setString(3, message.recordType().name());
+            ps.setObject(4, message.recordId());
+            ps.setString(5, message.changeType().name());
+        });
+    }
+
+    /**
+     * Pushes the feed rows this node has not pushed yet to its subscribers. Returns the number pushed.
+     */
+    int poll() {
+        LocalDateTime now = databaseTime();
+        // The first poll starts at the tail: rows already there are marked pushed, since subscribers
+        // resync with /sync when they connect
+        boolean first = cursor == null;
+        if (first) {
+            cursor = now;
+            nextPrune = now.plus(retention);
+        }
+        LocalDateTime since = cursor.minus(grace);
+        int count = 0;
+        for (Entry entry : jdbcTemplate.query(POLL_SQL, (rs, rowNum) -> new Entry(
+                rs.getLong(1),
+                new RecordChangeEvent(rs.getObject(2, Long.class), RecordType.valueOf(rs.getString(3)),
+                        rs.getObject(4, Long.class), ChangeType.valueOf(rs.getString(5))),
+                rs.getObject(6, LocalDateTime.class)), since)) {
+            if (pushed.putIfAbsent(entry.id, entry.publishedAt) == null && !first) {
+                broadcaster.broadcast(entry.event);
+                eventPublisher.publishEvent(new FeedChangeEvent(entry.event));
+                count++;
+            }
+        }
+        pushed.values().removeIf(publishedAt -> publishedAt.isBefore(since));
+        cursor = now;
+        if (!now.isBefore(nextPrune)) {
+            int pruned = jdbcTemplate.update(PRUNE_SQL, now.minus(retention));
+            nextPrune = now.plus(retention);
+            logger.debug("Pruned {} notification feed rows", pruned);
+        }
+        return count;
+    }
+
+    // Feed timestamps come from the database clock, so nodes with skewed clocks agree on them
+    private LocalDateTime databaseTime() {
+        return jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", LocalDateTime.class);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                logger.error("Notification feed poll failed: {}", e.getMessage(), e);
+            }
+        }, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.shutdown();
+        try {
+            poller.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record Entry(long id, RecordChangeEvent event, LocalDateTime publishedAt) {
+    }
+}
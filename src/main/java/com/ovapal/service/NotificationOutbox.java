@@ -0,0 +1,205 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.OutboxStatsResponseBean;
+import com.ovapal.event.OutboxMessage;
+import com.ovapal.event.OutboxSink;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for record change notifications. Every change event is inserted into
+ * outbox_events in the transaction that made the change, so a notification exists exactly when
+ * the change committed, and survives a crash right after the commit.
+ *
+ * A relay thread claims batches of rows with a conditional update that sets a lease (claimed_by,
+ * claimed_until), publishes them to the OutboxSink and deletes them. Rows held by another relay
+ * are skipped, as with SELECT ... FOR UPDATE SKIP LOCKED, and the rows of a relay that died are
+ * claimable again once its lease runs out. Delivery is therefore at least once; a failed batch is
+ * released and retried after retry-delay.
+ */
+@Service
+public class NotificationOutbox implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events "
+            + "(user_id, record_type, record_id, change_type, created_at, attempts) VALUES (?, ?, ?, ?, ?, 0)";
+    // The outer condition is re-checked on the locked rows, so two relays never both claim a row
+    private static final String CLAIM_SQL = "UPDATE outbox_events SET claimed_by = ?, claimed_until = ? "
+            + "WHERE id IN (SELECT id FROM outbox_events WHERE claimed_until IS NULL OR claimed_until < ? "
+            + "ORDER BY id FETCH FIRST ? ROWS ONLY) AND (claimed_until IS NULL OR claimed_until < ?)";
+    private static final String CLAIMED_SQL = "SELECT id, user_id, record_type, record_id, change_type, created_at, "
+            + "attempts FROM outbox_events WHERE claimed_by = ? ORDER BY id";
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE claimed_by = ?";
+    private static final String RELEASE_SQL = "UPDATE outbox_events SET claimed_by = NULL, claimed_until = ?, "
+            + "attempts = attempts + 1 WHERE claimed_by = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxSink sink;
+
+    @Value("${ovapal.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ovapal.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ovapal.outbox.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${ovapal.outbox.lease:30s}")
+    private Duration lease;
+
+    @Value("${ovapal.outbox.retry-delay:5s}")
+    private Duration retryDelay;
+
+    private final String relayId = UUID.randomUUID().toString();
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile long lastPassEvents;
+    private volatile double lastPassEventsPerSecond;
+
+    private ScheduledExecutorService relay;
+    private volatile boolean running;
+
+    // Runs in the writing transaction; a failed insert rolls the change back with it
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, event.userId(), event.recordType().name(), event.recordId(),
+                event.changeType().name(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Publishes claimable rows batch by batch until the outbox is empty or a batch fails.
+     * Returns the number of rows published.
+     */
+    public long relayPending() {
+        long startedAt = System.nanoTime();
+        long total = 0;
+        while (true) {
+            int count = relayBatch();
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+            lastPassEvents = total;
+            lastPassEventsPerSecond = Math.round(total * 1e10 / elapsedNanos) / 10.0;
+            logger.debug("Relayed {} outbox events at {} events/s", total, lastPassEventsPerSecond);
+        }
+        return total;
+    }
+
+    // Returns the number of rows published, or 0 if nothing was claimed or the sink failed
+    int relayBatch() {
+        String claim = relayId + ":" + claims.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = jdbcTemplate.update(CLAIM_SQL, claim, Timestamp.valueOf(now.plus(lease)),
+                Timestamp.valueOf(now), batchSize, Timestamp.valueOf(now));
+        if (claimed == 0) {
+            return 0;
+        }
+        List<OutboxMessage> messages = jdbcTemplate.query(CLAIMED_SQL, (rs, rowNum) -> new OutboxMessage(
+                rs.getLong(1),
+                rs.getObject(2, Long.class),
+                RecordType.valueOf(rs.getString(3)),
+                rs.getObject(4, Long.class),
+                ChangeType.valueOf(rs.getString(5)),
+                rs.getTimestamp(6).toLocalDateTime(),
+                rs.getInt(7)), claim);
+        try {
+            sink.publish(messages);
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now().plus(retryDelay)), claim);
+            logger.warn("Outbox sink failed for {} events, retrying in {}: {}", messages.size(), retryDelay, e.getMessage());
+            return 0;
+        }
+        // Removes nothing if the lease ran out and another relay took the rows; they are published twice
+        jdbcTemplate.update(DELETE_SQL, claim);
+        published.addAndGet(messages.size());
+        return messages.size();
+    }
+
+    public OutboxStatsResponseBean getStats() {
+        Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Long.class);
+        return OutboxStatsResponseBean.builder()
+                .enabled(enabled)
+                .sink(AopUtils.getTargetClass(sink).getSimpleName())
+                .pending(pending)
+                .published(published.get())
+                .failedBatches(failedBatches.get())
+                .lastPassEvents(lastPassEvents)
+                .lastPassEventsPerSecond(lastPassEventsPerSecond)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay.scheduleWithFixedDelay(() -> {
+            try {
+                relayPending();
+            } catch (RuntimeException e) {
+                logger.error("Outbox relay pass failed: {}", e.getMessage(), e);
+            }
+        }, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+        logger.info("Outbox relay {} started with sink {}", relayId, AopUtils.getTargetClass(sink).getSimpleName());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        relay.shutdown();
+        try {
+            relay.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Outbox relay stopped after publishing {} events", published.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
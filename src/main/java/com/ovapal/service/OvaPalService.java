@@ -2,23 +2,40 @@ package com.ovapal.service;
 
 import com.ovapal.bean.*;
 import com.ovapal.entity.*;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
 import com.ovapal.repository.*;
 import com.ovapal.exception.ResourceNotFoundException;
 import com.ovapal.exception.InvalidOperationException;
 import com.ovapal.exception.AuthenticationException;
+import com.ovapal.exception.BackpressureException;
+import com.ovapal.util.VitalsWindow;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.transaction.Transactional;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.crypto.SecretKey;
@@ -31,6 +48,7 @@ public class OvaPalService {
     
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final Object VERIFIED_USERS_KEY = new Object();
     
     @Autowired
     private UserRepository userRepository;
@@ -50,34 +68,36 @@ public class OvaPalService {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private HealthRecordIngestionBuffer healthRecordIngestionBuffer;
+
+    @Autowired
+    private WriteBehindLog writeBehindLog;
+
+    @Autowired
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Autowired
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Autowired
+    private OvulationDetector ovulationDetector;
+
+    @Autowired
+    private SymptomDictionary symptomDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ovapal.stream.page-size:200}")
+    private int streamPageSize;
+
     // User Management
     @Transactional
     public UserResponseBean createUser(UserRequestBean userRequestBean) {
         logger.info("Creating user with email: {}", userRequestBean.getEmail());
         
-        // Validate email
-        if (userRequestBean.getEmail() == null || !EMAIL_PATTERN.matcher(userRequestBean.getEmail()).matches()) {
-            logger.error("Invalid email format: {}", userRequestBean.getEmail());
-            throw new InvalidOperationException("Invalid email format");
-        }
-        
-        // Check if email already exists
-        if (userRepository.findByEmail(userRequestBean.getEmail()).isPresent()) {
-            logger.error("Email already exists: {}", userRequestBean.getEmail());
-            throw new InvalidOperationException("Email is already registered");
-        }
-        
-        // Validate password
-        if (userRequestBean.getPassword() == null || userRequestBean.getPassword().length() < MIN_PASSWORD_LENGTH) {
-            logger.error("Password does not meet minimum requirements");
-            throw new InvalidOperationException("Password must be at least " + MIN_PASSWORD_LENGTH + " characters");
-        }
-        
-        // Validate name
-        if (userRequestBean.getName() == null || userRequestBean.getName().trim().isEmpty()) {
-            logger.error("Name is required");
-            throw new InvalidOperationException("Name is required");
-        }
+        validateUser(userRequestBean);
         
         // Map bean to entity
         User user = User.builder()
@@ -87,8 +107,14 @@ public class OvaPalService {
                 .age(userRequestBean.getAge())
                 .build();
         
-        // Save the user
-        User savedUser = userRepository.save(user);
+        // Save the user; the unique index on email rejects duplicates without a pre-check query
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            logger.error("Email already exists: {}", userRequestBean.getEmail());
+            throw new InvalidOperationException("Email is already registered", e);
+        }
         logger.info("User created successfully with ID: {}", savedUser.getUserid());
         
         // Map entity to response bean
@@ -154,14 +180,127 @@ public class OvaPalService {
             healthRecord.setRecordDate(LocalDate.now());
             logger.debug("Setting record date to today: {}", healthRecord.getRecordDate());
         }
+        vitalsAnomalyDetector.detect(healthRecord);
+        ovulationDetector.onTemperature(healthRecord.getUserId(), healthRecord.getRecordDate(), healthRecord.getTemperature());
         
         HealthRecord savedRecord = healthRecordRepository.save(healthRecord);
         logger.info("Health record saved with ID: {}", savedRecord.getHealthId());
+        vitalsWindowCache.onSaved(savedRecord);
+        publishChange(savedRecord.getUserId(), RecordType.HEALTH, savedRecord.getHealthId(), ChangeType.CREATED);
         
         // Map entity to response bean
         return mapHealthRecordToResponseBean(savedRecord);
     }
 
+    public List<HealthRecordResponseBean> getHealthAnomalies(Long userId) {
+        logger.info("Fetching flagged health records for user ID: {}", userId);
+        
+        // Verify user exists
+        verifyUserExists(userId);
+        
+        return healthRecordRepository.findByUserIdAndAnomalyFlagsIsNotNullOrderByRecordDateDesc(userId).stream()
+                .map(this::mapHealthRecordToResponseBean)
+                .collect(Collectors.toList());
+    }
+
+    // Served from the in-memory vitals window; no database reads once the window is loaded
+    public VitalsTrendResponseBean getVitalsTrend(Long userId, int days) {
+        logger.info("Computing {}-day vitals trend for user ID: {}", days, userId);
+        
+        if (days < 1 || days > vitalsWindowCache.getWindowDays()) {
+            throw new InvalidOperationException("Days must be between 1 and " + vitalsWindowCache.getWindowDays());
+        }
+        
+        // Verify user exists
+        verifyUserExists(userId);
+        
+        Map<VitalsWindow.Vital, VitalsWindow.Stats> stats = vitalsWindowCache.stats(userId, days);
+        List<VitalStatsBean> vitals = stats.entrySet().stream()
+                .map(entry -> VitalStatsBean.builder()
+                        .vital(entry.getKey().name())
+                        .count(entry.getValue().count())
+                        .average(entry.getValue().average())
+                        .min(entry.getValue().min())
+                        .max(entry.getValue().max())
+                        .standardDeviation(entry.getValue().standardDeviation())
+                        .slopePerDay(entry.getValue().slopePerDay())
+                        .latest(entry.getValue().latest())
+                        .latestZScore(entry.getValue().latestZScore())
+                        .build())
+                .collect(Collectors.toList());
+        
+        LocalDate today = LocalDate.now();
+        return VitalsTrendResponseBean.builder()
+                .userId(userId)
+                .fromDate(today.minusDays(days - 1))
+                .toDate(today)
+                .vitals(vitals)
+                .build();
+    }
+
+    // Validates synchronously, then hands the record to the write-ahead log when it is enabled,
+    // otherwise to the in-memory write-behind buffer
+    public void enqueueHealthRecord(HealthRecordRequestBean healthRecordRequestBean) {
+        logger.debug("Queueing health record for user ID: {}", healthRecordRequestBean.getUserId());
+        
+        if (!writeBehindLog.isEnabled() && !healthRecordIngestionBuffer.isEnabled()) {
+            throw new InvalidOperationException("Asynchronous health record ingestion is not enabled");
+        }
+        
+        // Verify user exists
+        verifyUserExists(healthRecordRequestBean.getUserId());
+        
+        HealthRecord healthRecord = getHealthRecord(healthRecordRequestBean);
+        validateHealthRecord(healthRecord);
+        
+        if (healthRecord.getRecordDate() == null) {
+            healthRecord.setRecordDate(LocalDate.now());
+        }
+        
+        if (writeBehindLog.isEnabled()) {
+            writeBehindLog.append(healthRecord);
+            return;
+        }
+        
+        if (!healthRecordIngestionBuffer.offer(healthRecord)) {
+            logger.warn("Health record ingestion buffer is full, rejecting record for user ID: {}",
+                    healthRecordRequestBean.getUserId());
+            throw new BackpressureException("Health record ingestion buffer is full, retry later", 1);
+        }
+    }
+    
+    public void enqueuePeriodRecord(PeriodRecordRequestBean periodRecordRequestBean) {
+        logger.debug("Queueing period record for user ID: {}", periodRecordRequestBean.getUserId());
+        
+        if (!writeBehindLog.isEnabled()) {
+            throw new InvalidOperationException("Asynchronous period record writes are not enabled");
+        }
+        
+        // Verify user exists
+        verifyUserExists(periodRecordRequestBean.getUserId());
+        
+        PeriodRecord periodRecord = getPeriodRecord(periodRecordRequestBean);
+        validatePeriodRecord(periodRecord);
+        
+        writeBehindLog.append(periodRecord);
+    }
+    
+    public void enqueueMedication(MedicationRequestBean medicationRequestBean) {
+        logger.debug("Queueing medication for user ID: {}", medicationRequestBean.getUserId());
+        
+        if (!writeBehindLog.isEnabled()) {
+            throw new InvalidOperationException("Asynchronous medication writes are not enabled");
+        }
+        
+        // Verify user exists
+        verifyUserExists(medicationRequestBean.getUserId());
+        
+        Medication medication = getMedication(medicationRequestBean);
+        validateMedication(medication);
+        
+        writeBehindLog.append(medication);
+    }
+
     private static HealthRecord getHealthRecord(HealthRecordRequestBean healthRecordRequestBean) {
         HealthRecord healthRecord = HealthRecord.builder()
                 .userId(healthRecordRequestBean.getUserId())
@@ -201,21 +340,15 @@ public class OvaPalService {
         verifyUserExists(periodRecordRequestBean.getUserId());
         
         // Map bean to entity
-        PeriodRecord periodRecord = PeriodRecord.builder()
-                .userId(periodRecordRequestBean.getUserId())
-                .startDate(periodRecordRequestBean.getStartDate())
-                .endDate(periodRecordRequestBean.getEndDate())
-                .flow(periodRecordRequestBean.getFlow())
-                .symptoms(periodRecordRequestBean.getSymptoms())
-                .mood(periodRecordRequestBean.getMood())
-                .notes(periodRecordRequestBean.getNotes())
-                .build();
+        PeriodRecord periodRecord = getPeriodRecord(periodRecordRequestBean);
         
         // Validate period record
         validatePeriodRecord(periodRecord);
+        symptomDictionary.encode(periodRecord);
         
         PeriodRecord savedRecord = periodRecordRepository.save(periodRecord);
         logger.info("Period record saved with ID: {}", savedRecord.getPeriodrecid());
+        publishChange(savedRecord.getUserId(), RecordType.PERIOD, savedRecord.getPeriodrecid(), ChangeType.CREATED);
         
         // Map entity to response bean
         return mapPeriodRecordToResponseBean(savedRecord);
@@ -248,17 +381,35 @@ public class OvaPalService {
                 .mood(periodRecordRequestBean.getMood())
                 .notes(periodRecordRequestBean.getNotes())
                 .build();
+        // The estimate belongs to the cycle start it was detected for
+        if (existingRecord.getStartDate() != null && existingRecord.getStartDate().equals(periodRecord.getStartDate())) {
+            periodRecord.setEstimatedOvulationDate(existingRecord.getEstimatedOvulationDate());
+        }
         
         // Validate period record
         validatePeriodRecord(periodRecord);
+        symptomDictionary.encode(periodRecord);
         
         PeriodRecord updatedRecord = periodRecordRepository.save(periodRecord);
         logger.info("Period record updated with ID: {}", updatedRecord.getPeriodrecid());
+        publishChange(updatedRecord.getUserId(), RecordType.PERIOD, updatedRecord.getPeriodrecid(), ChangeType.UPDATED);
         
         // Map entity to response bean
         return mapPeriodRecordToResponseBean(updatedRecord);
     }
     
+    private static PeriodRecord getPeriodRecord(PeriodRecordRequestBean periodRecordRequestBean) {
+        return PeriodRecord.builder()
+                .userId(periodRecordRequestBean.getUserId())
+                .startDate(periodRecordRequestBean.getStartDate())
+                .endDate(periodRecordRequestBean.getEndDate())
+                .flow(periodRecordRequestBean.getFlow())
+                .symptoms(periodRecordRequestBean.getSymptoms())
+                .mood(periodRecordRequestBean.getMood())
+                .notes(periodRecordRequestBean.getNotes())
+                .build();
+    }
+    
     // Reminders
     public List<ReminderResponseBean> getReminders(Long userId) {
         logger.info("Fetching reminders for user ID: {}", userId);
@@ -298,6 +449,7 @@ public class OvaPalService {
                 .isRepeating(reminderRequestBean.getIsRepeating())
                 .repeatFrequency(reminderRequestBean.getRepeatFrequency())
                 .isActive(reminderRequestBean.getIsActive())
+                .missedPolicy(reminderRequestBean.getMissedPolicy())
                 .build();
         
         // Validate reminder
@@ -310,6 +462,7 @@ public class OvaPalService {
         
         Reminder savedReminder = reminderRepository.save(reminder);
         logger.info("Reminder saved with ID: {}", savedReminder.getReminderid());
+        publishChange(savedReminder.getUserId(), RecordType.REMINDER, savedReminder.getReminderid(), ChangeType.CREATED);
         
         // Map entity to response bean
         return mapReminderToResponseBean(savedReminder);
@@ -324,26 +477,31 @@ public class OvaPalService {
         verifyUserExists(medicationRequestBean.getUserId());
         
         // Map bean to entity
-        Medication medication = Medication.builder()
-                .userId(medicationRequestBean.getUserId())
-                .medicine(medicationRequestBean.getMedicine())
-                .dosage(medicationRequestBean.getDosage())
-                .frequency(medicationRequestBean.getFrequency())
-                .startDate(medicationRequestBean.getStartDate())
-                .endDate(medicationRequestBean.getEndDate())
-                .notes(medicationRequestBean.getNotes())
-                .build();
+        Medication medication = getMedication(medicationRequestBean);
         
         // Validate medication
         validateMedication(medication);
         
         Medication savedMedication = medicationRepository.save(medication);
         logger.info("Medication saved with ID: {}", savedMedication.getMedicineid());
+        publishChange(savedMedication.getUserId(), RecordType.MEDICATION, savedMedication.getMedicineid(), ChangeType.CREATED);
         
         // Map entity to response bean
         return mapMedicationToResponseBean(savedMedication);
     }
     
+    private static Medication getMedication(MedicationRequestBean medicationRequestBean) {
+        return Medication.builder()
+                .userId(medicationRequestBean.getUserId())
+                .medicine(medicationRequestBean.getMedicine())
+                .dosage(medicationRequestBean.getDosage())
+                .frequency(medicationRequestBean.getFrequency())
+                .startDate(medicationRequestBean.getStartDate())
+                .endDate(medicationRequestBean.getEndDate())
+                .notes(medicationRequestBean.getNotes())
+                .build();
+    }
+    
     public List<MedicationResponseBean> getMedications(Long userId) {
         logger.info("Fetching medications for user ID: {}", userId);
         
@@ -366,12 +524,112 @@ public class OvaPalService {
                 .collect(Collectors.toList());
     }
     
+    // Streaming reads: rows are read in keyset pages, each its own short query, and handed to the
+    // consumer one at a time. No connection or transaction is held while a slow client reads.
+    public void streamHealthRecords(Long userId, Consumer<? super HealthRecordResponseBean> consumer) {
+        logger.info("Streaming health records for user ID: {}", userId);
+        verifyUserExists(userId);
+        streamPages(afterId -> healthRecordRepository.findPageAfter(userId, afterId, PageRequest.of(0, streamPageSize)),
+                HealthRecord::getHealthId, this::mapHealthRecordToResponseBean, consumer);
+    }
+    
+    public void streamPeriodRecords(Long userId, Consumer<? super PeriodRecordResponseBean> consumer) {
+        logger.info("Streaming period records for user ID: {}", userId);
+        verifyUserExists(userId);
+        streamPages(afterId -> periodRecordRepository.findPageAfter(userId, afterId, PageRequest.of(0, streamPageSize)),
+                PeriodRecord::getPeriodrecid, this::mapPeriodRecordToResponseBean, consumer);
+    }
+    
+    public void streamReminders(Long userId, Consumer<? super ReminderResponseBean> consumer) {
+        logger.info("Streaming active reminders for user ID: {}", userId);
+        verifyUserExists(userId);
+        streamPages(afterId -> reminderRepository.findActivePageAfter(userId, afterId, PageRequest.of(0, streamPageSize)),
+                Reminder::getReminderid, this::mapReminderToResponseBean, consumer);
+    }
+    
+    public void streamMedications(Long userId, Consumer<? super MedicationResponseBean> consumer) {
+        logger.info("Streaming current medications for user ID: {}", userId);
+        verifyUserExists(userId);
+        LocalDate today = LocalDate.now();
+        streamPages(afterId -> medicationRepository.findCurrentPageAfter(userId, today, afterId, PageRequest.of(0, streamPageSize)),
+                Medication::getMedicineid, this::mapMedicationToResponseBean, consumer);
+    }
+    
+    private <E, T> void streamPages(LongFunction<List<E>> page, Function<E, Long> id, Function<E, T> mapper,
+                                    Consumer<? super T> consumer) {
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<E> rows = page.apply(afterId);
+            for (E row : rows) {
+                consumer.accept(mapper.apply(row));
+            }
+            if (rows.size() < streamPageSize) {
+                return;
+            }
+            afterId = id.apply(rows.get(rows.size() - 1));
+        }
+    }
+    
     // Helper methods
-    private void verifyUserExists(Long userId) {
+    public boolean isAdmin(Long userId) {
+        return userId != null && userRepository.findById(userId)
+                .map(user -> user.getRole() == UserRole.ADMIN)
+                .orElse(false);
+    }
+
+    public void verifyUserExists(Long userId) {
+        // Within one transaction (e.g. a batch of writes) each user is only checked once
+        Set<Long> verified = verifiedInTransaction();
+        if (verified != null && verified.contains(userId)) {
+            return;
+        }
         if (!userRepository.existsById(userId)) {
             logger.error("User not found with ID: {}", userId);
             throw new ResourceNotFoundException("User not found with ID: " + userId);
         }
+        if (verified != null) {
+            verified.add(userId);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> verifiedInTransaction() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Set<Long> verified = (Set<Long>) TransactionSynchronizationManager.getResource(VERIFIED_USERS_KEY);
+        if (verified == null) {
+            verified = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(VERIFIED_USERS_KEY, verified);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(VERIFIED_USERS_KEY);
+                }
+            });
+        }
+        return verified;
+    }
+    
+    void validateUser(UserRequestBean userRequestBean) {
+        // Validate email
+        if (userRequestBean.getEmail() == null || !EMAIL_PATTERN.matcher(userRequestBean.getEmail()).matches()) {
+            logger.error("Invalid email format: {}", userRequestBean.getEmail());
+            throw new InvalidOperationException("Invalid email format");
+        }
+        
+        // Validate password
+        if (userRequestBean.getPassword() == null || userRequestBean.getPassword().length() < MIN_PASSWORD_LENGTH) {
+            logger.error("Password does not meet minimum requirements");
+            throw new InvalidOperationException("Password must be at least " + MIN_PASSWORD_LENGTH + " characters");
+        }
+        
+        // Validate name
+        if (userRequestBean.getName() == null || userRequestBean.getName().trim().isEmpty()) {
+            logger.error("Name is required");
+            throw new InvalidOperationException("Name is required");
+        }
     }
     
     void validateHealthRecord(HealthRecord healthRecord) {
@@ -464,7 +722,7 @@ public class OvaPalService {
                 .build();
     }
     
-    private HealthRecordResponseBean mapHealthRecordToResponseBean(HealthRecord healthRecord) {
+    HealthRecordResponseBean mapHealthRecordToResponseBean(HealthRecord healthRecord) {
         return HealthRecordResponseBean.builder()
                 .healthId(healthRecord.getHealthId())
                 .userId(healthRecord.getUserId())
@@ -476,10 +734,13 @@ public class OvaPalService {
                 .bloodPressureSystolic(healthRecord.getBloodPressureSystolic())
                 .bloodPressureDiastolic(healthRecord.getBloodPressureDiastolic())
                 .notes(healthRecord.getNotes())
+                .anomalyFlags(healthRecord.getAnomalyFlags() != null
+                        ? List.of(healthRecord.getAnomalyFlags().split(","))
+                        : null)
                 .build();
     }
     
-    private PeriodRecordResponseBean mapPeriodRecordToResponseBean(PeriodRecord periodRecord) {
+    PeriodRecordResponseBean mapPeriodRecordToResponseBean(PeriodRecord periodRecord) {
         return PeriodRecordResponseBean.builder()
                 .periodRecId(periodRecord.getPeriodrecid())
                 .userId(periodRecord.getUserId())
@@ -489,10 +750,11 @@ public class OvaPalService {
                 .symptoms(periodRecord.getSymptoms())
                 .mood(periodRecord.getMood())
                 .notes(periodRecord.getNotes())
+                .estimatedOvulationDate(periodRecord.getEstimatedOvulationDate())
                 .build();
     }
     
-    private ReminderResponseBean mapReminderToResponseBean(Reminder reminder) {
+    ReminderResponseBean mapReminderToResponseBean(Reminder reminder) {
         return ReminderResponseBean.builder()
                 .reminderId(reminder.getReminderid())
                 .userId(reminder.getUserId())
@@ -503,10 +765,11 @@ public class OvaPalService {
                 .isRepeating(reminder.getIsRepeating())
                 .repeatFrequency(reminder.getRepeatFrequency())
                 .isActive(reminder.getIsActive())
+                .missedPolicy(reminder.getMissedPolicy())
                 .build();
     }
     
-    private MedicationResponseBean mapMedicationToResponseBean(Medication medication) {
+    MedicationResponseBean mapMedicationToResponseBean(Medication medication) {
         return MedicationResponseBean.builder()
                 .medicationId(medication.getMedicineid())
                 .userId(medication.getUserId())
@@ -537,10 +800,14 @@ public class OvaPalService {
         }
 
         HealthRecord healthRecord = getHealthRecord(request);
+        healthRecord.setHealthId(pathHealthId); // Set ID to ensure update
         validateHealthRecord(healthRecord);
+        vitalsAnomalyDetector.score(healthRecord);
 
         HealthRecord updatedRecord = healthRecordRepository.save(healthRecord);
         logger.info("Updated health record with ID: {}", updatedRecord.getHealthId());
+        vitalsWindowCache.onSaved(updatedRecord);
+        publishChange(updatedRecord.getUserId(), RecordType.HEALTH, updatedRecord.getHealthId(), ChangeType.UPDATED);
 
         return mapHealthRecordToResponseBean(updatedRecord);
     }
@@ -572,6 +839,7 @@ public class OvaPalService {
                 .isRepeating(reminderRequestBean.getIsRepeating())
                 .repeatFrequency(reminderRequestBean.getRepeatFrequency())
                 .isActive(reminderRequestBean.getIsActive())
+                .missedPolicy(reminderRequestBean.getMissedPolicy())
                 .build();
 
         // Validate reminder
@@ -579,6 +847,7 @@ public class OvaPalService {
 
         Reminder updatedReminder = reminderRepository.save(reminder);
         logger.info("Reminder updated with ID: {}", updatedReminder.getReminderid());
+        publishChange(updatedReminder.getUserId(), RecordType.REMINDER, updatedReminder.getReminderid(), ChangeType.UPDATED);
 
         return mapReminderToResponseBean(updatedReminder);
     }
@@ -598,6 +867,7 @@ public class OvaPalService {
             reminder.setIsActive(false);
             reminderRepository.save(reminder);
             logger.info("Soft-deleted reminder ID: {}", reminderId);
+            publishChange(reminder.getUserId(), RecordType.REMINDER, reminderId, ChangeType.DELETED);
         });
     }
     @Transactional
@@ -633,6 +903,7 @@ public class OvaPalService {
 
         Medication updatedMedication = medicationRepository.save(medication);
         logger.info("Medication updated with ID: {}", updatedMedication.getMedicineid());
+        publishChange(updatedMedication.getUserId(), RecordType.MEDICATION, updatedMedication.getMedicineid(), ChangeType.UPDATED);
 
         return mapMedicationToResponseBean(updatedMedication);
     }
@@ -646,8 +917,16 @@ public class OvaPalService {
             logger.error("Medication not found with ID: {}", medicationId);
             throw new ResourceNotFoundException("Medication not found with ID: " + medicationId);
         }
+        Long userId = medicationRepository.findById(medicationId).map(Medication::getUserId).orElse(null);
         medicationRepository.deleteById(medicationId);
         logger.info("Deleted medication ID: {}", medicationId);
+        publishChange(userId, RecordType.MEDICATION, medicationId, ChangeType.DELETED);
+    }
+
+    void publishChange(Long userId, RecordType recordType, Long recordId, ChangeType changeType) {
+        if (userId != null) {
+            eventPublisher.publishEvent(new RecordChangeEvent(userId, recordType, recordId, changeType));
+        }
     }
 
     private String generateToken(String email) {
@@ -0,0 +1,157 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.BbtCycleState;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.repository.BbtCycleStateRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates ovulation from basal body temperature with the three-over-six rule: three
+ * consecutive daily temperatures above the highest of the six before them, the third at least
+ * 0.2 degrees above that cover line. Ovulation is taken as the last low day.
+ *
+ * Only the last nine daily temperatures of the current cycle are kept (bbt_cycle_state), so a new
+ * reading never rescans the cycle. Once a cycle has an estimate it is left alone. Readings for days
+ * before the latest one already seen are ignored, and a missed day starts the window over, since
+ * the rule only holds for consecutive days.
+ */
+@Component
+public class OvulationDetector {
+    private static final Logger logger = LoggerFactory.getLogger(OvulationDetector.class);
+
+    static final int LOW_DAYS = 6;
+    static final int HIGH_DAYS = 3;
+    static final double THIRD_DAY_RISE = 0.2;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private BbtCycleStateRepository bbtCycleStateRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    record Reading(LocalDate date, double temperature) {
+    }
+
+    // Must run in the transaction that saves the reading
+    public void onTemperature(Long userId, LocalDate date, Double temperature) {
+        if (temperature == null || date == null) {
+            return;
+        }
+        PeriodRecord cycle = periodRecordRepository
+                .findFirstByUserIdAndStartDateLessThanEqualOrderByStartDateDesc(userId, date)
+                .orElse(null);
+        if (cycle == null || cycle.getEstimatedOvulationDate() != null) {
+            return;
+        }
+
+        BbtCycleState state = bbtCycleStateRepository.findById(cycle.getPeriodrecid())
+                .filter(existing -> cycle.getStartDate().equals(existing.getCycleStart()))
+                .orElseGet(() -> BbtCycleState.builder()
+                        .periodRecId(cycle.getPeriodrecid())
+                        .userId(userId)
+                        .cycleStart(cycle.getStartDate())
+                        .build());
+
+        List<Reading> readings = parse(state.getRecentReadings());
+        if (!add(readings, new Reading(date, temperature))) {
+            logger.debug("Ignoring late temperature for {} in cycle ID: {}", date, cycle.getPeriodrecid());
+            return;
+        }
+
+        LocalDate ovulation = detect(readings);
+        if (ovulation != null) {
+            cycle.setEstimatedOvulationDate(ovulation);
+            periodRecordRepository.save(cycle);
+            eventPublisher.publishEvent(new RecordChangeEvent(userId, RecordType.PERIOD, cycle.getPeriodrecid(), ChangeType.UPDATED));
+            bbtCycleStateRepository.deleteById(cycle.getPeriodrecid());
+            logger.info("Estimated ovulation on {} for period record ID: {}", ovulation, cycle.getPeriodrecid());
+            return;
+        }
+
+        state.setRecentReadings(format(readings));
+        bbtCycleStateRepository.save(state);
+    }
+
+    // Keeps one reading per day (the lowest, closest to basal) and at most LOW_DAYS + HIGH_DAYS
+    // consecutive days
+    static boolean add(List<Reading> readings, Reading reading) {
+        if (!readings.isEmpty()) {
+            Reading last = readings.get(readings.size() - 1);
+            if (reading.date().isBefore(last.date())) {
+                return false;
+            }
+            if (reading.date().equals(last.date())) {
+                if (reading.temperature() < last.temperature()) {
+                    readings.set(readings.size() - 1, reading);
+                }
+                return true;
+            }
+            if (reading.date().isAfter(last.date().plusDays(1))) {
+                readings.clear();
+            }
+        }
+        readings.add(reading);
+        if (readings.size() > LOW_DAYS + HIGH_DAYS) {
+            readings.remove(0);
+        }
+        return true;
+    }
+
+    static LocalDate detect(List<Reading> readings) {
+        if (readings.size() < LOW_DAYS + HIGH_DAYS) {
+            return null;
+        }
+        double coverLine = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < LOW_DAYS; i++) {
+            coverLine = Math.max(coverLine, readings.get(i).temperature());
+        }
+        for (int i = LOW_DAYS; i < LOW_DAYS + HIGH_DAYS; i++) {
+            if (readings.get(i).temperature() <= coverLine) {
+                return null;
+            }
+        }
+        if (readings.get(LOW_DAYS + HIGH_DAYS - 1).temperature() < coverLine + THIRD_DAY_RISE - 1e-9) {
+            return null;
+        }
+        return readings.get(LOW_DAYS - 1).date();
+    }
+
+    private static List<Reading> parse(String recentReadings) {
+        List<Reading> readings = new ArrayList<>(LOW_DAYS + HIGH_DAYS + 1);
+        if (recentReadings == null || recentReadings.isEmpty()) {
+            return readings;
+        }
+        for (String pair : recentReadings.split(",")) {
+            int separator = pair.indexOf('=');
+            readings.add(new Reading(LocalDate.parse(pair.substring(0, separator)),
+                    Double.parseDouble(pair.substring(separator + 1))));
+        }
+        return readings;
+    }
+
+    private static String format(List<Reading> readings) {
+        StringBuilder builder = new StringBuilder();
+        for (Reading reading : readings) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(reading.date()).append('=').append(reading.temperature());
+        }
+        return builder.toString();
+    }
+}
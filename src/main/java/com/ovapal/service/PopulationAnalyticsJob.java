@@ -0,0 +1,348 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.PopulationBucketBean;
+import com.ovapal.bean.PopulationStatsResponseBean;
+import com.ovapal.entity.PopulationCycleStat;
+import com.ovapal.repository.PopulationCycleStatRepository;
+import com.ovapal.util.TDigest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Anonymized cycle statistics across all users for research: cycle length percentiles and mean
+ * period duration overall, by age bucket and by start month (seasonality).
+ *
+ * The user id range is split recursively on a dedicated, bounded ForkJoin pool. Each leaf reads
+ * the period records of its users with one short auto-commit query and builds partial
+ * aggregates with a t-digest per bucket; partials are merged on the way up. No transaction is
+ * held while scanning, and the result replaces the summary table in one short transaction.
+ * Buckets with fewer than min-users-per-bucket users are not stored.
+ */
+@Service
+public class PopulationAnalyticsJob {
+    private static final Logger logger = LoggerFactory.getLogger(PopulationAnalyticsJob.class);
+
+    static final int MIN_CYCLE_DAYS = 15;
+    static final int MAX_CYCLE_DAYS = 60;
+    static final int MAX_PERIOD_DAYS = 14;
+    private static final double COMPRESSION = 100;
+
+    private static final String RANGE_SQL = "SELECT p.user_id, u.age, p.start_date, p.end_date "
+            + "FROM period_records p JOIN users u ON u.userid = p.user_id "
+            + "WHERE p.user_id >= ? AND p.user_id < ? AND p.start_date IS NOT NULL "
+            + "ORDER BY p.user_id, p.start_date";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PopulationCycleStatRepository populationCycleStatRepository;
+
+    @Value("${ovapal.analytics.population.chunk-users:500}")
+    private long chunkUsers;
+
+    @Value("${ovapal.analytics.population.min-users-per-bucket:5}")
+    private int minUsersPerBucket;
+
+    private final ForkJoinPool pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PopulationAnalyticsJob(@Value("${ovapal.analytics.population.parallelism:2}") int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Starts a run in the background. Returns false if a run is already in progress.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                logger.error("Population analytics run failed: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        }, "population-analytics");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public PopulationStatsResponseBean getLatest() {
+        List<PopulationCycleStat> rows = populationCycleStatRepository.findAllByOrderByDimensionAscBucketAsc();
+        return PopulationStatsResponseBean.builder()
+                .computedAt(rows.isEmpty() ? null : rows.get(0).getComputedAt())
+                .running(running.get())
+                .minUsersPerBucket(minUsersPerBucket)
+                .buckets(rows.stream().map(PopulationAnalyticsJob::toBean).toList())
+                .build();
+    }
+
+    void run() {
+        long startedAt = System.currentTimeMillis();
+        Long[] bounds = jdbcTemplate.queryForObject("SELECT MIN(user_id), MAX(user_id) FROM period_records",
+                (rs, rowNum) -> new Long[] {rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+
+        Aggregates aggregates = bounds == null || bounds[0] == null
+                ? new Aggregates()
+                : pool.invoke(new RangeTask(bounds[0], bounds[1] + 1));
+
+        LocalDateTime computedAt = LocalDateTime.now();
+        List<PopulationCycleStat> rows = new ArrayList<>();
+        int suppressed = 0;
+        for (Map.Entry<BucketKey, Bucket> entry : aggregates.buckets.entrySet()) {
+            if (entry.getValue().users < minUsersPerBucket) {
+                suppressed++;
+                continue;
+            }
+            rows.add(entry.getValue().toStat(entry.getKey(), computedAt));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            populationCycleStatRepository.deleteAllInBatch();
+            populationCycleStatRepository.saveAll(rows);
+        });
+        logger.info("Population analytics stored {} buckets ({} suppressed below {} users) in {} ms",
+                rows.size(), suppressed, minUsersPerBucket, System.currentTimeMillis() - startedAt);
+    }
+
+    // Scans users [from, to) with one query; rows arrive grouped by user and ordered by start date
+    Aggregates scan(long from, long to) {
+        Aggregates partial = new Aggregates();
+        UserRows current = new UserRows();
+        jdbcTemplate.query(RANGE_SQL, rs -> {
+            long userId = rs.getLong(1);
+            if (current.userId != null && current.userId != userId) {
+                partial.addUser(current.age, current.starts, current.ends);
+                current.clear();
+            }
+            current.userId = userId;
+            current.age = rs.getObject(2, Integer.class);
+            current.starts.add(rs.getDate(3).toLocalDate());
+            Date end = rs.getDate(4);
+            current.ends.add(end != null ? end.toLocalDate() : null);
+        }, from, to);
+        if (current.userId != null) {
+            partial.addUser(current.age, current.starts, current.ends);
+        }
+        return partial;
+    }
+
+    static String ageBucket(Integer age) {
+        if (age == null) {
+            return "unknown";
+        }
+        if (age < 20) {
+            return "under 20";
+        }
+        if (age >= 45) {
+            return "45+";
+        }
+        int low = age / 5 * 5;
+        return low + "-" + (low + 4);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static PopulationBucketBean toBean(PopulationCycleStat stat) {
+        return PopulationBucketBean.builder()
+                .dimension(stat.getDimension())
+                .bucket(stat.getBucket())
+                .users(stat.getUsers())
+                .cycles(stat.getCycles())
+                .cycleLengthP10(stat.getCycleLengthP10())
+                .cycleLengthP25(stat.getCycleLengthP25())
+                .cycleLengthMedian(stat.getCycleLengthMedian())
+                .cycleLengthP75(stat.getCycleLengthP75())
+                .cycleLengthP90(stat.getCycleLengthP90())
+                .meanCycleLength(stat.getMeanCycleLength())
+                .periods(stat.getPeriods())
+                .meanPeriodDays(stat.getMeanPeriodDays())
+                .build();
+    }
+
+    private final class RangeTask extends RecursiveTask<Aggregates> {
+        private final long from;
+        private final long to;
+
+        private RangeTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregates compute() {
+            if (to - from <= chunkUsers) {
+                return scan(from, to);
+            }
+            long middle = from + (to - from) / 2;
+            RangeTask left = new RangeTask(from, middle);
+            left.fork();
+            Aggregates right = new RangeTask(middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private record BucketKey(String dimension, String bucket) implements Comparable<BucketKey> {
+        @Override
+        public int compareTo(BucketKey other) {
+            int byDimension = dimension.compareTo(other.dimension);
+            return byDimension != 0 ? byDimension : bucket.compareTo(other.bucket);
+        }
+    }
+
+    static final class Aggregates {
+        private final Map<BucketKey, Bucket> buckets = new TreeMap<>();
+
+        void addUser(Integer age, List<LocalDate> starts, List<LocalDate> ends) {
+            Bucket overall = bucket("OVERALL", "all");
+            Bucket byAge = bucket("AGE", ageBucket(age));
+            overall.users++;
+            byAge.users++;
+
+            TreeSet<Integer> months = new TreeSet<>();
+            for (int i = 0; i < starts.size(); i++) {
+                LocalDate start = starts.get(i);
+                Bucket byMonth = monthBucket(start);
+                months.add(start.getMonthValue());
+
+                LocalDate end = ends.get(i);
+                if (end != null) {
+                    long days = ChronoUnit.DAYS.between(start, end) + 1;
+                    if (days >= 1 && days <= MAX_PERIOD_DAYS) {
+                        overall.addPeriod(days);
+                        byAge.addPeriod(days);
+                        byMonth.addPeriod(days);
+                    }
+                }
+
+                // A cycle runs from this start to the next; longer gaps are most likely missed logs
+                if (i + 1 < starts.size()) {
+                    long cycle = ChronoUnit.DAYS.between(start, starts.get(i + 1));
+                    if (cycle >= MIN_CYCLE_DAYS && cycle <= MAX_CYCLE_DAYS) {
+                        overall.addCycle(cycle);
+                        byAge.addCycle(cycle);
+                        byMonth.addCycle(cycle);
+                    }
+                }
+            }
+            for (int month : months) {
+                bucket("START_MONTH", String.format("%02d", month)).users++;
+            }
+        }
+
+        // Users never span partials, so user counts add up
+        Aggregates merge(Aggregates other) {
+            other.buckets.forEach((key, bucket) -> buckets.merge(key, bucket, Bucket::merge));
+            return this;
+        }
+
+        Bucket get(String dimension, String bucket) {
+            return buckets.get(new BucketKey(dimension, bucket));
+        }
+
+        private Bucket monthBucket(LocalDate start) {
+            return bucket("START_MONTH", String.format("%02d", start.getMonthValue()));
+        }
+
+        private Bucket bucket(String dimension, String bucket) {
+            return buckets.computeIfAbsent(new BucketKey(dimension, bucket), key -> new Bucket());
+        }
+    }
+
+    static final class Bucket {
+        int users;
+        long cycles;
+        double cycleDaysSum;
+        long periods;
+        double periodDaysSum;
+        final TDigest cycleLengths = new TDigest(COMPRESSION);
+
+        void addCycle(long days) {
+            cycles++;
+            cycleDaysSum += days;
+            cycleLengths.add(days);
+        }
+
+        void addPeriod(long days) {
+            periods++;
+            periodDaysSum += days;
+        }
+
+        Bucket merge(Bucket other) {
+            users += other.users;
+            cycles += other.cycles;
+            cycleDaysSum += other.cycleDaysSum;
+            periods += other.periods;
+            periodDaysSum += other.periodDaysSum;
+            cycleLengths.merge(other.cycleLengths);
+            return this;
+        }
+
+        private PopulationCycleStat toStat(BucketKey key, LocalDateTime computedAt) {
+            return PopulationCycleStat.builder()
+                    .computedAt(computedAt)
+                    .dimension(key.dimension())
+                    .bucket(key.bucket())
+                    .users(users)
+                    .cycles(cycles)
+                    .cycleLengthP10(quantile(0.10))
+                    .cycleLengthP25(quantile(0.25))
+                    .cycleLengthMedian(quantile(0.50))
+                    .cycleLengthP75(quantile(0.75))
+                    .cycleLengthP90(quantile(0.90))
+                    .meanCycleLength(cycles > 0 ? round(cycleDaysSum / cycles) : null)
+                    .periods(periods)
+                    .meanPeriodDays(periods > 0 ? round(periodDaysSum / periods) : null)
+                    .build();
+        }
+
+        private Double quantile(double q) {
+            return cycles > 0 ? round(cycleLengths.quantile(q)) : null;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+
+    private static final class UserRows {
+        private Long userId;
+        private Integer age;
+        private final List<LocalDate> starts = new ArrayList<>();
+        private final List<LocalDate> ends = new ArrayList<>();
+
+        private void clear() {
+            starts.clear();
+            ends.clear();
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.bean.DueReminderBean;
+import com.ovapal.bean.ReminderDeliveryBean;
+import com.ovapal.entity.Reminder;
+import com.ovapal.repository.ReminderRepository;
+import com.ovapal.util.MpscRingBuffer;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes due reminders to users' open WebSocket connections (/ovapal/ws/reminders).
+ *
+ * Once a minute the node holding a user's shard (ReminderShardManager) reads the reminders set
+ * for that minute with one indexed query, applies repeat rules, and stores all of the user's
+ * reminders for the minute as one delivery in reminder_deliveries. The user's sockets may be open
+ * on any node, so every node polls the table each second for new deliveries and sends those of
+ * users connected to it; a user who connects later gets the stored deliveries on connect.
+ *
+ * A delivery is kept until the client acknowledges it, on any node, or it expires: delivery-ttl
+ * after it fell due, or stored-ttl for late deliveries of reminders recovered after downtime
+ * (enqueueMissed), which must outlive the shard checkpoint that recovery moves past them.
+ * Unacknowledged deliveries are resent with exponential backoff starting at ack-timeout, and on
+ * reconnect, until max-attempts. A node only holds deliveries in memory while the user is
+ * connected to it.
+ *
+ * Sends are asynchronous and chained per connection through a bounded outbox, so an idle socket
+ * holds no thread and a slow client cannot stall the others; one whose outbox fills up is closed.
+ *
+ * Each dispatched minute is checkpointed on the shards this node holds, so the minutes missed
+ * while no node held a shard can be recovered by ReminderRecoveryService.
+ */
+@Service
+public class ReminderPushDispatcher implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderPushDispatcher.class);
+
+    // Minutes missed while the scheduler was stalled (GC pause, clock jump) that are still sent
+    static final int MAX_CATCH_UP_MINUTES = 5;
+
+    // Deliveries stored up to this long before a poll's cursor are read again, in case they committed late
+    static final Duration POLL_GRACE = Duration.ofSeconds(5);
+
+    // stored_at comes from the database clock, so nodes with skewed clocks agree on it
+    private static final String STORE_SQL = "INSERT INTO reminder_deliveries "
+            + "(id, user_id, due_at, created_at, expires_at, late, reminders, stored_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, LOCALTIMESTAMP)";
+    private static final String COLUMNS = "id, user_id, due_at, created_at, expires_at, late, reminders";
+    private static final String STORED_SQL = "SELECT " + COLUMNS + " FROM reminder_deliveries "
+            + "WHERE user_id = ? AND expires_at > ?";
+    private static final String NEW_SQL = "SELECT " + COLUMNS + " FROM reminder_deliveries "
+            + "WHERE stored_at >= ? AND expires_at > ?";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM reminder_deliveries WHERE id = ?";
+    private static final String SETTLE_SQL = "DELETE FROM reminder_deliveries WHERE id = ? AND user_id = ?";
+    private static final String EXPIRE_SQL = "DELETE FROM reminder_deliveries WHERE expires_at <= ?";
+    private static final TypeReference<List<DueReminderBean>> REMINDER_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReminderShardManager shardManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ovapal.reminders.push.buffer:16}")
+    private int bufferSize;
+
+    @Value("${ovapal.reminders.push.max-connections:50000}")
+    private int maxConnections;
+
+    @Value("${ovapal.reminders.push.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${ovapal.reminders.push.ack-timeout:30s}")
+    private Duration ackTimeout;
+
+    @Value("${ovapal.reminders.push.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${ovapal.reminders.push.delivery-ttl:15m}")
+    private Duration deliveryTtl;
+
+    @Value("${ovapal.reminders.push.stored-ttl:7d}")
+    private Duration storedTtl;
+
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    // User ID -> delivery ID -> unacknowledged delivery
+    private final Map<Long, Map<String, Delivery>> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile LocalDateTime lastMinute;
+    // Database time of the last poll for new deliveries; scheduler thread only
+    private LocalDateTime pollCursor;
+    private volatile boolean running;
+
+    /**
+     * Adds an open session for the user and resends the user's unacknowledged deliveries to it.
+     * Returns false if the node or the user is at the connection limit.
+     */
+    public boolean register(Long userId, Session session) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            logger.warn("Rejecting reminder socket for user ID: {}, {} sockets connected", userId, maxConnections);
+            return false;
+        }
+        Connection connection = new Connection(userId, session, new MpscRingBuffer<>(bufferSize));
+        boolean[] added = {false};
+        connections.compute(userId, (id, existing) -> {
+            Set<Connection> set = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxPerUser) {
+                set.add(connection);
+                added[0] = true;
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!added[0]) {
+            connectionCount.decrementAndGet();
+            return false;
+        }
+        logger.debug("Reminder socket opened for user ID: {}", userId);
+        LocalDateTime now = LocalDateTime.now();
+        loadStored(userId, now);
+        for (Delivery delivery : pending.getOrDefault(userId, Map.of()).values()) {
+            if (delivery.attempts == 0) {
+                // Queued while the user had no connection, so this is its first attempt
+                send(delivery, now);
+            } else {
+                String message = serialize(delivery);
+                if (message != null) {
+                    connection.enqueue(message);
+                }
+            }
+        }
+        return true;
+    }
+
+    public void unregister(Long userId, Session session) {
+        Set<Connection> set = connections.get(userId);
+        if (set == null) {
+            return;
+        }
+        for (Connection connection : set) {
+            if (connection.session == session) {
+                remove(connection);
+            }
+        }
+    }
+
+    /**
+     * Handles a client message; {"type":"ack","deliveryId":"..."} settles one of the user's
+     * deliveries. Anything else is ignored.
+     */
+    public boolean acknowledge(Long userId, String message) {
+        String deliveryId;
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            if (!"ack".equals(node.path("type").asText()) || !node.hasNonNull("deliveryId")) {
+                return false;
+            }
+            deliveryId = node.get("deliveryId").asText();
+        } catch (JsonProcessingException e) {
+            logger.debug("Ignoring malformed message on reminder socket of user ID: {}", userId);
+            return false;
+        }
+        Delivery delivery = removePending(userId, deliveryId);
+        // The delivery may not be held here, if it was sent by another node or before a restart
+        boolean settled = jdbcTemplate.update(SETTLE_SQL, deliveryId, userId) > 0;
+        if (delivery == null && !settled) {
+            return false;
+        }
+        logger.debug("Delivery {} acknowledged by user ID: {}", deliveryId, userId);
+        return true;
+    }
+
+    /**
+     * Stores a late delivery of reminders missed while no node was dispatching them. It is sent
+     * by the node the user is connected to, and kept until acknowledged or stored-ttl passes.
+     */
+    public void enqueueMissed(Long userId, LocalDateTime dueAt, List<DueReminderBean> reminders, LocalDateTime now) {
+        store(List.of(new Delivery(UUID.randomUUID().toString(), userId, dueAt, now, now.plus(storedTtl),
+                reminders, true)));
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public int getPendingCount() {
+        return pending.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public void start() {
+        // Minutes already recovered on a shard are skipped for it, see ReminderShardManager.owns()
+        lastMinute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Checked every second so a minute is dispatched right after it starts
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                logger.error("Reminder push tick failed: {}", e.getMessage(), e);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        running = true;
+        logger.info("Reminder push dispatcher started");
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdownNow();
+        for (Set<Connection> set : List.copyOf(connections.values())) {
+            for (Connection connection : set) {
+                connection.close(CloseReason.CloseCodes.GOING_AWAY, "Server shutting down");
+            }
+        }
+        logger.info("Reminder push dispatcher stopped with {} deliveries unacknowledged", getPendingCount());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Runs on the scheduler thread only
+    void tick(LocalDateTime now) {
+        LocalDateTime minute = now.truncatedTo(ChronoUnit.MINUTES);
+        if (lastMinute == null || minute.isAfter(lastMinute)) {
+            LocalDateTime first = lastMinute != null ? lastMinute.plusMinutes(1) : minute;
+            LocalDateTime oldest = minute.minusMinutes(MAX_CATCH_UP_MINUTES - 1);
+            if (first.isBefore(oldest)) {
+                logger.warn("Reminder push fell behind, skipping minutes {} to {}", first, oldest.minusMinutes(1));
+                first = oldest;
+            }
+            for (LocalDateTime due = first; !due.isAfter(minute); due = due.plusMinutes(1)) {
+                dispatchMinute(due, now);
+            }
+            lastMinute = minute;
+            shardManager.markDispatched(minute);
+            // Deliveries of users who never connected are not held anywhere to expire
+            jdbcTemplate.update(EXPIRE_SQL, now);
+        }
+        pollStored(now);
+        retryPending(now);
+    }
+
+    // Stores the deliveries due at minute for users in the shards this node holds
+    void dispatchMinute(LocalDateTime minute, LocalDateTime now) {
+        if (shardManager.getOwnedShards().isEmpty()) {
+            return;
+        }
+        LocalDate date = minute.toLocalDate();
+        LocalTime from = minute.toLocalTime().truncatedTo(ChronoUnit.MINUTES);
+        LocalTime to = from.plusSeconds(59).plusNanos(999_999_999);
+
+        Map<Long, List<DueReminderBean>> byUser = new LinkedHashMap<>();
+        for (Reminder reminder : reminderRepository.findActiveAtTime(date, from, to)) {
+            if (!shardManager.owns(reminder.getUserId(), minute)
+                    || CalendarService.occurrences(reminder, date, date).isEmpty()) {
+                continue;
+            }
+            byUser.computeIfAbsent(reminder.getUserId(), id -> new ArrayList<>()).add(DueReminderBean.builder()
+                    .reminderId(reminder.getReminderid())
+                    .title(reminder.getTitle())
+                    .description(reminder.getDescription())
+                    .reminderTime(reminder.getReminderTime())
+                    .build());
+        }
+        List<Delivery> deliveries = new ArrayList<>(byUser.size());
+        for (Map.Entry<Long, List<DueReminderBean>> entry : byUser.entrySet()) {
+            deliveries.add(new Delivery(UUID.randomUUID().toString(), entry.getKey(), minute, now,
+                    minute.plus(deliveryTtl), entry.getValue(), false));
+        }
+        if (!deliveries.isEmpty()) {
+            store(deliveries);
+            logger.debug("Stored reminders due at {} for {} users", minute, deliveries.size());
+        }
+    }
+
+    /**
+     * Sends the deliveries stored since the previous poll, by any node, to the users connected
+     * here. Deliveries already held are not sent again; ones stored for users who connect later
+     * are loaded by register().
+     */
+    void pollStored(LocalDateTime now) {
+        LocalDateTime cursor = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", LocalDateTime.class);
+        LocalDateTime since = (pollCursor != null ? pollCursor : cursor).minus(POLL_GRACE);
+        pollCursor = cursor;
+        if (connections.isEmpty()) {
+            return;
+        }
+        for (Delivery delivery : jdbcTemplate.query(NEW_SQL, this::mapDelivery, since, now)) {
+            if (delivery != null && connections.containsKey(delivery.userId) && addPending(delivery)) {
+                send(delivery, now);
+            }
+        }
+    }
+
+    void retryPending(LocalDateTime now) {
+        for (Map<String, Delivery> deliveries : pending.values()) {
+            for (Delivery delivery : deliveries.values()) {
+                if (now.isAfter(delivery.expiresAt)
+                        || (delivery.attempts >= maxAttempts && !now.isBefore(delivery.nextAttemptAt))) {
+                    removePending(delivery.userId, delivery.id);
+                    jdbcTemplate.update(SETTLE_SQL, delivery.id, delivery.userId);
+                    logger.info("Giving up on reminder delivery {} for user ID: {} after {} attempts",
+                            delivery.id, delivery.userId, delivery.attempts);
+                } else if (!connections.containsKey(delivery.userId)) {
+                    // Loaded again when the user connects
+                    removePending(delivery.userId, delivery.id);
+                } else if (!now.isBefore(delivery.nextAttemptAt)) {
+                    // Acknowledged on another node, on another of the user's sockets
+                    if (delivery.attempts > 0 && jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, delivery.id) == 0) {
+                        removePending(delivery.userId, delivery.id);
+                        continue;
+                    }
+                    send(delivery, now);
+                }
+            }
+        }
+    }
+
+    // An attempt is only counted when the user has a connection to send it on
+    private void send(Delivery delivery, LocalDateTime now) {
+        Set<Connection> targets = connections.get(delivery.userId);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        delivery.attempts++;
+        delivery.nextAttemptAt = now.plus(ackTimeout.multipliedBy(1L << Math.min(delivery.attempts - 1, 16)));
+        String message = serialize(delivery);
+        if (message == null) {
+            removePending(delivery.userId, delivery.id);
+            return;
+        }
+        for (Connection connection : targets) {
+            connection.enqueue(message);
+        }
+    }
+
+    // Keeps the copy already held, with its attempts, when a delivery is loaded again; returns false then
+    private boolean addPending(Delivery delivery) {
+        return pending.computeIfAbsent(delivery.userId, id -> new ConcurrentHashMap<>())
+                .putIfAbsent(delivery.id, delivery) == null;
+    }
+
+    private Delivery removePending(Long userId, String deliveryId) {
+        Delivery[] removed = {null};
+        pending.computeIfPresent(userId, (id, deliveries) -> {
+            removed[0] = deliveries.remove(deliveryId);
+            return deliveries.isEmpty() ? null : deliveries;
+        });
+        return removed[0];
+    }
+
+    private void store(List<Delivery> deliveries) {
+        List<Object[]> rows = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            try {
+                rows.add(new Object[] {delivery.id, delivery.userId, delivery.dueAt, delivery.createdAt,
+                        delivery.expiresAt, delivery.late, objectMapper.writeValueAsString(delivery.reminders)});
+            } catch (JsonProcessingException e) {
+                logger.error("Unable to store reminder delivery for user ID: {}: {}", delivery.userId, e.getMessage());
+            }
+        }
+        jdbcTemplate.batchUpdate(STORE_SQL, rows);
+    }
+
+    private void loadStored(Long userId, LocalDateTime now) {
+        for (Delivery delivery : jdbcTemplate.query(STORED_SQL, this::mapDelivery, userId, now)) {
+            if (delivery != null) {
+                addPending(delivery);
+            }
+        }
+    }
+
+    // Null when the stored reminders cannot be read back
+    private Delivery mapDelivery(ResultSet rs, int rowNum) throws SQLException {
+        Long userId = rs.getLong(2);
+        List<DueReminderBean> reminders = readReminders(rs.getString(7), userId);
+        return reminders == null ? null : new Delivery(rs.getString(1), userId, rs.getObject(3, LocalDateTime.class),
+                rs.getObject(4, LocalDateTime.class), rs.getObject(5, LocalDateTime.class), reminders, rs.getBoolean(6));
+    }
+
+    private List<DueReminderBean> readReminders(String json, Long userId) {
+        try {
+            return objectMapper.readValue(json, REMINDER_LIST);
+        } catch (JsonProcessingException e) {
+            logger.error("Unable to read stored reminder delivery for user ID: {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private String serialize(Delivery delivery) {
+        try {
+            return objectMapper.writeValueAsString(ReminderDeliveryBean.builder()
+                    .type("reminders")
+                    .deliveryId(delivery.id)
+                    .userId(delivery.userId)
+                    .dueAt(delivery.dueAt)
+                    .attempt(Math.max(1, delivery.attempts))
+                    .late(delivery.late)
+                    .reminders(delivery.reminders)
+                    .build());
+        } catch (JsonProcessingException e) {
+            logger.error("Unable to serialize reminder delivery for user ID: {}: {}", delivery.userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.computeIfPresent(connection.userId, (id, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+        connectionCount.decrementAndGet();
+    }
+
+    private static final class Delivery {
+        private final String id;
+        private final Long userId;
+        private final LocalDateTime dueAt;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime expiresAt;
+        private final List<DueReminderBean> reminders;
+        private final boolean late;
+        private volatile int attempts;
+        private volatile LocalDateTime nextAttemptAt;
+
+        private Delivery(String id, Long userId, LocalDateTime dueAt, LocalDateTime createdAt, LocalDateTime expiresAt,
+                         List<DueReminderBean> reminders, boolean late) {
+            this.id = id;
+            this.userId = userId;
+            this.dueAt = dueAt;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.reminders = reminders;
+            this.late = late;
+            this.nextAttemptAt = createdAt;
+        }
+    }
+
+    private final class Connection {
+        private final Long userId;
+        private final Session session;
+        private final MpscRingBuffer<String> outbox;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(Long userId, Session session, MpscRingBuffer<String> outbox) {
+            this.userId = userId;
+            this.session = session;
+            this.outbox = outbox;
+        }
+
+        private void enqueue(String message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!outbox.offer(message)) {
+                logger.info("Closing slow reminder socket for user ID: {}", userId);
+                close(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many unsent messages");
+                return;
+            }
+            sendNext();
+        }
+
+        // The container allows one async send in flight per session; the sending flag also makes
+        // the holder the outbox's only consumer
+        private void sendNext() {
+            while (!closed.get() && !outbox.isEmpty() && sending.compareAndSet(false, true)) {
+                String message = outbox.poll();
+                if (message == null) {
+                    sending.set(false);
+                    continue;
+                }
+                try {
+                    session.getAsyncRemote().sendText(message, result -> {
+                        if (!result.isOK()) {
+                            logger.debug("Reminder socket for user ID: {} failed: {}", userId,
+                                    result.getException() != null ? result.getException().getMessage() : "unknown");
+                            remove(this);
+                            return;
+                        }
+                        sending.set(false);
+                        sendNext();
+                    });
+                } catch (IllegalStateException e) {
+                    logger.debug("Reminder socket for user ID: {} closed: {}", userId, e.getMessage());
+                    remove(this);
+                }
+                return;
+            }
+        }
+
+        private void close(CloseReason.CloseCode code, String reason) {
+            remove(this);
+            try {
+                session.close(new CloseReason(code, reason));
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Error closing reminder socket for user ID: {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.DueReminderBean;
+import com.ovapal.entity.MissedReminderPolicy;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.ShardsAcquiredEvent;
+import com.ovapal.repository.ReminderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Recovery of reminders that fell due while no node was dispatching them. When this node takes
+ * over reminder shards, at startup or from a node that died, the occurrences after each shard's
+ * checkpoint and up to the minute of the takeover are recovered (at most max-lookback back).
+ *
+ * Candidates are read with two indexed range queries, one-off reminders dated in the window and
+ * repeating ones started by its end, merged by user and handed out in chunks of whole users to a
+ * bounded pool; a full queue makes the reading thread process the chunk itself, so reading never
+ * runs ahead of the workers. Each reminder's missed occurrences are handled by its policy: FIRE_LATE
+ * sends every occurrence, COLLAPSE only the latest with the number it stands for, SKIP none. Late
+ * deliveries are stored by ReminderPushDispatcher until acknowledged, so the shard checkpoint can
+ * move past them, and reach users when their clients reconnect.
+ *
+ * Starts in a lifecycle phase before the web server, so the node takes no traffic until recovery
+ * of the shards it took at startup has finished or time-budget has passed; after that it carries
+ * on in the background.
+ */
+@Service
+public class ReminderRecoveryService implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderRecoveryService.class);
+
+    // Before the embedded web server (Integer.MAX_VALUE - 2048) and the dispatcher
+    static final int PHASE = Integer.MAX_VALUE - 4096;
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private ReminderPushDispatcher reminderPushDispatcher;
+
+    @Autowired
+    private ReminderShardManager shardManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ovapal.reminders.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ovapal.reminders.recovery.parallelism:4}")
+    private int parallelism;
+
+    @Value("${ovapal.reminders.recovery.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${ovapal.reminders.recovery.max-lookback:24h}")
+    private Duration maxLookback;
+
+    @Value("${ovapal.reminders.recovery.time-budget:30s}")
+    private Duration timeBudget;
+
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final List<Future<?>> pending = new CopyOnWriteArrayList<>();
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-recovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+
+    /**
+     * Recovers the minutes missed on shards this node has just taken over, in the background;
+     * the shards' checkpoints stay put until it is done.
+     */
+    @EventListener
+    public void onShardsAcquired(ShardsAcquiredEvent event) {
+        LocalDateTime through = event.through();
+        LocalDateTime oldest = through.minus(maxLookback);
+        Map<Integer, LocalDateTime> after = new HashMap<>();
+        event.checkpoints().forEach((shard, checkpoint) -> {
+            if (!enabled || checkpoint == null || !checkpoint.isBefore(through)) {
+                return;
+            }
+            if (checkpoint.isBefore(oldest)) {
+                logger.warn("Checkpoint {} of reminder shard {} is older than {}, not recovering reminders due before {}",
+                        checkpoint, shard, maxLookback, oldest);
+                checkpoint = oldest;
+            }
+            after.put(shard, checkpoint);
+        });
+        if (after.isEmpty()) {
+            shardManager.recoveryFinished(event.checkpoints().keySet(), through);
+            return;
+        }
+        logger.info("Recovering reminders of shards {} missed through {}", new TreeSet<>(after.keySet()), through);
+        pending.removeIf(Future::isDone);
+        LocalDateTime now = LocalDateTime.now();
+        pending.add(coordinator.submit(() -> {
+            try {
+                recover(after, through, now);
+            } catch (RuntimeException e) {
+                logger.error("Reminder recovery failed: {}", e.getMessage(), e);
+            } finally {
+                shardManager.recoveryFinished(event.checkpoints().keySet(), through);
+            }
+        }));
+    }
+
+    // Holds back the web server until the shards taken at startup are recovered, or time-budget passes
+    @Override
+    public void start() {
+        running = true;
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        for (Future<?> recovery : pending) {
+            try {
+                recovery.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("Reminder recovery still running after {}, continuing in the background", timeBudget);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Logged by the task
+            }
+        }
+    }
+
+    /**
+     * Recovers occurrences due up to through on the given shards, each after its own checkpoint.
+     * Returns the number of deliveries queued.
+     */
+    int recover(Map<Integer, LocalDateTime> after, LocalDateTime through, LocalDateTime now) {
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime from = Collections.min(after.values());
+        AtomicInteger deliveries = new AtomicInteger();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), runnable -> {
+                    Thread thread = new Thread(runnable, "reminder-recovery-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<Reminder> oneOff =
+                             reminderRepository.streamActiveOneOffBetween(from.toLocalDate(), through.toLocalDate());
+                     Stream<Reminder> repeating =
+                             reminderRepository.streamActiveRepeatingStartedBy(through.toLocalDate())) {
+                    List<Reminder> chunk = new ArrayList<>(chunkSize);
+                    for (Reminder reminder : (Iterable<Reminder>) () -> byUser(oneOff.iterator(), repeating.iterator())) {
+                        entityManager.detach(reminder);
+                        if (!after.containsKey(shardManager.shardOf(reminder.getUserId()))) {
+                            continue;
+                        }
+                        // Chunks end on a user boundary so a user's reminders are grouped together
+                        if (chunk.size() >= chunkSize
+                                && !chunk.get(chunk.size() - 1).getUserId().equals(reminder.getUserId())) {
+                            submit(workers, chunk, after, through, now, deliveries);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                        chunk.add(reminder);
+                    }
+                    if (!chunk.isEmpty()) {
+                        submit(workers, chunk, after, through, now, deliveries);
+                    }
+                }
+            });
+        } finally {
+            workers.shutdown();
+        }
+        try {
+            workers.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Reminder recovery queued {} deliveries ({} late, {} collapsed, {} skipped occurrences) in {} ms",
+                deliveries.get(), late.get(), collapsed.get(), skipped.get(), System.currentTimeMillis() - startedAt);
+        return deliveries.get();
+    }
+
+    public boolean isComplete() {
+        return pending.stream().allMatch(Future::isDone);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void submit(ExecutorService workers, List<Reminder> chunk, Map<Integer, LocalDateTime> after,
+                        LocalDateTime through, LocalDateTime now, AtomicInteger deliveries) {
+        workers.execute(() -> {
+            try {
+                deliveries.addAndGet(processChunk(chunk, after, through, now));
+            } catch (RuntimeException e) {
+                logger.error("Reminder recovery chunk of {} reminders failed: {}", chunk.size(), e.getMessage(), e);
+            }
+        });
+    }
+
+    // Groups each user's late occurrences by due minute, like live dispatch
+    int processChunk(List<Reminder> chunk, Map<Integer, LocalDateTime> after, LocalDateTime through, LocalDateTime now) {
+        Map<Long, Map<LocalDateTime, List<DueReminderBean>>> byUser = new TreeMap<>();
+        for (Reminder reminder : chunk) {
+            LocalDateTime from = after.get(shardManager.shardOf(reminder.getUserId()));
+            if (from == null) {
+                continue;
+            }
+            List<LocalDateTime> missed = missedOccurrences(reminder, from, through);
+            if (missed.isEmpty()) {
+                continue;
+            }
+            Map<LocalDateTime, List<DueReminderBean>> byMinute = byUser.computeIfAbsent(reminder.getUserId(), id -> new TreeMap<>());
+            switch (policyOf(reminder)) {
+                case SKIP -> skipped.addAndGet(missed.size());
+                case COLLAPSE -> {
+                    collapsed.addAndGet(missed.size() - 1);
+                    late.incrementAndGet();
+                    LocalDateTime latest = missed.get(missed.size() - 1);
+                    byMinute.computeIfAbsent(latest, minute -> new ArrayList<>()).add(toBean(reminder, missed.size()));
+                }
+                case FIRE_LATE -> {
+                    late.addAndGet(missed.size());
+                    for (LocalDateTime dueAt : missed) {
+                        byMinute.computeIfAbsent(dueAt, minute -> new ArrayList<>()).add(toBean(reminder, 1));
+                    }
+                }
+            }
+        }
+        int deliveries = 0;
+        for (Map.Entry<Long, Map<LocalDateTime, List<DueReminderBean>>> user : byUser.entrySet()) {
+            for (Map.Entry<LocalDateTime, List<DueReminderBean>> minute : user.getValue().entrySet()) {
+                reminderPushDispatcher.enqueueMissed(user.getKey(), minute.getKey(), minute.getValue(), now);
+                deliveries++;
+            }
+        }
+        return deliveries;
+    }
+
+    // Merges two sequences ordered by user and reminder ID into one
+    static Iterator<Reminder> byUser(Iterator<Reminder> first, Iterator<Reminder> second) {
+        Comparator<Reminder> order = Comparator.comparing(Reminder::getUserId).thenComparing(Reminder::getReminderid);
+        return new Iterator<>() {
+            private Reminder nextFirst = first.hasNext() ? first.next() : null;
+            private Reminder nextSecond = second.hasNext() ? second.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextFirst != null || nextSecond != null;
+            }
+
+            @Override
+            public Reminder next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Reminder next;
+                if (nextSecond == null || (nextFirst != null && order.compare(nextFirst, nextSecond) <= 0)) {
+                    next = nextFirst;
+                    nextFirst = first.hasNext() ? first.next() : null;
+                } else {
+                    next = nextSecond;
+                    nextSecond = second.hasNext() ? second.next() : null;
+                }
+                return next;
+            }
+        };
+    }
+
+    // Due minutes in (from, through], oldest first
+    static List<LocalDateTime> missedOccurrences(Reminder reminder, LocalDateTime from, LocalDateTime through) {
+        List<LocalDateTime> missed = new ArrayList<>();
+        if (reminder.getReminderTime() == null) {
+            return missed;
+        }
+        for (LocalDate date : CalendarService.occurrences(reminder, from.toLocalDate(), through.toLocalDate())) {
+            LocalDateTime dueAt = date.atTime(reminder.getReminderTime()).truncatedTo(ChronoUnit.MINUTES);
+            if (dueAt.isAfter(from) && !dueAt.isAfter(through)) {
+                missed.add(dueAt);
+            }
+        }
+        return missed;
+    }
+
+    static MissedReminderPolicy policyOf(Reminder reminder) {
+        if (reminder.getMissedPolicy() != null) {
+            return reminder.getMissedPolicy();
+        }
+        return Boolean.TRUE.equals(reminder.getIsRepeating()) ? MissedReminderPolicy.COLLAPSE : MissedReminderPolicy.FIRE_LATE;
+    }
+
+    private static DueReminderBean toBean(Reminder reminder, int occurrences) {
+        return DueReminderBean.builder()
+                .reminderId(reminder.getReminderid())
+                .title(reminder.getTitle())
+                .description(reminder.getDescription())
+                .reminderTime(reminder.getReminderTime())
+                .missedOccurrences(occurrences)
+                .build();
+    }
+}
@@ -0,0 +1,364 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.ReminderShardsResponseBean;
+import com.ovapal.event.ShardsAcquiredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits reminder dispatch between nodes. Users are hashed into a fixed number of shards, and a
+ * node only fires the reminders of shards it holds a lease on in reminder_shard_leases.
+ *
+ * Every renew-interval a node heartbeats into reminder_nodes, renews its leases and works out its
+ * fair share, ceil(shards / live nodes). Extra shards are released so that a node that just joined
+ * can take them; missing ones are taken from shards that are free or whose lease has run out, one
+ * conditional update each, so two nodes never both win a shard. A node that leaves releases its
+ * shards, and those of a node that died are free once its lease expires.
+ *
+ * A node stops firing for its shards when it has not renewed for two thirds of the lease, before
+ * anyone else can take them over. This relies on node clocks agreeing to well within that margin.
+ *
+ * Each lease row also keeps the last minute dispatched for the shard. A node that takes a shard
+ * publishes a ShardsAcquiredEvent so the minutes its previous owner missed are recovered, and holds
+ * the checkpoint until that recovery is done.
+ */
+@Service
+public class ReminderShardManager implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderShardManager.class);
+
+    // Before ReminderRecoveryService, which waits for the recovery of the shards taken at startup
+    static final int PHASE = Integer.MAX_VALUE - 8192;
+
+    private static final String HEARTBEAT_SQL = "UPDATE reminder_nodes SET heartbeat_at = ? WHERE node_id = ?";
+    private static final String JOIN_SQL = "INSERT INTO reminder_nodes (node_id, heartbeat_at) VALUES (?, ?)";
+    private static final String LEAVE_SQL = "DELETE FROM reminder_nodes WHERE node_id = ?";
+    private static final String LIVE_NODES_SQL = "SELECT COUNT(*) FROM reminder_nodes WHERE heartbeat_at >= ?";
+    private static final String DEAD_NODES_SQL = "DELETE FROM reminder_nodes WHERE heartbeat_at < ?";
+    private static final String SEED_SQL = "INSERT INTO reminder_shard_leases (shard) VALUES (?)";
+    private static final String RENEW_SQL = "UPDATE reminder_shard_leases SET lease_until = ? WHERE owner = ?";
+    private static final String LEASES_SQL = "SELECT shard, owner, lease_until, dispatched_through "
+            + "FROM reminder_shard_leases WHERE shard < ?";
+    // A node restarted under the same ID gets its own shards back straight away
+    private static final String ACQUIRE_SQL = "UPDATE reminder_shard_leases SET owner = ?, lease_until = ? "
+            + "WHERE shard = ? AND (owner IS NULL OR owner = ? OR lease_until < ?)";
+    private static final String RELEASE_SQL = "UPDATE reminder_shard_leases SET owner = NULL, lease_until = NULL "
+            + "WHERE shard = ? AND owner = ?";
+    private static final String RELEASE_ALL_SQL = "UPDATE reminder_shard_leases SET owner = NULL, lease_until = NULL "
+            + "WHERE owner = ?";
+    private static final String CHECKPOINT_SQL = "UPDATE reminder_shard_leases SET dispatched_through = ? "
+            + "WHERE shard = ? AND owner = ? AND (dispatched_through IS NULL OR dispatched_through < ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ovapal.reminders.shards.count:16}")
+    private int shardCount;
+
+    @Value("${ovapal.reminders.shards.lease:30s}")
+    private Duration lease;
+
+    @Value("${ovapal.reminders.shards.renew-interval:10s}")
+    private Duration renewInterval;
+
+    @Value("${ovapal.reminders.shards.node-id:}")
+    private String nodeId;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    // Shard -> last minute recovered on acquisition; live dispatch covers the minutes after it
+    private volatile Map<Integer, LocalDateTime> owned = Map.of();
+    private final Set<Integer> recovering = ConcurrentHashMap.newKeySet();
+    private volatile long validUntilNanos = System.nanoTime();
+    private volatile LocalDateTime lastDispatched;
+    private volatile int liveNodes;
+
+    private ScheduledExecutorService renewer;
+    private volatile boolean running;
+
+    public int shardOf(Long userId) {
+        return shardOf(userId, shardCount);
+    }
+
+    // Spreads sequential user IDs evenly over the shards
+    static int shardOf(Long userId, int shardCount) {
+        return Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), shardCount);
+    }
+
+    /**
+     * Whether this node fires the user's reminders due at minute: it holds an unexpired lease on
+     * the user's shard, and took the shard over before that minute.
+     */
+    public boolean owns(Long userId, LocalDateTime minute) {
+        if (System.nanoTime() - validUntilNanos > 0) {
+            return false;
+        }
+        LocalDateTime acquiredThrough = owned.get(shardOf(userId));
+        return acquiredThrough != null && minute.isAfter(acquiredThrough);
+    }
+
+    /**
+     * Heartbeats, renews this node's leases and takes or gives up shards to reach its fair share.
+     * Runs on the renewer thread, and once from start().
+     */
+    synchronized void rebalance(LocalDateTime now) {
+        long startedAt = System.nanoTime();
+        Timestamp leaseUntil = Timestamp.valueOf(now.plus(lease));
+        if (jdbcTemplate.update(HEARTBEAT_SQL, Timestamp.valueOf(now), nodeId) == 0) {
+            insertIgnoringDuplicate(JOIN_SQL, nodeId, Timestamp.valueOf(now));
+        }
+        Timestamp liveSince = Timestamp.valueOf(now.minus(lease));
+        jdbcTemplate.update(DEAD_NODES_SQL, liveSince);
+        Integer live = jdbcTemplate.queryForObject(LIVE_NODES_SQL, Integer.class, liveSince);
+        liveNodes = Math.max(1, live != null ? live : 1);
+        jdbcTemplate.update(RENEW_SQL, leaseUntil, nodeId);
+
+        int target = (shardCount + liveNodes - 1) / liveNodes;
+        List<Lease> leases = jdbcTemplate.query(LEASES_SQL, (rs, rowNum) -> new Lease(
+                rs.getInt(1),
+                rs.getString(2),
+                toLocalDateTime(rs.getTimestamp(3)),
+                toLocalDateTime(rs.getTimestamp(4))), shardCount);
+        Map<Integer, Lease> byShard = new HashMap<>();
+        leases.forEach(row -> byShard.put(row.shard, row));
+
+        // Each node prefers shards from its own starting point, so nodes mostly reach for different ones
+        List<Integer> mine = new ArrayList<>();
+        List<Integer> free = new ArrayList<>();
+        int offset = Math.floorMod(nodeId.hashCode(), shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            Lease row = byShard.get((offset + i) % shardCount);
+            if (row == null) {
+                continue;
+            }
+            if (nodeId.equals(row.owner)) {
+                mine.add(row.shard);
+            } else if (row.owner == null || row.leaseUntil == null || row.leaseUntil.isBefore(now)) {
+                free.add(row.shard);
+            }
+        }
+        while (mine.size() > target) {
+            int shard = mine.remove(mine.size() - 1);
+            jdbcTemplate.update(RELEASE_SQL, shard, nodeId);
+        }
+        for (int i = 0; i < free.size() && mine.size() < target; i++) {
+            int shard = free.get(i);
+            if (jdbcTemplate.update(ACQUIRE_SQL, nodeId, leaseUntil, shard, nodeId, Timestamp.valueOf(now)) == 1) {
+                mine.add(shard);
+            }
+        }
+
+        Map<Integer, LocalDateTime> previous = owned;
+        LocalDateTime through = now.truncatedTo(ChronoUnit.MINUTES);
+        Map<Integer, LocalDateTime> next = new HashMap<>();
+        Map<Integer, LocalDateTime> acquired = new HashMap<>();
+        for (int shard : mine) {
+            LocalDateTime kept = previous.get(shard);
+            if (kept != null) {
+                next.put(shard, kept);
+            } else {
+                next.put(shard, through);
+                acquired.put(shard, byShard.get(shard).dispatchedThrough);
+            }
+        }
+        Set<Integer> lost = new TreeSet<>(previous.keySet());
+        lost.removeAll(next.keySet());
+        recovering.removeAll(lost);
+        recovering.addAll(acquired.keySet());
+        owned = Map.copyOf(next);
+        validUntilNanos = startedAt + lease.toNanos() * 2 / 3;
+
+        if (!lost.isEmpty()) {
+            logger.info("Node {} gave up reminder shards {}", nodeId, lost);
+        }
+        if (!acquired.isEmpty()) {
+            logger.info("Node {} took reminder shards {}, now holding {} of {} with {} live nodes",
+                    nodeId, new TreeSet<>(acquired.keySet()), next.size(), shardCount, liveNodes);
+            eventPublisher.publishEvent(new ShardsAcquiredEvent(acquired, through));
+        }
+    }
+
+    /**
+     * Moves the checkpoint of every owned shard to minute, except shards whose missed minutes are
+     * still being recovered.
+     */
+    public void markDispatched(LocalDateTime minute) {
+        lastDispatched = minute;
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer shard : owned.keySet()) {
+            if (!recovering.contains(shard)) {
+                rows.add(new Object[] {Timestamp.valueOf(minute), shard, nodeId, Timestamp.valueOf(minute)});
+            }
+        }
+        saveCheckpoints(rows);
+    }
+
+    /**
+     * Called once the minutes missed on the given shards up to through have been recovered.
+     */
+    public void recoveryFinished(Set<Integer> shards, LocalDateTime through) {
+        LocalDateTime dispatched = lastDispatched;
+        LocalDateTime checkpoint = dispatched != null && dispatched.isAfter(through) ? dispatched : through;
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer shard : shards) {
+            rows.add(new Object[] {Timestamp.valueOf(checkpoint), shard, nodeId, Timestamp.valueOf(checkpoint)});
+        }
+        saveCheckpoints(rows);
+        recovering.removeAll(shards);
+    }
+
+    public Set<Integer> getOwnedShards() {
+        return new TreeSet<>(owned.keySet());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public ReminderShardsResponseBean getStatus() {
+        return ReminderShardsResponseBean.builder()
+                .nodeId(nodeId)
+                .shardCount(shardCount)
+                .liveNodes(liveNodes)
+                .ownedShards(new ArrayList<>(getOwnedShards()))
+                .recoveringShards(new ArrayList<>(new TreeSet<>(recovering)))
+                .build();
+    }
+
+    @Override
+    public void start() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        seed();
+        try {
+            rebalance(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            logger.error("Unable to acquire reminder shards for node {}: {}", nodeId, e.getMessage(), e);
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-shards");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(() -> {
+            try {
+                rebalance(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                logger.error("Reminder shard renewal failed for node {}: {}", nodeId, e.getMessage(), e);
+            }
+        }, renewInterval.toMillis(), renewInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+        logger.info("Node {} holds reminder shards {} of {}", nodeId, getOwnedShards(), shardCount);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        renewer.shutdown();
+        try {
+            renewer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        leave();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // Hands this node's shards to the others without waiting for the leases to run out
+    synchronized void leave() {
+        owned = Map.of();
+        recovering.clear();
+        try {
+            int released = jdbcTemplate.update(RELEASE_ALL_SQL, nodeId);
+            jdbcTemplate.update(LEAVE_SQL, nodeId);
+            logger.info("Node {} released {} reminder shards", nodeId, released);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to release reminder shards of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // Creates the lease rows of shards that have none yet; several nodes may race to do it
+    void seed() {
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT shard FROM reminder_shard_leases", Integer.class));
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!existing.contains(shard)) {
+                insertIgnoringDuplicate(SEED_SQL, shard);
+            }
+        }
+    }
+
+    private void saveCheckpoints(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(CHECKPOINT_SQL, rows);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to save reminder shard checkpoints: {}", e.getMessage());
+        }
+    }
+
+    private void insertIgnoringDuplicate(String sql, Object... args) {
+        try {
+            jdbcTemplate.update(sql, args);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Row already inserted by another node: {}", e.getMessage());
+        }
+    }
+
+    private String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+        } catch (UnknownHostException e) {
+            return "localhost:" + serverPort;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private record Lease(int shard, String owner, LocalDateTime leaseUntil, LocalDateTime dispatchedThrough) {
+    }
+}
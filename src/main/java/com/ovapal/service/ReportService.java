@@ -0,0 +1,310 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.User;
+import com.ovapal.exception.BackpressureException;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.UserRepository;
+import com.ovapal.util.CsvReportWriter;
+import com.ovapal.util.PdfReportWriter;
+import com.ovapal.util.ReportWriter;
+import com.ovapal.util.ReportWriter.Column;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Doctor-visit summary for a date range as CSV or PDF: vitals with a per-vital summary, cycle
+ * history and the medications taken during the range.
+ *
+ * Health and period records are read through cursor-backed streams and written to the response
+ * as they arrive (row by row for CSV, page by page for PDF), so memory use does not grow with the
+ * range. Reports run on the MVC async executor rather than request threads, and at most
+ * max-concurrent of them run at once; further requests get 503 with Retry-After instead of
+ * queueing for connections.
+ */
+@Service
+public class ReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+
+    public enum Format {
+        CSV, PDF
+    }
+
+    private static final List<Column> VITAL_COLUMNS = List.of(
+            new Column("Date", 10), new Column("Weight kg", 9), new Column("Temp C", 6),
+            new Column("Heart rate", 10), new Column("Blood pressure", 14), new Column("Flags", 40));
+    private static final List<Column> VITAL_SUMMARY_COLUMNS = List.of(
+            new Column("Vital", 16), new Column("Readings", 8), new Column("Min", 7), new Column("Max", 7),
+            new Column("Average", 7), new Column("First", 7), new Column("Last", 7), new Column("Change", 7));
+    private static final List<Column> CYCLE_COLUMNS = List.of(
+            new Column("Start", 10), new Column("End", 10), new Column("Days", 4), new Column("Cycle", 5),
+            new Column("Flow", 8), new Column("Symptoms", 30), new Column("Mood", 20));
+    private static final List<Column> MEDICATION_COLUMNS = List.of(
+            new Column("Medicine", 24), new Column("Dosage", 12), new Column("Frequency", 20),
+            new Column("Start", 10), new Column("End", 10), new Column("Notes", 15));
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ovapal.reports.max-range-years:10}")
+    private int maxRangeYears;
+
+    private final Semaphore permits;
+
+    @Autowired
+    public ReportService(@Value("${ovapal.reports.max-concurrent:4}") int maxConcurrent) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * Validates the request and reserves a report slot. The slot is released when the report is
+     * written; callers must also call release() if it may never be written (rejected or timed-out
+     * async request, client gone before the body ran).
+     */
+    public Report prepare(Long userId, LocalDate from, LocalDate to) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        if (from.isAfter(to)) {
+            throw new InvalidOperationException("From date must not be after to date");
+        }
+        if (from.plusYears(maxRangeYears).isBefore(to)) {
+            throw new InvalidOperationException("Reports can cover at most " + maxRangeYears + " years");
+        }
+        if (!permits.tryAcquire()) {
+            logger.warn("Rejecting report for user ID: {}, {} reports already running", userId, permits.availablePermits());
+            throw new BackpressureException("Too many reports are being generated, retry later", 5);
+        }
+        return new Report(user, from, to);
+    }
+
+    public final class Report {
+        private final User user;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Report(User user, LocalDate from, LocalDate to) {
+            this.user = user;
+            this.from = from;
+            this.to = to;
+        }
+
+        // Returns the report slot; safe to call more than once
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        public String getFileName(Format format) {
+            return "ovapal-report-" + user.getUserid() + "-" + from + "-" + to + "." + format.name().toLowerCase(Locale.ROOT);
+        }
+
+        public void writeTo(OutputStream out, Format format) throws IOException {
+            if (released.get()) {
+                // The request completed or timed out before the body got to run
+                throw new IOException("Report request for user ID: " + user.getUserid() + " already completed");
+            }
+            long startedAt = System.currentTimeMillis();
+            try {
+                ReportWriter writer = format == Format.PDF ? new PdfReportWriter(out) : new CsvReportWriter(out);
+                TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                readOnly.setReadOnly(true);
+                readOnly.executeWithoutResult(status -> {
+                    try {
+                        write(writer, user, from, to);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.finish();
+                logger.info("Wrote {} report for user ID: {} from {} to {} in {} ms",
+                        format, user.getUserid(), from, to, System.currentTimeMillis() - startedAt);
+            } catch (UncheckedIOException e) {
+                // Usually the client went away mid-download
+                logger.warn("Report for user ID: {} was not completed: {}", user.getUserid(), e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                release();
+            }
+        }
+    }
+
+    // Runs inside a read-only transaction so the cursors stay open while rows are written
+    private void write(ReportWriter writer, User user, LocalDate from, LocalDate to) throws IOException {
+        writer.title("OvaPal health summary");
+        writer.note("Patient: " + user.getName() + (user.getAge() != null ? ", age " + user.getAge() : ""));
+        writer.note("Period covered: " + from + " to " + to);
+        writer.note("Generated: " + LocalDate.now());
+
+        VitalSummary[] summaries = {
+                new VitalSummary("Weight (kg)"), new VitalSummary("Temperature (C)"), new VitalSummary("Heart rate"),
+                new VitalSummary("Systolic BP"), new VitalSummary("Diastolic BP")};
+        writer.section("Vitals", VITAL_COLUMNS);
+        try (Stream<HealthRecord> records = healthRecordRepository.streamByUserIdBetween(user.getUserid(), from, to)) {
+            for (HealthRecord record : (Iterable<HealthRecord>) records::iterator) {
+                summaries[0].add(record.getWeight());
+                summaries[1].add(record.getTemperature());
+                summaries[2].add(toDouble(record.getHeartRate()));
+                summaries[3].add(toDouble(record.getBloodPressureSystolic()));
+                summaries[4].add(toDouble(record.getBloodPressureDiastolic()));
+                writer.row(Arrays.asList(
+                        String.valueOf(record.getRecordDate()),
+                        number(record.getWeight()),
+                        number(record.getTemperature()),
+                        record.getHeartRate() != null ? String.valueOf(record.getHeartRate()) : "",
+                        bloodPressure(record),
+                        record.getAnomalyFlags() != null ? record.getAnomalyFlags() : ""));
+                entityManager.detach(record);
+            }
+        }
+
+        writer.section("Vitals summary", VITAL_SUMMARY_COLUMNS);
+        for (VitalSummary summary : summaries) {
+            writer.row(summary.toRow());
+        }
+
+        writer.section("Cycle history", CYCLE_COLUMNS);
+        long cycles = 0;
+        long cycleDays = 0;
+        LocalDate previousStart = null;
+        try (Stream<PeriodRecord> records = periodRecordRepository.streamByUserIdBetween(user.getUserid(), from, to)) {
+            for (PeriodRecord record : (Iterable<PeriodRecord>) records::iterator) {
+                String cycle = "";
+                if (previousStart != null) {
+                    long days = ChronoUnit.DAYS.between(previousStart, record.getStartDate());
+                    cycle = String.valueOf(days);
+                    cycles++;
+                    cycleDays += days;
+                }
+                previousStart = record.getStartDate();
+                writer.row(Arrays.asList(
+                        String.valueOf(record.getStartDate()),
+                        record.getEndDate() != null ? record.getEndDate().toString() : "",
+                        record.getEndDate() != null
+                                ? String.valueOf(ChronoUnit.DAYS.between(record.getStartDate(), record.getEndDate()) + 1)
+                                : "",
+                        cycle,
+                        nullToEmpty(record.getFlow()),
+                        nullToEmpty(record.getSymptoms()),
+                        nullToEmpty(record.getMood())));
+                entityManager.detach(record);
+            }
+        }
+        if (cycles > 0) {
+            writer.note(String.format(Locale.ROOT, "Average cycle length: %.1f days over %d cycles",
+                    (double) cycleDays / cycles, cycles));
+        }
+
+        writer.section("Medications", MEDICATION_COLUMNS);
+        for (Medication medication : medicationRepository.findOverlapping(user.getUserid(), from, to)) {
+            writer.row(Arrays.asList(
+                    nullToEmpty(medication.getMedicine()),
+                    nullToEmpty(medication.getDosage()),
+                    nullToEmpty(medication.getFrequency()),
+                    String.valueOf(medication.getStartDate()),
+                    medication.getEndDate() != null ? medication.getEndDate().toString() : "ongoing",
+                    nullToEmpty(medication.getNotes())));
+        }
+    }
+
+    private static String bloodPressure(HealthRecord record) {
+        if (record.getBloodPressureSystolic() == null || record.getBloodPressureDiastolic() == null) {
+            return "";
+        }
+        return record.getBloodPressureSystolic() + "/" + record.getBloodPressureDiastolic();
+    }
+
+    private static Double toDouble(Integer value) {
+        return value != null ? value.doubleValue() : null;
+    }
+
+    private static String number(Double value) {
+        return value != null ? String.format(Locale.ROOT, "%.1f", value) : "";
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    // Running min/max/average and first/last of one vital, in constant memory
+    static final class VitalSummary {
+        private final String name;
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double first;
+        private double last;
+
+        VitalSummary(String name) {
+            this.name = name;
+        }
+
+        void add(Double value) {
+            if (value == null) {
+                return;
+            }
+            if (count == 0) {
+                first = value;
+            }
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            last = value;
+        }
+
+        List<String> toRow() {
+            if (count == 0) {
+                return List.of(name, "0", "", "", "", "", "", "");
+            }
+            List<String> row = new ArrayList<>(List.of(name, String.valueOf(count)));
+            for (double value : new double[] {min, max, sum / count, first, last}) {
+                row.add(number(value));
+            }
+            row.add(String.format(Locale.ROOT, "%+.1f", last - first));
+            return row;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.HealthRecordResponseBean;
+import com.ovapal.bean.SampleBatchRequestBean;
+import com.ovapal.bean.SampleIngestResponseBean;
+import com.ovapal.bean.SamplePointBean;
+import com.ovapal.bean.SampleSeriesResponseBean;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.SampleChunk;
+import com.ovapal.entity.SampleMetric;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.SampleChunkRepository;
+import com.ovapal.repository.UserRepository;
+import com.ovapal.util.GorillaDecoder;
+import com.ovapal.util.GorillaEncoder;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-minute wearable samples (heart rate, temperature) stored as Gorilla-compressed chunks,
+ * one row per user, metric and UTC day instead of one row per sample. A regular per-minute
+ * stream encodes to roughly 1-2 bytes per sample. A batch that lands on a day already stored
+ * is merged into that day's chunks, ordered and de-duplicated by second. Merges lock the
+ * user's row first, so two concurrent batches for the same day cannot both read the old
+ * chunks and each write a copy, losing the other's samples.
+ */
+@Service
+public class SampleStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(SampleStreamService.class);
+
+    private static final int MAX_SAMPLES_PER_CHUNK = 1440;
+    private static final int MAX_SAMPLES_PER_REQUEST = 10_000;
+
+    @Autowired
+    private SampleChunkRepository sampleChunkRepository;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Autowired
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Autowired
+    private OvulationDetector ovulationDetector;
+
+    @Transactional
+    public SampleIngestResponseBean ingestSamples(SampleBatchRequestBean request) {
+        logger.info("Ingesting samples for user ID: {}", request.getUserId());
+
+        if (request.getUserId() == null || request.getMetric() == null) {
+            throw new InvalidOperationException("User ID and metric are required");
+        }
+        if (request.getSamples() == null || request.getSamples().isEmpty()) {
+            throw new InvalidOperationException("At least one sample is required");
+        }
+        if (request.getSamples().size() > MAX_SAMPLES_PER_REQUEST) {
+            throw new InvalidOperationException("At most " + MAX_SAMPLES_PER_REQUEST + " samples can be sent per request");
+        }
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(request.getUserId());
+        // Serializes read-merge-replace of the user's chunks until commit
+        userRepository.lockById(request.getUserId());
+
+        // Group by UTC day, keeping the first reading of each second
+        Map<LocalDate, TreeMap<Long, Double>> days = new TreeMap<>();
+        for (SamplePointBean sample : request.getSamples()) {
+            validateSample(request.getMetric(), sample);
+            LocalDate day = LocalDate.ofInstant(sample.getTimestamp(), ZoneOffset.UTC);
+            days.computeIfAbsent(day, key -> new TreeMap<>())
+                    .putIfAbsent(sample.getTimestamp().getEpochSecond(), sample.getValue());
+        }
+
+        // Chunks never span days, so each day's stored chunks are decoded, merged and re-encoded
+        List<SampleChunk> replaced = new ArrayList<>();
+        List<SampleChunk> chunks = new ArrayList<>();
+        int stored = 0;
+        for (Map.Entry<LocalDate, TreeMap<Long, Double>> day : days.entrySet()) {
+            long from = day.getKey().atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+            long to = day.getKey().plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond() - 1;
+            List<SampleChunk> existing = sampleChunkRepository.findOverlapping(request.getUserId(), request.getMetric(), from, to);
+            TreeMap<Long, Double> merged = new TreeMap<>();
+            for (SampleChunk chunk : existing) {
+                GorillaDecoder decoder = new GorillaDecoder(chunk.getData(), chunk.getSampleCount());
+                while (decoder.hasNext()) {
+                    decoder.next();
+                    merged.put(decoder.getTimestamp(), decoder.getValue());
+                }
+            }
+            for (Map.Entry<Long, Double> sample : day.getValue().entrySet()) {
+                if (merged.putIfAbsent(sample.getKey(), sample.getValue()) == null) {
+                    stored++;
+                }
+            }
+            replaced.addAll(existing);
+            chunks.addAll(encode(request, merged));
+        }
+
+        if (!replaced.isEmpty()) {
+            sampleChunkRepository.deleteAll(replaced);
+        }
+        sampleChunkRepository.saveAll(chunks);
+        long encodedBytes = chunks.stream().mapToLong(chunk -> chunk.getData().length).sum();
+        logger.info("Stored {} new {} samples in {} chunks ({} bytes, replacing {}) for user ID: {}",
+                stored, request.getMetric(), chunks.size(), encodedBytes, replaced.size(), request.getUserId());
+
+        return SampleIngestResponseBean.builder()
+                .samples(stored)
+                .chunks(chunks.size())
+                .encodedBytes(encodedBytes)
+                .build();
+    }
+
+    public SampleSeriesResponseBean getSamples(Long userId, SampleMetric metric, Instant from, Instant to) {
+        logger.info("Fetching {} samples for user ID: {} between {} and {}", metric, userId, from, to);
+
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new InvalidOperationException("A valid from/to range is required");
+        }
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        List<SamplePointBean> samples = new ArrayList<>();
+        scan(userId, metric, from.getEpochSecond(), to.getEpochSecond(), (timestamp, value) ->
+                samples.add(new SamplePointBean(Instant.ofEpochSecond(timestamp), value)));
+
+        return SampleSeriesResponseBean.builder()
+                .userId(userId)
+                .metric(metric)
+                .samples(samples)
+                .build();
+    }
+
+    // Rolls one UTC day of samples up into the daily HealthRecord values
+    @Transactional
+    public HealthRecordResponseBean summarizeDay(Long userId, LocalDate date) {
+        logger.info("Summarizing samples for user ID: {} on {}", userId, date);
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        long from = date.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        long to = date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond() - 1;
+        double[] heartRate = mean(userId, SampleMetric.HEART_RATE, from, to);
+        double[] temperature = mean(userId, SampleMetric.TEMPERATURE, from, to);
+        if (heartRate[1] == 0 && temperature[1] == 0) {
+            throw new ResourceNotFoundException("No samples found for user ID: " + userId + " on " + date);
+        }
+
+        HealthRecord healthRecord = healthRecordRepository.findFirstByUserIdAndRecordDate(userId, date)
+                .orElseGet(() -> HealthRecord.builder().userId(userId).recordDate(date).build());
+        boolean newRecord = healthRecord.getHealthId() == null;
+        if (heartRate[1] > 0) {
+            healthRecord.setHeartRate((int) Math.round(heartRate[0]));
+        }
+        if (temperature[1] > 0) {
+            healthRecord.setTemperature(Math.round(temperature[0] * 100) / 100.0);
+        }
+        ovaPalService.validateHealthRecord(healthRecord);
+        if (newRecord) {
+            vitalsAnomalyDetector.detect(healthRecord);
+        } else {
+            vitalsAnomalyDetector.score(healthRecord);
+        }
+        if (temperature[1] > 0) {
+            ovulationDetector.onTemperature(userId, date, healthRecord.getTemperature());
+        }
+
+        HealthRecord savedRecord = healthRecordRepository.save(healthRecord);
+        logger.info("Daily summary saved to health record ID: {}", savedRecord.getHealthId());
+        vitalsWindowCache.onSaved(savedRecord);
+        ovaPalService.publishChange(userId, RecordType.HEALTH, savedRecord.getHealthId(),
+                newRecord ? ChangeType.CREATED : ChangeType.UPDATED);
+        return ovaPalService.mapHealthRecordToResponseBean(savedRecord);
+    }
+
+    private double[] mean(Long userId, SampleMetric metric, long from, long to) {
+        double[] sumAndCount = new double[2];
+        scan(userId, metric, from, to, (timestamp, value) -> {
+            sumAndCount[0] += value;
+            sumAndCount[1]++;
+        });
+        if (sumAndCount[1] > 0) {
+            sumAndCount[0] /= sumAndCount[1];
+        }
+        return sumAndCount;
+    }
+
+    private void scan(Long userId, SampleMetric metric, long from, long to, SampleVisitor visitor) {
+        for (SampleChunk chunk : sampleChunkRepository.findOverlapping(userId, metric, from, to)) {
+            GorillaDecoder decoder = new GorillaDecoder(chunk.getData(), chunk.getSampleCount());
+            while (decoder.hasNext()) {
+                decoder.next();
+                long timestamp = decoder.getTimestamp();
+                if (timestamp > to) {
+                    break;
+                }
+                if (timestamp >= from) {
+                    visitor.visit(timestamp, decoder.getValue());
+                }
+            }
+        }
+    }
+
+    private void validateSample(SampleMetric metric, SamplePointBean sample) {
+        if (sample.getTimestamp() == null || sample.getValue() == null) {
+            throw new InvalidOperationException("Each sample needs a timestamp and a value");
+        }
+        double value = sample.getValue();
+        if (metric == SampleMetric.HEART_RATE && (value < 20 || value > 220)) {
+            throw new InvalidOperationException("Heart rate must be between 20 and 220 bpm");
+        }
+        if (metric == SampleMetric.TEMPERATURE && (value < 30 || value > 45)) {
+            throw new InvalidOperationException("Temperature must be between 30 and 45 degrees Celsius");
+        }
+    }
+
+    // Day samples in timestamp order, split into chunks of at most MAX_SAMPLES_PER_CHUNK
+    private static List<SampleChunk> encode(SampleBatchRequestBean request, TreeMap<Long, Double> samples) {
+        List<SampleChunk> chunks = new ArrayList<>();
+        GorillaEncoder encoder = null;
+        long chunkStart = 0;
+        long lastTimestamp = 0;
+        for (Map.Entry<Long, Double> sample : samples.entrySet()) {
+            if (encoder == null || encoder.getCount() == MAX_SAMPLES_PER_CHUNK) {
+                if (encoder != null) {
+                    chunks.add(toChunk(request, encoder, chunkStart, lastTimestamp));
+                }
+                encoder = new GorillaEncoder();
+                chunkStart = sample.getKey();
+            }
+            encoder.append(sample.getKey(), sample.getValue());
+            lastTimestamp = sample.getKey();
+        }
+        if (encoder != null) {
+            chunks.add(toChunk(request, encoder, chunkStart, lastTimestamp));
+        }
+        return chunks;
+    }
+
+    private static SampleChunk toChunk(SampleBatchRequestBean request, GorillaEncoder encoder, long start, long end) {
+        return SampleChunk.builder()
+                .userId(request.getUserId())
+                .metric(request.getMetric())
+                .startTime(start)
+                .endTime(end)
+                .sampleCount(encoder.getCount())
+                .data(encoder.toByteArray())
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface SampleVisitor {
+        void visit(long timestamp, double value);
+    }
+}
@@ -0,0 +1,598 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SearchHitBean;
+import com.ovapal.bean.SearchResponseBean;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.FeedChangeEvent;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import com.ovapal.util.InvertedIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over each user's free-text fields: health, period and medication notes,
+ * period symptoms and mood, medication names and reminder titles and descriptions.
+ *
+ * The index is partitioned by user and built from the database on a user's first search, then
+ * kept current from record change events, and from the notification feed (FeedChangeEvent) for
+ * changes made on other nodes. With the feed disabled the index is only correct on a single node.
+ * Partitions are written to one file per user under
+ * ovapal.search.directory when evicted and on shutdown, and read back instead of rebuilding
+ * (ovapal.search.persistent=true).
+ * A marker file records a clean shutdown; without it every file is discarded at startup, since
+ * changes made after the last write would be missing from it. Changes other nodes make while
+ * this one is down are not in the feed it resumes from, so with more than one node set
+ * ovapal.search.persistent=false.
+ *
+ * One lock guards the map of users and is only held to look up, add or evict an entry. Searches,
+ * updates and each user's file reads, writes and deletes hold that user's own lock, so a slow disk
+ * or a large rebuild only holds up that user. An evicted index, or a placeholder for a user whose
+ * file is being deleted, stays in writing until its file I/O is done, and a search for that user
+ * takes it back instead of reading the file underneath it.
+ */
+@Service
+public class SearchIndexService implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String CLEAN_MARKER = "CLEAN";
+    private static final int MAGIC = 0x4F565358;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SNIPPET_LENGTH = 160;
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Value("${ovapal.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${ovapal.search.max-limit:100}")
+    private int maxLimit;
+
+    private final Path directory;
+    private final boolean persistent;
+    private final int maxUsers;
+    private final LinkedHashMap<Long, UserIndex> users;
+    private final Map<Long, UserIndex> writing = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean running;
+
+    @Autowired
+    public SearchIndexService(
+            @Value("${ovapal.search.persistent:true}") boolean persistent,
+            @Value("${ovapal.search.directory:./data/search}") String directory,
+            @Value("${ovapal.search.max-users:10000}") int maxUsers) {
+        this.persistent = persistent;
+        this.directory = Paths.get(directory);
+        this.maxUsers = maxUsers;
+        this.users = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public SearchResponseBean search(Long userId, String query, Integer limit) {
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        if (query == null || InvertedIndex.tokenize(query).isEmpty()) {
+            throw new InvalidOperationException("Query must contain at least one word");
+        }
+        int max = limit != null ? limit : defaultLimit;
+        if (max < 1 || max > maxLimit) {
+            throw new InvalidOperationException("Limit must be between 1 and " + maxLimit);
+        }
+
+        List<SearchHitBean> hits = new ArrayList<>();
+        List<String> terms = InvertedIndex.tokenize(query);
+        UserIndex userIndex = acquire(userId);
+        try {
+            for (InvertedIndex.Hit<DocKey> hit : userIndex.index.search(query, max)) {
+                SearchDocument document = userIndex.documents.get(hit.key());
+                hits.add(SearchHitBean.builder()
+                        .recordType(document.recordType().name())
+                        .recordId(document.recordId())
+                        .date(document.date())
+                        .title(document.title())
+                        .snippet(snippet(document.text(), terms))
+                        .score(Math.round(hit.score() * 1000) / 1000.0)
+                        .build());
+            }
+        } finally {
+            userIndex.lock.unlock();
+        }
+        logger.debug("Search for user ID: {} returned {} hits", userId, hits.size());
+        return SearchResponseBean.builder()
+                .userId(userId)
+                .query(query)
+                .hits(hits)
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        while (true) {
+            UserIndex userIndex;
+            boolean placeholder = false;
+            lock.lock();
+            try {
+                userIndex = users.get(event.userId());
+                if (userIndex == null) {
+                    userIndex = writing.get(event.userId());
+                }
+                if (userIndex == null) {
+                    // Not in memory: hold a lock for the user while its file is deleted
+                    userIndex = new UserIndex();
+                    writing.put(event.userId(), userIndex);
+                    placeholder = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            userIndex.lock.lock();
+            try {
+                if (userIndex.detached) {
+                    continue;
+                }
+                if (userIndex.ready && running && event.recordId() != null) {
+                    SearchDocument document = event.changeType() == ChangeType.DELETED
+                            ? null
+                            : loadDocument(event.recordType(), event.recordId());
+                    userIndex.apply(new DocKey(event.recordType(), event.recordId()), document);
+                    return;
+                }
+                // Not loaded, or the change can't be applied: drop it so the next search rebuilds
+                userIndex.clear();
+                deleteFile(event.userId());
+                if (placeholder) {
+                    detach(event.userId(), userIndex);
+                }
+                return;
+            } finally {
+                userIndex.lock.unlock();
+            }
+        }
+    }
+
+    // Reloads the changed record, so this node's own changes arriving again are harmless
+    @EventListener
+    public void onFeedChange(FeedChangeEvent event) {
+        onRecordChange(event.change());
+    }
+
+    @Override
+    public void start() {
+        if (!persistent) {
+            running = true;
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path marker = directory.resolve(CLEAN_MARKER);
+            if (Files.exists(marker)) {
+                Files.delete(marker);
+            } else {
+                int discarded = 0;
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : files.filter(SearchIndexService::isIndexFile).toList()) {
+                        Files.deleteIfExists(file);
+                        discarded++;
+                    }
+                }
+                if (discarded > 0) {
+                    logger.warn("Previous shutdown was not clean, discarded {} search index files", discarded);
+                }
+            }
+            running = true;
+        } catch (IOException e) {
+            logger.error("Search index directory {} is unusable, indexes will be kept in memory only: {}",
+                    directory, e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        List<Map.Entry<Long, UserIndex>> indexes = new ArrayList<>();
+        lock.lock();
+        try {
+            users.forEach((userId, userIndex) -> indexes.add(Map.entry(userId, userIndex)));
+            writing.forEach((userId, userIndex) -> indexes.add(Map.entry(userId, userIndex)));
+        } finally {
+            lock.unlock();
+        }
+        int written = 0;
+        for (Map.Entry<Long, UserIndex> entry : indexes) {
+            entry.getValue().lock.lock();
+            try {
+                if (persist(entry.getKey(), entry.getValue())) {
+                    written++;
+                }
+            } finally {
+                entry.getValue().lock.unlock();
+            }
+        }
+        running = false;
+        if (persistent) {
+            try {
+                Files.createFile(directory.resolve(CLEAN_MARKER));
+                logger.info("Wrote {} search index files to {}", written, directory);
+            } catch (IOException e) {
+                logger.error("Failed to mark search index shutdown as clean: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the default phase so changes applied by other components while stopping are written
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the user's index loaded and locked; the caller unlocks it
+    private UserIndex acquire(Long userId) {
+        while (true) {
+            UserIndex userIndex;
+            List<Map.Entry<Long, UserIndex>> evicted = List.of();
+            lock.lock();
+            try {
+                userIndex = users.get(userId);
+                if (userIndex == null) {
+                    // Still being written or deleted: take it back, its lock orders the load after that
+                    userIndex = writing.remove(userId);
+                    if (userIndex == null) {
+                        userIndex = new UserIndex();
+                    }
+                    users.put(userId, userIndex);
+                    evicted = evict();
+                }
+            } finally {
+                lock.unlock();
+            }
+            evicted.forEach(entry -> writeEvicted(entry.getKey(), entry.getValue()));
+
+            boolean acquired = false;
+            userIndex.lock.lock();
+            try {
+                if (userIndex.detached) {
+                    // Evicted and written since it was looked up; look it up again
+                    continue;
+                }
+                if (!userIndex.ready) {
+                    load(userId, userIndex);
+                }
+                acquired = true;
+                return userIndex;
+            } finally {
+                if (!acquired) {
+                    userIndex.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Called with the user's lock held
+    private void load(Long userId, UserIndex userIndex) {
+        if (read(userId, userIndex)) {
+            return;
+        }
+        List<SearchDocument> documents = loadDocuments(userId);
+        documents.forEach(document -> userIndex.apply(document.key(), document));
+        userIndex.ready = true;
+        logger.info("Built search index for user ID: {} with {} documents", userId, userIndex.documents.size());
+    }
+
+    // Called with the lock held. Moves the least recently used indexes over max-users to writing.
+    private List<Map.Entry<Long, UserIndex>> evict() {
+        List<Map.Entry<Long, UserIndex>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Long, UserIndex>> eldest = users.entrySet().iterator();
+        while (users.size() > maxUsers) {
+            Map.Entry<Long, UserIndex> entry = eldest.next();
+            eldest.remove();
+            writing.put(entry.getKey(), entry.getValue());
+            evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        return evicted;
+    }
+
+    private void writeEvicted(Long userId, UserIndex userIndex) {
+        userIndex.lock.lock();
+        try {
+            persist(userId, userIndex);
+            detach(userId, userIndex);
+        } finally {
+            userIndex.lock.unlock();
+        }
+    }
+
+    // Called with the user's lock held once its file I/O is done. A search that took the index back
+    // in the meantime keeps it.
+    private void detach(Long userId, UserIndex userIndex) {
+        lock.lock();
+        try {
+            if (writing.remove(userId, userIndex)) {
+                userIndex.detached = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<SearchDocument> loadDocuments(Long userId) {
+        List<SearchDocument> documents = new ArrayList<>();
+        healthRecordRepository.findByUserId(userId).forEach(record -> addIfPresent(documents, toDocument(record)));
+        periodRecordRepository.findByUserId(userId).forEach(record -> addIfPresent(documents, toDocument(record)));
+        reminderRepository.findByUserId(userId).forEach(reminder -> addIfPresent(documents, toDocument(reminder)));
+        medicationRepository.findByUserId(userId).forEach(medication -> addIfPresent(documents, toDocument(medication)));
+        return documents;
+    }
+
+    private SearchDocument loadDocument(RecordType recordType, Long recordId) {
+        return switch (recordType) {
+            case HEALTH -> healthRecordRepository.findById(recordId).map(this::toDocument).orElse(null);
+            case PERIOD -> periodRecordRepository.findById(recordId).map(this::toDocument).orElse(null);
+            case REMINDER -> reminderRepository.findById(recordId).map(this::toDocument).orElse(null);
+            case MEDICATION -> medicationRepository.findById(recordId).map(this::toDocument).orElse(null);
+        };
+    }
+
+    private SearchDocument toDocument(HealthRecord record) {
+        return document(RecordType.HEALTH, record.getHealthId(), record.getRecordDate(), "Health record",
+                record.getNotes());
+    }
+
+    private SearchDocument toDocument(PeriodRecord record) {
+        return document(RecordType.PERIOD, record.getPeriodrecid(), record.getStartDate(), "Period",
+                record.getSymptoms(), record.getMood(), record.getNotes());
+    }
+
+    private SearchDocument toDocument(Reminder reminder) {
+        return document(RecordType.REMINDER, reminder.getReminderid(), reminder.getReminderDate(),
+                Objects.requireNonNullElse(reminder.getTitle(), "Reminder"),
+                reminder.getTitle(), reminder.getDescription());
+    }
+
+    private SearchDocument toDocument(Medication medication) {
+        return document(RecordType.MEDICATION, medication.getMedicineid(), medication.getStartDate(),
+                Objects.requireNonNullElse(medication.getMedicine(), "Medication"),
+                medication.getMedicine(), medication.getNotes());
+    }
+
+    // Null when the record has no searchable text
+    private static SearchDocument document(RecordType recordType, Long recordId, LocalDate date, String title,
+                                           String... fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null && !field.isBlank()) {
+                if (!text.isEmpty()) {
+                    text.append("; ");
+                }
+                text.append(field.strip());
+            }
+        }
+        if (InvertedIndex.tokenize(text.toString()).isEmpty()) {
+            return null;
+        }
+        return new SearchDocument(recordType, recordId, date, title, text.toString());
+    }
+
+    private static void addIfPresent(List<SearchDocument> documents, SearchDocument document) {
+        if (document != null) {
+            documents.add(document);
+        }
+    }
+
+    static String snippet(String text, List<String> terms) {
+        if (text.length() <= SNIPPET_LENGTH) {
+            return text;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int match = -1;
+        for (String term : terms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (match < 0 || index < match)) {
+                match = index;
+            }
+        }
+        int start = Math.max(0, Math.min(match - SNIPPET_LENGTH / 4, text.length() - SNIPPET_LENGTH));
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        return (start > 0 ? "..." : "") + text.substring(start, end).strip() + (end < text.length() ? "..." : "");
+    }
+
+    // Called with the user's lock held. Returns true if a file was written.
+    private boolean persist(Long userId, UserIndex userIndex) {
+        if (!persistent || !running || !userIndex.ready || !userIndex.dirty) {
+            return false;
+        }
+        Path file = indexFile(userId);
+        Path temp = directory.resolve(userId + INDEX_SUFFIX + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(userIndex.documents.size());
+                for (SearchDocument document : userIndex.documents.values()) {
+                    out.writeByte(document.recordType().ordinal());
+                    out.writeLong(document.recordId());
+                    out.writeLong(document.date() != null ? document.date().toEpochDay() : Long.MIN_VALUE);
+                    writeString(out, document.title());
+                    writeString(out, document.text());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            userIndex.dirty = false;
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to write search index for user ID: {}: {}", userId, e.getMessage());
+            deleteFile(userId);
+            return false;
+        }
+    }
+
+    // Called with the user's lock held. Returns false when there is no usable file.
+    private boolean read(Long userId, UserIndex userIndex) {
+        Path file = indexFile(userId);
+        if (!persistent || !running || !Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("unrecognized format");
+            }
+            int count = in.readInt();
+            RecordType[] types = RecordType.values();
+            for (int i = 0; i < count; i++) {
+                RecordType recordType = types[in.readByte()];
+                long recordId = in.readLong();
+                long epochDay = in.readLong();
+                SearchDocument document = new SearchDocument(recordType, recordId,
+                        epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay),
+                        readString(in), readString(in));
+                userIndex.apply(document.key(), document);
+            }
+            userIndex.ready = true;
+            userIndex.dirty = false;
+            logger.debug("Read search index for user ID: {} with {} documents", userId, count);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Discarding unreadable search index {}: {}", file, e.getMessage());
+            userIndex.clear();
+            deleteFile(userId);
+            return false;
+        }
+    }
+
+    private void deleteFile(Long userId) {
+        if (!persistent) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(indexFile(userId));
+        } catch (IOException e) {
+            logger.error("Failed to delete search index for user ID: {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private Path indexFile(Long userId) {
+        return directory.resolve(userId + INDEX_SUFFIX);
+    }
+
+    private static boolean isIndexFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(INDEX_SUFFIX) || name.endsWith(INDEX_SUFFIX + ".tmp");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record DocKey(RecordType recordType, Long recordId) {
+    }
+
+    private record SearchDocument(RecordType recordType, Long recordId, LocalDate date, String title, String text) {
+        DocKey key() {
+            return new DocKey(recordType, recordId);
+        }
+    }
+
+    private static final class UserIndex {
+        private final ReentrantLock lock = new ReentrantLock();
+        private InvertedIndex<DocKey> index = new InvertedIndex<>();
+        private final Map<DocKey, SearchDocument> documents = new HashMap<>();
+        private boolean ready;
+        private boolean dirty;
+        // Out of the map after its file was written or deleted; whoever holds it looks the user up again
+        private boolean detached;
+
+        // A null document removes the key
+        private void apply(DocKey key, SearchDocument document) {
+            if (document == null) {
+                index.remove(key);
+                documents.remove(key);
+            } else {
+                index.put(key, document.text());
+                documents.put(key, document);
+            }
+            dirty = true;
+        }
+
+        private void clear() {
+            index = new InvertedIndex<>();
+            documents.clear();
+            ready = false;
+            dirty = false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SymptomCountBean;
+import com.ovapal.bean.SymptomStatsResponseBean;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.PeriodRecordRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Symptom, mood and flow frequencies over a user's period records, answered from the per-record
+ * bitsets kept by SymptomDictionary. With "with" terms, only records containing all of them are
+ * counted, which gives co-occurrence ("headache" with "flow:heavy") as one mask test per record.
+ * Terms outside the curated vocabulary are matched and counted from the record's uncodedTerms.
+ */
+@Service
+public class SymptomAnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(SymptomAnalyticsService.class);
+
+    private static final int MAX_WITH_TERMS = 8;
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private SymptomDictionary symptomDictionary;
+
+    @Transactional
+    public SymptomStatsResponseBean getSymptomStats(Long userId, LocalDate from, LocalDate to, List<String> with) {
+        logger.info("Computing symptom stats for user ID: {} from {} to {}", userId, from, to);
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        if (from.isAfter(to)) {
+            throw new InvalidOperationException("From date must not be after to date");
+        }
+        List<String> specs = with != null ? with : List.of();
+        if (specs.size() > MAX_WITH_TERMS) {
+            throw new InvalidOperationException("At most " + MAX_WITH_TERMS + " terms can be combined");
+        }
+
+        encodeMissing(userId);
+
+        // Mask of the required dictionary terms, plus the terms only kept as text
+        BitSet required = new BitSet();
+        List<SymptomDictionary.Spec> requiredText = new ArrayList<>();
+        List<String> resolved = new ArrayList<>();
+        for (String spec : specs) {
+            SymptomDictionary.Term term = symptomDictionary.lookup(spec);
+            if (term == null) {
+                SymptomDictionary.Spec parsed = SymptomDictionary.parse(spec);
+                requiredText.add(parsed);
+                resolved.add(parsed.category() != null
+                        ? SymptomDictionary.key(parsed.category(), parsed.term()) : parsed.term());
+            } else {
+                required.set(term.id());
+                resolved.add(SymptomDictionary.key(term.category(), term.term()));
+            }
+        }
+        long[] mask = required.toLongArray();
+
+        List<Object[]> records = periodRecordRepository.findSymptomTerms(userId, from, to);
+        int[] counts = new int[symptomDictionary.size()];
+        Map<String, Integer> uncodedCounts = new HashMap<>();
+        int matching = 0;
+        for (Object[] row : records) {
+            byte[] bytes = (byte[]) row[0];
+            List<String> uncoded = row[1] != null ? List.of(((String) row[1]).split("\n")) : List.of();
+            long[] words = BitSet.valueOf(bytes != null ? bytes : new byte[0]).toLongArray();
+            if (!containsAll(words, mask) || !requiredText.stream().allMatch(spec -> containsText(uncoded, spec))) {
+                continue;
+            }
+            matching++;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    int id = i * 64 + Long.numberOfTrailingZeros(word);
+                    if (id < counts.length) {
+                        counts[id]++;
+                    }
+                    word &= word - 1;
+                }
+            }
+            for (String key : uncoded) {
+                if (requiredText.stream().noneMatch(spec -> matches(key, spec))) {
+                    uncodedCounts.merge(key, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<SymptomCountBean> terms = new ArrayList<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0 || required.get(id)) {
+                continue;
+            }
+            SymptomDictionary.Term term = symptomDictionary.get(id);
+            terms.add(SymptomCountBean.builder()
+                    .category(term.category().name())
+                    .term(term.term())
+                    .count(counts[id])
+                    .percent(Math.round(counts[id] * 1000.0 / matching) / 10.0)
+                    .build());
+        }
+        for (Map.Entry<String, Integer> entry : uncodedCounts.entrySet()) {
+            int colon = entry.getKey().indexOf(':');
+            terms.add(SymptomCountBean.builder()
+                    .category(entry.getKey().substring(0, colon).toUpperCase(Locale.ROOT))
+                    .term(entry.getKey().substring(colon + 1))
+                    .count(entry.getValue())
+                    .percent(Math.round(entry.getValue() * 1000.0 / matching) / 10.0)
+                    .build());
+        }
+        terms.sort(Comparator.comparing(SymptomCountBean::getCount).reversed()
+                .thenComparing(SymptomCountBean::getTerm));
+
+        return SymptomStatsResponseBean.builder()
+                .userId(userId)
+                .from(from)
+                .to(to)
+                .records(records.size())
+                .with(resolved)
+                .matchingRecords(matching)
+                .terms(terms)
+                .build();
+    }
+
+    // Records saved before the dictionary existed have no bitset yet
+    private void encodeMissing(Long userId) {
+        List<PeriodRecord> missing = periodRecordRepository.findByUserIdAndSymptomBitsIsNull(userId);
+        if (missing.isEmpty()) {
+            return;
+        }
+        missing.forEach(symptomDictionary::encode);
+        periodRecordRepository.saveAll(missing);
+        logger.info("Encoded symptoms for {} period records of user ID: {}", missing.size(), userId);
+    }
+
+    private static boolean containsText(List<String> uncoded, SymptomDictionary.Spec spec) {
+        return uncoded.stream().anyMatch(key -> matches(key, spec));
+    }
+
+    // A bare term matches the uncoded term in any category
+    private static boolean matches(String key, SymptomDictionary.Spec spec) {
+        return spec.category() != null
+                ? key.equals(SymptomDictionary.key(spec.category(), spec.term()))
+                : key.endsWith(":" + spec.term());
+    }
+
+    static boolean containsAll(long[] words, long[] mask) {
+        if (mask.length > words.length) {
+            return false;
+        }
+        for (int i = 0; i < mask.length; i++) {
+            if ((words[i] & mask[i]) != mask[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.SymptomCategory;
+import com.ovapal.entity.SymptomTerm;
+import com.ovapal.repository.SymptomTermRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Global dictionary of the symptom, mood and flow terms in period records. Free text is split
+ * into terms ("cramps, headache and bloating" gives three). Terms in the curated vocabulary
+ * (ovapal.symptoms.vocabulary) get a permanent id, and a record is encoded as a bitset over those
+ * ids so analytics can work on bitwise masks. Any other term is kept as text in the record's
+ * uncodedTerms, so what users type can never fill the shared id space.
+ *
+ * New terms are committed in their own transaction, so an id handed out is never rolled back
+ * with the record that introduced it.
+ */
+@Component
+public class SymptomDictionary {
+    private static final Logger logger = LoggerFactory.getLogger(SymptomDictionary.class);
+
+    // Matches the 512-byte PeriodRecord.symptomBits column
+    static final int MAX_TERMS = 4096;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final Pattern SEPARATOR = Pattern.compile("\\s*(?:[,;/|+\\n]|\\band\\b|&)\\s*");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public record Term(int id, SymptomCategory category, String term) {
+    }
+
+    // A term as asked for; category is null for a bare term
+    public record Spec(SymptomCategory category, String term) {
+    }
+
+    @Autowired
+    private SymptomTermRepository symptomTermRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${ovapal.symptoms.vocabulary:classpath:symptom-vocabulary.txt}")
+    private Resource vocabulary;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<SymptomCategory, Set<String>> curated = new EnumMap<>(SymptomCategory.class);
+    private final Map<SymptomCategory, Map<String, Integer>> ids = new HashMap<>();
+    private final List<Term> terms = new ArrayList<>();
+    private boolean loaded;
+
+    /**
+     * Sets the record's symptomBits from its symptoms, mood and flow, adding curated terms not
+     * stored yet, and its uncodedTerms to the other terms as "category:term" lines (null if none).
+     * The bitset is an empty array for a record with no curated terms.
+     */
+    public void encode(PeriodRecord periodRecord) {
+        BitSet bits = new BitSet();
+        List<String> uncoded = new ArrayList<>();
+        for (String term : split(periodRecord.getSymptoms())) {
+            set(bits, uncoded, SymptomCategory.SYMPTOM, term);
+        }
+        for (String term : split(periodRecord.getMood())) {
+            set(bits, uncoded, SymptomCategory.MOOD, term);
+        }
+        String flow = normalize(periodRecord.getFlow());
+        if (!flow.isEmpty()) {
+            set(bits, uncoded, SymptomCategory.FLOW, flow);
+        }
+        periodRecord.setSymptomBits(bits.toByteArray());
+        periodRecord.setUncodedTerms(uncoded.isEmpty() ? null : String.join("\n", uncoded));
+    }
+
+    /**
+     * Parses "term" or "category:term" (e.g. "flow:heavy"). The term is normalized the same way
+     * record text is.
+     */
+    public static Spec parse(String spec) {
+        String value = spec;
+        SymptomCategory only = null;
+        int colon = spec.indexOf(':');
+        if (colon > 0) {
+            try {
+                only = SymptomCategory.valueOf(spec.substring(0, colon).strip().toUpperCase(Locale.ROOT));
+                value = spec.substring(colon + 1);
+            } catch (IllegalArgumentException e) {
+                // Not a category prefix, the colon is part of the term
+            }
+        }
+        return new Spec(only, normalize(value));
+    }
+
+    // The "category:term" form used in uncodedTerms
+    public static String key(SymptomCategory category, String term) {
+        return category.name().toLowerCase(Locale.ROOT) + ":" + term;
+    }
+
+    /**
+     * Resolves a spec to its dictionary term; a bare term is looked up as a symptom, then a mood,
+     * then a flow. Returns null for a term that has no id.
+     */
+    public Term lookup(String spec) {
+        Spec parsed = parse(spec);
+        SymptomCategory only = parsed.category();
+        String term = parsed.term();
+
+        lock.lock();
+        try {
+            ensureLoaded();
+            for (SymptomCategory category : SymptomCategory.values()) {
+                if (only != null && category != only) {
+                    continue;
+                }
+                Integer id = ids.getOrDefault(category, Map.of()).get(term);
+                if (id != null) {
+                    return terms.get(id);
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Term get(int id) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            return id < terms.size() ? terms.get(id) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            ensureLoaded();
+            return terms.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        if (text == null) {
+            return parts;
+        }
+        for (String part : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            String term = normalize(part);
+            if (!term.isEmpty() && !parts.contains(term)) {
+                parts.add(term);
+            }
+        }
+        return parts;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String term = WHITESPACE.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ")
+                .replaceAll("^[\\p{Punct}\\s]+|[\\p{Punct}\\s]+$", "");
+        return term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH).strip() : term;
+    }
+
+    private void set(BitSet bits, List<String> uncoded, SymptomCategory category, String term) {
+        int id = idFor(category, term);
+        if (id >= 0) {
+            bits.set(id);
+        } else {
+            uncoded.add(key(category, term));
+        }
+    }
+
+    // Returns -1 for a term outside the curated vocabulary
+    private int idFor(SymptomCategory category, String term) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            Integer id = ids.getOrDefault(category, Map.of()).get(term);
+            if (id != null) {
+                return id;
+            }
+            if (!curated.getOrDefault(category, Set.of()).contains(term)) {
+                return -1;
+            }
+            if (terms.size() >= MAX_TERMS) {
+                // Only reachable when ids were handed out to non-curated terms before the vocabulary existed
+                logger.error("Symptom dictionary is full, keeping {} term '{}' as text", category, term);
+                return -1;
+            }
+            return add(category, term);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held
+    private int add(SymptomCategory category, String term) {
+        SymptomTerm entity = SymptomTerm.builder().id(terms.size()).category(category).term(term).build();
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            // Plain insert: save() would merge over a row another instance wrote with the same id
+            requiresNew.executeWithoutResult(status -> jdbcTemplate.update(
+                    "INSERT INTO symptom_terms (id, category, term) VALUES (?, ?, ?)",
+                    entity.getId(), category.name(), term));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance added terms since we loaded; reload and use its ids
+            logger.info("Symptom dictionary changed concurrently, reloading");
+            loaded = false;
+            ensureLoaded();
+            Integer id = ids.getOrDefault(category, Map.of()).get(term);
+            return id != null ? id : add(category, term);
+        }
+        register(new Term(entity.getId(), category, term));
+        logger.debug("Added {} term '{}' to symptom dictionary with ID: {}", category, term, entity.getId());
+        return entity.getId();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        if (curated.isEmpty()) {
+            loadVocabulary();
+        }
+        ids.clear();
+        terms.clear();
+        List<SymptomTerm> stored = new ArrayList<>(symptomTermRepository.findAll());
+        stored.sort(Comparator.comparing(SymptomTerm::getId));
+        for (SymptomTerm entity : stored) {
+            register(new Term(entity.getId(), entity.getCategory(), entity.getTerm()));
+        }
+        loaded = true;
+        logger.info("Loaded {} symptom dictionary terms", terms.size());
+    }
+
+    // Lines of "category:term"; more than MAX_TERMS entries would not fit the bitset column
+    private void loadVocabulary() {
+        if (vocabulary == null || !vocabulary.exists()) {
+            logger.warn("No symptom vocabulary at {}, every term is kept as text", vocabulary);
+            return;
+        }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(vocabulary.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                Spec spec = parse(line);
+                if (spec.category() == null || spec.term().isEmpty()) {
+                    logger.warn("Ignoring symptom vocabulary line without a category: {}", line);
+                    continue;
+                }
+                if (count == MAX_TERMS) {
+                    logger.error("Symptom vocabulary has more than {} terms, ignoring the rest", MAX_TERMS);
+                    break;
+                }
+                if (curated.computeIfAbsent(spec.category(), category -> new HashSet<>()).add(spec.term())) {
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read symptom vocabulary {}: {}", vocabulary, e.getMessage());
+        }
+        logger.info("Loaded {} curated symptom terms", count);
+    }
+
+    private void register(Term term) {
+        // Ids are dense, so the list index is the id
+        while (terms.size() < term.id()) {
+            terms.add(null);
+        }
+        terms.add(term);
+        ids.computeIfAbsent(term.category(), category -> new HashMap<>()).put(term.term(), term.id());
+    }
+}
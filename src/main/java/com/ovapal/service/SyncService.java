@@ -0,0 +1,167 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SyncDeletionBean;
+import com.ovapal.bean.SyncResponseBean;
+import com.ovapal.entity.ChangeTracked;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.Reminder;
+import com.ovapal.entity.SyncTombstone;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import com.ovapal.repository.SyncTombstoneRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Delta sync: every row changed after the client's token, across health records, period records,
+ * reminders and medications, plus tombstones for hard deletes. Reminders are soft-deleted and
+ * come back as an update with isActive=false.
+ *
+ * The token is a change sequence. Each type is read from its (userId, changeSeq) index up to the
+ * watermark, at most max-changes + 1 rows per type, and the lowest max-changes are returned. When
+ * more remain, nextToken is the last sequence returned and hasMore is set.
+ */
+@Service
+public class SyncService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncService.class);
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private ChangeSequence changeSequence;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Value("${ovapal.sync.max-changes:500}")
+    private int maxChanges;
+
+    @Transactional
+    public SyncResponseBean getChanges(Long userId, String sinceToken) {
+        logger.info("Syncing changes for user ID: {} since {}", userId, sinceToken);
+
+        // Verify user exists
+        ovaPalService.verifyUserExists(userId);
+
+        long since = parseToken(sinceToken);
+        long upTo = changeSequence.watermark();
+        boolean reset = false;
+        if (since > upTo) {
+            // Issued before a restart with a fresh database; start over
+            logger.warn("Unknown sync token {} for user ID: {}, sending a full sync", sinceToken, userId);
+            since = 0;
+            reset = true;
+        }
+
+        Pageable limit = PageRequest.of(0, maxChanges + 1);
+        List<ChangeTracked> changes = new ArrayList<>();
+        changes.addAll(healthRecordRepository.findChangedSince(userId, since, upTo, limit));
+        changes.addAll(periodRecordRepository.findChangedSince(userId, since, upTo, limit));
+        changes.addAll(reminderRepository.findChangedSince(userId, since, upTo, limit));
+        changes.addAll(medicationRepository.findChangedSince(userId, since, upTo, limit));
+        changes.addAll(syncTombstoneRepository.findChangedSince(userId, since, upTo, limit));
+        changes.sort(Comparator.comparing(ChangeTracked::getChangeSeq));
+
+        boolean hasMore = changes.size() > maxChanges;
+        if (hasMore) {
+            changes = changes.subList(0, maxChanges);
+        }
+        long next = hasMore ? changes.get(changes.size() - 1).getChangeSeq() : upTo;
+
+        SyncResponseBean response = SyncResponseBean.builder()
+                .userId(userId)
+                .since(sinceToken)
+                .nextToken(Long.toString(next))
+                .hasMore(hasMore)
+                .reset(reset)
+                .healthRecords(new ArrayList<>())
+                .periodRecords(new ArrayList<>())
+                .reminders(new ArrayList<>())
+                .medications(new ArrayList<>())
+                .deleted(new ArrayList<>())
+                .build();
+        for (ChangeTracked change : changes) {
+            if (change instanceof HealthRecord healthRecord) {
+                response.getHealthRecords().add(ovaPalService.mapHealthRecordToResponseBean(healthRecord));
+            } else if (change instanceof PeriodRecord periodRecord) {
+                response.getPeriodRecords().add(ovaPalService.mapPeriodRecordToResponseBean(periodRecord));
+            } else if (change instanceof Reminder reminder) {
+                response.getReminders().add(ovaPalService.mapReminderToResponseBean(reminder));
+            } else if (change instanceof Medication medication) {
+                response.getMedications().add(ovaPalService.mapMedicationToResponseBean(medication));
+            } else if (change instanceof SyncTombstone tombstone) {
+                response.getDeleted().add(SyncDeletionBean.builder()
+                        .recordType(tombstone.getRecordType().name())
+                        .recordId(tombstone.getRecordId())
+                        .deletedAt(tombstone.getDeletedAt())
+                        .build());
+            }
+        }
+        logger.info("Sync for user ID: {} returned {} changes up to {}", userId, changes.size(), next);
+        return response;
+    }
+
+    // Written in the deleting transaction, so the tombstone commits or rolls back with the delete
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (event.changeType() != ChangeType.DELETED || event.recordId() == null
+                || event.recordType() == RecordType.REMINDER) {
+            return;
+        }
+        syncTombstoneRepository.save(SyncTombstone.builder()
+                .userId(event.userId())
+                .recordType(event.recordType())
+                .recordId(event.recordId())
+                .deletedAt(LocalDateTime.now())
+                .build());
+    }
+
+    static long parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            long since = Long.parseLong(token.strip());
+            if (since < 0) {
+                throw new NumberFormatException();
+            }
+            return since;
+        } catch (NumberFormatException e) {
+            throw new InvalidOperationException("Invalid sync token: " + token);
+        }
+    }
+}
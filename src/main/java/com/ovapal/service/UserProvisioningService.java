@@ -0,0 +1,144 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.BulkUserResponseBean;
+import com.ovapal.bean.UserRequestBean;
+import com.ovapal.exception.InvalidOperationException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk user provisioning for partner clinics. BCrypt hashing dominates the cost, so it runs in
+ * parallel on a dedicated, bounded ForkJoin pool; rows are then inserted with JDBC batches.
+ */
+@Service
+public class UserProvisioningService {
+    private static final Logger logger = LoggerFactory.getLogger(UserProvisioningService.class);
+
+    private static final String INSERT_USER_SQL = "INSERT INTO users (name, email, password, age) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private OvaPalService ovaPalService;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${ovapal.provisioning.batch-size:100}")
+    private int batchSize;
+
+    @Value("${ovapal.provisioning.max-users:5000}")
+    private int maxUsers;
+
+    private final ForkJoinPool hashingPool;
+
+    public UserProvisioningService(@Value("${ovapal.provisioning.hashing-parallelism:4}") int hashingParallelism) {
+        int parallelism = Math.max(1, Math.min(hashingParallelism, Runtime.getRuntime().availableProcessors()));
+        this.hashingPool = new ForkJoinPool(parallelism);
+    }
+
+    public BulkUserResponseBean provisionUsers(List<UserRequestBean> userRequestBeans) {
+        if (userRequestBeans == null || userRequestBeans.isEmpty()) {
+            throw new InvalidOperationException("At least one user is required");
+        }
+        if (userRequestBeans.size() > maxUsers) {
+            throw new InvalidOperationException("At most " + maxUsers + " users can be provisioned per request");
+        }
+        logger.info("Provisioning {} users", userRequestBeans.size());
+
+        Map<String, String> rejected = new LinkedHashMap<>();
+        List<UserRequestBean> accepted = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        for (UserRequestBean userRequestBean : userRequestBeans) {
+            try {
+                ovaPalService.validateUser(userRequestBean);
+            } catch (InvalidOperationException e) {
+                rejected.put(String.valueOf(userRequestBean.getEmail()), e.getMessage());
+                continue;
+            }
+            if (!seenEmails.add(userRequestBean.getEmail())) {
+                rejected.put(userRequestBean.getEmail(), "Duplicate email in request");
+                continue;
+            }
+            accepted.add(userRequestBean);
+        }
+
+        List<Object[]> rows = hashPasswords(accepted);
+
+        int created = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            created += insertChunk(rows.subList(from, Math.min(from + batchSize, rows.size())), rejected);
+        }
+
+        logger.info("Provisioned {} of {} users", created, userRequestBeans.size());
+        return BulkUserResponseBean.builder()
+                .requested(userRequestBeans.size())
+                .created(created)
+                .rejected(rejected)
+                .build();
+    }
+
+    private List<Object[]> hashPasswords(List<UserRequestBean> userRequestBeans) {
+        try {
+            return hashingPool.submit(() -> userRequestBeans.parallelStream()
+                    .map(user -> new Object[] {
+                            user.getName(),
+                            user.getEmail(),
+                            passwordEncoder.encode(user.getPassword()),
+                            user.getAge()})
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to hash passwords", e.getCause());
+        }
+    }
+
+    // One JDBC batch per chunk; a chunk hitting the email constraint falls back to row-by-row inserts
+    private int insertChunk(List<Object[]> chunk, Map<String, String> rejected) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER_SQL, chunk));
+            return chunk.size();
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Batch insert hit a constraint violation, retrying {} rows individually", chunk.size());
+        }
+
+        int created = 0;
+        for (Object[] row : chunk) {
+            try {
+                jdbcTemplate.update(INSERT_USER_SQL, row);
+                created++;
+            } catch (DataIntegrityViolationException e) {
+                rejected.put((String) row[1], "Email is already registered");
+            }
+        }
+        return created;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingPool.shutdown();
+    }
+}
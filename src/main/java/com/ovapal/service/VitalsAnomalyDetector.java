@@ -0,0 +1,139 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.VitalBaseline;
+import com.ovapal.repository.UserRepository;
+import com.ovapal.repository.VitalBaselineRepository;
+import com.ovapal.util.VitalsWindow.Vital;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flags health readings that deviate from the user's own baseline. Each user keeps one
+ * exponentially weighted mean/variance per vital (vital_baselines), so scoring a reading costs
+ * a single small lookup rather than a history scan. Readings are scored against the baseline
+ * before it learns from them; flagged readings are clamped to the threshold before learning so
+ * one outlier cannot drag the baseline with it. Learning locks the user's row first, so two
+ * concurrent readings for one user cannot both insert a baseline or overwrite each other's update;
+ * the baseline's version catches any writer that skips the lock.
+ */
+@Component
+public class VitalsAnomalyDetector {
+    private static final Logger logger = LoggerFactory.getLogger(VitalsAnomalyDetector.class);
+
+    // Smallest standard deviation used for scoring, so a very steady baseline does not flag normal noise
+    private static final Map<Vital, Double> MIN_STANDARD_DEVIATION = new EnumMap<>(Map.of(
+            Vital.WEIGHT, 0.5,
+            Vital.TEMPERATURE, 0.2,
+            Vital.HEART_RATE, 3.0,
+            Vital.BLOOD_PRESSURE_SYSTOLIC, 4.0,
+            Vital.BLOOD_PRESSURE_DIASTOLIC, 3.0));
+
+    @Autowired
+    private VitalBaselineRepository vitalBaselineRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${ovapal.anomaly.alpha:0.1}")
+    private double alpha;
+
+    @Value("${ovapal.anomaly.threshold:3.0}")
+    private double threshold;
+
+    @Value("${ovapal.anomaly.warm-up:5}")
+    private int warmUp;
+
+    /**
+     * Scores the record, sets its anomaly flags and folds its values into the user's baselines.
+     * Must run in the transaction that saves the record.
+     */
+    public void detect(HealthRecord healthRecord) {
+        evaluate(healthRecord, true);
+    }
+
+    // Scores without learning, for edits of readings the baseline has already seen
+    public void score(HealthRecord healthRecord) {
+        evaluate(healthRecord, false);
+    }
+
+    private void evaluate(HealthRecord healthRecord, boolean learn) {
+        if (learn) {
+            userRepository.lockById(healthRecord.getUserId());
+        }
+        Map<Vital, VitalBaseline> baselines = new EnumMap<>(Vital.class);
+        for (VitalBaseline baseline : vitalBaselineRepository.findByUserId(healthRecord.getUserId())) {
+            baselines.put(baseline.getVital(), baseline);
+        }
+
+        List<String> flags = new ArrayList<>();
+        List<VitalBaseline> changed = new ArrayList<>();
+        for (Vital vital : Vital.values()) {
+            Double value = valueOf(healthRecord, vital);
+            if (value == null) {
+                continue;
+            }
+
+            VitalBaseline baseline = baselines.get(vital);
+            if (baseline == null) {
+                baseline = VitalBaseline.builder().userId(healthRecord.getUserId()).vital(vital).build();
+            }
+
+            double learned = value;
+            if (baseline.getSampleCount() >= warmUp) {
+                double deviation = Math.max(Math.sqrt(baseline.getVariance()), MIN_STANDARD_DEVIATION.get(vital));
+                double zScore = (value - baseline.getMean()) / deviation;
+                if (Math.abs(zScore) > threshold) {
+                    flags.add(vital.name() + (zScore > 0 ? "_HIGH" : "_LOW"));
+                    learned = baseline.getMean() + Math.signum(zScore) * threshold * deviation;
+                }
+            }
+
+            if (learn) {
+                update(baseline, learned);
+                changed.add(baseline);
+            }
+        }
+
+        healthRecord.setAnomalyFlags(flags.isEmpty() ? null : String.join(",", flags));
+        if (!flags.isEmpty()) {
+            logger.info("Flagged health reading for user ID: {}: {}", healthRecord.getUserId(), flags);
+        }
+        if (!changed.isEmpty()) {
+            vitalBaselineRepository.saveAll(changed);
+        }
+    }
+
+    // Incremental EWMA mean and variance; averages plainly until the warm-up is reached
+    private void update(VitalBaseline baseline, double value) {
+        long count = baseline.getSampleCount() + 1;
+        double weight = Math.max(alpha, 1.0 / count);
+        double difference = value - baseline.getMean();
+        double increment = weight * difference;
+        baseline.setMean(baseline.getMean() + increment);
+        baseline.setVariance((1 - weight) * (baseline.getVariance() + difference * increment));
+        baseline.setSampleCount(count);
+    }
+
+    private static Double valueOf(HealthRecord healthRecord, Vital vital) {
+        return switch (vital) {
+            case WEIGHT -> healthRecord.getWeight();
+            case TEMPERATURE -> healthRecord.getTemperature();
+            case HEART_RATE -> toDouble(healthRecord.getHeartRate());
+            case BLOOD_PRESSURE_SYSTOLIC -> toDouble(healthRecord.getBloodPressureSystolic());
+            case BLOOD_PRESSURE_DIASTOLIC -> toDouble(healthRecord.getBloodPressureDiastolic());
+        };
+    }
+
+    private static Double toDouble(Integer value) {
+        return value != null ? value.doubleValue() : null;
+    }
+}
@@ -0,0 +1,214 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.util.VitalsWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache of {@link VitalsWindow}s for recently active users. A window is loaded from the
+ * database on first use and then kept current from saves and updates, so trend queries are
+ * served from memory. Changes are applied after their transaction commits.
+ */
+@Component
+public class VitalsWindowCache {
+    private static final Logger logger = LoggerFactory.getLogger(VitalsWindowCache.class);
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    private final int windowDays;
+    private final LinkedHashMap<Long, Holder> windows;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public VitalsWindowCache(
+            @Value("${ovapal.vitals.window-days:90}") int windowDays,
+            @Value("${ovapal.vitals.max-users:10000}") int maxUsers) {
+        this.windowDays = windowDays;
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Holder> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    /**
+     * Statistics for each vital over the last days days (today included). Vitals with no
+     * values in that range are left out.
+     */
+    public Map<VitalsWindow.Vital, VitalsWindow.Stats> stats(Long userId, int days) {
+        long fromEpochDay = LocalDate.now().toEpochDay() - days + 1;
+        Holder holder = getOrLoad(userId);
+        Map<VitalsWindow.Vital, VitalsWindow.Stats> stats = new EnumMap<>(VitalsWindow.Vital.class);
+        holder.lock.lock();
+        try {
+            for (VitalsWindow.Vital vital : VitalsWindow.Vital.values()) {
+                VitalsWindow.Stats vitalStats = holder.window.stats(vital, fromEpochDay);
+                if (vitalStats != null) {
+                    stats.put(vital, vitalStats);
+                }
+            }
+        } finally {
+            holder.lock.unlock();
+        }
+        return stats;
+    }
+
+    // Applies a saved record to the cached window, if the user has one
+    public void onSaved(HealthRecord healthRecord) {
+        afterCommit(() -> {
+            Holder holder = get(healthRecord.getUserId());
+            if (holder == null) {
+                return;
+            }
+            holder.lock.lock();
+            try {
+                if (holder.window != null) {
+                    upsert(holder.window, healthRecord);
+                }
+            } finally {
+                holder.lock.unlock();
+            }
+        });
+    }
+
+    // Drops cached windows for writes that bypass JPA, so they are reloaded on next use
+    public void invalidate(Collection<Long> userIds) {
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                userIds.forEach(windows::remove);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return windows.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Holder getOrLoad(Long userId) {
+        Holder holder;
+        lock.lock();
+        try {
+            holder = windows.get(userId);
+            if (holder == null) {
+                holder = new Holder();
+                // Publish the holder locked, so saves committed during the load wait and are applied after it
+                holder.lock.lock();
+                windows.put(userId, holder);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (holder.lock.isHeldByCurrentThread()) {
+            try {
+                holder.window = load(userId);
+            } catch (RuntimeException e) {
+                remove(userId, holder);
+                throw e;
+            } finally {
+                holder.lock.unlock();
+            }
+            return holder;
+        }
+
+        boolean loaded;
+        holder.lock.lock();
+        try {
+            loaded = holder.window != null;
+        } finally {
+            holder.lock.unlock();
+        }
+        if (!loaded) {
+            // The loading thread failed; load again on our own
+            remove(userId, holder);
+            return getOrLoad(userId);
+        }
+        return holder;
+    }
+
+    private VitalsWindow load(Long userId) {
+        LocalDate today = LocalDate.now();
+        List<HealthRecord> records = healthRecordRepository.findByUserIdAndRecordDateAfter(
+                userId, today.minusDays(windowDays));
+        VitalsWindow window = new VitalsWindow(windowDays, records.size());
+        for (HealthRecord record : records) {
+            upsert(window, record);
+        }
+        logger.debug("Loaded vitals window of {} records for user ID: {}", records.size(), userId);
+        return window;
+    }
+
+    private static void upsert(VitalsWindow window, HealthRecord record) {
+        if (record.getHealthId() == null || record.getRecordDate() == null) {
+            return;
+        }
+        window.upsert(record.getHealthId(), record.getRecordDate().toEpochDay(), LocalDate.now().toEpochDay(),
+                record.getWeight(), record.getTemperature(), record.getHeartRate(),
+                record.getBloodPressureSystolic(), record.getBloodPressureDiastolic());
+    }
+
+    private Holder get(Long userId) {
+        lock.lock();
+        try {
+            return windows.get(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Long userId, Holder holder) {
+        lock.lock();
+        try {
+            windows.remove(userId, holder);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Holder {
+        private final ReentrantLock lock = new ReentrantLock();
+        private VitalsWindow window;
+    }
+}
@@ -0,0 +1,400 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.WalCheckpoint;
+import com.ovapal.entity.WalDeadLetter;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.exception.BackpressureException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.WalCheckpointRepository;
+import com.ovapal.repository.WalDeadLetterRepository;
+import com.ovapal.util.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Durable write-behind for acknowledged health, period and medication writes
+ * (ovapal.wal.enabled=true). Validated entities are appended to the memory-mapped
+ * write-ahead log before the request is acknowledged; an applier thread replays the log into
+ * the JPA repositories in batches. The applied position is stored in wal_checkpoint in the same
+ * transaction as each batch, so entries left unapplied by a crash are replayed exactly once on
+ * the next start. A batch that fails is retried entry by entry; entries that still fail, and
+ * entries that are corrupt on disk, are moved to wal_dead_letters and the checkpoint moves past
+ * them. Database outages are retried rather than dead-lettered.
+ */
+@Component
+public class WriteBehindLog implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindLog.class);
+
+    private static final int CHECKPOINT_ID = 1;
+
+    enum RecordType {
+        HEALTH((byte) 1, HealthRecord.class),
+        PERIOD((byte) 2, PeriodRecord.class),
+        MEDICATION((byte) 3, Medication.class);
+
+        private final byte code;
+        private final Class<?> entityClass;
+
+        RecordType(byte code, Class<?> entityClass) {
+            this.code = code;
+            this.entityClass = entityClass;
+        }
+
+        static RecordType of(Class<?> entityClass) {
+            for (RecordType type : values()) {
+                if (type.entityClass.equals(entityClass)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported write-ahead log record: " + entityClass.getSimpleName());
+        }
+
+        static RecordType of(byte code) {
+            for (RecordType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown write-ahead log record type: " + code);
+        }
+    }
+
+    @Autowired
+    private ObjectProvider<WriteAheadLog> writeAheadLogProvider;
+
+    @Autowired
+    private HealthRecordRepository healthRecordRepository;
+
+    @Autowired
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private WalCheckpointRepository walCheckpointRepository;
+
+    @Autowired
+    private WalDeadLetterRepository walDeadLetterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Autowired
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Autowired
+    private OvulationDetector ovulationDetector;
+
+    @Autowired
+    private SymptomDictionary symptomDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ovapal.wal.apply.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ovapal.wal.apply.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${ovapal.wal.max-unapplied:256MB}")
+    private DataSize maxUnapplied;
+
+    private WriteAheadLog writeAheadLog;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile long appliedPosition;
+    private final AtomicLong deadLettered = new AtomicLong();
+    private Thread applier;
+
+    public boolean isEnabled() {
+        return writeAheadLog != null;
+    }
+
+    public long getAppliedPosition() {
+        return appliedPosition;
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.get();
+    }
+
+    public void append(Object entity) {
+        if (!accepting) {
+            throw new BackpressureException("Write-ahead log is not accepting writes", 1);
+        }
+        if (writeAheadLog.getWritePosition() - appliedPosition > maxUnapplied.toBytes()) {
+            logger.warn("Write-ahead log applier is {} bytes behind, rejecting write",
+                    writeAheadLog.getWritePosition() - appliedPosition);
+            throw new BackpressureException("Too many unapplied writes, retry later", 1);
+        }
+
+        RecordType type = RecordType.of(entity.getClass());
+        try {
+            writeAheadLog.append(type.code, objectMapper.writeValueAsBytes(entity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log", e);
+        }
+        LockSupport.unpark(applier);
+    }
+
+    @Override
+    public void start() {
+        writeAheadLog = writeAheadLogProvider.getIfAvailable();
+        if (writeAheadLog == null) {
+            return;
+        }
+
+        appliedPosition = walCheckpointRepository.findById(CHECKPOINT_ID)
+                .map(WalCheckpoint::getAppliedPosition)
+                .orElse(0L);
+        try {
+            // The checkpoint can trail the log when the database was reset but the log directory was not
+            long firstPosition = writeAheadLog.getFirstPosition();
+            if (appliedPosition < firstPosition) {
+                logger.warn("Write-ahead log checkpoint {} precedes the oldest segment, resuming at {}",
+                        appliedPosition, firstPosition);
+                appliedPosition = firstPosition;
+            }
+            writeAheadLog.alignTo(appliedPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long pending = writeAheadLog.getWritePosition() - appliedPosition;
+        if (pending > 0) {
+            logger.info("Replaying {} bytes of unapplied write-ahead log entries from position {}",
+                    pending, appliedPosition);
+        }
+
+        running = true;
+        accepting = true;
+        applier = new Thread(this::runApplier, "wal-applier");
+        applier.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        LockSupport.unpark(applier);
+        try {
+            applier.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Write-ahead log applier stopped at position {} of {}",
+                appliedPosition, writeAheadLog.getWritePosition());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runApplier() {
+        while (running || appliedPosition < writeAheadLog.getWritePosition()) {
+            try {
+                List<WriteAheadLog.Entry> entries;
+                try {
+                    entries = writeAheadLog.read(appliedPosition, batchSize);
+                } catch (WriteAheadLog.CorruptEntryException e) {
+                    skipCorrupt(e);
+                    continue;
+                }
+                if (entries.isEmpty()) {
+                    LockSupport.parkNanos(this, pollInterval.toNanos());
+                    continue;
+                }
+                applyIsolated(entries);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to apply write-ahead log entries at position {}: {}", appliedPosition, e.getMessage());
+                if (!running) {
+                    // Leave the rest for replay on the next start
+                    return;
+                }
+                LockSupport.parkNanos(this, pollInterval.toNanos() * 10);
+            }
+        }
+    }
+
+    // Applies the batch, or entry by entry when it fails, dead-lettering entries that fail alone
+    void applyIsolated(List<WriteAheadLog.Entry> entries) throws IOException {
+        try {
+            apply(entries);
+            return;
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            if (entries.size() == 1) {
+                deadLetter(entries.get(0), e);
+                return;
+            }
+            logger.warn("Failed to apply {} write-ahead log entries at position {}, retrying one by one: {}",
+                    entries.size(), appliedPosition, e.getMessage());
+        }
+        for (WriteAheadLog.Entry entry : entries) {
+            try {
+                apply(List.of(entry));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                deadLetter(entry, e);
+            }
+        }
+    }
+
+    void apply(List<WriteAheadLog.Entry> entries) throws IOException {
+        List<HealthRecord> healthRecords = new ArrayList<>();
+        List<PeriodRecord> periodRecords = new ArrayList<>();
+        List<Medication> medications = new ArrayList<>();
+        List<WalDeadLetter> unreadable = new ArrayList<>();
+
+        for (WriteAheadLog.Entry entry : entries) {
+            try {
+                switch (RecordType.of(entry.type())) {
+                    case HEALTH -> healthRecords.add(objectMapper.readValue(entry.payload(), HealthRecord.class));
+                    case PERIOD -> periodRecords.add(objectMapper.readValue(entry.payload(), PeriodRecord.class));
+                    case MEDICATION -> medications.add(objectMapper.readValue(entry.payload(), Medication.class));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Dead-lettering unreadable write-ahead log entry at position {}: {}", entry.position(), e.getMessage());
+                unreadable.add(deadLetterOf(entry.position(), entry.type(), entry.payload(), e));
+            }
+        }
+
+        long nextPosition = entries.get(entries.size() - 1).nextPosition();
+        transactionTemplate.executeWithoutResult(status -> {
+            healthRecords.forEach(record -> {
+                vitalsAnomalyDetector.detect(record);
+                ovulationDetector.onTemperature(record.getUserId(), record.getRecordDate(), record.getTemperature());
+            });
+            for (HealthRecord record : healthRecordRepository.saveAll(healthRecords)) {
+                vitalsWindowCache.onSaved(record);
+                publishCreated(record.getUserId(), RecordChangeEvent.RecordType.HEALTH, record.getHealthId());
+            }
+            periodRecords.forEach(symptomDictionary::encode);
+            for (PeriodRecord record : periodRecordRepository.saveAll(periodRecords)) {
+                publishCreated(record.getUserId(), RecordChangeEvent.RecordType.PERIOD, record.getPeriodrecid());
+            }
+            for (Medication medication : medicationRepository.saveAll(medications)) {
+                publishCreated(medication.getUserId(), RecordChangeEvent.RecordType.MEDICATION, medication.getMedicineid());
+            }
+            if (!unreadable.isEmpty()) {
+                walDeadLetterRepository.saveAll(unreadable);
+            }
+            saveCheckpoint(nextPosition);
+        });
+        deadLettered.addAndGet(unreadable.size());
+        advanceTo(nextPosition);
+        logger.debug("Applied {} write-ahead log entries up to position {}", entries.size(), nextPosition);
+    }
+
+    private void deadLetter(WriteAheadLog.Entry entry, RuntimeException e) throws IOException {
+        logger.error("Dead-lettering write-ahead log entry at position {}: {}", entry.position(), e.getMessage());
+        WalDeadLetter deadLetter = deadLetterOf(entry.position(), entry.type(), entry.payload(), e);
+        transactionTemplate.executeWithoutResult(status -> {
+            walDeadLetterRepository.save(deadLetter);
+            saveCheckpoint(entry.nextPosition());
+        });
+        deadLettered.incrementAndGet();
+        advanceTo(entry.nextPosition());
+    }
+
+    // The entry's bytes cannot be trusted, so only its position is kept
+    private void skipCorrupt(WriteAheadLog.CorruptEntryException e) throws IOException {
+        long resumePosition = e.getResumePosition();
+        logger.error("Skipping corrupt write-ahead log entry at position {}, resuming at {}",
+                e.getPosition(), resumePosition);
+        if (resumePosition > writeAheadLog.getWritePosition()) {
+            // The length of an entry in the active segment is corrupt, so nothing after it can be found
+            writeAheadLog.alignTo(resumePosition);
+        }
+        WalDeadLetter deadLetter = deadLetterOf(e.getPosition(), null, null, e);
+        transactionTemplate.executeWithoutResult(status -> {
+            walDeadLetterRepository.save(deadLetter);
+            saveCheckpoint(resumePosition);
+        });
+        deadLettered.incrementAndGet();
+        advanceTo(resumePosition);
+    }
+
+    private WalDeadLetter deadLetterOf(long position, Byte recordType, byte[] payload, Exception e) {
+        String error = String.valueOf(e.getMessage());
+        return WalDeadLetter.builder()
+                .position(position)
+                .recordType(recordType)
+                .payload(payload != null ? new String(payload, StandardCharsets.UTF_8) : null)
+                .error(error.length() > 1000 ? error.substring(0, 1000) : error)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void saveCheckpoint(long position) {
+        walCheckpointRepository.save(WalCheckpoint.builder()
+                .id(CHECKPOINT_ID)
+                .appliedPosition(position)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void advanceTo(long position) throws IOException {
+        appliedPosition = position;
+        writeAheadLog.deleteSegmentsBefore(position);
+    }
+
+    // Failures that say nothing about the entry itself; retried instead of dead-lettered
+    // Failures worth retrying later, as opposed to rows the database rejects for good
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private void publishCreated(Long userId, RecordChangeEvent.RecordType recordType, Long recordId) {
+        eventPublisher.publishEvent(new RecordChangeEvent(userId, recordType, recordId, ChangeType.CREATED));
+    }
+}
@@ -0,0 +1,75 @@
+package com.ovapal.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV report: each section is a title row and a header row followed by its data rows,
+ * with a blank line between sections.
+ */
+public class CsvReportWriter implements ReportWriter {
+
+    private final Writer writer;
+    private boolean started;
+
+    public CsvReportWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void title(String text) throws IOException {
+        writeRow(List.of(text));
+        started = true;
+    }
+
+    @Override
+    public void note(String text) throws IOException {
+        writeRow(List.of(text));
+        started = true;
+    }
+
+    @Override
+    public void section(String title, List<Column> columns) throws IOException {
+        if (started) {
+            writer.write("\r\n");
+        }
+        writeRow(List.of(title));
+        writeRow(columns.stream().map(Column::name).toList());
+        started = true;
+    }
+
+    @Override
+    public void row(List<String> values) throws IOException {
+        writeRow(values);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeRow(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
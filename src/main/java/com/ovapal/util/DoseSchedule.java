@@ -0,0 +1,244 @@
+package com.ovapal.util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured form of a free-text medication frequency such as "twice daily", "every 8 hours",
+ * "every other day at 21:00" or "as needed". A schedule is either a set of times of day repeated
+ * every N days, a fixed interval anchored at 08:00 on the start date, or as-needed (no doses).
+ * Doses are generated lazily, so nothing is stored per dose.
+ */
+public final class DoseSchedule {
+
+    private static final LocalTime MORNING = LocalTime.of(8, 0);
+    private static final LocalTime BEDTIME = LocalTime.of(22, 0);
+
+    private static final Map<String, Integer> COUNTS = Map.ofEntries(
+            Map.entry("once", 1), Map.entry("one", 1), Map.entry("twice", 2), Map.entry("two", 2),
+            Map.entry("thrice", 3), Map.entry("three", 3), Map.entry("four", 4), Map.entry("five", 5),
+            Map.entry("six", 6));
+
+    private static final Map<String, Integer> ABBREVIATIONS = Map.of(
+            "qd", 1, "od", 1, "bid", 2, "tid", 3, "qid", 4);
+
+    private static final Pattern TIME = Pattern.compile("\\b(\\d{1,2}):(\\d{2})\\b");
+    private static final Pattern EVERY_HOURS = Pattern.compile("^(?:every|q) ?(\\d+)? ?(?:h|hr|hrs|hour|hours)$");
+    private static final Pattern EVERY_DAYS = Pattern.compile("^every (\\d+|other) days?$");
+    private static final Pattern EVERY_WEEKS = Pattern.compile("^every (\\d+) weeks?$");
+    private static final Pattern TIMES_PER_DAY = Pattern.compile(
+            "^(\\d+|[a-z]+)(?: ?x| times?)? ?(?:daily|a day|per day|each day|every day)$");
+
+    private final int everyDays;
+    private final List<LocalTime> times;
+    private final Duration interval;
+    private final boolean asNeeded;
+    private final String description;
+
+    private DoseSchedule(int everyDays, List<LocalTime> times, Duration interval, boolean asNeeded, String description) {
+        this.everyDays = everyDays;
+        this.times = times;
+        this.interval = interval;
+        this.asNeeded = asNeeded;
+        this.description = description;
+    }
+
+    /**
+     * Compiles a frequency string. Throws IllegalArgumentException when it is not understood.
+     */
+    public static DoseSchedule compile(String frequency) {
+        if (frequency == null || frequency.isBlank()) {
+            throw new IllegalArgumentException("Frequency is blank");
+        }
+        String text = frequency.toLowerCase(Locale.ROOT).trim().replaceAll("[.,;]", " ").replaceAll("\\s+", " ");
+
+        if (text.equals("prn") || text.contains("as needed") || text.contains("when needed")) {
+            return new DoseSchedule(0, List.of(), null, true, "as needed");
+        }
+
+        // Explicit times of day ("daily at 08:00 and 20:00") override the default times
+        List<LocalTime> explicitTimes = new ArrayList<>();
+        Matcher timeMatcher = TIME.matcher(text);
+        while (timeMatcher.find()) {
+            explicitTimes.add(LocalTime.of(Integer.parseInt(timeMatcher.group(1)), Integer.parseInt(timeMatcher.group(2))));
+        }
+        text = TIME.matcher(text).replaceAll("").replaceAll("\\b(at|and)\\b", "").replaceAll("\\s+", " ").trim();
+        explicitTimes.sort(null);
+
+        Matcher matcher = EVERY_HOURS.matcher(text);
+        if (matcher.matches()) {
+            int hours = matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 1;
+            if (hours < 1 || hours > 72) {
+                throw new IllegalArgumentException("Unsupported dose interval: " + hours + " hours");
+            }
+            return new DoseSchedule(0, List.of(), Duration.ofHours(hours), false, "every " + hours + " hours");
+        }
+
+        int everyDays = 1;
+        int perDay;
+        matcher = EVERY_DAYS.matcher(text);
+        Matcher weeks = EVERY_WEEKS.matcher(text);
+        if (matcher.matches()) {
+            everyDays = matcher.group(1).equals("other") ? 2 : Integer.parseInt(matcher.group(1));
+            perDay = 1;
+        } else if (weeks.matches()) {
+            everyDays = 7 * Integer.parseInt(weeks.group(1));
+            perDay = 1;
+        } else if (text.matches("^(weekly|once a week|every week|once weekly)$")) {
+            everyDays = 7;
+            perDay = 1;
+        } else if (text.matches("^(daily|every day|once|nightly|at bedtime|bedtime|qhs|every (morning|night|evening)"
+                + "|in the (morning|evening))$")) {
+            perDay = 1;
+            if (explicitTimes.isEmpty() && !text.contains("morning")
+                    && (text.contains("night") || text.contains("bed") || text.contains("evening") || text.equals("qhs"))) {
+                explicitTimes.add(BEDTIME);
+            }
+        } else if (ABBREVIATIONS.containsKey(text)) {
+            perDay = ABBREVIATIONS.get(text);
+        } else if ((matcher = TIMES_PER_DAY.matcher(text)).matches()) {
+            perDay = count(matcher.group(1));
+        } else if (text.isEmpty() && !explicitTimes.isEmpty()) {
+            perDay = explicitTimes.size();
+        } else {
+            throw new IllegalArgumentException("Unrecognized frequency: " + frequency);
+        }
+
+        if (everyDays < 1 || everyDays > 365) {
+            throw new IllegalArgumentException("Unsupported dose interval: " + everyDays + " days");
+        }
+        if (!explicitTimes.isEmpty() && explicitTimes.size() != perDay && perDay != 1) {
+            throw new IllegalArgumentException("Frequency gives " + perDay + " doses but " + explicitTimes.size() + " times");
+        }
+        List<LocalTime> times = !explicitTimes.isEmpty() ? List.copyOf(explicitTimes) : defaultTimes(perDay);
+        String description = (everyDays == 1 ? "daily" : "every " + everyDays + " days") + " at " + times;
+        return new DoseSchedule(everyDays, times, null, false, description);
+    }
+
+    public boolean isAsNeeded() {
+        return asNeeded;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Lazily generates due times in [from, to) for a course running from startDate to endDate
+     * (inclusive, null for open-ended).
+     */
+    public Iterator<LocalDateTime> doses(LocalDate startDate, LocalDate endDate, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime courseEnd = endDate != null ? endDate.plusDays(1).atStartOfDay() : LocalDateTime.MAX;
+        LocalDateTime until = to.isBefore(courseEnd) ? to : courseEnd;
+        LocalDateTime since = from.isAfter(startDate.atStartOfDay()) ? from : startDate.atStartOfDay();
+        if (asNeeded || !since.isBefore(until)) {
+            return List.<LocalDateTime>of().iterator();
+        }
+        return interval != null ? intervalDoses(startDate.atTime(MORNING), since, until) : dailyDoses(startDate, since, until);
+    }
+
+    private Iterator<LocalDateTime> intervalDoses(LocalDateTime anchor, LocalDateTime since, LocalDateTime until) {
+        long step = interval.toMinutes();
+        long elapsed = ChronoUnit.MINUTES.between(anchor, since);
+        long first = elapsed <= 0 ? 0 : (elapsed + step - 1) / step;
+        return new Iterator<>() {
+            private LocalDateTime next = anchor.plusMinutes(first * step);
+
+            @Override
+            public boolean hasNext() {
+                return next.isBefore(until);
+            }
+
+            @Override
+            public LocalDateTime next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                LocalDateTime current = next;
+                next = next.plusMinutes(step);
+                return current;
+            }
+        };
+    }
+
+    private Iterator<LocalDateTime> dailyDoses(LocalDate startDate, LocalDateTime since, LocalDateTime until) {
+        long offset = ChronoUnit.DAYS.between(startDate, since.toLocalDate());
+        long firstDay = (offset + everyDays - 1) / everyDays * everyDays;
+        return new Iterator<>() {
+            private LocalDate day = startDate.plusDays(firstDay);
+            private int slot = 0;
+            private LocalDateTime next = advance();
+
+            private LocalDateTime advance() {
+                while (true) {
+                    if (slot == times.size()) {
+                        day = day.plusDays(everyDays);
+                        slot = 0;
+                    }
+                    LocalDateTime candidate = day.atTime(times.get(slot++));
+                    if (!candidate.isBefore(until)) {
+                        return null;
+                    }
+                    if (!candidate.isBefore(since)) {
+                        return candidate;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public LocalDateTime next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                LocalDateTime current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private static int count(String word) {
+        Integer count = COUNTS.get(word);
+        if (count == null && word.matches("\\d+")) {
+            count = Integer.parseInt(word);
+        }
+        if (count == null || count < 1 || count > 24) {
+            throw new IllegalArgumentException("Unsupported doses per day: " + word);
+        }
+        return count;
+    }
+
+    // Spread doses over the waking day, 08:00 to 20:00
+    private static List<LocalTime> defaultTimes(int perDay) {
+        return switch (perDay) {
+            case 1 -> List.of(MORNING);
+            case 2 -> List.of(MORNING, LocalTime.of(20, 0));
+            case 3 -> List.of(MORNING, LocalTime.of(14, 0), LocalTime.of(20, 0));
+            case 4 -> List.of(MORNING, LocalTime.of(12, 0), LocalTime.of(16, 0), LocalTime.of(20, 0));
+            default -> {
+                List<LocalTime> times = new ArrayList<>(perDay);
+                long step = 12 * 60 / (perDay - 1);
+                for (int i = 0; i < perDay; i++) {
+                    times.add(MORNING.plusMinutes(step * i));
+                }
+                yield List.copyOf(times);
+            }
+        };
+    }
+}
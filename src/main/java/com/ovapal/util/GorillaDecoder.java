@@ -0,0 +1,99 @@
+package com.ovapal.util;
+
+/**
+ * Reads back a chunk written by {@link GorillaEncoder}. The sample count is not part of the
+ * encoding, so callers pass the count stored next to the chunk.
+ */
+public class GorillaDecoder {
+    private final byte[] data;
+    private final int count;
+    private int bitPosition;
+    private int decoded;
+
+    private long timestamp;
+    private long delta;
+    private long valueBits;
+    private int leadingZeros;
+    private int trailingZeros;
+
+    public GorillaDecoder(byte[] data, int count) {
+        this.data = data;
+        this.count = count;
+    }
+
+    public boolean hasNext() {
+        return decoded < count;
+    }
+
+    /**
+     * Advances to the next sample; read it with {@link #getTimestamp()} and {@link #getValue()}.
+     */
+    public void next() {
+        if (decoded == 0) {
+            timestamp = readBits(64);
+            valueBits = readBits(64);
+        } else {
+            delta += readTimestampDeltaOfDelta();
+            timestamp += delta;
+            readValue();
+        }
+        decoded++;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return Double.longBitsToDouble(valueBits);
+    }
+
+    private long readTimestampDeltaOfDelta() {
+        if (readBit() == 0) {
+            return 0;
+        }
+        if (readBit() == 0) {
+            return signExtend(readBits(7), 7);
+        }
+        if (readBit() == 0) {
+            return signExtend(readBits(9), 9);
+        }
+        if (readBit() == 0) {
+            return signExtend(readBits(12), 12);
+        }
+        return readBits(64);
+    }
+
+    private void readValue() {
+        if (readBit() == 0) {
+            return;
+        }
+        if (readBit() == 1) {
+            leadingZeros = (int) readBits(5);
+            int significantBits = (int) readBits(6) + 1;
+            trailingZeros = 64 - leadingZeros - significantBits;
+        }
+        int significantBits = 64 - leadingZeros - trailingZeros;
+        valueBits ^= readBits(significantBits) << trailingZeros;
+    }
+
+    private int readBit() {
+        int bit = (data[bitPosition >>> 3] >>> (7 - (bitPosition & 7))) & 1;
+        bitPosition++;
+        return bit;
+    }
+
+    private long readBits(int bits) {
+        long value = 0;
+        for (int i = 0; i < bits; i++) {
+            value = (value << 1) | readBit();
+        }
+        return value;
+    }
+
+    // Values in [-(2^(bits-1) - 1), 2^(bits-1)] were written as their low bits
+    private static long signExtend(long value, int bits) {
+        long half = 1L << (bits - 1);
+        return value > half ? value - (1L << bits) : value;
+    }
+}
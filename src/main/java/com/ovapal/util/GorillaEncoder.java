@@ -0,0 +1,123 @@
+package com.ovapal.util;
+
+import java.util.Arrays;
+
+/**
+ * Gorilla-style encoder for one time series chunk (Pelkonen et al., VLDB 2015).
+ *
+ * Timestamps (epoch seconds) are stored as delta-of-deltas in variable-width buckets, so a
+ * regular per-minute stream costs one bit per sample. Values are XORed with the previous
+ * value and only the meaningful bits are written, reusing the previous leading/trailing-zero
+ * window when it still fits. Samples must be appended in increasing timestamp order.
+ */
+public class GorillaEncoder {
+    private long[] words = new long[16];
+    private int bitCount;
+
+    private int count;
+    private long previousTimestamp;
+    private long previousDelta;
+    private long previousValueBits;
+    private int previousLeadingZeros = Integer.MAX_VALUE;
+    private int previousTrailingZeros;
+
+    public void append(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            writeBits(timestamp, 64);
+            writeBits(valueBits, 64);
+        } else {
+            if (timestamp <= previousTimestamp) {
+                throw new IllegalArgumentException("Timestamps must be strictly increasing");
+            }
+            long delta = timestamp - previousTimestamp;
+            writeTimestampDelta(delta - previousDelta);
+            previousDelta = delta;
+            writeValue(valueBits);
+        }
+        previousTimestamp = timestamp;
+        previousValueBits = valueBits;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[(bitCount + 7) / 8];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return bytes;
+    }
+
+    private void writeTimestampDelta(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            writeBits(0b0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            writeBits(0b10, 2);
+            writeBits(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            writeBits(0b110, 3);
+            writeBits(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            writeBits(0b1110, 4);
+            writeBits(deltaOfDelta, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long valueBits) {
+        long xor = valueBits ^ previousValueBits;
+        if (xor == 0) {
+            writeBits(0b0, 1);
+            return;
+        }
+        writeBits(0b1, 1);
+
+        int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (leadingZeros >= previousLeadingZeros && trailingZeros >= previousTrailingZeros) {
+            // Meaningful bits fit inside the previous window
+            writeBits(0b0, 1);
+            writeBits(xor >>> previousTrailingZeros, 64 - previousLeadingZeros - previousTrailingZeros);
+        } else {
+            int significantBits = 64 - leadingZeros - trailingZeros;
+            writeBits(0b1, 1);
+            writeBits(leadingZeros, 5);
+            writeBits(significantBits - 1, 6);
+            writeBits(xor >>> trailingZeros, significantBits);
+            previousLeadingZeros = leadingZeros;
+            previousTrailingZeros = trailingZeros;
+        }
+    }
+
+    private void writeBits(long value, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        long masked = bits == 64 ? value : value & ((1L << bits) - 1);
+        ensureCapacity(bitCount + bits);
+
+        int wordIndex = bitCount >>> 6;
+        int freeInWord = 64 - (bitCount & 63);
+        if (bits <= freeInWord) {
+            words[wordIndex] |= masked << (freeInWord - bits);
+        } else {
+            int overflow = bits - freeInWord;
+            words[wordIndex] |= masked >>> overflow;
+            words[wordIndex + 1] |= masked << (64 - overflow);
+        }
+        bitCount += bits;
+    }
+
+    private void ensureCapacity(int bits) {
+        int requiredWords = (bits + 63) >>> 6;
+        if (requiredWords > words.length) {
+            words = Arrays.copyOf(words, Math.max(requiredWords, words.length * 2));
+        }
+    }
+}
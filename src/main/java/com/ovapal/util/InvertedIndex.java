@@ -0,0 +1,140 @@
+package com.ovapal.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index from terms to the documents containing them, ranked with BM25.
+ *
+ * Text is lower-cased and split on anything that is not a letter or digit; single characters
+ * and a few English stop words are dropped. Documents are replaced or removed by key, and each
+ * document remembers its distinct terms so removal only touches its own postings. Not
+ * thread-safe.
+ */
+public class InvertedIndex<K> {
+
+    public record Hit<K>(K key, double score) {
+    }
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "is", "it",
+            "of", "on", "or", "so", "the", "to", "was", "were", "with");
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Map<K, Integer>> postings = new HashMap<>();
+    private final Map<K, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    public void put(K key, String text) {
+        remove(key);
+
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(key, frequency));
+        documents.put(key, new Document(frequencies.keySet().toArray(String[]::new), tokens.size()));
+        totalLength += tokens.size();
+    }
+
+    public void remove(K key) {
+        Document document = documents.remove(key);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms()) {
+            Map<K, Integer> docs = postings.get(term);
+            docs.remove(key);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    /**
+     * Returns up to limit documents matching any query term, best BM25 score first.
+     */
+    public List<Hit<K>> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || documents.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        int documentCount = documents.size();
+        double averageLength = (double) totalLength / documentCount;
+        Map<K, Double> scores = new HashMap<>();
+        for (String term : terms) {
+            Map<K, Integer> docs = postings.get(term);
+            if (docs == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+            docs.forEach((key, frequency) -> {
+                int length = documents.get(key).length();
+                double score = idf * frequency * (K1 + 1)
+                        / (frequency + K1 * (1 - B + B * length / averageLength));
+                scores.merge(key, score, Double::sum);
+            });
+        }
+
+        // Keep only the best limit scores in a min-heap
+        Comparator<Hit<K>> byScore = Comparator.comparingDouble(Hit::score);
+        PriorityQueue<Hit<K>> best = new PriorityQueue<>(byScore);
+        scores.forEach((key, score) -> {
+            if (best.size() < limit) {
+                best.add(new Hit<>(key, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new Hit<>(key, score));
+            }
+        });
+        List<Hit<K>> hits = new ArrayList<>(best);
+        hits.sort(byScore.reversed());
+        return hits;
+    }
+
+    public boolean contains(K key) {
+        return documents.containsKey(key);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Document(String[] terms, int length) {
+    }
+}
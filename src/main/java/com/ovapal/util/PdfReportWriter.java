@@ -0,0 +1,211 @@
+package com.ovapal.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal PDF 1.4 report on A4 pages using the standard Courier and Helvetica-Bold fonts, so no
+ * fonts are embedded. Each page is written out as soon as it is full; only the current page's
+ * content and one byte offset per object are held in memory. The page tree, cross-reference
+ * table and trailer are written by finish().
+ *
+ * Object numbers: 1 catalog, 2 page tree, 3 and 4 fonts, then a content stream and page object
+ * per page. Characters outside Latin-1 are printed as '?'.
+ */
+public class PdfReportWriter implements ReportWriter {
+
+    private static final int PAGE_WIDTH = 595;
+    private static final int PAGE_HEIGHT = 842;
+    private static final int MARGIN = 40;
+    private static final int TOP = PAGE_HEIGHT - 50;
+    private static final int BOTTOM = 50;
+    private static final int LINE_HEIGHT = 12;
+    private static final int BODY_SIZE = 9;
+    static final int MAX_CHARS = (int) ((PAGE_WIDTH - 2 * MARGIN) / (BODY_SIZE * 0.6));
+    private static final int FIRST_PAGE_OBJECT = 5;
+
+    private final OutputStream out;
+    private long position;
+    private long[] offsets = new long[16];
+    private int pages;
+
+    private final StringBuilder content = new StringBuilder();
+    private int y = TOP;
+    private boolean pageHasContent;
+    private String sectionTitle;
+    private List<Column> columns;
+
+    public PdfReportWriter(OutputStream out) throws IOException {
+        this.out = out;
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        object(3, "<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>");
+        object(4, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+    }
+
+    @Override
+    public void title(String text) throws IOException {
+        ensureSpace(3);
+        text("F2", 14, text);
+        y -= LINE_HEIGHT;
+    }
+
+    @Override
+    public void note(String text) throws IOException {
+        ensureSpace(1);
+        text("F1", BODY_SIZE, text);
+    }
+
+    @Override
+    public void section(String title, List<Column> columns) throws IOException {
+        this.sectionTitle = null;
+        this.columns = null;
+        // Keep the heading with at least a couple of rows
+        ensureSpace(5);
+        if (pageHasContent && y < TOP) {
+            y -= LINE_HEIGHT / 2;
+        }
+        text("F2", 11, title);
+        header(columns);
+        this.sectionTitle = title;
+        this.columns = columns;
+    }
+
+    @Override
+    public void row(List<String> values) throws IOException {
+        ensureSpace(1);
+        text("F1", BODY_SIZE, format(values, columns));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (pageHasContent || pages == 0) {
+            flushPage();
+        }
+        StringBuilder kids = new StringBuilder();
+        for (int page = 0; page < pages; page++) {
+            kids.append(pageObject(page)).append(" 0 R ");
+        }
+        object(2, "<< /Type /Pages /Kids [" + kids.toString().trim() + "] /Count " + pages + " >>");
+
+        int size = FIRST_PAGE_OBJECT + 2 * pages;
+        long xref = position;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(size).append("\n0000000000 65535 f \n");
+        for (int object = 1; object < size; object++) {
+            table.append(String.format("%010d 00000 n \n", offsets[object]));
+        }
+        table.append("trailer\n<< /Size ").append(size).append(" /Root 1 0 R >>\nstartxref\n")
+                .append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+    }
+
+    public int getPageCount() {
+        return pages;
+    }
+
+    static String format(List<String> values, List<Column> columns) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i) != null ? values.get(i) : "";
+            int width = columns != null && i < columns.size() ? columns.get(i).width() : value.length();
+            if (value.length() > width) {
+                value = width > 1 ? value.substring(0, width - 1) + "~" : value.substring(0, width);
+            }
+            line.append(value);
+            if (i < values.size() - 1) {
+                line.append(" ".repeat(width - value.length() + 1));
+            }
+        }
+        return line.length() > MAX_CHARS ? line.substring(0, MAX_CHARS) : line.toString();
+    }
+
+    private void header(List<Column> columns) {
+        text("F1", BODY_SIZE, format(columns.stream().map(Column::name).toList(), columns));
+    }
+
+    // Starts a new page unless the given number of lines still fit on this one
+    private void ensureSpace(int lines) throws IOException {
+        if (y - (lines - 1) * LINE_HEIGHT >= BOTTOM) {
+            return;
+        }
+        flushPage();
+        if (columns != null) {
+            text("F2", 11, sectionTitle + " (continued)");
+            header(columns);
+        }
+    }
+
+    private void text(String font, int size, String text) {
+        if (size > BODY_SIZE && y < TOP) {
+            y -= LINE_HEIGHT / 2;
+        }
+        content.append("BT /").append(font).append(' ').append(size).append(" Tf ")
+                .append(MARGIN).append(' ').append(y).append(" Td (").append(escape(text)).append(") Tj ET\n");
+        y -= LINE_HEIGHT;
+        pageHasContent = true;
+    }
+
+    private void flushPage() throws IOException {
+        content.append("BT /F1 8 Tf ").append(PAGE_WIDTH / 2 - 15).append(" 25 Td (Page ")
+                .append(pages + 1).append(") Tj ET\n");
+        byte[] stream = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int contentObject = pageObject(pages) - 1;
+
+        beginObject(contentObject);
+        write("<< /Length " + stream.length + " >>\nstream\n");
+        write(stream);
+        write("\nendstream\nendobj\n");
+        object(pageObject(pages), "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+                + "] /Resources << /Font << /F1 3 0 R /F2 4 0 R >> >> /Contents " + contentObject + " 0 R >>");
+        pages++;
+
+        content.setLength(0);
+        y = TOP;
+        pageHasContent = false;
+    }
+
+    private static int pageObject(int page) {
+        return FIRST_PAGE_OBJECT + 2 * page + 1;
+    }
+
+    private void object(int number, String body) throws IOException {
+        beginObject(number);
+        write(body + "\nendobj\n");
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(number + 1, offsets.length * 2));
+        }
+        offsets[number] = position;
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 32 || c > 255) {
+                escaped.append(c == '\t' ? ' ' : '?');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.ovapal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed (radix) trie from normalized keys to a display value and a weight.
+ *
+ * Each node also keeps the largest weight anywhere below it, so top-k completions are found
+ * best-first: subtrees are expanded in order of their best weight and the search stops after k
+ * terminals, without visiting the rest of the subtree under the prefix. Weights only ever grow,
+ * which keeps those maxima valid on insert without walking back down. Not thread-safe.
+ */
+public class RadixTrie {
+
+    public record Completion(String key, String value, long weight) {
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // Highest weight first; equal weights in key order, a terminal before the subtree it heads
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingLong(Candidate::priority).reversed()
+            .thenComparing(Candidate::key)
+            .thenComparing(candidate -> !candidate.terminal());
+
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * Adds weight to key, inserting it with value first if it is not present yet. The value of an
+     * existing key is kept. Returns the key's new weight.
+     */
+    public long add(String key, String value, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int index = 0;
+        while (true) {
+            path.add(node);
+            if (index == key.length()) {
+                break;
+            }
+            Node child = node.child(key.charAt(index));
+            if (child == null) {
+                child = new Node(key.substring(index));
+                node.addChild(child);
+                path.add(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, index);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                node.replaceChild(child, middle);
+                child.label = child.label.substring(common);
+                middle.maxWeight = child.maxWeight;
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            index += common;
+        }
+
+        if (node.value == null) {
+            node.value = value;
+            size++;
+        }
+        node.weight += weight;
+        for (Node onPath : path) {
+            onPath.maxWeight = Math.max(onPath.maxWeight, node.weight);
+        }
+        return node.weight;
+    }
+
+    public boolean contains(String key) {
+        Node node = root;
+        int index = 0;
+        while (index < key.length()) {
+            Node child = node.child(key.charAt(index));
+            if (child == null || commonPrefix(child.label, key, index) < child.label.length()) {
+                return false;
+            }
+            node = child;
+            index += child.label.length();
+        }
+        return node.value != null;
+    }
+
+    /**
+     * Returns up to limit entries whose key starts with prefix, highest weight first and in key
+     * order among equal weights.
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        List<Completion> completions = new ArrayList<>(Math.min(limit, 64));
+        Located start = locate(prefix);
+        if (start == null || limit <= 0) {
+            return completions;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+        queue.add(new Candidate(start.node, start.key, start.node.maxWeight, false));
+        while (!queue.isEmpty() && completions.size() < limit) {
+            Candidate candidate = queue.poll();
+            Node node = candidate.node();
+            if (candidate.terminal()) {
+                completions.add(new Completion(candidate.key(), node.value, node.weight));
+                continue;
+            }
+            if (node.value != null) {
+                queue.add(new Candidate(node, candidate.key(), node.weight, true));
+            }
+            for (Node child : node.children) {
+                queue.add(new Candidate(child, candidate.key() + child.label, child.maxWeight, false));
+            }
+        }
+        return completions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Node whose path covers prefix, with the full key up to the end of its edge
+    private Located locate(String prefix) {
+        Node node = root;
+        int index = 0;
+        while (index < prefix.length()) {
+            Node child = node.child(prefix.charAt(index));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, prefix, index);
+            if (index + common == prefix.length()) {
+                return new Located(child, prefix.substring(0, index) + child.label);
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            index += common;
+        }
+        return new Located(node, prefix);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private record Located(Node node, String key) {
+    }
+
+    private record Candidate(Node node, String key, long priority, boolean terminal) {
+    }
+
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private String value;
+        private long weight;
+        private long maxWeight;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            for (Node child : children) {
+                if (child.label.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node child) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        private void replaceChild(Node existing, Node replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == existing) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+    }
+}
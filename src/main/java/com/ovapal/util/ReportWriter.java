@@ -0,0 +1,25 @@
+package com.ovapal.util;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Incremental writer for tabular reports. Output is written as calls are made, so a report of
+ * any length is produced in bounded memory. finish() completes the document but leaves the
+ * underlying stream open.
+ */
+public interface ReportWriter {
+
+    record Column(String name, int width) {
+    }
+
+    void title(String text) throws IOException;
+
+    void note(String text) throws IOException;
+
+    void section(String title, List<Column> columns) throws IOException;
+
+    void row(List<String> values) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -0,0 +1,155 @@
+package com.ovapal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merging t-digest for approximate quantiles over values added in separate partitions.
+ *
+ * Values are buffered and folded into weighted centroids with the arcsine scale function, which
+ * keeps centroids small near the tails and larger around the median, so extreme percentiles stay
+ * accurate while the digest is bounded by the compression (about 2 * compression centroids).
+ * Digests built independently are combined with merge. Not thread-safe.
+ */
+public class TDigest {
+
+    private final double compression;
+    private final int bufferLimit;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private final List<Double> buffer = new ArrayList<>();
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10");
+        }
+        this.compression = compression;
+        this.bufferLimit = (int) (compression * 5);
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        buffer.add(value);
+        totalWeight++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (buffer.size() >= bufferLimit) {
+            compress(new double[0], new double[0]);
+        }
+    }
+
+    public void merge(TDigest other) {
+        other.compress(new double[0], new double[0]);
+        if (other.totalWeight == 0) {
+            return;
+        }
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress(other.means, other.weights);
+    }
+
+    public long size() {
+        return (long) totalWeight;
+    }
+
+    /**
+     * Approximate value at quantile q in [0, 1], or NaN when the digest is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        compress(new double[0], new double[0]);
+        int count = means.length;
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count == 1) {
+            return means[0];
+        }
+
+        double target = q * totalWeight;
+        if (target <= weights[0] / 2) {
+            return interpolate(min, means[0], target / (weights[0] / 2));
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < count - 1; i++) {
+            // Distance between the centers of centroid i and i + 1
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step >= target) {
+                return interpolate(means[i], means[i + 1], (target - cumulative) / step);
+            }
+            cumulative += step;
+        }
+        double tail = weights[count - 1] / 2;
+        return interpolate(means[count - 1], max, Math.min(1, (target - cumulative) / tail));
+    }
+
+    int centroidCount() {
+        compress(new double[0], new double[0]);
+        return means.length;
+    }
+
+    // Folds the buffer and the extra centroids into the existing centroids
+    private void compress(double[] extraMeans, double[] extraWeights) {
+        if (buffer.isEmpty() && extraMeans.length == 0) {
+            return;
+        }
+        int count = means.length + buffer.size() + extraMeans.length;
+        double[][] all = new double[count][];
+        int n = 0;
+        for (int i = 0; i < means.length; i++) {
+            all[n++] = new double[] {means[i], weights[i]};
+        }
+        for (double value : buffer) {
+            all[n++] = new double[] {value, 1};
+        }
+        for (int i = 0; i < extraMeans.length; i++) {
+            all[n++] = new double[] {extraMeans[i], extraWeights[i]};
+        }
+        buffer.clear();
+        Arrays.sort(all, Comparator.comparingDouble(centroid -> centroid[0]));
+
+        double[] mergedMeans = new double[count];
+        double[] mergedWeights = new double[count];
+        int merged = 0;
+        double weightSoFar = 0;
+        double kLow = scale(0);
+        double mean = all[0][0];
+        double weight = all[0][1];
+        for (int i = 1; i < count; i++) {
+            double proposed = (weightSoFar + weight + all[i][1]) / totalWeight;
+            if (scale(proposed) - kLow <= 1) {
+                weight += all[i][1];
+                mean += (all[i][0] - mean) * all[i][1] / weight;
+            } else {
+                mergedMeans[merged] = mean;
+                mergedWeights[merged++] = weight;
+                weightSoFar += weight;
+                kLow = scale(weightSoFar / totalWeight);
+                mean = all[i][0];
+                weight = all[i][1];
+            }
+        }
+        mergedMeans[merged] = mean;
+        mergedWeights[merged++] = weight;
+        means = Arrays.copyOf(mergedMeans, merged);
+        weights = Arrays.copyOf(mergedWeights, merged);
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+}
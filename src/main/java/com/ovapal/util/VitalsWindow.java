@@ -0,0 +1,202 @@
+package com.ovapal.util;
+
+import java.util.Arrays;
+
+/**
+ * Columnar window of one user's vitals: one slot per health record, ordered by epoch day, with
+ * each vital held in its own primitive column. Missing values are NaN in double columns and
+ * {@link #MISSING} in int columns, so statistics run over the arrays without boxing.
+ *
+ * Not thread-safe; callers guard each window with their own lock.
+ */
+public class VitalsWindow {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    public enum Vital {
+        WEIGHT, TEMPERATURE, HEART_RATE, BLOOD_PRESSURE_SYSTOLIC, BLOOD_PRESSURE_DIASTOLIC
+    }
+
+    public record Stats(int count, double average, double min, double max, double standardDeviation,
+                        double slopePerDay, double latest, double latestZScore) {
+    }
+
+    private final int days;
+    private int size;
+    private long[] ids;
+    private long[] epochDays;
+    private double[] weight;
+    private double[] temperature;
+    private int[] heartRate;
+    private int[] systolic;
+    private int[] diastolic;
+
+    public VitalsWindow(int days, int initialCapacity) {
+        this.days = days;
+        int capacity = Math.max(4, initialCapacity);
+        ids = new long[capacity];
+        epochDays = new long[capacity];
+        weight = new double[capacity];
+        temperature = new double[capacity];
+        heartRate = new int[capacity];
+        systolic = new int[capacity];
+        diastolic = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts the record, or replaces the slot holding the same id. Records older than the
+     * window relative to today are dropped.
+     */
+    public void upsert(long id, long epochDay, long today, Double weight, Double temperature,
+                       Integer heartRate, Integer systolic, Integer diastolic) {
+        remove(id);
+        evictBefore(today - days + 1);
+        if (epochDay <= today - days) {
+            return;
+        }
+        if (size == ids.length) {
+            grow();
+        }
+
+        // Keep slots ordered by day; records usually arrive for the latest day, so search from the end
+        int slot = size;
+        while (slot > 0 && epochDays[slot - 1] > epochDay) {
+            slot--;
+        }
+        shift(slot, slot + 1, size - slot);
+        ids[slot] = id;
+        epochDays[slot] = epochDay;
+        this.weight[slot] = weight != null ? weight : Double.NaN;
+        this.temperature[slot] = temperature != null ? temperature : Double.NaN;
+        this.heartRate[slot] = heartRate != null ? heartRate : MISSING;
+        this.systolic[slot] = systolic != null ? systolic : MISSING;
+        this.diastolic[slot] = diastolic != null ? diastolic : MISSING;
+        size++;
+    }
+
+    public void remove(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                shift(i + 1, i, size - i - 1);
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count, average, extremes, standard deviation, least-squares slope per day and the z-score of
+     * the latest value, over the slots on or after fromEpochDay. Returns null when no slot has the vital.
+     */
+    public Stats stats(Vital vital, long fromEpochDay) {
+        int start = firstSlotOnOrAfter(fromEpochDay);
+        int count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double latest = Double.NaN;
+        for (int i = start; i < size; i++) {
+            double value = value(vital, i);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            latest = value;
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        double average = sum / count;
+        double dayAverage = 0;
+        for (int i = start; i < size; i++) {
+            if (!Double.isNaN(value(vital, i))) {
+                dayAverage += epochDays[i] - fromEpochDay;
+            }
+        }
+        dayAverage /= count;
+
+        double squares = 0;
+        double covariance = 0;
+        double daySquares = 0;
+        for (int i = start; i < size; i++) {
+            double value = value(vital, i);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            double dx = epochDays[i] - fromEpochDay - dayAverage;
+            double dy = value - average;
+            squares += dy * dy;
+            covariance += dx * dy;
+            daySquares += dx * dx;
+        }
+        double standardDeviation = Math.sqrt(squares / count);
+        double slope = daySquares > 0 ? covariance / daySquares : 0;
+        double zScore = standardDeviation > 0 ? (latest - average) / standardDeviation : 0;
+        return new Stats(count, average, min, max, standardDeviation, slope, latest, zScore);
+    }
+
+    private double value(Vital vital, int slot) {
+        return switch (vital) {
+            case WEIGHT -> weight[slot];
+            case TEMPERATURE -> temperature[slot];
+            case HEART_RATE -> intValue(heartRate[slot]);
+            case BLOOD_PRESSURE_SYSTOLIC -> intValue(systolic[slot]);
+            case BLOOD_PRESSURE_DIASTOLIC -> intValue(diastolic[slot]);
+        };
+    }
+
+    private static double intValue(int value) {
+        return value == MISSING ? Double.NaN : value;
+    }
+
+    private int firstSlotOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void evictBefore(long epochDay) {
+        int expired = firstSlotOnOrAfter(epochDay);
+        if (expired > 0) {
+            shift(expired, 0, size - expired);
+            size -= expired;
+        }
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(epochDays, from, epochDays, to, length);
+        System.arraycopy(weight, from, weight, to, length);
+        System.arraycopy(temperature, from, temperature, to, length);
+        System.arraycopy(heartRate, from, heartRate, to, length);
+        System.arraycopy(systolic, from, systolic, to, length);
+        System.arraycopy(diastolic, from, diastolic, to, length);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        temperature = Arrays.copyOf(temperature, capacity);
+        heartRate = Arrays.copyOf(heartRate, capacity);
+        systolic = Arrays.copyOf(systolic, capacity);
+        diastolic = Arrays.copyOf(diastolic, capacity);
+    }
+}
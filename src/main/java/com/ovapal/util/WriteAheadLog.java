@@ -0,0 +1,359 @@
+package com.ovapal.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log made of fixed-size, memory-mapped segment files.
+ *
+ * Every entry is framed as [int length][int crc32][byte type][payload] and never spans two
+ * segments. Positions are global byte offsets (segment index * segment size + offset), so a
+ * single long is enough to checkpoint progress. A zero length marks the unused tail of a
+ * segment. On open, the last segment is scanned and cut at the first torn or corrupt entry.
+ * Corruption found later by read() is reported as a CorruptEntryException that says where
+ * reading can resume, so the reader decides whether to skip the entry.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    public enum FsyncPolicy {
+        ALWAYS,     // force the mapped segment after every append
+        INTERVAL,   // force from a background thread every fsync interval
+        NONE        // leave write-back to the operating system
+    }
+
+    public record Entry(long position, long nextPosition, byte type, byte[] payload) {
+    }
+
+    public static class CorruptEntryException extends IOException {
+        private final long position;
+        private final long resumePosition;
+
+        CorruptEntryException(long position, long resumePosition) {
+            super("Corrupt write-ahead log entry at position " + position);
+            this.position = position;
+            this.resumePosition = resumePosition;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        // Just after the entry when its length is plausible, otherwise the start of the next segment
+        public long getResumePosition() {
+            return resumePosition;
+        }
+    }
+
+    static final int HEADER_BYTES = 9;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock readLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel activeChannel;
+    private volatile MappedByteBuffer active;
+    private long activeSegment;
+    private volatile long writePosition;
+
+    private long readSegment = -1;
+    private MappedByteBuffer readBuffer;
+
+    public WriteAheadLog(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval)
+            throws IOException {
+        if (segmentSize <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_BYTES + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        Files.createDirectories(directory);
+        recover();
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = Math.max(1, fsyncInterval.toMillis());
+            flusher.scheduleWithFixedDelay(this::force, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Appends one entry and returns the position just after it, which is the value to
+     * checkpoint once the entry has been applied.
+     */
+    public long append(byte type, byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Entry of " + size + " bytes exceeds segment size " + segmentSize);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            int offset = (int) (writePosition - activeSegment * segmentSize);
+            if (offset + size > segmentSize) {
+                rollover();
+                offset = 0;
+            }
+            MappedByteBuffer buffer = active;
+            buffer.putInt(offset, payload.length);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.put(offset + 8, type);
+            buffer.put(offset + HEADER_BYTES, payload);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                buffer.force();
+            }
+            writePosition = activeSegment * segmentSize + offset + size;
+            return writePosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads up to maxEntries entries starting at position, stopping at the current end of the log
+     * or just before a corrupt entry. Throws CorruptEntryException when the first entry is corrupt.
+     */
+    public List<Entry> read(long position, int maxEntries) throws IOException {
+        List<Entry> entries = new ArrayList<>(Math.min(maxEntries, 1024));
+        long end = writePosition;
+        long current = position;
+
+        readLock.lock();
+        try {
+            while (entries.size() < maxEntries && current < end) {
+                long segment = current / segmentSize;
+                int offset = (int) (current % segmentSize);
+                if (offset + HEADER_BYTES > segmentSize) {
+                    current = (segment + 1) * segmentSize;
+                    continue;
+                }
+
+                MappedByteBuffer buffer = segmentForRead(segment);
+                int length = buffer.getInt(offset);
+                if (length == 0) {
+                    // Rolled over: the rest of this segment is unused
+                    current = (segment + 1) * segmentSize;
+                    continue;
+                }
+
+                long nextSegment = (segment + 1) * segmentSize;
+                if (length < 0 || offset + HEADER_BYTES + length > segmentSize) {
+                    return corrupt(entries, current, nextSegment);
+                }
+                byte type = buffer.get(offset + 8);
+                byte[] payload = new byte[length];
+                buffer.get(offset + HEADER_BYTES, payload);
+                if (!checksumMatches(buffer.getInt(offset + 4), type, payload)) {
+                    return corrupt(entries, current, current + HEADER_BYTES + length);
+                }
+
+                long next = current + HEADER_BYTES + length;
+                entries.add(new Entry(current, next, type, payload));
+                current = next;
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return entries;
+    }
+
+    private static List<Entry> corrupt(List<Entry> entries, long position, long resumePosition)
+            throws CorruptEntryException {
+        if (entries.isEmpty()) {
+            throw new CorruptEntryException(position, resumePosition);
+        }
+        return entries;
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    // Start of the oldest segment still on disk; anything before it has been deleted
+    public long getFirstPosition() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegmentFile)
+                    .mapToLong(WriteAheadLog::segmentIndex)
+                    .min()
+                    .orElse(activeSegment) * segmentSize;
+        }
+    }
+
+    /**
+     * Moves an empty log forward so that new entries land after position. Used when the
+     * checkpoint recorded elsewhere is ahead of this log, e.g. after the log directory was reset.
+     */
+    public void alignTo(long position) throws IOException {
+        appendLock.lock();
+        try {
+            if (writePosition >= position) {
+                return;
+            }
+            long segment = (position + segmentSize - 1) / segmentSize;
+            while (activeSegment < segment) {
+                rollover();
+            }
+            writePosition = activeSegment * segmentSize;
+            logger.warn("Write-ahead log realigned to position {}", writePosition);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Deletes whole segments that lie entirely before position
+    public void deleteSegmentsBefore(long position) throws IOException {
+        long firstLiveSegment = position / segmentSize;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(WriteAheadLog::isSegmentFile).toList()) {
+                long segment = segmentIndex(file);
+                if (segment < firstLiveSegment && segment != activeSegment) {
+                    Files.deleteIfExists(file);
+                    logger.debug("Deleted applied write-ahead log segment {}", file.getFileName());
+                }
+            }
+        }
+        readLock.lock();
+        try {
+            if (readSegment < firstLiveSegment) {
+                readSegment = -1;
+                readBuffer = null;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public void force() {
+        MappedByteBuffer buffer = active;
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        appendLock.lock();
+        try {
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                force();
+            }
+            activeChannel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long lastSegment = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSegment = files.filter(WriteAheadLog::isSegmentFile)
+                    .mapToLong(WriteAheadLog::segmentIndex)
+                    .max()
+                    .orElse(0);
+        }
+
+        openActive(lastSegment);
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = active.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            byte type = active.get(offset + 8);
+            byte[] payload = new byte[length];
+            active.get(offset + HEADER_BYTES, payload);
+            if (!checksumMatches(active.getInt(offset + 4), type, payload)) {
+                logger.warn("Truncating torn write-ahead log entry in segment {} at offset {}", lastSegment, offset);
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+
+        // Zero the tail so stale bytes after a torn entry can never be read back as an entry
+        for (int i = offset; i < segmentSize; i++) {
+            active.put(i, (byte) 0);
+        }
+        writePosition = lastSegment * segmentSize + offset;
+        logger.info("Opened write-ahead log in {} at position {}", directory, writePosition);
+    }
+
+    private void rollover() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            active.force();
+        }
+        activeChannel.close();
+        openActive(activeSegment + 1);
+        writePosition = activeSegment * segmentSize;
+    }
+
+    private void openActive(long segment) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeSegment = segment;
+    }
+
+    private MappedByteBuffer segmentForRead(long segment) throws IOException {
+        if (segment != readSegment) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            }
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private static boolean checksumMatches(int expected, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue() == expected;
+    }
+
+    private static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
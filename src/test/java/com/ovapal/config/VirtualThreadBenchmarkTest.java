@@ -0,0 +1,77 @@
+package com.ovapal.config;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Same simulated blocking request on the platform pool and on virtual threads. Run with mvn test -P benchmark
+@Tag("benchmark")
+class VirtualThreadBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private static final int[] CONCURRENT_REQUESTS = {1_000, 5_000, 10_000};
+    private static final int PLATFORM_POOL_SIZE = 200;   // Tomcat's default max threads
+    private static final int CONNECTION_POOL_SIZE = 20;  // spring.datasource.hikari.maximum-pool-size
+    private static final long QUERY_MILLIS = 20;
+
+    @Test
+    void benchmark_VirtualThreadsVersusPlatformPool() throws Exception {
+        // Warm up the JIT and the thread machinery before measuring
+        runRequests(Executors.newFixedThreadPool(PLATFORM_POOL_SIZE), 1_000);
+
+        for (int requests : CONCURRENT_REQUESTS) {
+            long platformMillis = runRequests(Executors.newFixedThreadPool(PLATFORM_POOL_SIZE), requests);
+            // A platform thread per request, the closest a pre-21 runtime gets to unbounded concurrency
+            long perRequestMillis = runRequests(Executors.newCachedThreadPool(), requests);
+            Optional<ExecutorService> virtualExecutor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+            if (virtualExecutor.isPresent()) {
+                long virtualMillis = runRequests(virtualExecutor.get(), requests);
+                logger.info("{} requests: platform pool ({} threads) {} ms, thread per request {} ms, virtual threads {} ms",
+                        requests, PLATFORM_POOL_SIZE, platformMillis, perRequestMillis, virtualMillis);
+                assertTrue(virtualMillis <= platformMillis);
+            } else {
+                logger.info("{} requests: platform pool ({} threads) {} ms, thread per request {} ms, "
+                                + "virtual threads need Java 21 (running {})",
+                        requests, PLATFORM_POOL_SIZE, platformMillis, perRequestMillis, Runtime.version().feature());
+            }
+        }
+    }
+
+    private static long runRequests(ExecutorService executor, int requests) throws Exception {
+        Semaphore connections = new Semaphore(CONNECTION_POOL_SIZE);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> {
+                    Thread.sleep(QUERY_MILLIS);  // blocked outside the connection pool
+                    connections.acquire();
+                    try {
+                        Thread.sleep(1);
+                    } finally {
+                        connections.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ovapal.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+class VirtualThreadConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withUserConfiguration(VirtualThreadConfig.class);
+
+    @Test
+    void flagOff_KeepsThePlatformTaskExecutor() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(VirtualThreadConfig.class);
+            assertThat(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME))
+                    .isInstanceOf(ThreadPoolTaskExecutor.class);
+        });
+    }
+
+    @Test
+    void flagOn_WiresTheVirtualExecutorIntoTomcatAndTasks() {
+        assumeTrue(Runtime.version().feature() >= 21);
+
+        contextRunner.withPropertyValues("ovapal.threads.virtual.enabled=true").run(context -> {
+            ExecutorService executor = context.getBean("virtualThreadExecutor", ExecutorService.class);
+            AsyncTaskExecutor tasks = context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                    AsyncTaskExecutor.class);
+            assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+            assertTrue(tasks.submit(() -> isVirtual(Thread.currentThread())).get(5, TimeUnit.SECONDS));
+            assertTrue(executor.submit(() -> isVirtual(Thread.currentThread())).get(5, TimeUnit.SECONDS));
+        });
+    }
+
+    @Test
+    void flagOn_OldRuntime_FailsStartup() {
+        assumeTrue(Runtime.version().feature() < 21);
+
+        contextRunner.withPropertyValues("ovapal.threads.virtual.enabled=true").run(context -> {
+            assertThat(context).hasFailed();
+            assertThat(context.getStartupFailure()).hasRootCauseInstanceOf(IllegalStateException.class);
+        });
+    }
+
+    @Test
+    void protocolHandlerCustomizer_SetsTheExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            @SuppressWarnings("unchecked")
+            TomcatProtocolHandlerCustomizer<ProtocolHandler> customizer = (TomcatProtocolHandlerCustomizer<ProtocolHandler>)
+                    new VirtualThreadConfig().virtualThreadProtocolHandlerCustomizer(executor);
+            ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+
+            customizer.customize(protocolHandler);
+
+            verify(protocolHandler).setExecutor(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void applicationTaskExecutor_RunsOnTheGivenExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "wired"));
+        try {
+            AsyncTaskExecutor tasks = new VirtualThreadConfig().applicationTaskExecutor(executor);
+
+            assertEquals("wired", tasks.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void newVirtualThreadPerTaskExecutor_MatchesRuntime() {
+        Optional<ExecutorService> executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+
+        assertEquals(Runtime.version().feature() >= 21, executor.isPresent());
+        executor.ifPresent(ExecutorService::shutdown);
+    }
+
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
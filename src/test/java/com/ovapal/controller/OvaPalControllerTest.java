@@ -1,7 +1,9 @@
 package com.ovapal.controller;
 
 import com.ovapal.bean.*;
+import com.ovapal.service.IdempotencyStore;
 import com.ovapal.service.OvaPalService;
+import com.ovapal.service.UserProvisioningService;
 import com.ovapal.util.JwtTokenUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,17 +12,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +38,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class OvaPalControllerTest {
 
     private MockMvc mockMvc;
+    @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @Mock
@@ -37,6 +47,12 @@ class OvaPalControllerTest {
     @Mock
     private JwtTokenUtil jwtTokenUtil;
 
+    @Mock
+    private UserProvisioningService userProvisioningService;
+
+    @Spy
+    private IdempotencyStore idempotencyStore = new IdempotencyStore(100, Duration.ofMinutes(5));
+
     @InjectMocks
     private OvaPalController ovaPalController;
 
@@ -113,6 +129,80 @@ class OvaPalControllerTest {
                 .andExpect(jsonPath("$.healthId").value(testRecordId));
     }
 
+    @Test
+    void createHealthRecord_WithRepeatedIdempotencyKey_ShouldReplayFirstResponse() throws Exception {
+        HealthRecordRequestBean request = new HealthRecordRequestBean();
+        request.setUserId(testUserId);
+        HealthRecordResponseBean response = new HealthRecordResponseBean();
+        response.setHealthId(testRecordId);
+
+        when(ovaPalService.saveHealthRecord(any(HealthRecordRequestBean.class))).thenReturn(response);
+        when(jwtTokenUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/ovapal/health")
+                            .header("Authorization", "Bearer " + validToken)
+                            .header("Idempotency-Key", "retry-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.healthId").value(testRecordId));
+        }
+
+        verify(ovaPalService, times(1)).saveHealthRecord(any(HealthRecordRequestBean.class));
+    }
+
+    @Test
+    void provisionUsers_NotAdmin_ShouldReturnForbidden() throws Exception {
+        when(jwtTokenUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+        when(ovaPalService.isAdmin(testUserId)).thenReturn(false);
+
+        mockMvc.perform(post("/ovapal/admin/users/bulk")
+                        .header("Authorization", "Bearer " + validToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(userProvisioningService);
+    }
+
+    @Test
+    void provisionUsers_Admin_ShouldProvision() throws Exception {
+        when(jwtTokenUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+        when(ovaPalService.isAdmin(testUserId)).thenReturn(true);
+        when(userProvisioningService.provisionUsers(any())).thenReturn(new BulkUserResponseBean());
+
+        mockMvc.perform(post("/ovapal/admin/users/bulk")
+                        .header("Authorization", "Bearer " + validToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void createHealthRecord_SameIdempotencyKeyFromAnotherUser_ShouldNotReplay() throws Exception {
+        String otherToken = "other.token.here";
+        HealthRecordRequestBean request = new HealthRecordRequestBean();
+        request.setUserId(testUserId);
+
+        when(ovaPalService.saveHealthRecord(any(HealthRecordRequestBean.class))).thenReturn(new HealthRecordResponseBean());
+        when(jwtTokenUtil.validateToken(otherToken)).thenReturn(true);
+        when(jwtTokenUtil.getUserIdFromToken(validToken)).thenReturn(testUserId);
+        when(jwtTokenUtil.getUserIdFromToken(otherToken)).thenReturn(2L);
+
+        for (String token : List.of(validToken, otherToken)) {
+            mockMvc.perform(post("/ovapal/health")
+                            .header("Authorization", "Bearer " + token)
+                            .header("Idempotency-Key", "retry-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        }
+
+        verify(ovaPalService, times(2)).saveHealthRecord(any(HealthRecordRequestBean.class));
+    }
+
     @Test
     void getHealthRecords_WithValidToken_ShouldReturnRecords() throws Exception {
         HealthRecordResponseBean record = new HealthRecordResponseBean();
@@ -126,6 +216,32 @@ class OvaPalControllerTest {
                 .andExpect(jsonPath("$[0]").exists());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamHealthRecords_WithValidToken_ShouldWriteNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<HealthRecordResponseBean> consumer = invocation.getArgument(1);
+            consumer.accept(HealthRecordResponseBean.builder().healthId(1L).build());
+            consumer.accept(HealthRecordResponseBean.builder().healthId(2L).build());
+            return null;
+        }).when(ovaPalService).streamHealthRecords(eq(testUserId), any());
+
+        MvcResult result = mockMvc.perform(get("/ovapal/health/" + testUserId + "/stream")
+                        .header("Authorization", "Bearer " + validToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"healthId\":2"));
+        verify(ovaPalService).verifyUserExists(testUserId);
+    }
+
     @Test
     void updateHealthRecord_WithValidToken_ShouldReturnUpdatedRecord() throws Exception {
         HealthRecordRequestBean request = new HealthRecordRequestBean();
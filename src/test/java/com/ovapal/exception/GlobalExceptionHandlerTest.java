@@ -5,6 +5,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.context.request.WebRequest;
@@ -93,6 +95,56 @@ class GlobalExceptionHandlerTest {
         assertNotNull(body.get("timestamp"));
     }
 
+    @Test
+    void handleBackpressureException_ShouldReturnServiceUnavailableWithRetryAfter() {
+        // Arrange
+        when(webRequest.getDescription(false)).thenReturn("uri=/ovapal/health/async");
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleBackpressureException(
+                new BackpressureException("Ingestion buffer is full", 2), webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertNotNull(body);
+        assertEquals("Ingestion buffer is full", body.get("message"));
+    }
+
+    @Test
+    void handleTaskRejectedException_ShouldReturnServiceUnavailableWithRetryAfter() {
+        // Arrange
+        when(webRequest.getDescription(false)).thenReturn("uri=/ovapal/health/1/stream");
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleTaskRejectedException(
+                new TaskRejectedException("Executor [stream-] did not accept task"), webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertNotNull(body);
+        assertEquals("Too many concurrent streams", body.get("message"));
+    }
+
+    @Test
+    void handleConcurrencyFailureException_ShouldReturnServiceUnavailableWithRetryAfter() {
+        // Arrange
+        when(webRequest.getDescription(false)).thenReturn("uri=/ovapal/health");
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleConcurrencyFailureException(
+                new ObjectOptimisticLockingFailureException("VitalBaseline", 1L), webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+    }
+
     @Test
     void handleGlobalException_ShouldReturnInternalServerErrorResponse() {
         // Arrange
@@ -0,0 +1,84 @@
+package com.ovapal.repository;
+
+import com.ovapal.entity.Reminder;
+import com.ovapal.service.ChangeSequence;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class ReminderRepositoryTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+
+    // OvaPalApplication's explicit @ComponentScan would pull every bean into the slice
+    @Configuration
+    @EntityScan("com.ovapal.entity")
+    @EnableJpaRepositories("com.ovapal.repository")
+    @Import(ChangeSequence.class)
+    static class Config {
+    }
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Test
+    void findActiveAtTime_PastOneOffReminder_IsNotReturned() {
+        reminderRepository.save(reminder("past one-off", TODAY.minusDays(3), false));
+        reminderRepository.save(reminder("today one-off", TODAY, false));
+        reminderRepository.save(reminder("daily", TODAY.minusDays(3), true));
+        reminderRepository.save(reminder("future one-off", TODAY.plusDays(1), false));
+
+        List<Reminder> active = reminderRepository.findActiveAtTime(TODAY, NINE, NINE);
+
+        assertEquals(List.of("today one-off", "daily"), active.stream().map(Reminder::getTitle).toList());
+    }
+
+    @Test
+    void streamActive_OneOffInRangeAndRepeatingStartedByEnd() {
+        reminderRepository.save(reminder(2L, "one-off before", TODAY.minusDays(3), false, true));
+        reminderRepository.save(reminder(2L, "one-off in range", TODAY.minusDays(1), false, null));
+        reminderRepository.save(reminder(1L, "one-off inactive", TODAY, false, false));
+        reminderRepository.save(reminder(1L, "repeating", TODAY.minusDays(30), true, true));
+        reminderRepository.save(reminder(1L, "repeating later", TODAY.plusDays(1), true, true));
+
+        List<String> oneOff;
+        try (Stream<Reminder> reminders = reminderRepository.streamActiveOneOffBetween(TODAY.minusDays(1), TODAY)) {
+            oneOff = reminders.map(Reminder::getTitle).toList();
+        }
+        List<String> repeating;
+        try (Stream<Reminder> reminders = reminderRepository.streamActiveRepeatingStartedBy(TODAY)) {
+            repeating = reminders.map(Reminder::getTitle).toList();
+        }
+
+        assertEquals(List.of("one-off in range"), oneOff);
+        assertEquals(List.of("repeating"), repeating);
+    }
+
+    private static Reminder reminder(String title, LocalDate date, boolean repeating) {
+        return reminder(1L, title, date, repeating, true);
+    }
+
+    private static Reminder reminder(Long userId, String title, LocalDate date, boolean repeating, Boolean active) {
+        return Reminder.builder()
+                .userId(userId)
+                .title(title)
+                .reminderDate(date)
+                .reminderTime(NINE)
+                .isRepeating(repeating)
+                .repeatFrequency(repeating ? "DAILY" : null)
+                .isActive(active)
+                .build();
+    }
+}
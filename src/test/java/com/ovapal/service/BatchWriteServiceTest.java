@@ -0,0 +1,160 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.bean.BatchOperationBean;
+import com.ovapal.bean.BatchRequestBean;
+import com.ovapal.bean.BatchResponseBean;
+import com.ovapal.bean.HealthRecordRequestBean;
+import com.ovapal.bean.HealthRecordResponseBean;
+import com.ovapal.bean.MedicationRequestBean;
+import com.ovapal.bean.MedicationResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.ReminderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchWriteServiceTest {
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private BatchWriteService batchWriteService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(batchWriteService, "maxOperations", 3);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void execute_AllSucceed_CommitsAndReportsEachResult() {
+        when(ovaPalService.saveHealthRecord(any()))
+                .thenReturn(HealthRecordResponseBean.builder().healthId(10L).build());
+        when(ovaPalService.updateMedication(eq(4L), any()))
+                .thenReturn(MedicationResponseBean.builder().medicationId(4L).build());
+
+        BatchResponseBean response = batchWriteService.execute(request(
+                operation("create", "health", null, Map.of("recordDate", "2024-01-05", "weight", 60)),
+                operation("UPDATE", "MEDICATION", 4L, Map.of("medicine", "Iron", "startDate", "2024-01-01"))));
+
+        assertTrue(response.isCommitted());
+        assertEquals(List.of("OK", "OK"), response.getResults().stream().map(r -> r.getStatus()).toList());
+        assertEquals(10L, response.getResults().get(0).getId());
+
+        ArgumentCaptor<HealthRecordRequestBean> health = ArgumentCaptor.forClass(HealthRecordRequestBean.class);
+        verify(ovaPalService).saveHealthRecord(health.capture());
+        assertEquals(1L, health.getValue().getUserId());
+        assertEquals(LocalDate.of(2024, 1, 5), health.getValue().getRecordDate());
+        ArgumentCaptor<MedicationRequestBean> medication = ArgumentCaptor.forClass(MedicationRequestBean.class);
+        verify(ovaPalService).updateMedication(eq(4L), medication.capture());
+        assertEquals("Iron", medication.getValue().getMedicine());
+
+        verify(ovaPalService).verifyUserExists(1L);
+        verify(entityManager).flush();
+        verify(transactionManager).commit(argThat(status -> !status.isRollbackOnly()));
+    }
+
+    @Test
+    void execute_OperationFails_RollsBackAndSkipsTheRest() {
+        when(ovaPalService.saveHealthRecord(any()))
+                .thenReturn(HealthRecordResponseBean.builder().healthId(10L).build());
+        when(medicationRepository.findById(9L))
+                .thenReturn(Optional.of(Medication.builder().medicineid(9L).userId(2L).build()));
+
+        BatchResponseBean response = batchWriteService.execute(request(
+                operation("CREATE", "HEALTH", null, Map.of("weight", 60)),
+                operation("DELETE", "MEDICATION", 9L, null),
+                operation("CREATE", "HEALTH", null, Map.of("weight", 61))));
+
+        assertFalse(response.isCommitted());
+        assertEquals(List.of("OK", "FAILED", "NOT_RUN"), response.getResults().stream().map(r -> r.getStatus()).toList());
+        assertEquals("Medication not found with ID: 9", response.getResults().get(1).getError());
+        verify(ovaPalService, times(1)).saveHealthRecord(any());
+        verify(ovaPalService, never()).deleteMedication(any());
+        verify(transactionManager).commit(argThat(TransactionStatus::isRollbackOnly));
+    }
+
+    @Test
+    void execute_InvalidOperations_Fail() {
+        BatchResponseBean otherUser = batchWriteService.execute(request(
+                operation("CREATE", "HEALTH", null, Map.of("userId", 2, "weight", 60))));
+        assertEquals("Operation belongs to a different user", otherUser.getResults().get(0).getError());
+
+        BatchResponseBean unknownType = batchWriteService.execute(request(operation("CREATE", "DIARY", null, Map.of())));
+        assertEquals("Unknown record type: DIARY", unknownType.getResults().get(0).getError());
+
+        BatchResponseBean deleteHealth = batchWriteService.execute(request(operation("DELETE", "HEALTH", 1L, null)));
+        assertFalse(deleteHealth.isCommitted());
+
+        assertThrows(InvalidOperationException.class, () -> batchWriteService.execute(request()));
+        assertThrows(InvalidOperationException.class, () -> batchWriteService.execute(request(
+                operation("DELETE", "REMINDER", 1L, null), operation("DELETE", "REMINDER", 2L, null),
+                operation("DELETE", "REMINDER", 3L, null), operation("DELETE", "REMINDER", 4L, null))));
+    }
+
+    @Test
+    void execute_UnknownUser_Throws() {
+        doThrow(new ResourceNotFoundException("User not found with ID: 1")).when(ovaPalService).verifyUserExists(1L);
+
+        assertThrows(ResourceNotFoundException.class, () -> batchWriteService.execute(request(
+                operation("CREATE", "HEALTH", null, Map.of("weight", 60)))));
+    }
+
+    private BatchRequestBean request(BatchOperationBean... operations) {
+        return BatchRequestBean.builder().userId(1L).operations(List.of(operations)).build();
+    }
+
+    private BatchOperationBean operation(String op, String type, Long id, Map<String, Object> data) {
+        return BatchOperationBean.builder()
+                .op(op)
+                .type(type)
+                .id(id)
+                .data(data != null ? objectMapper.valueToTree(data) : null)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.CalendarDayBean;
+import com.ovapal.bean.CalendarResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.FeedChangeEvent;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @InjectMocks
+    private CalendarService calendarService = new CalendarService(100, 6);
+
+    @Test
+    void getCalendar_MergesRangesOntoDays() {
+        when(periodRecordRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of(
+                period(LocalDate.of(2024, 2, 27), LocalDate.of(2024, 3, 2)),
+                period(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 3, 3)),
+                period(LocalDate.of(2024, 3, 29), null)));
+        when(healthRecordRepository.findRecordDatesBetween(eq(1L), any(), any())).thenReturn(List.of(
+                LocalDate.of(2024, 3, 5), LocalDate.of(2024, 3, 5)));
+        when(reminderRepository.findActiveInRange(eq(1L), any(), any())).thenReturn(List.of(
+                reminder(1L, LocalDate.of(2024, 2, 26), "WEEKLY")));
+        when(medicationRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of(
+                medication(10L, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 10)),
+                medication(11L, LocalDate.of(2024, 3, 8), null)));
+
+        CalendarResponseBean calendar = calendarService.getCalendar(1L, MARCH);
+        List<CalendarDayBean> days = calendar.getDays();
+
+        assertEquals(31, days.size());
+        assertTrue(days.get(0).isPeriod());
+        assertTrue(days.get(2).isPeriod());
+        assertFalse(days.get(3).isPeriod());
+        assertTrue(days.get(28).isPeriod());
+        assertFalse(days.get(29).isPeriod());
+        assertEquals(2, days.get(4).getVitals());
+        assertEquals(List.of(1L), days.get(3).getReminderIds());
+        assertNull(days.get(4).getReminderIds());
+        assertEquals(List.of(10L), days.get(6).getMedicationIds());
+        assertEquals(List.of(10L, 11L), days.get(8).getMedicationIds());
+        assertEquals(List.of(11L), days.get(30).getMedicationIds());
+        assertEquals("Iron 1 tablet", calendar.getMedications().get(10L));
+    }
+
+    @Test
+    void getCalendar_CachedUntilUserRecordsChange() {
+        when(periodRecordRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of());
+
+        CalendarResponseBean first = calendarService.getCalendar(1L, MARCH);
+        assertSame(first, calendarService.getCalendar(1L, MARCH));
+
+        calendarService.onRecordChange(new RecordChangeEvent(2L, RecordChangeEvent.RecordType.PERIOD, 5L,
+                RecordChangeEvent.ChangeType.CREATED));
+        assertSame(first, calendarService.getCalendar(1L, MARCH));
+
+        calendarService.onRecordChange(new RecordChangeEvent(1L, RecordChangeEvent.RecordType.PERIOD, 5L,
+                RecordChangeEvent.ChangeType.CREATED));
+        assertNotSame(first, calendarService.getCalendar(1L, MARCH));
+        verify(periodRecordRepository, times(2)).findOverlapping(eq(1L), any(), any());
+    }
+
+    @Test
+    void getCalendar_ChangeFromAnotherNode_DropsCachedMonths() {
+        when(periodRecordRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of());
+        CalendarResponseBean first = calendarService.getCalendar(1L, MARCH);
+
+        calendarService.onFeedChange(new FeedChangeEvent(new RecordChangeEvent(1L, RecordChangeEvent.RecordType.HEALTH,
+                9L, RecordChangeEvent.ChangeType.UPDATED)));
+
+        assertNotSame(first, calendarService.getCalendar(1L, MARCH));
+    }
+
+    @Test
+    void occurrences_ExpandsRepeatFrequencies() {
+        LocalDate from = MARCH.atDay(1);
+        LocalDate to = MARCH.atEndOfMonth();
+
+        assertEquals(31, CalendarService.occurrences(reminder(1L, LocalDate.of(2024, 1, 1), "daily"), from, to).size());
+        assertEquals(List.of(LocalDate.of(2024, 3, 31)),
+                CalendarService.occurrences(reminder(1L, LocalDate.of(2023, 12, 31), "MONTHLY"), from, to));
+        assertEquals(List.of(LocalDate.of(2024, 3, 15)),
+                CalendarService.occurrences(reminder(1L, LocalDate.of(2020, 3, 15), "YEARLY"), from, to));
+        assertEquals(List.of(),
+                CalendarService.occurrences(reminder(1L, LocalDate.of(2024, 2, 15), "FORTNIGHTLY"), from, to));
+    }
+
+    private static PeriodRecord period(LocalDate start, LocalDate end) {
+        return PeriodRecord.builder().userId(1L).startDate(start).endDate(end).build();
+    }
+
+    private static Reminder reminder(Long id, LocalDate date, String frequency) {
+        return Reminder.builder().reminderid(id).userId(1L).title("Take iron").reminderDate(date)
+                .isRepeating(true).repeatFrequency(frequency).isActive(true).build();
+    }
+
+    private static Medication medication(Long id, LocalDate start, LocalDate end) {
+        return Medication.builder().medicineid(id).userId(1L).medicine("Iron").dosage("1 tablet")
+                .frequency("Daily").startDate(start).endDate(end).build();
+    }
+}
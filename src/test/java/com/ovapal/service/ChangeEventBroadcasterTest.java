@@ -0,0 +1,135 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.BackpressureException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeEventBroadcasterTest {
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    @InjectMocks
+    private ChangeEventBroadcaster broadcaster = new ChangeEventBroadcaster(1, Duration.ofHours(1), Duration.ofMillis(200), 4);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(broadcaster, "timeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 4);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 3);
+        ReflectionTestUtils.setField(broadcaster, "maxPerUser", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void broadcast_SendsToTheUsersSubscribersOnly() throws Exception {
+        SseEmitter mine = mock(SseEmitter.class);
+        SseEmitter other = mock(SseEmitter.class);
+        doReturn(mine, other).when(broadcaster).newEmitter();
+        broadcaster.subscribe(1L);
+        broadcaster.subscribe(2L);
+
+        broadcaster.broadcast(new RecordChangeEvent(1L, RecordType.HEALTH, 5L, ChangeType.CREATED));
+
+        // Open comment, then the change
+        verify(mine, timeout(1000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(other, after(100).times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void subscribe_OverLimits_ThrowsBackpressure() {
+        doAnswer(invocation -> mock(SseEmitter.class)).when(broadcaster).newEmitter();
+        broadcaster.subscribe(1L);
+        broadcaster.subscribe(1L);
+
+        assertThrows(BackpressureException.class, () -> broadcaster.subscribe(1L));
+        broadcaster.subscribe(2L);
+        assertThrows(BackpressureException.class, () -> broadcaster.subscribe(3L));
+        assertEquals(3, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void broadcast_SlowSubscriber_IsDisconnected() throws Exception {
+        SseEmitter slow = mock(SseEmitter.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch stuck = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            stuck.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(slow).send(any(SseEmitter.SseEventBuilder.class));
+        doReturn(slow).when(broadcaster).newEmitter();
+        broadcaster.subscribe(1L);
+        // The open comment holds the dispatcher thread before the buffer fills
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            broadcaster.broadcast(new RecordChangeEvent(1L, RecordType.HEALTH, (long) i, ChangeType.CREATED));
+        }
+
+        verify(slow).complete();
+        assertEquals(0, broadcaster.getSubscriberCount());
+        stuck.countDown();
+    }
+
+    @Test
+    void drain_SendBlockedPastDeadline_DisconnectsAndKeepsServingOthers() throws Exception {
+        SseEmitter blocked = mock(SseEmitter.class);
+        SseEmitter other = mock(SseEmitter.class);
+        CountDownLatch stuck = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            stuck.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(blocked).send(any(SseEmitter.SseEventBuilder.class));
+        doReturn(blocked, other).when(broadcaster).newEmitter();
+        broadcaster.subscribe(1L);  // its open comment takes the only dispatcher thread
+        broadcaster.subscribe(2L);
+
+        broadcaster.broadcast(new RecordChangeEvent(2L, RecordType.HEALTH, 5L, ChangeType.CREATED));
+
+        verify(other, timeout(2000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(blocked).complete();
+        assertEquals(1, broadcaster.getSubscriberCount());
+        stuck.countDown();
+    }
+
+    @Test
+    void subscribe_EmitterCompleted_RemovesSubscriber() {
+        SseEmitter emitter = mock(SseEmitter.class);
+        doReturn(emitter).when(broadcaster).newEmitter();
+        broadcaster.subscribe(1L);
+        ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+        verify(emitter).onCompletion(onCompletion.capture());
+
+        onCompletion.getValue().run();
+        onCompletion.getValue().run();
+
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.ovapal.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeSequenceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JdbcTemplate markerJdbcTemplate;
+
+    @InjectMocks
+    private ChangeSequence changeSequence;
+
+    // Another node on the same database
+    @InjectMocks
+    private ChangeSequence otherNode;
+
+    // The database shared by every node: the change_seq sequence and change_seq_in_flight
+    private final AtomicLong sequence = new AtomicLong();
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(changeSequence, "inFlightTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(otherNode, "inFlightTtl", Duration.ofMinutes(10));
+        when(markerJdbcTemplate.queryForObject(startsWith("SELECT MAX(change_seq)"), eq(Long.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0).toString().endsWith("medications") ? 41L : null);
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            sequence.compareAndSet(0, Long.parseLong(sql.substring(sql.lastIndexOf(' ') + 1)) - 1);
+            return null;
+        }).when(markerJdbcTemplate).execute(startsWith("CREATE SEQUENCE"));
+        when(markerJdbcTemplate.queryForObject(ChangeSequence.NEXT_SQL, Long.class))
+                .thenAnswer(invocation -> sequence.incrementAndGet());
+        when(jdbcTemplate.queryForObject(ChangeSequence.NEXT_SQL, Long.class))
+                .thenAnswer(invocation -> sequence.incrementAndGet());
+        when(jdbcTemplate.queryForObject(eq(ChangeSequence.OLDEST_IN_FLIGHT_SQL), eq(Long.class), any()))
+                .thenAnswer(invocation -> inFlight.isEmpty() ? null : inFlight.first());
+        when(markerJdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.equals(ChangeSequence.BEGIN_SQL)) {
+                return inFlight.add(invocation.getArgument(1)) ? 1 : 0;
+            }
+            return sql.equals(ChangeSequence.END_SQL) && inFlight.remove(invocation.<Long>getArgument(1)) ? 1 : 0;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(changeSequence);
+        TransactionSynchronizationManager.unbindResourceIfPossible(otherNode);
+    }
+
+    @Test
+    void next_ContinuesAfterStoredMaximum() {
+        when(jdbcTemplate.queryForList(ChangeSequence.NEXT_RANGE_SQL, Long.class, 3))
+                .thenAnswer(invocation -> LongStream.range(0, 3).map(i -> sequence.incrementAndGet()).boxed().toList());
+
+        assertEquals(43, changeSequence.next());  // 42 marked the backfill
+        assertArrayEquals(new long[] {44, 45, 46}, changeSequence.next(3));
+        assertEquals(47, changeSequence.next());
+        assertEquals(47, changeSequence.watermark());
+        verify(markerJdbcTemplate).execute("CREATE SEQUENCE IF NOT EXISTS change_seq START WITH 42");
+    }
+
+    @Test
+    void ensureSeeded_NumbersRowsWithoutChangeSeqUnderAMarker() {
+        when(markerJdbcTemplate.update(startsWith("UPDATE "))).thenAnswer(invocation -> {
+            assertEquals(1, inFlight.size());
+            return invocation.getArgument(0).toString().startsWith("UPDATE health_records") ? 3 : 0;
+        });
+
+        changeSequence.watermark();
+
+        for (String table : ChangeSequence.TABLES) {
+            verify(markerJdbcTemplate).update(
+                    "UPDATE " + table + " SET change_seq = NEXT VALUE FOR change_seq WHERE change_seq IS NULL");
+        }
+        assertTrue(inFlight.isEmpty());
+    }
+
+    @Test
+    void watermark_StaysBelowTransactionOpenOnAnotherNode() {
+        assertEquals(42, changeSequence.watermark());  // backfill marker 42, takes 43
+        assertEquals(44, otherNode.watermark());  // backfill marker 44, takes 45
+
+        TransactionSynchronizationManager.initSynchronization();
+        long first = otherNode.next();  // marker 46, then 47
+        assertEquals(48, otherNode.next());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(47, first);
+
+        // Numbers taken later on this node don't move its watermark past the other node's transaction
+        assertEquals(49, changeSequence.next());
+        assertEquals(45, changeSequence.watermark());
+
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertTrue(inFlight.isEmpty());
+        assertEquals(50, changeSequence.watermark());  // takes 51
+    }
+}
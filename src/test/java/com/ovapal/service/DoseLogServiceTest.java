@@ -0,0 +1,176 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.AdherenceResponseBean;
+import com.ovapal.bean.DoseEventBatchRequestBean;
+import com.ovapal.bean.DoseEventBatchResponseBean;
+import com.ovapal.bean.DoseEventRequestBean;
+import com.ovapal.entity.DoseAdherenceWeek;
+import com.ovapal.entity.DoseStatus;
+import com.ovapal.entity.Medication;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.DoseAdherenceWeekRepository;
+import com.ovapal.repository.MedicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoseLogServiceTest {
+
+    private static final LocalDateTime MONDAY_MORNING = LocalDateTime.of(2024, 3, 4, 8, 0);
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private DoseAdherenceWeekRepository doseAdherenceWeekRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private DoseLogService doseLogService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(doseLogService, "maxBatch", 100);
+
+        lenient().when(medicationRepository.findAllById(any())).thenReturn(List.of(
+                Medication.builder().medicineid(1L).userId(1L).build(),
+                Medication.builder().medicineid(2L).userId(2L).build()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordDoseEvents_OneBatchAndOneCounterMergePerWeek() {
+        DoseEventBatchResponseBean result = doseLogService.recordDoseEvents(new DoseEventBatchRequestBean(1L, List.of(
+                event(MONDAY_MORNING, DoseStatus.TAKEN),
+                event(MONDAY_MORNING.plusHours(12), DoseStatus.MISSED),
+                event(MONDAY_MORNING.plusDays(6), DoseStatus.TAKEN),
+                event(MONDAY_MORNING.plusDays(7), DoseStatus.TAKEN),
+                event(MONDAY_MORNING, DoseStatus.TAKEN))));
+
+        assertEquals(4, result.getRecorded());
+        assertEquals(1, result.getDuplicates());
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(4, batches.getAllValues().get(0).size());
+        List<Object[]> merges = batches.getAllValues().get(1);
+        assertEquals(2, merges.size());
+        assertArrayEquals(new Object[] {1L, 1L, java.sql.Date.valueOf("2024-03-04"), 2, 1}, merges.get(0));
+        assertArrayEquals(new Object[] {1L, 1L, java.sql.Date.valueOf("2024-03-11"), 1, 0}, merges.get(1));
+    }
+
+    @Test
+    void recordDoseEvents_AlreadyLogged_FallsBackToSingleAppends() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new DuplicateKeyException("uk_dose_events_medication_scheduled"))
+                .thenReturn(new int[] {1})
+                .thenThrow(new DuplicateKeyException("uk_dose_events_medication_scheduled"));
+
+        DoseEventBatchResponseBean result = doseLogService.recordDoseEvents(new DoseEventBatchRequestBean(1L, List.of(
+                event(MONDAY_MORNING, DoseStatus.TAKEN),
+                event(MONDAY_MORNING.plusHours(12), DoseStatus.TAKEN))));
+
+        assertEquals(1, result.getRecorded());
+        assertEquals(1, result.getDuplicates());
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("MERGE"), anyList());
+    }
+
+    @Test
+    void recordDoseEvents_LostCounterMergeRace_RetriesInsteadOfCountingDuplicate() {
+        lenient().when(jdbcTemplate.batchUpdate(startsWith("MERGE"), anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_dose_adherence_medication_week"))
+                .thenReturn(new int[] {1});
+
+        DoseEventBatchResponseBean result = doseLogService.recordDoseEvents(new DoseEventBatchRequestBean(1L, List.of(
+                event(MONDAY_MORNING, DoseStatus.TAKEN),
+                event(MONDAY_MORNING.plusHours(12), DoseStatus.TAKEN))));
+
+        assertEquals(2, result.getRecorded());
+        assertEquals(0, result.getDuplicates());
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), anyList());
+    }
+
+    @Test
+    void recordDoseEvents_LockTimeoutEveryAttempt_IsNotADuplicate() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new CannotAcquireLockException("Timeout trying to lock table DOSE_EVENTS"));
+
+        assertThrows(CannotAcquireLockException.class, () -> doseLogService.recordDoseEvents(
+                new DoseEventBatchRequestBean(1L, List.of(event(MONDAY_MORNING, DoseStatus.TAKEN)))));
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("INSERT"), anyList());
+    }
+
+    @Test
+    void onRecordChange_MedicationDeleted_DeletesEventsAndCounters() {
+        doseLogService.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 7L, ChangeType.DELETED));
+        doseLogService.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 8L, ChangeType.UPDATED));
+
+        verify(jdbcTemplate).update("DELETE FROM dose_events WHERE medication_id = ?", 7L);
+        verify(jdbcTemplate).update("DELETE FROM dose_adherence_weekly WHERE medication_id = ?", 7L);
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void recordDoseEvents_OtherUsersMedication_ThrowsException() {
+        DoseEventBatchRequestBean request = new DoseEventBatchRequestBean(1L, List.of(
+                new DoseEventRequestBean(2L, MONDAY_MORNING, DoseStatus.TAKEN, null)));
+
+        assertThrows(InvalidOperationException.class, () -> doseLogService.recordDoseEvents(request));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void getAdherence_SumsCountersPerWeek() {
+        when(doseAdherenceWeekRepository.findByUserIdAndWeekStartBetweenOrderByWeekStart(
+                1L, LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 18))).thenReturn(List.of(
+                DoseAdherenceWeek.builder().medicationId(1L).weekStart(LocalDate.of(2024, 3, 4)).taken(12).missed(2).build(),
+                DoseAdherenceWeek.builder().medicationId(3L).weekStart(LocalDate.of(2024, 3, 4)).taken(5).missed(1).build()));
+
+        AdherenceResponseBean result = doseLogService.getAdherence(1L, LocalDate.of(2024, 3, 6), LocalDate.of(2024, 3, 20), null);
+
+        assertEquals(3, result.getWeeks().size());
+        assertEquals(17, result.getWeeks().get(0).getTaken());
+        assertEquals(85.0, result.getWeeks().get(0).getPercentTaken());
+        assertNull(result.getWeeks().get(1).getPercentTaken());
+    }
+
+    private static DoseEventRequestBean event(LocalDateTime scheduledAt, DoseStatus status) {
+        return new DoseEventRequestBean(1L, scheduledAt, status, null);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.DoseScheduleResponseBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.MedicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoseScheduleServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @InjectMocks
+    private DoseScheduleService doseScheduleService = new DoseScheduleService(100);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(doseScheduleService, "maxWindow", Duration.ofDays(92));
+        ReflectionTestUtils.setField(doseScheduleService, "maxResults", 1000);
+    }
+
+    @Test
+    void getDoses_MergesMedicationsInTimeOrder() {
+        when(medicationRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of(
+                medication(1L, "twice daily"),
+                medication(2L, "every 6 hours"),
+                medication(3L, "as needed"),
+                medication(4L, "with food")));
+
+        DoseScheduleResponseBean result = doseScheduleService.getDoses(1L, FROM, FROM.plusDays(1), null);
+
+        assertEquals(6, result.getDoses().size());
+        assertEquals(List.of(2L, 1L, 2L, 2L, 1L, 2L),
+                result.getDoses().stream().map(dose -> dose.getMedicationId()).toList());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 2, 0), result.getDoses().get(0).getDueAt());
+        assertFalse(result.isTruncated());
+        assertEquals("as needed", result.getSchedules().get(3L));
+        assertEquals("unrecognized: with food", result.getSchedules().get(4L));
+    }
+
+    @Test
+    void getDoses_Limit_TruncatesResult() {
+        when(medicationRepository.findOverlapping(eq(1L), any(), any())).thenReturn(List.of(medication(1L, "every hour")));
+
+        DoseScheduleResponseBean result = doseScheduleService.getDoses(1L, FROM, FROM.plusDays(30), 5);
+
+        assertEquals(5, result.getDoses().size());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void getDoses_WindowTooLarge_ThrowsException() {
+        assertThrows(InvalidOperationException.class,
+                () -> doseScheduleService.getDoses(1L, FROM, FROM.plusDays(200), null));
+        verifyNoInteractions(medicationRepository);
+    }
+
+    @Test
+    void compiled_CachedUntilFrequencyChanges() {
+        Medication medication = medication(1L, "twice daily");
+        DoseScheduleService.Compiled first = doseScheduleService.compiled(medication);
+
+        assertSame(first, doseScheduleService.compiled(medication(1L, "twice daily")));
+        assertEquals("daily at [08:00]", doseScheduleService.compiled(medication(1L, "daily")).description());
+    }
+
+    private static Medication medication(Long id, String frequency) {
+        return Medication.builder().medicineid(id).userId(1L).medicine("Med " + id).dosage("1")
+                .frequency(frequency).startDate(LocalDate.of(2024, 1, 1)).build();
+    }
+}
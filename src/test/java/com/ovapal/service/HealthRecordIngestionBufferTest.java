@@ -0,0 +1,161 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HealthRecordIngestionBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Mock
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Mock
+    private OvulationDetector ovulationDetector;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ChangeSequence changeSequence;
+
+    @InjectMocks
+    private HealthRecordIngestionBuffer buffer = new HealthRecordIngestionBuffer(true, 16, 500, Duration.ofMillis(200), Duration.ofMillis(50));
+
+    private final List<HealthRecord> inserted = new ArrayList<>();
+
+    private int lockTimeouts;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<HealthRecord> rows = invocation.getArgument(1);
+                    if (rows.stream().anyMatch(row -> "bad".equals(row.getNotes()))) {
+                        throw new DataIntegrityViolationException("value too long for column notes");
+                    }
+                    if (rows.stream().anyMatch(row -> "locked".equals(row.getNotes())) && lockTimeouts-- > 0) {
+                        throw new CannotAcquireLockException("lock timeout on health_records");
+                    }
+                    inserted.addAll(rows);
+                    return new int[][]{};
+                });
+    }
+
+    @Test
+    void flush_AllRowsValid_InsertsOneBatch() {
+        List<HealthRecord> batch = new ArrayList<>(List.of(record(1L, null), record(2L, null)));
+
+        buffer.flush(batch);
+
+        assertTrue(batch.isEmpty());
+        assertEquals(2, inserted.size());
+        assertEquals(2, buffer.getWrittenCount());
+        assertEquals(0, buffer.getFailedCount());
+    }
+
+    @Test
+    void flush_OneFailingRow_KeepsTheOthers() {
+        HealthRecord first = record(1L, null);
+        HealthRecord bad = record(2L, "bad");
+        HealthRecord last = record(3L, null);
+
+        List<HealthRecord> batch = new ArrayList<>(List.of(first, bad, last));
+
+        buffer.flush(batch);
+
+        assertTrue(batch.isEmpty());
+        assertEquals(List.of(first, last), inserted);
+        assertEquals(2, buffer.getWrittenCount());
+        assertEquals(1, buffer.getFailedCount());
+    }
+
+    @Test
+    void flush_TransientFailure_KeepsRowsForRetry() {
+        lockTimeouts = 1;
+        HealthRecord first = record(1L, null);
+        HealthRecord locked = record(2L, "locked");
+        List<HealthRecord> batch = new ArrayList<>(List.of(first, locked));
+
+        assertThrows(CannotAcquireLockException.class, () -> buffer.flush(batch));
+
+        assertEquals(List.of(first, locked), batch);
+        assertEquals(0, buffer.getWrittenCount());
+        assertEquals(0, buffer.getFailedCount());
+
+        buffer.flush(batch);
+
+        assertTrue(batch.isEmpty());
+        assertEquals(List.of(first, locked), inserted);
+        assertEquals(2, buffer.getWrittenCount());
+        assertEquals(0, buffer.getFailedCount());
+    }
+
+    @Test
+    void flush_TransientFailureWhileRetryingRows_KeepsOnlyUnwrittenRows() {
+        HealthRecord first = record(1L, null);
+        HealthRecord bad = record(2L, "bad");
+        HealthRecord locked = record(3L, "locked");
+        List<HealthRecord> batch = new ArrayList<>(List.of(first, bad, locked));
+        lockTimeouts = 1;
+
+        // The whole batch fails on the bad row, then the row-by-row retry hits a lock timeout
+        assertThrows(CannotAcquireLockException.class, () -> buffer.flush(batch));
+
+        assertEquals(List.of(locked), batch);
+        assertEquals(List.of(first), inserted);
+        assertEquals(1, buffer.getWrittenCount());
+        assertEquals(1, buffer.getFailedCount());
+    }
+
+    private static HealthRecord record(Long userId, String notes) {
+        return HealthRecord.builder()
+                .userId(userId)
+                .recordDate(LocalDate.of(2024, 1, 10))
+                .temperature(36.5)
+                .notes(notes)
+                .build();
+    }
+}
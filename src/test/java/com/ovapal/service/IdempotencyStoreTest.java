@@ -0,0 +1,82 @@
+package com.ovapal.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(2, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void begin_NewKey_ReservesKey() {
+        assertNull(store.begin(1L, "POST /health", "key-1"));
+
+        IdempotencyStore.Entry entry = store.begin(1L, "POST /health", "key-1");
+        assertNotNull(entry);
+        assertFalse(entry.isCompleted());
+    }
+
+    @Test
+    void begin_CompletedKey_ReturnsStoredResponse() {
+        store.begin(1L, "POST /health", "key-1");
+        store.complete(1L, "POST /health", "key-1", "first");
+
+        IdempotencyStore.Entry entry = store.begin(1L, "POST /health", "key-1");
+        assertTrue(entry.isCompleted());
+        assertEquals("first", entry.getResponse());
+    }
+
+    @Test
+    void begin_SameKeyDifferentUser_IsIndependent() {
+        store.begin(1L, "POST /health", "key-1");
+
+        assertNull(store.begin(2L, "POST /health", "key-1"));
+    }
+
+    @Test
+    void begin_SameKeyDifferentEndpoint_IsIndependent() {
+        store.begin(1L, "POST /health", "key-1");
+        store.complete(1L, "POST /health", "key-1", "first");
+
+        assertNull(store.begin(1L, "POST /reminders", "key-1"));
+    }
+
+    @Test
+    void begin_ExpiredKey_ReservesAgain() {
+        store.begin(1L, "POST /health", "key-1");
+        store.complete(1L, "POST /health", "key-1", "first");
+
+        now.addAndGet(10_001L);
+
+        assertNull(store.begin(1L, "POST /health", "key-1"));
+    }
+
+    @Test
+    void begin_OverCapacity_EvictsEldest() {
+        store.begin(1L, "POST /health", "key-1");
+        store.begin(1L, "POST /health", "key-2");
+        store.begin(1L, "POST /health", "key-3");
+
+        assertEquals(2, store.size());
+        assertNull(store.begin(1L, "POST /health", "key-1"));
+    }
+
+    @Test
+    void release_AllowsRetry() {
+        store.begin(1L, "POST /health", "key-1");
+        store.release(1L, "POST /health", "key-1");
+
+        assertNull(store.begin(1L, "POST /health", "key-1"));
+    }
+}
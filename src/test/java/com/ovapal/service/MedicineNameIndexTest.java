@@ -0,0 +1,122 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.MedicineSuggestionBean;
+import com.ovapal.entity.Medication;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.MedicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MedicineNameIndexTest {
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @InjectMocks
+    private MedicineNameIndex medicineNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(medicineNameIndex, "maxLimit", 50);
+        ReflectionTestUtils.setField(medicineNameIndex, "seed", new ByteArrayResource(
+                "# seed\nLetrozole\nLevothyroxine\n\nFolic Acid\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void load_MergesSeedListWithStoredNames() {
+        when(medicationRepository.findMaxId()).thenReturn(4L);
+        when(medicationRepository.countByMedicineUpTo(4L)).thenReturn(List.of(
+                new Object[] {"letrozole ", 3L},
+                new Object[] {"Levonorgestrel", 1L}));
+
+        medicineNameIndex.load();
+
+        assertEquals(4, medicineNameIndex.size());
+        List<MedicineSuggestionBean> suggestions = medicineNameIndex.complete("LE", null);
+        assertEquals(List.of("Letrozole", "Levonorgestrel", "Levothyroxine"),
+                suggestions.stream().map(MedicineSuggestionBean::getName).toList());
+        assertEquals(3L, suggestions.get(0).getUses());
+    }
+
+    @Test
+    void onRecordChange_NewMedication_AddsNameAndCountsUse() {
+        when(medicationRepository.countByMedicineUpTo(anyLong())).thenReturn(List.of());
+        medicineNameIndex.load();
+        when(medicationRepository.findById(7L)).thenReturn(Optional.of(
+                Medication.builder().medicineid(7L).medicine("Myo  Inositol").build()));
+
+        medicineNameIndex.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 7L, ChangeType.CREATED));
+
+        List<MedicineSuggestionBean> suggestions = medicineNameIndex.complete("myo i", 5);
+        assertEquals(1, suggestions.size());
+        assertEquals("Myo Inositol", suggestions.get(0).getName());
+        assertEquals(1L, suggestions.get(0).getUses());
+        verify(medicationRepository, times(1)).countByMedicineUpTo(anyLong());
+    }
+
+    @Test
+    void onRecordChange_RenamedMedication_MovesItsUseToTheNewName() {
+        when(medicationRepository.findMaxId()).thenReturn(1L);
+        when(medicationRepository.countByMedicineUpTo(1L))
+                .thenReturn(List.<Object[]>of(new Object[] {"Letrozol", 1L}))
+                .thenReturn(List.<Object[]>of(new Object[] {"Letrozole", 1L}));
+        medicineNameIndex.load();
+
+        medicineNameIndex.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 1L, ChangeType.UPDATED));
+
+        assertEquals(0L, medicineNameIndex.complete("letrozol", 5).stream()
+                .filter(suggestion -> suggestion.getName().equals("Letrozol"))
+                .findFirst()
+                .map(MedicineSuggestionBean::getUses)
+                .orElse(0L));
+        assertEquals(1L, medicineNameIndex.complete("letrozole", 5).get(0).getUses());
+        verify(medicationRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void onRecordChange_DeletedMedication_DropsItsUse() {
+        when(medicationRepository.findMaxId()).thenReturn(2L);
+        when(medicationRepository.countByMedicineUpTo(2L))
+                .thenReturn(List.<Object[]>of(new Object[] {"Letrozole", 2L}))
+                .thenReturn(List.<Object[]>of(new Object[] {"Letrozole", 1L}));
+        medicineNameIndex.load();
+        assertEquals(2L, medicineNameIndex.complete("letro", 5).get(0).getUses());
+
+        medicineNameIndex.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 2L, ChangeType.DELETED));
+
+        assertEquals(1L, medicineNameIndex.complete("letro", 5).get(0).getUses());
+        // Seeded names stay listed with no uses
+        assertEquals(3, medicineNameIndex.size());
+    }
+
+    @Test
+    void onRecordChange_OtherRecordTypes_Ignored() {
+        medicineNameIndex.onRecordChange(new RecordChangeEvent(1L, RecordType.REMINDER, 7L, ChangeType.CREATED));
+
+        verifyNoInteractions(medicationRepository);
+    }
+
+    @Test
+    void complete_LimitOutOfRange_ThrowsException() {
+        assertThrows(InvalidOperationException.class, () -> medicineNameIndex.complete("le", 0));
+        assertThrows(InvalidOperationException.class, () -> medicineNameIndex.complete("le", 51));
+    }
+}
@@ -0,0 +1,117 @@
+package com.ovapal.service;
+
+import com.ovapal.event.FeedChangeEvent;
+import com.ovapal.event.OutboxMessage;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Runs against an in-memory H2 database shared by two feeds, one per node
+@ExtendWith(MockitoExtension.class)
+class NotificationFeedTest {
+    private static final String CREATE_TABLE = "CREATE TABLE notification_feed (id BIGINT PRIMARY KEY, "
+            + "user_id BIGINT, record_type VARCHAR(255), record_id BIGINT, change_type VARCHAR(255), "
+            + "published_at TIMESTAMP)";
+
+    @Spy
+    private JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:feed-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+
+    @Mock
+    private ChangeEventBroadcaster broadcaster;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private NotificationFeed feed;
+
+    // Another node on the same database
+    @InjectMocks
+    private NotificationFeed otherNode;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        for (NotificationFeed node : List.of(feed, otherNode)) {
+            ReflectionTestUtils.setField(node, "grace", Duration.ofSeconds(5));
+            ReflectionTestUtils.setField(node, "retention", Duration.ofMinutes(1));
+        }
+        feed.poll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void poll_PublishedOnOneNode_PushedOnceByEveryNode() {
+        otherNode.poll();
+        List<OutboxMessage> batch = List.of(message(1L, 10L), message(2L, 11L));
+        feed.publish(batch);
+        // The relay delivers at least once, so the same batch can come again
+        feed.publish(batch);
+
+        assertEquals(2, feed.poll());
+        assertEquals(2, otherNode.poll());
+        assertEquals(0, feed.poll());
+        assertEquals(0, otherNode.poll());
+
+        verify(broadcaster, times(2)).broadcast(new RecordChangeEvent(7L, RecordType.REMINDER, 10L, ChangeType.CREATED));
+        verify(broadcaster, times(2)).broadcast(new RecordChangeEvent(7L, RecordType.REMINDER, 11L, ChangeType.CREATED));
+        // Node-local caches on both nodes hear about each change once
+        verify(eventPublisher, times(2)).publishEvent(
+                new FeedChangeEvent(new RecordChangeEvent(7L, RecordType.REMINDER, 10L, ChangeType.CREATED)));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_feed", Integer.class));
+    }
+
+    @Test
+    void poll_RowsPublishedBeforeStart_AreNotReplayed() {
+        feed.publish(List.of(message(1L, 10L)));
+
+        assertEquals(0, otherNode.poll());
+        assertEquals(0, otherNode.poll());
+        assertEquals(1, feed.poll());
+    }
+
+    @Test
+    void poll_RowsPastRetention_ArePruned() {
+        feed.publish(List.of(message(1L, 10L)));
+        jdbcTemplate.update("UPDATE notification_feed SET published_at = ?", LocalDateTime.now().minusHours(1));
+        ReflectionTestUtils.setField(feed, "nextPrune", LocalDateTime.now().minusHours(1));
+
+        assertEquals(0, feed.poll());
+
+        verify(broadcaster, never()).broadcast(any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_feed", Integer.class));
+    }
+
+    private static OutboxMessage message(long id, long recordId) {
+        return new OutboxMessage(id, 7L, RecordType.REMINDER, recordId, ChangeType.CREATED, LocalDateTime.now(), 0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.ovapal.service;
+
+import com.ovapal.event.InMemoryOutboxSink;
+import com.ovapal.event.OutboxMessage;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+// Runs against an in-memory H2 database, since claiming is done in SQL
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxTest {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxTest.class);
+
+    private static final String CREATE_TABLE = "CREATE TABLE outbox_events (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "user_id BIGINT, record_type VARCHAR(255), record_id BIGINT, change_type VARCHAR(255), "
+            + "created_at TIMESTAMP, claimed_by VARCHAR(255), claimed_until TIMESTAMP, attempts INT)";
+
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    private final TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    @Spy
+    private JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @Spy
+    private InMemoryOutboxSink sink = new InMemoryOutboxSink();
+
+    @InjectMocks
+    private NotificationOutbox outbox;
+
+    // A second relay on the same database
+    @InjectMocks
+    private NotificationOutbox other;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        for (NotificationOutbox relay : List.of(outbox, other)) {
+            ReflectionTestUtils.setField(relay, "enabled", true);
+            ReflectionTestUtils.setField(relay, "batchSize", 100);
+            ReflectionTestUtils.setField(relay, "lease", Duration.ofSeconds(30));
+            ReflectionTestUtils.setField(relay, "retryDelay", Duration.ofMinutes(1));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void onRecordChange_CommitsAndRollsBackWithTheWrite() {
+        transactionTemplate.executeWithoutResult(status ->
+                outbox.onRecordChange(new RecordChangeEvent(1L, RecordType.REMINDER, 5L, ChangeType.CREATED)));
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.onRecordChange(new RecordChangeEvent(1L, RecordType.REMINDER, 6L, ChangeType.CREATED));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1L, outbox.getStats().getPending());
+    }
+
+    @Test
+    void relayPending_PublishesInOrderAndDeletes() {
+        for (long id = 1; id <= 250; id++) {
+            outbox.onRecordChange(new RecordChangeEvent(id % 3, RecordType.HEALTH, id, ChangeType.UPDATED));
+        }
+
+        assertEquals(250, outbox.relayPending());
+
+        List<OutboxMessage> messages = sink.getMessages();
+        assertEquals(250, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(i + 1L, messages.get(i).recordId());
+        }
+        assertEquals(RecordType.HEALTH, messages.get(0).recordType());
+        assertEquals(ChangeType.UPDATED, messages.get(0).changeType());
+        assertEquals(0L, outbox.getStats().getPending());
+        assertEquals(0, outbox.relayPending());
+    }
+
+    @Test
+    void relayBatch_SinkFails_ReleasesForRetryLater() {
+        doThrow(new IllegalStateException("broker down")).when(sink).publish(anyList());
+        outbox.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 7L, ChangeType.DELETED));
+
+        assertEquals(0, outbox.relayPending());
+        // Not claimable again until the retry delay has passed
+        assertEquals(0, outbox.relayPending());
+
+        assertEquals(1L, outbox.getStats().getPending());
+        assertEquals(1L, outbox.getStats().getFailedBatches());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events", Integer.class));
+    }
+
+    @Test
+    void relayPending_ExpiredLeaseOfDeadRelay_IsReclaimed() {
+        outbox.onRecordChange(new RecordChangeEvent(1L, RecordType.PERIOD, 1L, ChangeType.CREATED));
+        outbox.onRecordChange(new RecordChangeEvent(1L, RecordType.PERIOD, 2L, ChangeType.CREATED));
+        jdbcTemplate.update("UPDATE outbox_events SET claimed_by = 'dead', claimed_until = DATEADD(SECOND, -1, NOW()) WHERE record_id = 1");
+        jdbcTemplate.update("UPDATE outbox_events SET claimed_by = 'alive', claimed_until = DATEADD(MINUTE, 1, NOW()) WHERE record_id = 2");
+
+        assertEquals(1, outbox.relayPending());
+        assertEquals(1L, sink.getMessages().get(0).recordId());
+    }
+
+    @Test
+    void relayPending_ConcurrentRelays_PublishEachEventOnce() {
+        int events = 20_000;
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= events; id++) {
+            rows.add(new Object[] {id % 100, "HEALTH", id, "CREATED"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (user_id, record_type, record_id, change_type, "
+                + "created_at, attempts) VALUES (?, ?, ?, ?, NOW(), 0)", rows);
+        for (NotificationOutbox relay : List.of(outbox, other)) {
+            ReflectionTestUtils.setField(relay, "batchSize", 500);
+        }
+
+        long startedAt = System.nanoTime();
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(outbox::relayPending);
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(other::relayPending);
+        long relayed = first.join() + second.join();
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+
+        Set<Long> ids = new HashSet<>();
+        sink.getMessages().forEach(message -> assertTrue(ids.add(message.id())));
+        assertEquals(events, relayed);
+        assertEquals(events, ids.size());
+        assertEquals(0L, outbox.getStats().getPending());
+        logger.info("Relayed {} outbox events with 2 relays in {} ms ({} events/s)",
+                events, elapsedMillis, events * 1000L / elapsedMillis);
+    }
+
+}
@@ -3,21 +3,32 @@ package com.ovapal.service;
 import com.ovapal.bean.*;
 import com.ovapal.entity.*;
 import com.ovapal.exception.AuthenticationException;
+import com.ovapal.exception.BackpressureException;
 import com.ovapal.exception.InvalidOperationException;
 import com.ovapal.exception.ResourceNotFoundException;
 import com.ovapal.repository.*;
+import com.ovapal.util.VitalsWindow;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -45,6 +56,27 @@ public class OvaPalServiceTest {
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Mock
+    private HealthRecordIngestionBuffer healthRecordIngestionBuffer;
+
+    @Mock
+    private WriteBehindLog writeBehindLog;
+
+    @Mock
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Mock
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Mock
+    private OvulationDetector ovulationDetector;
+
+    @Mock
+    private SymptomDictionary symptomDictionary;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private OvaPalService ovaPalService;
 
@@ -194,15 +226,27 @@ public class OvaPalServiceTest {
 
     @Test
     void createUser_Success() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
         when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         UserResponseBean result = ovaPalService.createUser(userRequestBean);
 
         assertNotNull(result);
         assertEquals(1L, result.getUserId());
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void createUser_DuplicateEmail() {
+        when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_users_email"));
+
+        InvalidOperationException exception = assertThrows(InvalidOperationException.class,
+                () -> ovaPalService.createUser(userRequestBean));
+
+        assertEquals("Email is already registered", exception.getMessage());
     }
 
     @Test
@@ -225,6 +269,16 @@ public class OvaPalServiceTest {
         assertThrows(AuthenticationException.class,
                 () -> ovaPalService.loginUser(loginRequestBean));
     }
+
+    @Test
+    void isAdmin_OnlyForAdminRole() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        assertFalse(ovaPalService.isAdmin(1L));
+
+        testUser.setRole(UserRole.ADMIN);
+        assertTrue(ovaPalService.isAdmin(1L));
+        assertFalse(ovaPalService.isAdmin(null));
+    }
     // Health Record Tests
     @Test
     void getHealthRecords_Success() {
@@ -264,6 +318,126 @@ public class OvaPalServiceTest {
         assertEquals(testHealthRecord.getHealthId(), result.getHealthId());
         verify(userRepository).existsById(healthRecordRequestBean.getUserId());
         verify(healthRecordRepository).save(any(HealthRecord.class));
+        verify(vitalsWindowCache).onSaved(testHealthRecord);
+        verify(vitalsAnomalyDetector).detect(any(HealthRecord.class));
+    }
+
+    @Test
+    void updateHealthRecord_UpdatesExistingRowInPlace() {
+        // Stands in for the health_records table: save inserts a row when the entity has no ID
+        Map<Long, HealthRecord> rows = new HashMap<>(Map.of(1L, testHealthRecord));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(healthRecordRepository.findById(1L)).thenReturn(Optional.of(testHealthRecord));
+        when(healthRecordRepository.save(any(HealthRecord.class))).thenAnswer(invocation -> {
+            HealthRecord saved = invocation.getArgument(0);
+            if (saved.getHealthId() == null) {
+                saved.setHealthId(rows.size() + 1L);
+            }
+            rows.put(saved.getHealthId(), saved);
+            return saved;
+        });
+        healthRecordRequestBean.setHealthId(1L);
+        healthRecordRequestBean.setNotes("Updated notes");
+
+        HealthRecordResponseBean result = ovaPalService.updateHealthRecord(1L, healthRecordRequestBean);
+
+        assertEquals(1L, result.getHealthId());
+        assertEquals(1, rows.size());
+        assertEquals("Updated notes", rows.get(1L).getNotes());
+        verify(vitalsAnomalyDetector).score(any(HealthRecord.class));
+    }
+
+    @Test
+    void getHealthAnomalies_ReturnsFlagsAsList() {
+        testHealthRecord.setAnomalyFlags("HEART_RATE_HIGH,TEMPERATURE_HIGH");
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(healthRecordRepository.findByUserIdAndAnomalyFlagsIsNotNullOrderByRecordDateDesc(1L))
+                .thenReturn(List.of(testHealthRecord));
+
+        List<HealthRecordResponseBean> result = ovaPalService.getHealthAnomalies(1L);
+
+        assertEquals(List.of("HEART_RATE_HIGH", "TEMPERATURE_HIGH"), result.get(0).getAnomalyFlags());
+    }
+
+    @Test
+    void getVitalsTrend_Success() {
+        when(vitalsWindowCache.getWindowDays()).thenReturn(90);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(vitalsWindowCache.stats(1L, 30)).thenReturn(Map.of(VitalsWindow.Vital.WEIGHT,
+                new VitalsWindow.Stats(3, 60.5, 60.0, 61.0, 0.4, 0.05, 61.0, 1.2)));
+
+        VitalsTrendResponseBean result = ovaPalService.getVitalsTrend(1L, 30);
+
+        assertEquals(1, result.getVitals().size());
+        assertEquals("WEIGHT", result.getVitals().get(0).getVital());
+        assertEquals(60.5, result.getVitals().get(0).getAverage());
+        assertEquals(LocalDate.now().minusDays(29), result.getFromDate());
+        verify(healthRecordRepository, never()).findByUserId(anyLong());
+    }
+
+    @Test
+    void getVitalsTrend_DaysOutsideWindow_ThrowsException() {
+        when(vitalsWindowCache.getWindowDays()).thenReturn(90);
+
+        assertThrows(InvalidOperationException.class, () -> ovaPalService.getVitalsTrend(1L, 120));
+        verify(vitalsWindowCache, never()).stats(anyLong(), anyInt());
+    }
+
+    @Test
+    void enqueueHealthRecord_Success() {
+        when(healthRecordIngestionBuffer.isEnabled()).thenReturn(true);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(healthRecordIngestionBuffer.offer(any(HealthRecord.class))).thenReturn(true);
+
+        ovaPalService.enqueueHealthRecord(healthRecordRequestBean);
+
+        verify(healthRecordIngestionBuffer).offer(any(HealthRecord.class));
+        verify(healthRecordRepository, never()).save(any(HealthRecord.class));
+    }
+
+    @Test
+    void enqueueHealthRecord_WithWriteAheadLog_AppendsToLog() {
+        when(writeBehindLog.isEnabled()).thenReturn(true);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+
+        ovaPalService.enqueueHealthRecord(healthRecordRequestBean);
+
+        verify(writeBehindLog).append(any(HealthRecord.class));
+        verify(healthRecordIngestionBuffer, never()).offer(any(HealthRecord.class));
+    }
+
+    @Test
+    void enqueuePeriodRecord_WithoutWriteAheadLog_ThrowsException() {
+        assertThrows(InvalidOperationException.class,
+                () -> ovaPalService.enqueuePeriodRecord(periodRecordRequestBean));
+        verify(writeBehindLog, never()).append(any());
+    }
+
+    @Test
+    void enqueueHealthRecord_BufferFull() {
+        when(healthRecordIngestionBuffer.isEnabled()).thenReturn(true);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(healthRecordIngestionBuffer.offer(any(HealthRecord.class))).thenReturn(false);
+
+        assertThrows(BackpressureException.class,
+                () -> ovaPalService.enqueueHealthRecord(healthRecordRequestBean));
+    }
+
+    @Test
+    void streamHealthRecords_ReadsKeysetPages() {
+        ReflectionTestUtils.setField(ovaPalService, "streamPageSize", 2);
+        HealthRecord second = HealthRecord.builder().healthId(5L).userId(1L).build();
+        HealthRecord third = HealthRecord.builder().healthId(9L).userId(1L).build();
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(healthRecordRepository.findPageAfter(1L, Long.MIN_VALUE, PageRequest.of(0, 2)))
+                .thenReturn(List.of(testHealthRecord, second));
+        when(healthRecordRepository.findPageAfter(1L, 5L, PageRequest.of(0, 2))).thenReturn(List.of(third));
+
+        List<HealthRecordResponseBean> streamed = new ArrayList<>();
+        ovaPalService.streamHealthRecords(1L, streamed::add);
+
+        assertEquals(List.of(1L, 5L, 9L), streamed.stream().map(HealthRecordResponseBean::getHealthId).toList());
+        verify(healthRecordRepository, times(2)).findPageAfter(anyLong(), anyLong(), any());
     }
 
     // Period Record Tests
@@ -510,4 +684,25 @@ public class OvaPalServiceTest {
 
         assertEquals("End date cannot be before start date", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void verifyUserExists_InTransaction_ChecksUserOnce() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            ovaPalService.verifyUserExists(1L);
+            ovaPalService.verifyUserExists(1L);
+            verify(userRepository, times(1)).existsById(1L);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ovaPalService.verifyUserExists(1L);
+        verify(userRepository, times(2)).existsById(1L);
+    }
+}
@@ -0,0 +1,129 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.BbtCycleState;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.repository.BbtCycleStateRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OvulationDetectorTest {
+
+    private static final LocalDate CYCLE_START = LocalDate.of(2024, 3, 1);
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private BbtCycleStateRepository bbtCycleStateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private OvulationDetector detector;
+
+    private final AtomicReference<BbtCycleState> stored = new AtomicReference<>();
+    private PeriodRecord cycle;
+
+    @BeforeEach
+    void setUp() {
+        cycle = PeriodRecord.builder().periodrecid(7L).userId(1L).startDate(CYCLE_START).build();
+        lenient().when(periodRecordRepository.findFirstByUserIdAndStartDateLessThanEqualOrderByStartDateDesc(eq(1L), any()))
+                .thenReturn(Optional.of(cycle));
+        lenient().when(bbtCycleStateRepository.findById(7L)).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        lenient().when(bbtCycleStateRepository.save(any(BbtCycleState.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+    }
+
+    @Test
+    void onTemperature_SustainedRise_EstimatesLastLowDay() {
+        double[] temperatures = {36.4, 36.5, 36.3, 36.4, 36.5, 36.4, 36.5, 36.4, 36.6, 36.7, 36.8};
+        for (int day = 0; day < temperatures.length; day++) {
+            detector.onTemperature(1L, CYCLE_START.plusDays(10 + day), temperatures[day]);
+        }
+
+        assertEquals(CYCLE_START.plusDays(17), cycle.getEstimatedOvulationDate());
+        verify(periodRecordRepository).save(cycle);
+        verify(bbtCycleStateRepository).deleteById(7L);
+    }
+
+    @Test
+    void onTemperature_KeepsOnlyRecentDays() {
+        for (int day = 0; day < 20; day++) {
+            detector.onTemperature(1L, CYCLE_START.plusDays(day), 36.4);
+        }
+
+        assertNull(cycle.getEstimatedOvulationDate());
+        assertEquals(9, stored.get().getRecentReadings().split(",").length);
+        assertTrue(stored.get().getRecentReadings().startsWith(CYCLE_START.plusDays(11) + "="));
+    }
+
+    @Test
+    void onTemperature_MissedDay_RestartsWindow() {
+        // Same rise as above, but day 13 is missing, so only eight consecutive days are known
+        double[] temperatures = {36.4, 36.5, 36.3, 36.4, 36.5, 36.4, 36.5, 36.4, 36.6, 36.7, 36.8};
+        for (int day = 0; day < temperatures.length; day++) {
+            if (day != 3) {
+                detector.onTemperature(1L, CYCLE_START.plusDays(10 + day), temperatures[day]);
+            }
+        }
+
+        assertNull(cycle.getEstimatedOvulationDate());
+        assertEquals(7, stored.get().getRecentReadings().split(",").length);
+        assertTrue(stored.get().getRecentReadings().startsWith(CYCLE_START.plusDays(14) + "="));
+    }
+
+    @Test
+    void detect_ThirdDayBelowRequiredRise_ReturnsNull() {
+        List<OvulationDetector.Reading> readings = readings(36.4, 36.5, 36.4, 36.4, 36.5, 36.4, 36.6, 36.6, 36.6);
+
+        assertNull(OvulationDetector.detect(readings));
+    }
+
+    @Test
+    void add_SameDayKeepsLowestAndLateDayIsRejected() {
+        List<OvulationDetector.Reading> readings = readings(36.4, 36.5);
+        LocalDate lastDay = readings.get(1).date();
+
+        assertTrue(OvulationDetector.add(readings, new OvulationDetector.Reading(lastDay, 36.3)));
+        assertFalse(OvulationDetector.add(readings, new OvulationDetector.Reading(lastDay.minusDays(1), 36.0)));
+        assertEquals(36.3, readings.get(1).temperature());
+        assertEquals(2, readings.size());
+    }
+
+    @Test
+    void add_GapOfMoreThanOneDay_DropsEarlierReadings() {
+        List<OvulationDetector.Reading> readings = readings(36.4, 36.5, 36.4);
+        LocalDate afterGap = readings.get(2).date().plusDays(2);
+
+        assertTrue(OvulationDetector.add(readings, new OvulationDetector.Reading(afterGap, 36.6)));
+        assertEquals(List.of(new OvulationDetector.Reading(afterGap, 36.6)), readings);
+    }
+
+    private static List<OvulationDetector.Reading> readings(double... temperatures) {
+        List<OvulationDetector.Reading> readings = new ArrayList<>();
+        for (int day = 0; day < temperatures.length; day++) {
+            readings.add(new OvulationDetector.Reading(CYCLE_START.plusDays(day), temperatures[day]));
+        }
+        return readings;
+    }
+}
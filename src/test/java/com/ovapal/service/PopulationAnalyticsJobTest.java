@@ -0,0 +1,123 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.PopulationCycleStat;
+import com.ovapal.repository.PopulationCycleStatRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PopulationAnalyticsJobTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PopulationCycleStatRepository populationCycleStatRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Spy
+    @InjectMocks
+    private PopulationAnalyticsJob job = new PopulationAnalyticsJob(2);
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(job, "chunkUsers", 2L);
+        ReflectionTestUtils.setField(job, "minUsersPerBucket", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    void addUser_CountsPlausibleCyclesAndPeriods() {
+        PopulationAnalyticsJob.Aggregates aggregates = new PopulationAnalyticsJob.Aggregates();
+
+        aggregates.addUser(27, dates("2024-01-03", "2024-01-31", "2024-04-30", "2024-05-28"),
+                dates("2024-01-07", "2024-02-04", null, "2024-07-01"));
+
+        PopulationAnalyticsJob.Bucket overall = aggregates.get("OVERALL", "all");
+        assertEquals(1, overall.users);
+        assertEquals(2, overall.cycles);         // the 90-day gap is skipped
+        assertEquals(56, overall.cycleDaysSum);
+        assertEquals(2, overall.periods);        // open and overlong periods are skipped
+        assertEquals(1, aggregates.get("AGE", "25-29").users);
+        assertEquals(1, aggregates.get("START_MONTH", "01").users);
+        assertEquals(1, aggregates.get("START_MONTH", "01").cycles);
+        assertNull(aggregates.get("START_MONTH", "02"));
+    }
+
+    @Test
+    void ageBucket_GroupsByFiveYears() {
+        assertEquals("unknown", PopulationAnalyticsJob.ageBucket(null));
+        assertEquals("under 20", PopulationAnalyticsJob.ageBucket(17));
+        assertEquals("30-34", PopulationAnalyticsJob.ageBucket(34));
+        assertEquals("45+", PopulationAnalyticsJob.ageBucket(51));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_MergesRangesAndSuppressesSmallBuckets() {
+        when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class))).thenReturn(new Long[] {1L, 6L});
+        doAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            PopulationAnalyticsJob.Aggregates partial = new PopulationAnalyticsJob.Aggregates();
+            for (long userId = from; userId < (long) invocation.getArgument(1); userId++) {
+                // Users 1-5 are in their twenties, user 6 is the only one over 45
+                partial.addUser(userId == 6 ? 50 : 22, dates("2024-03-01", "2024-03-" + (27 + userId % 3)),
+                        dates("2024-03-05", null));
+            }
+            return partial;
+        }).when(job).scan(anyLong(), anyLong());
+
+        job.run();
+
+        verify(job, times(4)).scan(anyLong(), anyLong());
+        ArgumentCaptor<List<PopulationCycleStat>> saved = ArgumentCaptor.forClass(List.class);
+        verify(populationCycleStatRepository).deleteAllInBatch();
+        verify(populationCycleStatRepository).saveAll(saved.capture());
+
+        List<String> buckets = saved.getValue().stream().map(stat -> stat.getDimension() + ":" + stat.getBucket()).toList();
+        assertEquals(List.of("AGE:20-24", "OVERALL:all", "START_MONTH:03"), buckets);
+        PopulationCycleStat overall = saved.getValue().get(1);
+        assertEquals(6, overall.getUsers());
+        assertEquals(6, overall.getCycles());
+        assertEquals(27, overall.getCycleLengthMedian(), 1);
+        assertEquals(5.0, overall.getMeanPeriodDays());
+    }
+
+    private static List<LocalDate> dates(String... values) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (String value : values) {
+            dates.add(value != null ? LocalDate.parse(value) : null);
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,344 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.bean.DueReminderBean;
+import com.ovapal.entity.Reminder;
+import com.ovapal.repository.ReminderRepository;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Stored deliveries go to an in-memory H2 database
+@ExtendWith(MockitoExtension.class)
+class ReminderPushDispatcherTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2024, 3, 4, 9, 0);
+    private static final String CREATE_TABLE = "CREATE TABLE reminder_deliveries (id VARCHAR(36) PRIMARY KEY, "
+            + "user_id BIGINT, due_at TIMESTAMP, created_at TIMESTAMP, expires_at TIMESTAMP, late BOOLEAN, "
+            + "reminders CLOB, stored_at TIMESTAMP)";
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private ReminderShardManager shardManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:deliveries-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+
+    @InjectMocks
+    private ReminderPushDispatcher dispatcher;
+
+    // The same node after a restart
+    @InjectMocks
+    private ReminderPushDispatcher restarted;
+
+    // Another node on the same database
+    @InjectMocks
+    private ReminderPushDispatcher otherNode;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        lenient().when(shardManager.owns(anyLong(), any())).thenReturn(true);
+        lenient().when(shardManager.getOwnedShards()).thenReturn(Set.of(0));
+        for (ReminderPushDispatcher node : List.of(dispatcher, restarted, otherNode)) {
+            ReflectionTestUtils.setField(node, "bufferSize", 4);
+            ReflectionTestUtils.setField(node, "maxConnections", 3);
+            ReflectionTestUtils.setField(node, "maxPerUser", 2);
+            ReflectionTestUtils.setField(node, "ackTimeout", Duration.ofSeconds(30));
+            ReflectionTestUtils.setField(node, "maxAttempts", 3);
+            ReflectionTestUtils.setField(node, "deliveryTtl", Duration.ofMinutes(15));
+            ReflectionTestUtils.setField(node, "storedTtl", Duration.ofDays(7));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void dispatchMinute_GroupsAUsersRemindersIntoOneDelivery() throws Exception {
+        List<String> sent = new ArrayList<>();
+        dispatcher.register(1L, session(sent, true));
+        when(reminderRepository.findActiveAtTime(eq(NINE.toLocalDate()), eq(LocalTime.of(9, 0)), any()))
+                .thenReturn(List.of(
+                        reminder(10L, 1L, NINE.toLocalDate(), null),
+                        reminder(11L, 1L, LocalDate.of(2024, 1, 1), "DAILY"),
+                        reminder(12L, 1L, LocalDate.of(2024, 1, 2), "WEEKLY"),
+                        reminder(13L, 2L, NINE.toLocalDate(), null)));
+
+        dispatch(dispatcher, NINE);
+
+        assertEquals(1, sent.size());
+        JsonNode message = objectMapper.readTree(sent.get(0));
+        assertEquals("reminders", message.get("type").asText());
+        assertEquals(1, message.get("attempt").asInt());
+        // The weekly reminder falls on Tuesdays and user 2 is not connected
+        assertEquals(2, message.get("reminders").size());
+        assertEquals(10L, message.get("reminders").get(0).get("reminderId").asLong());
+        assertEquals(11L, message.get("reminders").get(1).get("reminderId").asLong());
+        assertEquals(1, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void dispatchMinute_NoShardsHeld_DoesNotQuery() {
+        when(shardManager.getOwnedShards()).thenReturn(Set.of());
+
+        dispatcher.dispatchMinute(NINE, NINE);
+
+        verifyNoInteractions(reminderRepository);
+    }
+
+    @Test
+    void dispatchMinute_SkipsUsersInShardsHeldElsewhere() {
+        List<String> sent = new ArrayList<>();
+        dispatcher.register(1L, session(sent, true));
+        when(shardManager.owns(1L, NINE)).thenReturn(false);
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+
+        dispatch(dispatcher, NINE);
+
+        assertTrue(sent.isEmpty());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void acknowledge_SettlesDeliveryForItsUserOnly() throws Exception {
+        List<String> sent = new ArrayList<>();
+        dispatcher.register(1L, session(sent, true));
+        dispatcher.register(2L, session(new ArrayList<>(), true));
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+        dispatch(dispatcher, NINE);
+        String deliveryId = objectMapper.readTree(sent.get(0)).get("deliveryId").asText();
+        String ack = "{\"type\":\"ack\",\"deliveryId\":\"" + deliveryId + "\"}";
+
+        assertFalse(dispatcher.acknowledge(2L, ack));
+        assertFalse(dispatcher.acknowledge(1L, "not json"));
+        assertTrue(dispatcher.acknowledge(1L, ack));
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void retryPending_ResendsWithBackoffThenGivesUp() throws Exception {
+        List<String> sent = new ArrayList<>();
+        dispatcher.register(1L, session(sent, true));
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+        dispatch(dispatcher, NINE);
+
+        dispatcher.retryPending(NINE.plusSeconds(29));
+        assertEquals(1, sent.size());
+        dispatcher.retryPending(NINE.plusSeconds(30));
+        assertEquals(2, sent.size());
+        assertEquals(2, objectMapper.readTree(sent.get(1)).get("attempt").asInt());
+        // Second retry waits twice as long
+        dispatcher.retryPending(NINE.plusSeconds(89));
+        assertEquals(2, sent.size());
+        dispatcher.retryPending(NINE.plusSeconds(90));
+        assertEquals(3, sent.size());
+
+        dispatcher.retryPending(NINE.plusSeconds(210));
+        assertEquals(3, sent.size());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void register_ResendsPendingDeliveriesOnReconnect() {
+        Session first = session(new ArrayList<>(), true);
+        dispatcher.register(1L, first);
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+        dispatch(dispatcher, NINE);
+        dispatcher.unregister(1L, first);
+
+        List<String> sent = new ArrayList<>();
+        dispatcher.register(1L, session(sent, true));
+
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void enqueueMissed_UserOffline_StoredUntilAcknowledgedAcrossRestart() throws Exception {
+        List<DueReminderBean> missed = List.of(DueReminderBean.builder().reminderId(10L).missedOccurrences(3).build());
+        LocalDateTime now = LocalDateTime.now();
+        dispatcher.enqueueMissed(1L, NINE, missed, now);
+        assertEquals(0, dispatcher.getPendingCount());
+
+        // Restarted, then past delivery-ttl
+        List<String> sent = new ArrayList<>();
+        restarted.register(1L, session(sent, true));
+        restarted.retryPending(now.plusHours(1));
+
+        assertEquals(2, sent.size());
+        JsonNode message = objectMapper.readTree(sent.get(0));
+        assertTrue(message.get("late").asBoolean());
+        assertEquals(3, message.get("reminders").get(0).get("missedOccurrences").asInt());
+        assertTrue(restarted.acknowledge(1L, "{\"type\":\"ack\",\"deliveryId\":\"" + message.get("deliveryId").asText() + "\"}"));
+        assertEquals(0, restarted.getPendingCount());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_deliveries", Integer.class));
+    }
+
+    @Test
+    void acknowledge_StoredDeliveryNotHeldHere_IsSettled() throws Exception {
+        List<String> sent = new ArrayList<>();
+        Session session = session(sent, true);
+        dispatcher.register(1L, session);
+        dispatcher.enqueueMissed(1L, NINE, List.of(DueReminderBean.builder().reminderId(10L).build()), LocalDateTime.now());
+        dispatcher.pollStored(LocalDateTime.now());
+        String deliveryId = objectMapper.readTree(sent.get(0)).get("deliveryId").asText();
+
+        assertTrue(restarted.acknowledge(1L, "{\"type\":\"ack\",\"deliveryId\":\"" + deliveryId + "\"}"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_deliveries", Integer.class));
+    }
+
+    @Test
+    void pollStored_UserConnectedToAnotherNode_GetsTheOwnersDelivery() throws Exception {
+        // The user's shard is held here but the socket is open on a node holding no shards
+        List<String> sent = new ArrayList<>();
+        otherNode.register(1L, session(sent, true));
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+
+        dispatch(dispatcher, NINE);
+        // Both nodes share the mock, so from here on it answers for the node holding no shards
+        when(shardManager.getOwnedShards()).thenReturn(Set.of());
+        dispatch(otherNode, NINE);
+        dispatch(otherNode, NINE);
+
+        assertEquals(1, sent.size());
+        verify(reminderRepository).findActiveAtTime(any(), any(), any());
+        assertEquals(0, dispatcher.getPendingCount());
+        String deliveryId = objectMapper.readTree(sent.get(0)).get("deliveryId").asText();
+        assertTrue(otherNode.acknowledge(1L, "{\"type\":\"ack\",\"deliveryId\":\"" + deliveryId + "\"}"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_deliveries", Integer.class));
+    }
+
+    @Test
+    void retryPending_AcknowledgedOnAnotherNode_IsNotResent() throws Exception {
+        List<String> phone = new ArrayList<>();
+        List<String> tablet = new ArrayList<>();
+        dispatcher.register(1L, session(phone, true));
+        otherNode.register(1L, session(tablet, true));
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+        dispatch(dispatcher, NINE);
+        otherNode.pollStored(NINE);
+        assertEquals(1, phone.size());
+        assertEquals(1, tablet.size());
+
+        String deliveryId = objectMapper.readTree(phone.get(0)).get("deliveryId").asText();
+        assertTrue(dispatcher.acknowledge(1L, "{\"type\":\"ack\",\"deliveryId\":\"" + deliveryId + "\"}"));
+        otherNode.retryPending(NINE.plusSeconds(30));
+
+        assertEquals(1, tablet.size());
+        assertEquals(0, otherNode.getPendingCount());
+    }
+
+    @Test
+    void register_OverLimits_ReturnsFalse() {
+        assertTrue(dispatcher.register(1L, session(new ArrayList<>(), true)));
+        assertTrue(dispatcher.register(1L, session(new ArrayList<>(), true)));
+        assertFalse(dispatcher.register(1L, session(new ArrayList<>(), true)));
+        assertTrue(dispatcher.register(2L, session(new ArrayList<>(), true)));
+        assertFalse(dispatcher.register(3L, session(new ArrayList<>(), true)));
+        assertEquals(3, dispatcher.getConnectionCount());
+    }
+
+    @Test
+    void dispatchMinute_SlowSocket_IsClosed() throws Exception {
+        // Sends never complete, so messages pile up in the outbox
+        Session slow = session(new ArrayList<>(), false);
+        dispatcher.register(1L, slow);
+        when(reminderRepository.findActiveAtTime(any(), any(), any()))
+                .thenReturn(List.of(reminder(10L, 1L, NINE.toLocalDate(), null)));
+
+        for (int minute = 0; minute < 6; minute++) {
+            dispatch(dispatcher, NINE.plusMinutes(minute));
+        }
+
+        verify(slow).close(any(CloseReason.class));
+        assertEquals(0, dispatcher.getConnectionCount());
+    }
+
+    @Test
+    void tick_CatchesUpMissedMinutesWithinLimit() {
+        dispatcher.register(1L, session(new ArrayList<>(), true));
+        ReflectionTestUtils.setField(dispatcher, "lastMinute", NINE);
+
+        dispatcher.tick(NINE.plusMinutes(20).plusSeconds(5));
+
+        verify(reminderRepository, times(ReminderPushDispatcher.MAX_CATCH_UP_MINUTES))
+                .findActiveAtTime(any(), any(), any());
+        verify(reminderRepository).findActiveAtTime(NINE.toLocalDate(), LocalTime.of(9, 20),
+                LocalTime.of(9, 20, 59, 999_999_999));
+        verify(shardManager).markDispatched(NINE.plusMinutes(20));
+    }
+
+    // What tick() does for one minute on a node
+    private static void dispatch(ReminderPushDispatcher node, LocalDateTime minute) {
+        node.dispatchMinute(minute, minute);
+        node.pollStored(minute);
+    }
+
+    private static Session session(List<String> sent, boolean completeSends) {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        lenient().when(session.getAsyncRemote()).thenReturn(remote);
+        lenient().doAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            if (completeSends) {
+                invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+            }
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+        return session;
+    }
+
+    private static Reminder reminder(Long id, Long userId, LocalDate date, String repeat) {
+        return Reminder.builder()
+                .reminderid(id)
+                .userId(userId)
+                .title("Reminder " + id)
+                .reminderDate(date)
+                .reminderTime(LocalTime.of(9, 0))
+                .isRepeating(repeat != null)
+                .repeatFrequency(repeat)
+                .isActive(true)
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.DueReminderBean;
+import com.ovapal.entity.MissedReminderPolicy;
+import com.ovapal.entity.Reminder;
+import com.ovapal.event.ShardsAcquiredEvent;
+import com.ovapal.repository.ReminderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReminderRecoveryServiceTest {
+
+    // Down from 08:00 to 11:30 on a Monday
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 4, 8, 0);
+    private static final LocalDateTime THROUGH = LocalDateTime.of(2024, 3, 4, 11, 30);
+    private static final LocalDateTime NOW = THROUGH.plusSeconds(40);
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private ReminderPushDispatcher dispatcher;
+
+    @Mock
+    private ReminderShardManager shardManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private ReminderRecoveryService service;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "chunkSize", 3);
+        ReflectionTestUtils.setField(service, "maxLookback", Duration.ofHours(24));
+        ReflectionTestUtils.setField(service, "timeBudget", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void missedOccurrences_OnlyWithinTheDownWindow() {
+        Reminder hourly = reminder(1L, 1L, LocalDate.of(2024, 3, 1), LocalTime.of(9, 15), "DAILY", null);
+        Reminder atCheckpoint = reminder(2L, 1L, FROM.toLocalDate(), LocalTime.of(8, 0), null, null);
+        Reminder afterRestart = reminder(3L, 1L, FROM.toLocalDate(), LocalTime.of(11, 31), null, null);
+
+        assertEquals(List.of(FROM.withHour(9).withMinute(15)),
+                ReminderRecoveryService.missedOccurrences(hourly, FROM, THROUGH));
+        assertTrue(ReminderRecoveryService.missedOccurrences(atCheckpoint, FROM, THROUGH).isEmpty());
+        assertTrue(ReminderRecoveryService.missedOccurrences(afterRestart, FROM, THROUGH).isEmpty());
+    }
+
+    @Test
+    void processChunk_AppliesPolicyPerReminder() {
+        // Down for three days, so the daily reminders missed three occurrences
+        LocalDateTime from = FROM.minusDays(2);
+        List<Reminder> chunk = List.of(
+                reminder(1L, 1L, LocalDate.of(2024, 3, 1), LocalTime.of(9, 0), "DAILY", null),
+                reminder(2L, 1L, LocalDate.of(2024, 3, 1), LocalTime.of(9, 0), "DAILY", MissedReminderPolicy.FIRE_LATE),
+                reminder(3L, 1L, LocalDate.of(2024, 3, 1), LocalTime.of(9, 0), "DAILY", MissedReminderPolicy.SKIP),
+                reminder(4L, 2L, FROM.toLocalDate(), LocalTime.of(10, 0), null, null));
+
+        int deliveries = service.processChunk(chunk, Map.of(0, from), THROUGH, NOW);
+
+        ArgumentCaptor<LocalDateTime> dueAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DueReminderBean>> reminders = ArgumentCaptor.forClass(List.class);
+        verify(dispatcher, times(3)).enqueueMissed(eq(1L), dueAt.capture(), reminders.capture(), eq(NOW));
+        assertEquals(List.of(from.withHour(9), from.plusDays(1).withHour(9), FROM.withHour(9)), dueAt.getAllValues());
+        // The repeating reminder is collapsed into the latest occurrence, grouped with the late one
+        assertEquals(List.of(2L), reminders.getAllValues().get(0).stream().map(DueReminderBean::getReminderId).toList());
+        List<DueReminderBean> latest = reminders.getAllValues().get(2);
+        assertEquals(List.of(1L, 2L), latest.stream().map(DueReminderBean::getReminderId).toList());
+        assertEquals(3, latest.get(0).getMissedOccurrences());
+        verify(dispatcher).enqueueMissed(eq(2L), eq(FROM.withHour(10)), anyList(), eq(NOW));
+        assertEquals(4, deliveries);
+    }
+
+    @Test
+    void recover_ProcessesAllChunksWithoutSplittingUsers() {
+        // Each user has a one-off and a repeating reminder, read by separate queries
+        List<Reminder> oneOff = new ArrayList<>();
+        List<Reminder> repeating = new ArrayList<>();
+        LongStream.rangeClosed(1, 10).forEach(userId -> {
+            oneOff.add(reminder(userId * 2 - 1, userId, FROM.toLocalDate(), LocalTime.of(10, 0), null, null));
+            repeating.add(reminder(userId * 2, userId, LocalDate.of(2024, 1, 1), LocalTime.of(10, 0), "DAILY", null));
+        });
+        when(reminderRepository.streamActiveOneOffBetween(FROM.toLocalDate(), THROUGH.toLocalDate()))
+                .thenReturn(oneOff.stream());
+        when(reminderRepository.streamActiveRepeatingStartedBy(THROUGH.toLocalDate())).thenReturn(repeating.stream());
+
+        assertEquals(10, service.recover(Map.of(0, FROM), THROUGH, NOW));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DueReminderBean>> delivered = ArgumentCaptor.forClass(List.class);
+        verify(dispatcher, times(10)).enqueueMissed(anyLong(), eq(FROM.withHour(10)), delivered.capture(), eq(NOW));
+        delivered.getAllValues().forEach(list -> assertEquals(2, list.size()));
+    }
+
+    @Test
+    void recover_OnlyRemindersOfTheAcquiredShards() {
+        when(shardManager.shardOf(anyLong())).thenAnswer(invocation -> (int) (invocation.<Long>getArgument(0) % 2));
+        List<Reminder> reminders = new ArrayList<>();
+        LongStream.rangeClosed(1, 10).forEach(id ->
+                reminders.add(reminder(id, id, FROM.toLocalDate(), LocalTime.of(10, 0), null, null)));
+        when(reminderRepository.streamActiveOneOffBetween(any(), any())).thenReturn(reminders.stream());
+
+        assertEquals(5, service.recover(Map.of(1, FROM), THROUGH, NOW));
+
+        verify(dispatcher, never()).enqueueMissed(eq(2L), any(), anyList(), any());
+        verify(dispatcher).enqueueMissed(eq(1L), any(), anyList(), any());
+    }
+
+    @Test
+    void byUser_MergesInUserAndIdOrder() {
+        List<Reminder> first = List.of(reminder(1L, 1L, null, null, null, null), reminder(5L, 3L, null, null, null, null));
+        List<Reminder> second = List.of(reminder(2L, 1L, null, null, "DAILY", null), reminder(3L, 2L, null, null, "DAILY", null),
+                reminder(4L, 4L, null, null, "DAILY", null));
+
+        List<Long> merged = new ArrayList<>();
+        ReminderRecoveryService.byUser(first.iterator(), second.iterator())
+                .forEachRemaining(reminder -> merged.add(reminder.getReminderid()));
+
+        assertEquals(List.of(1L, 2L, 3L, 5L, 4L), merged);
+    }
+
+    @Test
+    void onShardsAcquired_NoCheckpoint_FinishesWithoutQuerying() {
+        service.onShardsAcquired(new ShardsAcquiredEvent(Collections.singletonMap(0, null), THROUGH));
+
+        verify(shardManager).recoveryFinished(Set.of(0), THROUGH);
+        verifyNoInteractions(reminderRepository);
+        assertTrue(service.isComplete());
+    }
+
+    @Test
+    void start_OverTimeBudget_ReturnsAndFinishesInBackground() {
+        ReflectionTestUtils.setField(service, "timeBudget", Duration.ofMillis(100));
+        when(reminderRepository.streamActiveOneOffBetween(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return Stream.<Reminder>empty();
+        });
+        service.onShardsAcquired(new ShardsAcquiredEvent(Map.of(0, THROUGH.minusHours(2)), THROUGH));
+
+        service.start();
+
+        assertFalse(service.isComplete());
+        verify(shardManager, never()).recoveryFinished(any(), any());
+        verify(shardManager, timeout(2000)).recoveryFinished(Set.of(0), THROUGH);
+        assertTrue(service.isComplete());
+    }
+
+    private static Reminder reminder(Long id, Long userId, LocalDate date, LocalTime time, String repeat,
+                                     MissedReminderPolicy policy) {
+        return Reminder.builder()
+                .reminderid(id)
+                .userId(userId)
+                .title("Reminder " + id)
+                .reminderDate(date)
+                .reminderTime(time)
+                .isRepeating(repeat != null)
+                .repeatFrequency(repeat)
+                .isActive(true)
+                .missedPolicy(policy)
+                .build();
+    }
+}
@@ -0,0 +1,233 @@
+package com.ovapal.service;
+
+import com.ovapal.event.ShardsAcquiredEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Several nodes in one JVM sharing an H2 file database
+@ExtendWith(MockitoExtension.class)
+class ReminderShardManagerTest {
+
+    private static final int SHARDS = 16;
+    private static final LocalDateTime T = LocalDateTime.of(2024, 3, 4, 9, 0, 20);
+
+    @TempDir
+    static Path root;
+
+    private final String url = "jdbc:h2:file:" + root.resolve(UUID.randomUUID().toString()) + ";DB_CLOSE_DELAY=-1";
+
+    @Spy
+    private JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url));
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ReminderShardManager a;
+
+    @InjectMocks
+    private ReminderShardManager b;
+
+    @InjectMocks
+    private ReminderShardManager c;
+
+    @InjectMocks
+    private ReminderShardManager d;
+
+    @InjectMocks
+    private ReminderShardManager e;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE reminder_shard_leases (shard INT PRIMARY KEY, owner VARCHAR(255), "
+                + "lease_until TIMESTAMP, dispatched_through TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE reminder_nodes (node_id VARCHAR(255) PRIMARY KEY, heartbeat_at TIMESTAMP)");
+        Map<String, ReminderShardManager> nodes = Map.of("a", a, "b", b, "c", c, "d", d, "e", e);
+        nodes.forEach((nodeId, node) -> {
+            ReflectionTestUtils.setField(node, "shardCount", SHARDS);
+            ReflectionTestUtils.setField(node, "lease", Duration.ofSeconds(30));
+            ReflectionTestUtils.setField(node, "nodeId", nodeId);
+        });
+        a.seed();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void shardOf_SpreadsUsersEvenly() {
+        int[] counts = new int[SHARDS];
+        for (long userId = 1; userId <= 16_000; userId++) {
+            counts[ReminderShardManager.shardOf(userId, SHARDS)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "shard size " + count);
+        }
+    }
+
+    @Test
+    void rebalance_SingleNode_TakesAllShards() {
+        a.rebalance(T);
+
+        assertEquals(SHARDS, a.getOwnedShards().size());
+        List<ShardsAcquiredEvent> events = published();
+        assertEquals(1, events.size());
+        assertEquals(T.withSecond(0), events.get(0).through());
+        assertEquals(SHARDS, events.get(0).checkpoints().size());
+    }
+
+    @Test
+    void rebalance_NodeJoins_ShardsSplitEvenly() {
+        a.rebalance(T);
+
+        // All shards are still leased to a, which gives half up on its next renewal
+        b.rebalance(T.plusSeconds(1));
+        assertTrue(b.getOwnedShards().isEmpty());
+        a.rebalance(T.plusSeconds(10));
+        b.rebalance(T.plusSeconds(11));
+
+        assertEquals(8, a.getOwnedShards().size());
+        assertEquals(8, b.getOwnedShards().size());
+        assertPartitioned(List.of(a, b));
+    }
+
+    @Test
+    void leave_OtherNodesTakeOverRightAway() {
+        List<ReminderShardManager> nodes = List.of(a, b, c);
+        for (int round = 0; round < 3; round++) {
+            LocalDateTime now = T.plusSeconds(10L * round);
+            nodes.forEach(node -> node.rebalance(now));
+        }
+        assertPartitioned(nodes);
+        Set<Integer> fromC = c.getOwnedShards();
+        clearInvocations(eventPublisher);
+
+        c.leave();
+        a.rebalance(T.plusSeconds(31));
+        b.rebalance(T.plusSeconds(31));
+
+        assertEquals(8, a.getOwnedShards().size());
+        assertEquals(8, b.getOwnedShards().size());
+        assertPartitioned(List.of(a, b));
+        assertTrue(c.getOwnedShards().isEmpty());
+        Set<Integer> takenOver = new HashSet<>();
+        published().forEach(event -> takenOver.addAll(event.checkpoints().keySet()));
+        assertTrue(takenOver.containsAll(fromC));
+    }
+
+    @Test
+    void rebalance_DeadNode_ShardsTakenOnceLeaseExpires() {
+        a.rebalance(T);
+        b.rebalance(T);
+        a.rebalance(T.plusSeconds(1));
+        b.rebalance(T.plusSeconds(1));
+        Set<Integer> fromB = b.getOwnedShards();
+        b.recoveryFinished(fromB, T.withSecond(0));
+        assertEquals(8, fromB.size());
+        clearInvocations(eventPublisher);
+
+        // b stops renewing; its leases run until T + 31s
+        a.rebalance(T.plusSeconds(20));
+        assertEquals(8, a.getOwnedShards().size());
+        a.rebalance(T.plusSeconds(32));
+
+        assertEquals(SHARDS, a.getOwnedShards().size());
+        ShardsAcquiredEvent event = published().get(0);
+        assertEquals(fromB, event.checkpoints().keySet());
+        // The new owner recovers from where b left off
+        event.checkpoints().values().forEach(checkpoint -> assertEquals(T.withSecond(0), checkpoint));
+    }
+
+    @Test
+    void rebalance_ConcurrentNodes_NeverShareAShard() {
+        List<ReminderShardManager> nodes = List.of(a, b, c, d, e);
+        for (int round = 0; round < 4; round++) {
+            LocalDateTime now = T.plusSeconds(10L * round);
+            nodes.stream()
+                    .map(node -> CompletableFuture.runAsync(() -> node.rebalance(now)))
+                    .toList()
+                    .forEach(CompletableFuture::join);
+            assertDisjoint(nodes);
+        }
+        assertPartitioned(nodes);
+        // ceil(16 / 5) = 4 at most per node
+        nodes.forEach(node -> assertTrue(node.getOwnedShards().size() <= 4));
+    }
+
+    @Test
+    void owns_ShardTakenThisMinute_FromTheNextMinute() {
+        a.rebalance(T);
+
+        assertFalse(a.owns(7L, T.withSecond(0)));
+        assertTrue(a.owns(7L, T.withSecond(0).plusMinutes(1)));
+    }
+
+    @Test
+    void markDispatched_HeldBackUntilRecoveryFinishes() {
+        a.rebalance(T);
+        LocalDateTime next = T.withSecond(0).plusMinutes(1);
+
+        a.markDispatched(next);
+        assertEquals(0, checkpointed(jdbcTemplate, next));
+
+        a.recoveryFinished(a.getOwnedShards(), T.withSecond(0));
+        assertEquals(SHARDS, checkpointed(jdbcTemplate, next));
+        a.markDispatched(next.plusMinutes(1));
+        assertEquals(SHARDS, checkpointed(jdbcTemplate, next.plusMinutes(1)));
+    }
+
+    private List<ShardsAcquiredEvent> published() {
+        ArgumentCaptor<ShardsAcquiredEvent> events = ArgumentCaptor.forClass(ShardsAcquiredEvent.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        return events.getAllValues();
+    }
+
+    private static void assertDisjoint(List<ReminderShardManager> nodes) {
+        Set<Integer> seen = new HashSet<>();
+        for (ReminderShardManager node : nodes) {
+            for (Integer shard : node.getOwnedShards()) {
+                assertTrue(seen.add(shard), "shard " + shard + " held twice");
+            }
+        }
+    }
+
+    private static void assertPartitioned(List<ReminderShardManager> nodes) {
+        assertDisjoint(nodes);
+        Set<Integer> all = new HashSet<>();
+        nodes.forEach(node -> all.addAll(node.getOwnedShards()));
+        assertEquals(SHARDS, all.size());
+    }
+
+    private static int checkpointed(JdbcTemplate jdbcTemplate, LocalDateTime through) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_shard_leases WHERE dispatched_through = ?",
+                Integer.class, Timestamp.valueOf(through));
+    }
+}
@@ -0,0 +1,186 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.User;
+import com.ovapal.exception.BackpressureException;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 6, 30);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private ReportService reportService = new ReportService(1);
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(reportService, "maxRangeYears", 10);
+
+        User user = new User();
+        user.setUserid(1L);
+        user.setName("Asha");
+        user.setAge(31);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void writeTo_Csv_WritesAllSectionsAndSummaries() throws Exception {
+        when(healthRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.of(
+                health("2024-01-05", 60.0, 120, 80),
+                health("2024-03-05", 58.5, 110, 70)));
+        when(periodRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.of(
+                period("2024-01-10", "2024-01-14"),
+                period("2024-02-07", "2024-02-11"),
+                period("2024-03-08", null)));
+        when(medicationRepository.findOverlapping(1L, FROM, TO)).thenReturn(List.of(
+                Medication.builder().medicine("Iron").dosage("65 mg").frequency("daily").startDate(FROM).build()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.prepare(1L, FROM, TO).writeTo(out, ReportService.Format.CSV);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains("Patient: Asha, age 31"));
+        assertTrue(csv.contains("2024-01-05,60.0,,,120/80,"));
+        assertTrue(csv.contains("Weight (kg),2,58.5,60.0,59.3,60.0,58.5,-1.5"));
+        assertTrue(csv.contains("Heart rate,0,,,,,,"));
+        assertTrue(csv.contains("2024-02-07,2024-02-11,5,28,"));
+        assertTrue(csv.contains("2024-03-08,,,30,"));
+        assertTrue(csv.contains("Average cycle length: 29.0 days over 2 cycles"));
+        assertTrue(csv.contains("Iron,65 mg,daily,2024-01-01,ongoing,"));
+        verify(entityManager, times(5)).detach(any());
+    }
+
+    @Test
+    void writeTo_Pdf_WritesDocument() throws Exception {
+        when(healthRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.empty());
+        when(periodRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.prepare(1L, FROM, TO).writeTo(out, ReportService.Format.PDF);
+
+        String pdf = out.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertTrue(pdf.contains("(Cycle history) Tj"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+    }
+
+    @Test
+    void prepare_LimitReached_ThrowsBackpressureUntilReportWritten() throws Exception {
+        when(healthRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.empty());
+        when(periodRecordRepository.streamByUserIdBetween(1L, FROM, TO)).thenReturn(Stream.empty());
+
+        ReportService.Report report = reportService.prepare(1L, FROM, TO);
+        assertThrows(BackpressureException.class, () -> reportService.prepare(1L, FROM, TO));
+
+        report.writeTo(new ByteArrayOutputStream(), ReportService.Format.CSV);
+        assertNotNull(reportService.prepare(1L, FROM, TO));
+    }
+
+    @Test
+    void writeTo_ClientGone_ReleasesPermit() {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        ReportService.Report report = reportService.prepare(1L, FROM, TO);
+        assertThrows(IOException.class, () -> report.writeTo(broken, ReportService.Format.PDF));
+
+        assertNotNull(reportService.prepare(1L, FROM, TO));
+    }
+
+    @Test
+    void release_BodyNeverRan_FreesSlotOnceAndSkipsWriting() {
+        ReportService.Report report = reportService.prepare(1L, FROM, TO);
+
+        report.release();
+        report.release();
+
+        assertThrows(IOException.class, () -> report.writeTo(new ByteArrayOutputStream(), ReportService.Format.CSV));
+        assertNotNull(reportService.prepare(1L, FROM, TO));
+        assertThrows(BackpressureException.class, () -> reportService.prepare(1L, FROM, TO));
+        verifyNoInteractions(healthRecordRepository);
+    }
+
+    @Test
+    void prepare_InvalidRange_Throws() {
+        assertThrows(InvalidOperationException.class, () -> reportService.prepare(1L, TO, FROM));
+        assertThrows(InvalidOperationException.class, () -> reportService.prepare(1L, FROM, FROM.plusYears(11)));
+        assertThrows(ResourceNotFoundException.class, () -> reportService.prepare(2L, FROM, TO));
+    }
+
+    private static HealthRecord health(String date, Double weight, Integer systolic, Integer diastolic) {
+        HealthRecord record = new HealthRecord();
+        record.setUserId(1L);
+        record.setRecordDate(LocalDate.parse(date));
+        record.setWeight(weight);
+        record.setBloodPressureSystolic(systolic);
+        record.setBloodPressureDiastolic(diastolic);
+        return record;
+    }
+
+    private static PeriodRecord period(String start, String end) {
+        PeriodRecord record = new PeriodRecord();
+        record.setUserId(1L);
+        record.setStartDate(LocalDate.parse(start));
+        record.setEndDate(end != null ? LocalDate.parse(end) : null);
+        return record;
+    }
+}
@@ -0,0 +1,200 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SampleBatchRequestBean;
+import com.ovapal.bean.SampleIngestResponseBean;
+import com.ovapal.bean.SamplePointBean;
+import com.ovapal.bean.SampleSeriesResponseBean;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.SampleChunk;
+import com.ovapal.entity.SampleMetric;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.exception.ResourceNotFoundException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.SampleChunkRepository;
+import com.ovapal.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SampleStreamServiceTest {
+
+    private static final Instant MIDNIGHT = Instant.parse("2024-03-01T00:00:00Z");
+
+    @Mock
+    private SampleChunkRepository sampleChunkRepository;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Mock
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Mock
+    private OvulationDetector ovulationDetector;
+
+    @InjectMocks
+    private SampleStreamService sampleStreamService;
+
+    @Test
+    void ingestSamples_SplitsChunksByUtcDay() {
+        // 22:00 on day one through 01:59 on day two, one sample per minute
+        List<SamplePointBean> samples = perMinute(MIDNIGHT.minusSeconds(2 * 3600), 240, 70.0);
+
+        SampleIngestResponseBean result = sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE, samples));
+
+        List<SampleChunk> chunks = savedChunks();
+        assertEquals(240, result.getSamples());
+        assertEquals(2, result.getChunks());
+        assertEquals(120, chunks.get(0).getSampleCount());
+        assertEquals(MIDNIGHT.getEpochSecond(), chunks.get(1).getStartTime());
+        assertTrue(result.getEncodedBytes() < 240 * 16);
+        verify(ovaPalService).verifyUserExists(1L);
+    }
+
+    @Test
+    void ingestSamples_LocksUserRowBeforeReadingStoredChunks() {
+        sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE, perMinute(MIDNIGHT, 10, 70.0)));
+
+        InOrder inOrder = inOrder(userRepository, sampleChunkRepository);
+        inOrder.verify(userRepository).lockById(1L);
+        inOrder.verify(sampleChunkRepository).findOverlapping(eq(1L), eq(SampleMetric.HEART_RATE), anyLong(), anyLong());
+    }
+
+    @Test
+    void ingestSamples_DayAlreadyStored_MergesIntoOneSortedChunk() {
+        // Minutes 0, 2, 4, ... stored first, then minutes 0-9 arrive late and out of order
+        List<SamplePointBean> even = new ArrayList<>();
+        for (int i = 0; i < 10; i += 2) {
+            even.add(new SamplePointBean(MIDNIGHT.plusSeconds(60L * i), 60.0));
+        }
+        sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE, even));
+        List<SampleChunk> stored = savedChunks();
+        when(sampleChunkRepository.findOverlapping(eq(1L), eq(SampleMetric.HEART_RATE), anyLong(), anyLong()))
+                .thenReturn(stored);
+        List<SamplePointBean> late = new ArrayList<>(perMinute(MIDNIGHT, 10, 80.0));
+        Collections.reverse(late);
+
+        SampleIngestResponseBean result = sampleStreamService.ingestSamples(
+                new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE, late));
+
+        verify(sampleChunkRepository).deleteAll(stored);
+        List<SampleChunk> chunks = savedChunks();
+        assertEquals(5, result.getSamples());
+        assertEquals(1, chunks.size());
+        assertEquals(10, chunks.get(0).getSampleCount());
+        assertEquals(MIDNIGHT.getEpochSecond(), chunks.get(0).getStartTime());
+        when(sampleChunkRepository.findOverlapping(eq(1L), eq(SampleMetric.HEART_RATE), anyLong(), anyLong()))
+                .thenReturn(chunks);
+        List<Double> values = sampleStreamService.getSamples(1L, SampleMetric.HEART_RATE,
+                MIDNIGHT, MIDNIGHT.plusSeconds(600)).getSamples().stream().map(SamplePointBean::getValue).toList();
+        assertEquals(List.of(60.0, 80.0, 60.0, 80.0, 60.0, 80.0, 60.0, 80.0, 60.0, 80.0), values);
+    }
+
+    @Test
+    void ingestSamples_OutOfRangeValue_ThrowsException() {
+        List<SamplePointBean> samples = perMinute(MIDNIGHT, 2, 300.0);
+
+        assertThrows(InvalidOperationException.class, () ->
+                sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE, samples)));
+        verify(sampleChunkRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void getSamples_DecodesOnlyRequestedRange() {
+        sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.TEMPERATURE,
+                perMinute(MIDNIGHT, 60, 36.6)));
+        List<SampleChunk> chunks = savedChunks();
+        when(sampleChunkRepository.findOverlapping(eq(1L), eq(SampleMetric.TEMPERATURE), anyLong(), anyLong()))
+                .thenReturn(chunks);
+
+        SampleSeriesResponseBean result = sampleStreamService.getSamples(1L, SampleMetric.TEMPERATURE,
+                MIDNIGHT.plusSeconds(600), MIDNIGHT.plusSeconds(1200));
+
+        assertEquals(11, result.getSamples().size());
+        assertEquals(MIDNIGHT.plusSeconds(600), result.getSamples().get(0).getTimestamp());
+        assertEquals(36.6, result.getSamples().get(10).getValue());
+    }
+
+    @Test
+    void summarizeDay_UpdatesExistingHealthRecord() {
+        sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.HEART_RATE,
+                perMinute(MIDNIGHT, 10, 72.0)));
+        List<SampleChunk> chunks = savedChunks();
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        HealthRecord existing = HealthRecord.builder().healthId(5L).userId(1L).recordDate(day).weight(60.0).build();
+        when(sampleChunkRepository.findOverlapping(eq(1L), eq(SampleMetric.HEART_RATE), anyLong(), anyLong()))
+                .thenReturn(chunks);
+        when(healthRecordRepository.findFirstByUserIdAndRecordDate(1L, day)).thenReturn(Optional.of(existing));
+        when(healthRecordRepository.save(existing)).thenReturn(existing);
+
+        sampleStreamService.summarizeDay(1L, day);
+
+        assertEquals(72, existing.getHeartRate());
+        assertNull(existing.getTemperature());
+        assertEquals(60.0, existing.getWeight());
+        verify(ovaPalService).validateHealthRecord(existing);
+    }
+
+    @Test
+    void summarizeDay_Temperature_FeedsOvulationDetector() {
+        sampleStreamService.ingestSamples(new SampleBatchRequestBean(1L, SampleMetric.TEMPERATURE,
+                perMinute(MIDNIGHT, 10, 36.4)));
+        List<SampleChunk> chunks = savedChunks();
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        when(sampleChunkRepository.findOverlapping(eq(1L), any(SampleMetric.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> invocation.getArgument(1) == SampleMetric.TEMPERATURE ? chunks : List.of());
+        when(healthRecordRepository.findFirstByUserIdAndRecordDate(1L, day)).thenReturn(Optional.empty());
+        when(healthRecordRepository.save(any(HealthRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        sampleStreamService.summarizeDay(1L, day);
+
+        verify(ovulationDetector).onTemperature(1L, day, 36.4);
+    }
+
+    @Test
+    void summarizeDay_NoSamples_ThrowsException() {
+        assertThrows(ResourceNotFoundException.class, () ->
+                sampleStreamService.summarizeDay(1L, LocalDate.of(2024, 3, 1)));
+        verify(healthRecordRepository, never()).save(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SampleChunk> savedChunks() {
+        ArgumentCaptor<List<SampleChunk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(sampleChunkRepository, atLeastOnce()).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<SamplePointBean> perMinute(Instant start, int count, double value) {
+        List<SamplePointBean> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            samples.add(new SamplePointBean(start.plusSeconds(60L * i), value));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,185 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SearchHitBean;
+import com.ovapal.bean.SearchResponseBean;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexServiceTest {
+
+    @TempDir
+    static Path root;
+
+    private final Path directory = root.resolve(UUID.randomUUID().toString());
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @InjectMocks
+    private SearchIndexService service = new SearchIndexService(true, directory.toString(), 100);
+
+    @InjectMocks
+    private SearchIndexService restarted = new SearchIndexService(true, directory.toString(), 100);
+
+    // Room for a single user in memory
+    @InjectMocks
+    private SearchIndexService oneUser = new SearchIndexService(true, directory.toString(), 1);
+
+    @BeforeEach
+    void setUp() {
+        for (SearchIndexService instance : List.of(service, restarted, oneUser)) {
+            ReflectionTestUtils.setField(instance, "defaultLimit", 20);
+            ReflectionTestUtils.setField(instance, "maxLimit", 100);
+        }
+
+        lenient().when(healthRecordRepository.findByUserId(1L)).thenReturn(List.of(
+                HealthRecord.builder().healthId(10L).userId(1L).recordDate(LocalDate.of(2024, 3, 1))
+                        .notes("Mild headache in the evening").build(),
+                HealthRecord.builder().healthId(11L).userId(1L).recordDate(LocalDate.of(2024, 3, 2)).build()));
+        lenient().when(periodRecordRepository.findByUserId(1L)).thenReturn(List.of(
+                PeriodRecord.builder().periodrecid(20L).userId(1L).startDate(LocalDate.of(2024, 3, 5))
+                        .symptoms("cramps, headache").mood("irritable").build()));
+        lenient().when(reminderRepository.findByUserId(1L)).thenReturn(List.of());
+        lenient().when(medicationRepository.findByUserId(1L)).thenReturn(List.of());
+        service.start();
+    }
+
+    @Test
+    void search_BuildsIndexAcrossRecordTypes() {
+        SearchResponseBean result = service.search(1L, "headache cramps", null);
+
+        assertEquals(List.of("PERIOD", "HEALTH"), result.getHits().stream().map(SearchHitBean::getRecordType).toList());
+        assertEquals("cramps, headache; irritable", result.getHits().get(0).getSnippet());
+        assertEquals(LocalDate.of(2024, 3, 1), result.getHits().get(1).getDate());
+        verify(healthRecordRepository, times(1)).findByUserId(1L);
+
+        service.search(1L, "irritable", 5);
+        verify(healthRecordRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void onRecordChange_LoadedUser_UpdatesIncrementally() {
+        service.search(1L, "headache", null);
+        when(medicationRepository.findById(30L)).thenReturn(Optional.of(
+                Medication.builder().medicineid(30L).userId(1L).medicine("Ibuprofen").notes("for headache").build()));
+
+        service.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 30L, ChangeType.CREATED));
+        service.onRecordChange(new RecordChangeEvent(1L, RecordType.PERIOD, 20L, ChangeType.DELETED));
+
+        List<SearchHitBean> hits = service.search(1L, "headache", null).getHits();
+        assertEquals(2, hits.size());
+        assertEquals("Ibuprofen", hits.stream().filter(hit -> hit.getRecordType().equals("MEDICATION"))
+                .findFirst().orElseThrow().getTitle());
+        verify(periodRecordRepository, never()).findById(any());
+    }
+
+    @Test
+    void stop_WritesIndexThatIsReadBackAfterRestart() {
+        service.search(1L, "headache", null);
+        service.stop();
+        assertTrue(Files.exists(directory.resolve("1.idx")));
+
+        restarted.start();
+        List<SearchHitBean> hits = restarted.search(1L, "irritable", null).getHits();
+
+        assertEquals(1, hits.size());
+        assertEquals(20L, hits.get(0).getRecordId());
+        verify(healthRecordRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void start_AfterUncleanShutdown_DiscardsIndexFiles() throws Exception {
+        service.search(1L, "headache", null);
+        service.stop();
+        Files.delete(directory.resolve("CLEAN"));
+
+        restarted.start();
+        restarted.search(1L, "headache", null);
+
+        verify(healthRecordRepository, times(2)).findByUserId(1L);
+    }
+
+    @Test
+    void onRecordChange_UserNotLoaded_DeletesStoredIndex() {
+        service.search(1L, "headache", null);
+        service.stop();
+
+        restarted.start();
+        restarted.onRecordChange(new RecordChangeEvent(1L, RecordType.HEALTH, 12L, ChangeType.CREATED));
+
+        assertFalse(Files.exists(directory.resolve("1.idx")));
+        verify(healthRecordRepository, never()).findById(any());
+    }
+
+    @Test
+    void search_EvictedUser_IsWrittenAndReadBack() {
+        oneUser.start();
+        oneUser.search(1L, "headache", null);
+        oneUser.search(2L, "headache", null);
+
+        assertTrue(Files.exists(directory.resolve("1.idx")));
+        assertEquals(1, oneUser.size());
+
+        assertEquals(2, oneUser.search(1L, "headache", null).getHits().size());
+        verify(healthRecordRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void onRecordChange_EvictedUser_DeletesWrittenIndex() {
+        oneUser.start();
+        oneUser.search(1L, "headache", null);
+        oneUser.search(2L, "headache", null);
+
+        oneUser.onRecordChange(new RecordChangeEvent(1L, RecordType.HEALTH, 12L, ChangeType.CREATED));
+        oneUser.search(1L, "headache", null);
+
+        assertFalse(Files.exists(directory.resolve("1.idx")));
+        verify(healthRecordRepository, times(2)).findByUserId(1L);
+    }
+
+    @Test
+    void search_QueryWithoutWords_ThrowsException() {
+        assertThrows(InvalidOperationException.class, () -> service.search(1L, " a ", null));
+        assertThrows(InvalidOperationException.class, () -> service.search(1L, "headache", 101));
+    }
+}
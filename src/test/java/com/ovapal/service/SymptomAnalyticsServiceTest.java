@@ -0,0 +1,128 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.SymptomCountBean;
+import com.ovapal.bean.SymptomStatsResponseBean;
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.SymptomCategory;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.PeriodRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SymptomAnalyticsServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private SymptomDictionary symptomDictionary;
+
+    @InjectMocks
+    private SymptomAnalyticsService symptomAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        // 0 cramps, 1 headache, 2 heavy flow, 70 irritable (second word)
+        lenient().when(symptomDictionary.size()).thenReturn(71);
+        lenient().when(symptomDictionary.get(0)).thenReturn(new SymptomDictionary.Term(0, SymptomCategory.SYMPTOM, "cramps"));
+        lenient().when(symptomDictionary.get(1)).thenReturn(new SymptomDictionary.Term(1, SymptomCategory.SYMPTOM, "headache"));
+        lenient().when(symptomDictionary.get(2)).thenReturn(new SymptomDictionary.Term(2, SymptomCategory.FLOW, "heavy"));
+        lenient().when(symptomDictionary.get(70)).thenReturn(new SymptomDictionary.Term(70, SymptomCategory.MOOD, "irritable"));
+        lenient().when(periodRecordRepository.findByUserIdAndSymptomBitsIsNull(1L)).thenReturn(List.of());
+        lenient().when(periodRecordRepository.findSymptomTerms(1L, FROM, TO)).thenReturn(List.of(
+                row(null, 0, 1, 2), row("symptom:itchy skin", 1, 2, 70), row(null, 0), row(null, 1),
+                row("symptom:itchy skin\nmood:wistful")));
+    }
+
+    @Test
+    void getSymptomStats_CountsTermFrequencies() {
+        SymptomStatsResponseBean result = symptomAnalyticsService.getSymptomStats(1L, FROM, TO, null);
+
+        assertEquals(5, result.getRecords());
+        assertEquals(5, result.getMatchingRecords());
+        assertEquals(List.of("headache", "cramps", "heavy", "itchy skin", "irritable", "wistful"),
+                result.getTerms().stream().map(SymptomCountBean::getTerm).toList());
+        assertEquals("MOOD", result.getTerms().get(5).getCategory());
+        assertEquals(60.0, result.getTerms().get(0).getPercent());
+    }
+
+    @Test
+    void getSymptomStats_With_CountsCoOccurringTerms() {
+        when(symptomDictionary.lookup("flow:heavy")).thenReturn(new SymptomDictionary.Term(2, SymptomCategory.FLOW, "heavy"));
+
+        SymptomStatsResponseBean result = symptomAnalyticsService.getSymptomStats(1L, FROM, TO, List.of("flow:heavy"));
+
+        assertEquals(List.of("flow:heavy"), result.getWith());
+        assertEquals(2, result.getMatchingRecords());
+        SymptomCountBean headache = result.getTerms().get(0);
+        assertEquals("headache", headache.getTerm());
+        assertEquals(2, headache.getCount());
+        assertEquals(100.0, headache.getPercent());
+        assertEquals(4, result.getTerms().size());
+    }
+
+    @Test
+    void getSymptomStats_WithUncodedTerm_MatchesRecordsByText() {
+        SymptomStatsResponseBean result = symptomAnalyticsService.getSymptomStats(1L, FROM, TO, List.of("Itchy Skin"));
+
+        assertEquals(List.of("itchy skin"), result.getWith());
+        assertEquals(2, result.getMatchingRecords());
+        assertEquals(List.of("headache", "heavy", "irritable", "wistful"),
+                result.getTerms().stream().map(SymptomCountBean::getTerm).toList());
+    }
+
+    @Test
+    void getSymptomStats_UnknownTerm_MatchesNothing() {
+        SymptomStatsResponseBean result = symptomAnalyticsService.getSymptomStats(1L, FROM, TO, List.of("mood:itchy skin"));
+
+        assertEquals(0, result.getMatchingRecords());
+        assertTrue(result.getTerms().isEmpty());
+    }
+
+    @Test
+    void getSymptomStats_EncodesRecordsWithoutBitsFirst() {
+        PeriodRecord old = PeriodRecord.builder().periodrecid(9L).symptoms("cramps").build();
+        when(periodRecordRepository.findByUserIdAndSymptomBitsIsNull(1L)).thenReturn(List.of(old));
+
+        symptomAnalyticsService.getSymptomStats(1L, FROM, TO, null);
+
+        verify(symptomDictionary).encode(old);
+        verify(periodRecordRepository).saveAll(List.of(old));
+    }
+
+    @Test
+    void getSymptomStats_FromAfterTo_ThrowsException() {
+        assertThrows(InvalidOperationException.class,
+                () -> symptomAnalyticsService.getSymptomStats(1L, TO, FROM, null));
+    }
+
+    private static Object[] row(String uncodedTerms, int... ids) {
+        return new Object[] {bits(ids), uncodedTerms};
+    }
+
+    private static byte[] bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits.toByteArray();
+    }
+}
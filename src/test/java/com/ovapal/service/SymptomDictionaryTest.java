@@ -0,0 +1,108 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.PeriodRecord;
+import com.ovapal.entity.SymptomCategory;
+import com.ovapal.entity.SymptomTerm;
+import com.ovapal.repository.SymptomTermRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SymptomDictionaryTest {
+
+    @Mock
+    private SymptomTermRepository symptomTermRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private SymptomDictionary symptomDictionary;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(symptomDictionary, "vocabulary", new ByteArrayResource((
+                "# test vocabulary\nsymptom:cramps\nsymptom:headache\nmood:tired\nflow:heavy\nnausea\n")
+                .getBytes(StandardCharsets.UTF_8)));
+        lenient().when(symptomTermRepository.findAll()).thenReturn(List.of(
+                SymptomTerm.builder().id(1).category(SymptomCategory.FLOW).term("heavy").build(),
+                SymptomTerm.builder().id(0).category(SymptomCategory.SYMPTOM).term("cramps").build()));
+    }
+
+    @Test
+    void split_SeparatesListsAndNormalizes() {
+        assertEquals(List.of("cramps", "lower back pain", "bloating", "headache"),
+                SymptomDictionary.split(" Cramps, lower  back pain and bloating; headache. & cramps"));
+        assertTrue(SymptomDictionary.split(null).isEmpty());
+    }
+
+    @Test
+    void encode_ReusesKnownTermsAndAddsNewOnes() {
+        PeriodRecord record = PeriodRecord.builder().symptoms("cramps, Headache").mood("tired").flow("Heavy").build();
+
+        symptomDictionary.encode(record);
+
+        assertEquals(BitSet.valueOf(new long[] {0b1111}), BitSet.valueOf(record.getSymptomBits()));
+        assertNull(record.getUncodedTerms());
+        verify(jdbcTemplate).update(anyString(), eq(2), eq("SYMPTOM"), eq("headache"));
+        verify(jdbcTemplate).update(anyString(), eq(3), eq("MOOD"), eq("tired"));
+        assertEquals(4, symptomDictionary.size());
+    }
+
+    @Test
+    void encode_TermsOutsideVocabulary_KeptAsText() {
+        PeriodRecord record = PeriodRecord.builder().symptoms("cramps, itchy elbows").mood("tired").flow("purple").build();
+
+        symptomDictionary.encode(record);
+
+        assertEquals(BitSet.valueOf(new long[] {0b0101}), BitSet.valueOf(record.getSymptomBits()));
+        assertEquals("symptom:itchy elbows\nflow:purple", record.getUncodedTerms());
+        verify(jdbcTemplate, never()).update(anyString(), anyInt(), anyString(), eq("itchy elbows"));
+        verify(jdbcTemplate, never()).update(anyString(), anyInt(), anyString(), eq("purple"));
+        assertEquals(3, symptomDictionary.size());
+    }
+
+    @Test
+    void encode_NoSymptoms_SetsEmptyArray() {
+        PeriodRecord record = PeriodRecord.builder().build();
+
+        symptomDictionary.encode(record);
+
+        assertEquals(0, record.getSymptomBits().length);
+        assertNull(record.getUncodedTerms());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void lookup_ResolvesCategoryPrefix() {
+        assertEquals(1, symptomDictionary.lookup("flow:HEAVY").id());
+        assertEquals(0, symptomDictionary.lookup("Cramps").id());
+        assertNull(symptomDictionary.lookup("mood:cramps"));
+        assertNull(symptomDictionary.lookup("nausea"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.HealthRecordResponseBean;
+import com.ovapal.bean.MedicationResponseBean;
+import com.ovapal.bean.SyncResponseBean;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.Medication;
+import com.ovapal.entity.SyncTombstone;
+import com.ovapal.event.RecordChangeEvent;
+import com.ovapal.event.RecordChangeEvent.ChangeType;
+import com.ovapal.event.RecordChangeEvent.RecordType;
+import com.ovapal.exception.InvalidOperationException;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.ReminderRepository;
+import com.ovapal.repository.SyncTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyncServiceTest {
+
+    @Mock
+    private OvaPalService ovaPalService;
+
+    @Mock
+    private ChangeSequence changeSequence;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private ReminderRepository reminderRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @InjectMocks
+    private SyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(syncService, "maxChanges", 3);
+
+        lenient().when(changeSequence.watermark()).thenReturn(20L);
+        lenient().when(ovaPalService.mapHealthRecordToResponseBean(any()))
+                .thenAnswer(inv -> HealthRecordResponseBean.builder().healthId(inv.<HealthRecord>getArgument(0).getHealthId()).build());
+        lenient().when(ovaPalService.mapMedicationToResponseBean(any()))
+                .thenAnswer(inv -> MedicationResponseBean.builder().medicationId(inv.<Medication>getArgument(0).getMedicineid()).build());
+    }
+
+    @Test
+    void getChanges_NoMore_ReturnsAllAndAdvancesToWatermark() {
+        when(healthRecordRepository.findChangedSince(eq(1L), eq(5L), eq(20L), any()))
+                .thenReturn(List.of(health(1L, 7L)));
+        when(syncTombstoneRepository.findChangedSince(eq(1L), eq(5L), eq(20L), any()))
+                .thenReturn(List.of(tombstone(9L, 6L)));
+
+        SyncResponseBean response = syncService.getChanges(1L, "5");
+
+        assertEquals("20", response.getNextToken());
+        assertFalse(response.isHasMore());
+        assertFalse(response.isReset());
+        assertEquals(1, response.getHealthRecords().size());
+        assertEquals(9L, response.getDeleted().get(0).getRecordId());
+        assertEquals("MEDICATION", response.getDeleted().get(0).getRecordType());
+        verify(ovaPalService).verifyUserExists(1L);
+    }
+
+    @Test
+    void getChanges_MoreThanLimit_ReturnsLowestSequencesAcrossTypes() {
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        when(healthRecordRepository.findChangedSince(eq(1L), eq(0L), eq(20L), page.capture()))
+                .thenReturn(List.of(health(1L, 2L), health(2L, 5L), health(3L, 8L), health(4L, 9L)));
+        when(medicationRepository.findChangedSince(eq(1L), eq(0L), eq(20L), any()))
+                .thenReturn(List.of(medication(1L, 3L), medication(2L, 10L)));
+
+        SyncResponseBean response = syncService.getChanges(1L, null);
+
+        assertEquals(4, page.getValue().getPageSize());
+        assertTrue(response.isHasMore());
+        assertEquals("5", response.getNextToken());
+        assertEquals(List.of(1L, 2L), response.getHealthRecords().stream().map(HealthRecordResponseBean::getHealthId).toList());
+        assertEquals(1, response.getMedications().size());
+    }
+
+    @Test
+    void getChanges_TokenAheadOfWatermark_ResetsToFullSync() {
+        SyncResponseBean response = syncService.getChanges(1L, "500");
+
+        assertTrue(response.isReset());
+        verify(healthRecordRepository).findChangedSince(eq(1L), eq(0L), eq(20L), any());
+    }
+
+    @Test
+    void getChanges_InvalidToken_Throws() {
+        assertThrows(InvalidOperationException.class, () -> syncService.getChanges(1L, "abc"));
+        assertThrows(InvalidOperationException.class, () -> syncService.getChanges(1L, "-1"));
+    }
+
+    @Test
+    void onRecordChange_RecordsTombstoneForHardDeletesOnly() {
+        syncService.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 4L, ChangeType.DELETED));
+        syncService.onRecordChange(new RecordChangeEvent(1L, RecordType.REMINDER, 5L, ChangeType.DELETED));
+        syncService.onRecordChange(new RecordChangeEvent(1L, RecordType.MEDICATION, 6L, ChangeType.UPDATED));
+
+        ArgumentCaptor<SyncTombstone> saved = ArgumentCaptor.forClass(SyncTombstone.class);
+        verify(syncTombstoneRepository).save(saved.capture());
+        assertEquals(RecordType.MEDICATION, saved.getValue().getRecordType());
+        assertEquals(4L, saved.getValue().getRecordId());
+    }
+
+    private static HealthRecord health(Long id, Long changeSeq) {
+        return HealthRecord.builder().healthId(id).userId(1L).changeSeq(changeSeq).build();
+    }
+
+    private static Medication medication(Long id, Long changeSeq) {
+        return Medication.builder().medicineid(id).userId(1L).changeSeq(changeSeq).build();
+    }
+
+    private static SyncTombstone tombstone(Long recordId, Long changeSeq) {
+        return SyncTombstone.builder().userId(1L).recordType(RecordType.MEDICATION).recordId(recordId).changeSeq(changeSeq).build();
+    }
+}
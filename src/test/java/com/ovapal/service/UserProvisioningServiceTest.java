@@ -0,0 +1,118 @@
+package com.ovapal.service;
+
+import com.ovapal.bean.BulkUserResponseBean;
+import com.ovapal.bean.UserRequestBean;
+import com.ovapal.exception.InvalidOperationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProvisioningServiceTest {
+
+    @Spy
+    private OvaPalService ovaPalService = new OvaPalService();
+
+    @Mock
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private UserProvisioningService provisioningService = new UserProvisioningService(2);
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(provisioningService, "batchSize", 2);
+        ReflectionTestUtils.setField(provisioningService, "maxUsers", 10);
+
+        lenient().when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed-" + invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        provisioningService.shutdown();
+    }
+
+    @Test
+    void provisionUsers_ValidUsers_InsertsInBatches() {
+        BulkUserResponseBean result = provisioningService.provisionUsers(List.of(
+                user("a@example.com"), user("b@example.com"), user("c@example.com")));
+
+        assertEquals(3, result.getRequested());
+        assertEquals(3, result.getCreated());
+        assertTrue(result.getRejected().isEmpty());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        verify(passwordEncoder, times(3)).encode(anyString());
+    }
+
+    @Test
+    void provisionUsers_InvalidAndDuplicateUsers_AreRejected() {
+        UserRequestBean invalid = user("not-an-email");
+
+        BulkUserResponseBean result = provisioningService.provisionUsers(List.of(
+                user("a@example.com"), user("a@example.com"), invalid));
+
+        assertEquals(1, result.getCreated());
+        assertEquals("Duplicate email in request", result.getRejected().get("a@example.com"));
+        assertEquals("Invalid email format", result.getRejected().get("not-an-email"));
+    }
+
+    @Test
+    void provisionUsers_ExistingEmail_FallsBackToRowInserts() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_users_email"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("uk_users_email"));
+
+        BulkUserResponseBean result = provisioningService.provisionUsers(List.of(
+                user("a@example.com"), user("b@example.com")));
+
+        assertEquals(1, result.getCreated());
+        assertEquals("Email is already registered", result.getRejected().get("b@example.com"));
+    }
+
+    @Test
+    void provisionUsers_TooManyUsers_ThrowsException() {
+        List<UserRequestBean> users = java.util.stream.IntStream.range(0, 11)
+                .mapToObj(i -> user("user" + i + "@example.com"))
+                .toList();
+
+        assertThrows(InvalidOperationException.class, () -> provisioningService.provisionUsers(users));
+    }
+
+    private static UserRequestBean user(String email) {
+        return UserRequestBean.builder()
+                .name("Clinic Patient")
+                .email(email)
+                .password("password123")
+                .age(30)
+                .build();
+    }
+}
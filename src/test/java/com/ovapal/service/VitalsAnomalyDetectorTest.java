@@ -0,0 +1,122 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.VitalBaseline;
+import com.ovapal.repository.UserRepository;
+import com.ovapal.repository.VitalBaselineRepository;
+import com.ovapal.util.VitalsWindow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VitalsAnomalyDetectorTest {
+
+    @Mock
+    private VitalBaselineRepository vitalBaselineRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private VitalsAnomalyDetector detector;
+
+    private final List<VitalBaseline> baselines = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(detector, "alpha", 0.1);
+        ReflectionTestUtils.setField(detector, "threshold", 3.0);
+        ReflectionTestUtils.setField(detector, "warmUp", 5);
+
+        lenient().when(vitalBaselineRepository.findByUserId(1L)).thenAnswer(invocation -> List.copyOf(baselines));
+        lenient().when(vitalBaselineRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            for (VitalBaseline baseline : (List<VitalBaseline>) invocation.getArgument(0)) {
+                if (!baselines.contains(baseline)) {
+                    baselines.add(baseline);
+                }
+            }
+            return invocation.getArgument(0);
+        });
+    }
+
+    @Test
+    void detect_DuringWarmUp_DoesNotFlag() {
+        HealthRecord spike = reading(72, 36.6);
+        detector.detect(reading(60, 36.6));
+        detector.detect(spike);
+        detector.detect(reading(150, 36.6));
+
+        assertNull(spike.getAnomalyFlags());
+        assertEquals(3, heartRateBaseline().getSampleCount());
+    }
+
+    @Test
+    void detect_DeviationFromOwnBaseline_FlagsReading() {
+        for (int i = 0; i < 20; i++) {
+            HealthRecord normal = reading(60 + i % 3, 36.5);
+            detector.detect(normal);
+            assertNull(normal.getAnomalyFlags());
+        }
+
+        HealthRecord spike = reading(110, 38.4);
+        detector.detect(spike);
+
+        assertEquals("TEMPERATURE_HIGH,HEART_RATE_HIGH", spike.getAnomalyFlags());
+        // The outlier is clamped before learning, so the baseline stays near the user's normal
+        assertTrue(heartRateBaseline().getMean() < 65, "mean " + heartRateBaseline().getMean());
+    }
+
+    @Test
+    void score_DoesNotUpdateBaseline() {
+        for (int i = 0; i < 6; i++) {
+            detector.detect(reading(60, 36.5));
+        }
+
+        HealthRecord low = reading(40, 36.5);
+        detector.score(low);
+
+        assertEquals("HEART_RATE_LOW", low.getAnomalyFlags());
+        assertEquals(6, heartRateBaseline().getSampleCount());
+    }
+
+    @Test
+    void detect_LocksUserRowBeforeReadingBaselines() {
+        detector.detect(reading(60, 36.5));
+
+        InOrder inOrder = inOrder(userRepository, vitalBaselineRepository);
+        inOrder.verify(userRepository).lockById(1L);
+        inOrder.verify(vitalBaselineRepository).findByUserId(1L);
+    }
+
+    @Test
+    void score_DoesNotLockUserRow() {
+        detector.score(reading(60, 36.5));
+
+        verify(userRepository, never()).lockById(anyLong());
+    }
+
+    private VitalBaseline heartRateBaseline() {
+        return baselines.stream()
+                .filter(baseline -> baseline.getVital() == VitalsWindow.Vital.HEART_RATE)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static HealthRecord reading(int heartRate, double temperature) {
+        return HealthRecord.builder().userId(1L).heartRate(heartRate).temperature(temperature).build();
+    }
+}
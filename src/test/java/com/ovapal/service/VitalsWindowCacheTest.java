@@ -0,0 +1,74 @@
+package com.ovapal.service;
+
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.util.VitalsWindow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VitalsWindowCacheTest {
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @InjectMocks
+    private VitalsWindowCache cache = new VitalsWindowCache(90, 2);
+
+    @Test
+    void stats_LoadsOnceAndAppliesSavesInMemory() {
+        when(healthRecordRepository.findByUserIdAndRecordDateAfter(eq(1L), any(LocalDate.class)))
+                .thenReturn(List.of(record(10L, 1L, 2, 60.0)));
+
+        cache.stats(1L, 30);
+        cache.onSaved(record(11L, 1L, 0, 62.0));
+        Map<VitalsWindow.Vital, VitalsWindow.Stats> stats = cache.stats(1L, 30);
+
+        assertEquals(2, stats.get(VitalsWindow.Vital.WEIGHT).count());
+        assertEquals(61.0, stats.get(VitalsWindow.Vital.WEIGHT).average());
+        verify(healthRecordRepository, times(1)).findByUserIdAndRecordDateAfter(anyLong(), any());
+    }
+
+    @Test
+    void onSaved_UncachedUser_IsIgnored() {
+        cache.onSaved(record(11L, 1L, 0, 62.0));
+
+        assertEquals(0, cache.size());
+        verifyNoInteractions(healthRecordRepository);
+    }
+
+    @Test
+    void invalidate_ReloadsOnNextUse() {
+        when(healthRecordRepository.findByUserIdAndRecordDateAfter(anyLong(), any(LocalDate.class))).thenReturn(List.of());
+
+        cache.stats(1L, 30);
+        cache.stats(2L, 30);
+        cache.stats(3L, 30);
+        assertEquals(2, cache.size());
+
+        cache.invalidate(List.of(3L));
+        cache.stats(3L, 30);
+
+        verify(healthRecordRepository, times(2)).findByUserIdAndRecordDateAfter(eq(3L), any());
+    }
+
+    private static HealthRecord record(Long healthId, Long userId, int daysAgo, double weight) {
+        return HealthRecord.builder()
+                .healthId(healthId)
+                .userId(userId)
+                .recordDate(LocalDate.now().minusDays(daysAgo))
+                .weight(weight)
+                .build();
+    }
+}
@@ -0,0 +1,216 @@
+package com.ovapal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ovapal.entity.HealthRecord;
+import com.ovapal.entity.WalDeadLetter;
+import com.ovapal.repository.HealthRecordRepository;
+import com.ovapal.repository.MedicationRepository;
+import com.ovapal.repository.PeriodRecordRepository;
+import com.ovapal.repository.WalCheckpointRepository;
+import com.ovapal.repository.WalDeadLetterRepository;
+import com.ovapal.util.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Mock
+    private ObjectProvider<WriteAheadLog> writeAheadLogProvider;
+
+    @Mock
+    private HealthRecordRepository healthRecordRepository;
+
+    @Mock
+    private PeriodRecordRepository periodRecordRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private WalCheckpointRepository walCheckpointRepository;
+
+    @Mock
+    private WalDeadLetterRepository walDeadLetterRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private VitalsWindowCache vitalsWindowCache;
+
+    @Mock
+    private VitalsAnomalyDetector vitalsAnomalyDetector;
+
+    @Mock
+    private OvulationDetector ovulationDetector;
+
+    @Mock
+    private SymptomDictionary symptomDictionary;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private WriteBehindLog writeBehindLog;
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog writeAheadLog;
+    private final List<HealthRecord> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(writeBehindLog, "batchSize", 500);
+        ReflectionTestUtils.setField(writeBehindLog, "pollInterval", Duration.ofMillis(5));
+        ReflectionTestUtils.setField(writeBehindLog, "maxUnapplied", DataSize.ofMegabytes(1));
+
+        writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE, WriteAheadLog.FsyncPolicy.NONE, Duration.ofMillis(10));
+        when(writeAheadLogProvider.getIfAvailable()).thenReturn(writeAheadLog);
+        when(walCheckpointRepository.findById(1)).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(healthRecordRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<HealthRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(record -> "bad".equals(record.getNotes()))) {
+                throw new DataIntegrityViolationException("NULL not allowed for column USERID");
+            }
+            saved.addAll(records);
+            return records;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writeBehindLog.stop();
+        writeAheadLog.close();
+    }
+
+    @Test
+    void applier_PoisonEntry_IsDeadLetteredAndTheRestApplied() throws Exception {
+        append(record(1L, "ok"));
+        long badPosition = writeAheadLog.getWritePosition();
+        append(record(2L, "bad"));
+        append(record(3L, "ok"));
+
+        writeBehindLog.start();
+        awaitApplied();
+
+        assertEquals(List.of(1L, 3L), saved.stream().map(HealthRecord::getUserId).toList());
+        assertEquals(1, writeBehindLog.getDeadLetteredCount());
+        ArgumentCaptor<WalDeadLetter> deadLetter = ArgumentCaptor.forClass(WalDeadLetter.class);
+        verify(walDeadLetterRepository).save(deadLetter.capture());
+        assertEquals(badPosition, deadLetter.getValue().getPosition());
+        assertEquals((byte) 1, deadLetter.getValue().getRecordType());
+    }
+
+    @Test
+    void start_CheckpointBeforeDeletedSegments_ResumesAtOldestSegment() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            append(record((long) i, "x".repeat(900)));
+        }
+        writeAheadLog.deleteSegmentsBefore(2L * SEGMENT_SIZE);
+        int remaining = writeAheadLog.read(2L * SEGMENT_SIZE, 100).size();
+
+        writeBehindLog.start();
+        awaitApplied();
+
+        assertEquals(remaining, saved.size());
+        assertEquals(9L, saved.get(saved.size() - 1).getUserId());
+        assertEquals(0, writeBehindLog.getDeadLetteredCount());
+    }
+
+    @Test
+    void applier_CorruptEntry_IsSkipped() throws Exception {
+        append(record(1L, "x".repeat(900)));
+        long corrupt = writeAheadLog.getWritePosition();
+        append(record(2L, "x".repeat(900)));
+        for (int i = 3; i <= 6; i++) {
+            append(record((long) i, "x".repeat(900)));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+            file.seek(corrupt + 100);
+            file.write('!');
+        }
+
+        writeBehindLog.start();
+        awaitApplied();
+
+        assertEquals(List.of(1L, 3L, 4L, 5L, 6L), saved.stream().map(HealthRecord::getUserId).toList());
+        ArgumentCaptor<WalDeadLetter> deadLetter = ArgumentCaptor.forClass(WalDeadLetter.class);
+        verify(walDeadLetterRepository).save(deadLetter.capture());
+        assertEquals(corrupt, deadLetter.getValue().getPosition());
+        assertNull(deadLetter.getValue().getPayload());
+    }
+
+    private void append(HealthRecord record) throws IOException {
+        writeAheadLog.append((byte) 1, objectMapper.writeValueAsBytes(record));
+    }
+
+    private void awaitApplied() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writeBehindLog.getAppliedPosition() < writeAheadLog.getWritePosition()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(writeAheadLog.getWritePosition(), writeBehindLog.getAppliedPosition());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static HealthRecord record(Long userId, String notes) {
+        return HealthRecord.builder()
+                .userId(userId)
+                .recordDate(LocalDate.of(2024, 1, 10))
+                .temperature(36.5)
+                .notes(notes)
+                .build();
+    }
+}
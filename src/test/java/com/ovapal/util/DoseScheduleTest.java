@@ -0,0 +1,84 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoseScheduleTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void compile_CommonPhrasings() {
+        assertEquals("daily at [08:00, 20:00]", DoseSchedule.compile("Twice daily").getDescription());
+        assertEquals("daily at [08:00, 20:00]", DoseSchedule.compile("BID").getDescription());
+        assertEquals("daily at [08:00, 20:00]", DoseSchedule.compile("2x a day").getDescription());
+        assertEquals("daily at [08:00, 14:00, 20:00]", DoseSchedule.compile("three times per day").getDescription());
+        assertEquals("daily at [22:00]", DoseSchedule.compile("at bedtime").getDescription());
+        assertEquals("every 2 days at [21:00]", DoseSchedule.compile("every other day at 21:00").getDescription());
+        assertEquals("every 7 days at [08:00]", DoseSchedule.compile("weekly").getDescription());
+        assertEquals("every 8 hours", DoseSchedule.compile("every 8 hours").getDescription());
+        assertEquals("every 6 hours", DoseSchedule.compile("q6h").getDescription());
+        assertTrue(DoseSchedule.compile("as needed for pain").isAsNeeded());
+    }
+
+    @Test
+    void compile_UnrecognizedFrequency_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> DoseSchedule.compile("with meals sometimes"));
+        assertThrows(IllegalArgumentException.class, () -> DoseSchedule.compile("twice daily at 08:00 and 12:00 and 20:00"));
+        assertThrows(IllegalArgumentException.class, () -> DoseSchedule.compile("every 0 hours"));
+    }
+
+    @Test
+    void doses_DailyTimes_RespectWindowAndCourse() {
+        DoseSchedule schedule = DoseSchedule.compile("twice daily");
+
+        List<LocalDateTime> doses = collect(schedule.doses(START, LocalDate.of(2024, 3, 3),
+                LocalDateTime.of(2024, 3, 1, 12, 0), LocalDateTime.of(2024, 3, 10, 0, 0)));
+
+        assertEquals(List.of(
+                LocalDateTime.of(2024, 3, 1, 20, 0),
+                LocalDateTime.of(2024, 3, 2, 8, 0),
+                LocalDateTime.of(2024, 3, 2, 20, 0),
+                LocalDateTime.of(2024, 3, 3, 8, 0),
+                LocalDateTime.of(2024, 3, 3, 20, 0)), doses);
+    }
+
+    @Test
+    void doses_EveryOtherDay_StaysOnCourseDays() {
+        DoseSchedule schedule = DoseSchedule.compile("every other day");
+
+        List<LocalDateTime> doses = collect(schedule.doses(START, null,
+                LocalDateTime.of(2024, 3, 2, 0, 0), LocalDateTime.of(2024, 3, 8, 0, 0)));
+
+        assertEquals(List.of(
+                LocalDateTime.of(2024, 3, 3, 8, 0),
+                LocalDateTime.of(2024, 3, 5, 8, 0),
+                LocalDateTime.of(2024, 3, 7, 8, 0)), doses);
+    }
+
+    @Test
+    void doses_Interval_AnchoredAtStartDate() {
+        DoseSchedule schedule = DoseSchedule.compile("every 8 hours");
+
+        Iterator<LocalDateTime> doses = schedule.doses(START, null,
+                LocalDateTime.of(2024, 3, 20, 9, 0), LocalDateTime.of(2024, 3, 21, 9, 0));
+
+        assertEquals(LocalDateTime.of(2024, 3, 20, 16, 0), doses.next());
+        assertEquals(LocalDateTime.of(2024, 3, 21, 0, 0), doses.next());
+        assertEquals(LocalDateTime.of(2024, 3, 21, 8, 0), doses.next());
+        assertFalse(doses.hasNext());
+    }
+
+    private static List<LocalDateTime> collect(Iterator<LocalDateTime> iterator) {
+        List<LocalDateTime> doses = new ArrayList<>();
+        iterator.forEachRemaining(doses::add);
+        return doses;
+    }
+}
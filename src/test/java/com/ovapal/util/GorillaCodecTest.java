@@ -0,0 +1,60 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GorillaCodecTest {
+
+    @Test
+    void roundTrip_IrregularTimestampsAndValues() {
+        Random random = new Random(42);
+        long[] timestamps = new long[500];
+        double[] values = new double[500];
+        long timestamp = 1_700_000_000L;
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamp += 1 + random.nextInt(i % 50 == 0 ? 100_000 : 120);
+            timestamps[i] = timestamp;
+            values[i] = i % 7 == 0 ? values[Math.max(0, i - 1)] : 36 + random.nextGaussian();
+        }
+
+        GorillaEncoder encoder = new GorillaEncoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        GorillaDecoder decoder = new GorillaDecoder(encoder.toByteArray(), encoder.getCount());
+
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(decoder.hasNext());
+            decoder.next();
+            assertEquals(timestamps[i], decoder.getTimestamp());
+            assertEquals(Double.doubleToLongBits(values[i]), Double.doubleToLongBits(decoder.getValue()));
+        }
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    void encode_PerMinuteHeartRate_CompressesWellBelowRowPerSample() {
+        GorillaEncoder encoder = new GorillaEncoder();
+        long start = 1_700_000_000L;
+        for (int minute = 0; minute < 1440; minute++) {
+            encoder.append(start + minute * 60L, 60 + (minute / 10) % 30);
+        }
+
+        byte[] data = encoder.toByteArray();
+        // A row per sample costs at least 8 (timestamp) + 8 (value) bytes before any row overhead
+        assertTrue(data.length < 1440 * 16 / 8, "encoded " + data.length + " bytes");
+
+        GorillaDecoder decoder = new GorillaDecoder(data, encoder.getCount());
+        int decoded = 0;
+        while (decoder.hasNext()) {
+            decoder.next();
+            assertEquals(start + decoded * 60L, decoder.getTimestamp());
+            assertEquals(60 + (decoded / 10) % 30, decoder.getValue());
+            decoded++;
+        }
+        assertEquals(1440, decoded);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @Test
+    void tokenize_LowerCasesAndDropsStopWords() {
+        assertEquals(List.of("cramps", "lower", "back", "pain", "2x"),
+                InvertedIndex.tokenize("Cramps and lower-back pain (2x) a"));
+    }
+
+    @Test
+    void search_RanksDocumentsWithMoreMatchingTermsFirst() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "headache after lunch");
+        index.put(2, "bad headache and nausea all day");
+        index.put(3, "slept well");
+
+        List<InvertedIndex.Hit<Integer>> hits = index.search("headache nausea", 10);
+
+        assertEquals(List.of(2, 1), hits.stream().map(InvertedIndex.Hit::key).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals(1, index.search("headache nausea", 1).size());
+    }
+
+    @Test
+    void put_ExistingKey_ReplacesItsTerms() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "spotting");
+        index.put(1, "heavy flow");
+
+        assertTrue(index.search("spotting", 10).isEmpty());
+        assertEquals(1, index.search("flow", 10).size());
+        assertEquals(2, index.termCount());
+    }
+
+    @Test
+    void remove_DropsPostings() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "mood swings");
+        index.put(2, "mood stable");
+
+        index.remove(1);
+
+        assertEquals(1, index.size());
+        assertEquals(2, index.termCount());
+        assertEquals(List.of(2), index.search("mood swings", 10).stream().map(InvertedIndex.Hit::key).toList());
+    }
+}
@@ -0,0 +1,62 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixTrieTest {
+
+    @Test
+    void add_SplitsSharedEdges() {
+        RadixTrie trie = new RadixTrie();
+        trie.add("letrozole", "Letrozole", 0);
+        trie.add("levothyroxine", "Levothyroxine", 0);
+        trie.add("le", "Le", 0);
+
+        assertEquals(3, trie.size());
+        assertTrue(trie.contains("letrozole"));
+        assertTrue(trie.contains("le"));
+        assertFalse(trie.contains("let"));
+        assertFalse(trie.contains("letrozoles"));
+    }
+
+    @Test
+    void add_ExistingKey_AddsWeightAndKeepsFirstValue() {
+        RadixTrie trie = new RadixTrie();
+        trie.add("metformin", "Metformin", 1);
+
+        assertEquals(3, trie.add("metformin", "METFORMIN", 2));
+        assertEquals(1, trie.size());
+        assertEquals("Metformin", trie.complete("met", 1).get(0).value());
+    }
+
+    @Test
+    void complete_RanksByWeightThenKey() {
+        RadixTrie trie = new RadixTrie();
+        trie.add("progesterone", "Progesterone", 2);
+        trie.add("prenatal multivitamin", "Prenatal Multivitamin", 5);
+        trie.add("prednisone", "Prednisone", 2);
+        trie.add("paracetamol", "Paracetamol", 9);
+
+        List<RadixTrie.Completion> completions = trie.complete("pr", 10);
+
+        assertEquals(List.of("Prenatal Multivitamin", "Prednisone", "Progesterone"),
+                completions.stream().map(RadixTrie.Completion::value).toList());
+        assertEquals(List.of("Prenatal Multivitamin"),
+                trie.complete("pr", 1).stream().map(RadixTrie.Completion::value).toList());
+    }
+
+    @Test
+    void complete_PrefixEndingInsideEdge_ReturnsSubtree() {
+        RadixTrie trie = new RadixTrie();
+        trie.add("tranexamic acid", "Tranexamic Acid", 0);
+        trie.add("folic acid", "Folic Acid", 0);
+
+        assertEquals("Tranexamic Acid", trie.complete("tranex", 5).get(0).value());
+        assertEquals(2, trie.complete("", 5).size());
+        assertTrue(trie.complete("tranq", 5).isEmpty());
+        assertTrue(trie.complete("tranexamic acids", 5).isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+package com.ovapal.util;
+
+import com.ovapal.util.ReportWriter.Column;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportWriterTest {
+
+    private static final List<Column> COLUMNS = List.of(new Column("Date", 10), new Column("Notes", 8));
+
+    @Test
+    void csv_EscapesValuesAndSeparatesSections() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvReportWriter writer = new CsvReportWriter(out);
+
+        writer.title("Summary");
+        writer.section("Vitals", COLUMNS);
+        writer.row(List.of("2024-01-01", "tired, \"low\""));
+        writer.row(List.of("2024-01-02", ""));
+        writer.finish();
+
+        assertEquals("Summary\r\n\r\nVitals\r\nDate,Notes\r\n2024-01-01,\"tired, \"\"low\"\"\"\r\n2024-01-02,\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void pdf_WritesValidCrossReferenceTable() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfReportWriter writer = new PdfReportWriter(out);
+
+        writer.title("Summary (test)");
+        writer.section("Vitals", COLUMNS);
+        writer.row(List.of("2024-01-01", "ok"));
+        writer.finish();
+
+        String pdf = out.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+        assertTrue(pdf.contains("(Summary \\(test\\)) Tj"));
+        assertEquals(1, writer.getPageCount());
+        assertOffsetsPointAtObjects(pdf);
+    }
+
+    @Test
+    void pdf_StartsNewPagesWithContinuedHeader() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfReportWriter writer = new PdfReportWriter(out);
+
+        writer.section("Vitals", COLUMNS);
+        for (int i = 0; i < 200; i++) {
+            writer.row(List.of("2024-01-01", "row " + i));
+        }
+        writer.finish();
+
+        String pdf = out.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(writer.getPageCount() > 2);
+        assertTrue(pdf.contains("(Vitals \\(continued\\)) Tj"));
+        assertTrue(pdf.contains("/Count " + writer.getPageCount()));
+        assertOffsetsPointAtObjects(pdf);
+    }
+
+    @Test
+    void pdf_EmptyReportHasOnePage() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfReportWriter writer = new PdfReportWriter(out);
+
+        writer.finish();
+
+        assertEquals(1, writer.getPageCount());
+        assertOffsetsPointAtObjects(out.toString(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void format_PadsAndTruncatesToColumnWidths() {
+        assertEquals("2024-01-01 a very ~", PdfReportWriter.format(List.of("2024-01-01", "a very long note"), COLUMNS));
+        assertEquals("x" + " ".repeat(10) + "y", PdfReportWriter.format(List.of("x", "y"), COLUMNS));
+    }
+
+    @Test
+    void escape_QuotesPdfSpecialCharacters() {
+        assertEquals("a\\(b\\)\\\\ ?", PdfReportWriter.escape("a(b)\\\t€"));
+    }
+
+    private static void assertOffsetsPointAtObjects(String pdf) {
+        int xref = Integer.parseInt(pdf.substring(pdf.lastIndexOf("startxref\n") + 10, pdf.lastIndexOf("\n%%EOF")));
+        assertTrue(pdf.startsWith("xref\n", xref));
+        Matcher size = Pattern.compile("/Size (\\d+)").matcher(pdf);
+        assertTrue(size.find());
+        Matcher entry = Pattern.compile("(\\d{10}) 00000 n ").matcher(pdf.substring(xref));
+        int object = 1;
+        while (entry.find()) {
+            int offset = Integer.parseInt(entry.group(1));
+            assertTrue(pdf.startsWith(object + " 0 obj\n", offset), "object " + object);
+            object++;
+        }
+        assertEquals(Integer.parseInt(size.group(1)), object);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDigestTest {
+
+    @Test
+    void quantile_UniformValues_WithinOnePercent() {
+        TDigest digest = new TDigest(100);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            digest.add(random.nextDouble() * 100);
+        }
+
+        assertEquals(100_000, digest.size());
+        assertEquals(50, digest.quantile(0.5), 1);
+        assertEquals(1, digest.quantile(0.01), 0.3);
+        assertEquals(99, digest.quantile(0.99), 0.3);
+        assertTrue(digest.centroidCount() <= 200);
+    }
+
+    @Test
+    void merge_MatchesSingleDigest() {
+        TDigest whole = new TDigest(100);
+        TDigest left = new TDigest(100);
+        TDigest right = new TDigest(100);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            double value = 28 + random.nextGaussian() * 3;
+            whole.add(value);
+            (i % 3 == 0 ? left : right).add(value);
+        }
+
+        left.merge(right);
+
+        assertEquals(whole.size(), left.size());
+        for (double q : new double[] {0.1, 0.25, 0.5, 0.75, 0.9}) {
+            assertEquals(whole.quantile(q), left.quantile(q), 0.1);
+        }
+    }
+
+    @Test
+    void quantile_SmallAndEmptyDigests() {
+        TDigest digest = new TDigest(100);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+        digest.add(30);
+        assertEquals(30, digest.quantile(0.9));
+
+        digest.add(26);
+        digest.add(28);
+        assertEquals(26, digest.quantile(0), 1e-9);
+        assertEquals(28, digest.quantile(0.5), 1e-9);
+        assertEquals(30, digest.quantile(1), 1e-9);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalsWindowTest {
+
+    private static final long TODAY = 20_000;
+
+    @Test
+    void stats_LinearSeries_ReportsAverageAndSlope() {
+        VitalsWindow window = new VitalsWindow(30, 4);
+        for (int day = 0; day < 10; day++) {
+            window.upsert(day, TODAY - 9 + day, TODAY, 60.0 + day * 0.5, null, 70, null, null);
+        }
+
+        VitalsWindow.Stats weight = window.stats(VitalsWindow.Vital.WEIGHT, TODAY - 29);
+
+        assertEquals(10, weight.count());
+        assertEquals(62.25, weight.average(), 1e-9);
+        assertEquals(0.5, weight.slopePerDay(), 1e-9);
+        assertEquals(64.5, weight.latest());
+        assertEquals(0, window.stats(VitalsWindow.Vital.HEART_RATE, TODAY - 29).slopePerDay());
+        assertNull(window.stats(VitalsWindow.Vital.TEMPERATURE, TODAY - 29));
+    }
+
+    @Test
+    void upsert_OutOfOrderAndReplacedRecords_KeepsDayOrder() {
+        VitalsWindow window = new VitalsWindow(30, 4);
+        window.upsert(1, TODAY, TODAY, 61.0, null, null, null, null);
+        window.upsert(2, TODAY - 5, TODAY, 60.0, null, null, null, null);
+        window.upsert(1, TODAY, TODAY, 63.0, null, null, null, null);
+
+        VitalsWindow.Stats weight = window.stats(VitalsWindow.Vital.WEIGHT, TODAY - 29);
+
+        assertEquals(2, window.size());
+        assertEquals(63.0, weight.latest());
+        assertEquals(0.6, weight.slopePerDay(), 1e-9);
+        assertEquals(63.0, window.stats(VitalsWindow.Vital.WEIGHT, TODAY - 2).average());
+    }
+
+    @Test
+    void upsert_RecordsOutsideWindow_AreEvicted() {
+        VitalsWindow window = new VitalsWindow(7, 4);
+        window.upsert(1, TODAY - 10, TODAY - 5, null, 36.5, null, 120, 80);
+        window.upsert(2, TODAY - 8, TODAY, null, 36.6, null, 118, 79);
+        window.upsert(3, TODAY, TODAY, null, 36.7, null, 125, 82);
+
+        assertEquals(1, window.size());
+        assertEquals(125, window.stats(VitalsWindow.Vital.BLOOD_PRESSURE_SYSTOLIC, TODAY - 6).latest());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Append throughput for each fsync policy; results are logged for comparison. Run with mvn test -P benchmark
+@Tag("benchmark")
+class WriteAheadLogBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLogBenchmarkTest.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmark_AppendThroughputPerFsyncPolicy() throws IOException {
+        byte[] payload = new byte[256];
+        int[] appends = {20_000, 20_000, 2_000};
+        WriteAheadLog.FsyncPolicy[] policies = {
+                WriteAheadLog.FsyncPolicy.NONE, WriteAheadLog.FsyncPolicy.INTERVAL, WriteAheadLog.FsyncPolicy.ALWAYS};
+
+        for (int p = 0; p < policies.length; p++) {
+            Path policyDirectory = Files.createDirectory(directory.resolve(policies[p].name()));
+            try (WriteAheadLog log = new WriteAheadLog(policyDirectory, 1 << 20, policies[p], Duration.ofMillis(10))) {
+                long start = System.nanoTime();
+                for (int i = 0; i < appends[p]; i++) {
+                    log.append((byte) 1, payload);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                logger.info("fsync={}: {} appends of {} bytes in {} ms ({} appends/s)", policies[p], appends[p],
+                        payload.length, Math.round(seconds * 1000), Math.round(appends[p] / seconds));
+                assertEquals(appends[p], log.read(0, Integer.MAX_VALUE).size());
+            }
+        }
+    }
+}
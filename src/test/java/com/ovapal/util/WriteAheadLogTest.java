@@ -0,0 +1,169 @@
+package com.ovapal.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_ThenRead_ReturnsEntriesInOrder() throws IOException {
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NONE)) {
+            long first = log.append((byte) 1, bytes("first"));
+            long second = log.append((byte) 2, bytes("second"));
+
+            List<WriteAheadLog.Entry> entries = log.read(0, 10);
+
+            assertEquals(2, entries.size());
+            assertEquals("first", text(entries.get(0)));
+            assertEquals(first, entries.get(0).nextPosition());
+            assertEquals(2, entries.get(1).type());
+            assertEquals(second, entries.get(1).nextPosition());
+            assertTrue(log.read(second, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void append_PastSegmentEnd_RollsOverToNextSegment() throws IOException {
+        byte[] payload = new byte[1000];
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 10; i++) {
+                Arrays.fill(payload, (byte) i);
+                log.append((byte) 1, payload);
+            }
+
+            List<WriteAheadLog.Entry> entries = log.read(0, 100);
+
+            assertEquals(10, entries.size());
+            assertEquals(9, entries.get(9).payload()[0]);
+            assertTrue(log.getWritePosition() > 2L * SEGMENT_SIZE);
+        }
+        assertEquals(3, segmentCount());
+    }
+
+    @Test
+    void reopen_RecoversEndOfLogAndTruncatesTornEntry() throws IOException {
+        long end;
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            log.append((byte) 1, bytes("kept"));
+            end = log.append((byte) 1, bytes("torn"));
+        }
+
+        // Corrupt the payload of the second entry, as a crash in the middle of the write would
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+            file.seek(end - 1);
+            file.write('X');
+        }
+
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            List<WriteAheadLog.Entry> entries = log.read(0, 10);
+            assertEquals(1, entries.size());
+            assertEquals("kept", text(entries.get(0)));
+
+            log.append((byte) 1, bytes("after restart"));
+            assertEquals("after restart", text(log.read(entries.get(0).nextPosition(), 10).get(0)));
+        }
+    }
+
+    @Test
+    void deleteSegmentsBefore_RemovesOnlyAppliedSegments() throws IOException {
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NONE)) {
+            long position = 0;
+            for (int i = 0; i < 10; i++) {
+                position = log.append((byte) 1, new byte[1000]);
+            }
+            log.deleteSegmentsBefore(2L * SEGMENT_SIZE + 1);
+
+            assertEquals(1, segmentCount());
+            assertEquals(2, log.read(2L * SEGMENT_SIZE, 100).size());
+            assertEquals(position, log.getWritePosition());
+        }
+    }
+
+    @Test
+    void read_CorruptEntryInSealedSegment_StopsBeforeItAndReportsWhereToResume() throws IOException {
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NONE)) {
+            long first = log.append((byte) 1, new byte[1000]);
+            long second = log.append((byte) 1, new byte[1000]);
+            log.append((byte) 1, new byte[1000]);
+            for (int i = 0; i < 3; i++) {
+                log.append((byte) 1, new byte[1000]);
+            }
+
+            // Flip a payload byte of the second entry; the first segment is sealed by now
+            try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+                file.seek(second - 1);
+                file.write(1);
+            }
+
+            assertEquals(1, log.read(0, 10).size());
+            WriteAheadLog.CorruptEntryException e = assertThrows(WriteAheadLog.CorruptEntryException.class,
+                    () -> log.read(first, 10));
+            assertEquals(first, e.getPosition());
+            assertEquals(second, e.getResumePosition());
+            assertEquals(4, log.read(second, 10).size());
+        }
+    }
+
+    @Test
+    void getFirstPosition_IsTheOldestRemainingSegment() throws IOException {
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NONE)) {
+            assertEquals(0, log.getFirstPosition());
+            for (int i = 0; i < 10; i++) {
+                log.append((byte) 1, new byte[1000]);
+            }
+            log.deleteSegmentsBefore(2L * SEGMENT_SIZE);
+
+            assertEquals(2L * SEGMENT_SIZE, log.getFirstPosition());
+        }
+    }
+
+    @Test
+    void alignTo_MovesEmptyLogPastCheckpoint() throws IOException {
+        try (WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NONE)) {
+            log.alignTo(5000);
+            long next = log.append((byte) 1, bytes("aligned"));
+
+            List<WriteAheadLog.Entry> entries = log.read(5000, 10);
+            assertEquals(1, entries.size());
+            assertEquals(next, entries.get(0).nextPosition());
+        }
+    }
+
+    private WriteAheadLog open(WriteAheadLog.FsyncPolicy policy) throws IOException {
+        return new WriteAheadLog(directory, SEGMENT_SIZE, policy, Duration.ofMillis(10));
+    }
+
+    private long segmentCount() throws IOException {
+        return segmentFiles().size();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(WriteAheadLog.Entry entry) {
+        return new String(entry.payload(), StandardCharsets.UTF_8);
+    }
+}